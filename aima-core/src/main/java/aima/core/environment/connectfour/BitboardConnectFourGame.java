@@ -0,0 +1,96 @@
+package aima.core.environment.connectfour;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import aima.core.search.adversarial.Game;
+
+/**
+ * Provides an implementation of the ConnectFour game based on
+ * {@link BitboardConnectFourState}s. Players and actions are the same as in
+ * {@link ConnectFourGame}, but results are computed by copying two longs
+ * instead of the board array, and the action lists are shared between states
+ * with the same set of playable columns.
+ */
+public class BitboardConnectFourGame implements Game<BitboardConnectFourState, Integer, String> {
+
+	/** Maximal number of columns for which action lists are shared. */
+	private static final int MAX_SHARED_COLS = 10;
+
+	private String[] players = new String[] { "red", "yellow" };
+	private BitboardConnectFourState initialState;
+	/** Actions for each set of full columns, indexed by the column bits. */
+	private final List<List<Integer>> actionLists = new ArrayList<>();
+
+	public BitboardConnectFourGame() {
+		this(6, 7);
+	}
+
+	public BitboardConnectFourGame(int rows, int cols) {
+		initialState = new BitboardConnectFourState(rows, cols);
+		if (cols <= MAX_SHARED_COLS)
+			for (int fullCols = 0; fullCols < 1 << cols; fullCols++)
+				actionLists.add(Collections.unmodifiableList(createActions(fullCols, cols)));
+	}
+
+	@Override
+	public BitboardConnectFourState getInitialState() {
+		return initialState;
+	}
+
+	@Override
+	public String[] getPlayers() {
+		return players;
+	}
+
+	@Override
+	public String getPlayer(BitboardConnectFourState state) {
+		return players[state.getPlayerToMove() - 1];
+	}
+
+	/** Returns the playable columns. The list must not be modified. */
+	@Override
+	public List<Integer> getActions(BitboardConnectFourState state) {
+		long fullCols = 0;
+		for (int col = 0; col < state.getCols(); col++)
+			if (!state.isPlayable(col))
+				fullCols |= 1L << col;
+		if (actionLists.isEmpty())
+			return createActions(fullCols, state.getCols());
+		return actionLists.get((int) fullCols);
+	}
+
+	private static List<Integer> createActions(long fullCols, int cols) {
+		List<Integer> result = new ArrayList<>();
+		for (int col = 0; col < cols; col++)
+			if ((fullCols & 1L << col) == 0)
+				result.add(col);
+		return result;
+	}
+
+	@Override
+	public BitboardConnectFourState getResult(BitboardConnectFourState state, Integer action) {
+		BitboardConnectFourState result = state.clone();
+		result.dropDisk(action);
+		return result;
+	}
+
+	@Override
+	public boolean isTerminal(BitboardConnectFourState state) {
+		return state.getUtility() != -1;
+	}
+
+	@Override
+	public double getUtility(BitboardConnectFourState state, String player) {
+		double result = state.getUtility();
+		if (result != -1) {
+			if (Objects.equals(player, players[1]))
+				result = 1 - result;
+		} else {
+			throw new IllegalArgumentException("State is not terminal.");
+		}
+		return result;
+	}
+}
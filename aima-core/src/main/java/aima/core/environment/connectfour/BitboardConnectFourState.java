@@ -0,0 +1,181 @@
+package aima.core.environment.connectfour;
+
+/**
+ * A state of the Connect Four game which represents the disks of each player
+ * by the bits of a long value. Column <code>c</code> occupies bits
+ * <code>c * (rows + 1)</code> to <code>c * (rows + 1) + rows - 1</code>,
+ * starting with the bottom row. The additional bit on top of each column stays
+ * empty and separates the columns, so that lines of four can be detected by a
+ * few shift operations. Disks can be dropped and removed in constant time.
+ * Boards need at most 64 bits including the separators, which holds for the
+ * standard size of 6 rows and 7 columns.
+ */
+public class BitboardConnectFourState implements Cloneable {
+	private final int rows;
+	private final int cols;
+	/** Disks of player 1 and player 2. */
+	private long disks1;
+	private long disks2;
+	private int moveCount;
+	/**
+	 * Indicates the utility of the state. 1: win for player 1, 0: win for
+	 * player 2, 0.5: draw, -1 for all non-terminal states.
+	 */
+	private double utility = -1;
+
+	public BitboardConnectFourState(int rows, int cols) {
+		if ((rows + 1) * cols > 64)
+			throw new IllegalArgumentException("Board too large for bitboard representation.");
+		this.rows = rows;
+		this.cols = cols;
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	public int getCols() {
+		return cols;
+	}
+
+	public double getUtility() {
+		return utility;
+	}
+
+	/** Returns 1 or 2 for a disk of player 1 or 2 at the given space, else 0. */
+	public int getPlayerNum(int row, int col) {
+		// row 0 is the top row as in ConnectFourState
+		long bit = 1L << (col * (rows + 1) + rows - 1 - row);
+		return (disks1 & bit) != 0 ? 1 : (disks2 & bit) != 0 ? 2 : 0;
+	}
+
+	public int getPlayerToMove() {
+		return moveCount % 2 + 1;
+	}
+
+	public int getMoves() {
+		return moveCount;
+	}
+
+	/** Returns true if the column has space for another disk. */
+	public boolean isPlayable(int col) {
+		return (getAllDisks() & getTopMask(col)) == 0;
+	}
+
+	/**
+	 * Returns a bit pattern which identifies the state: the disks of player 1
+	 * plus a marker bit on top of each column.
+	 */
+	public long getKey() {
+		return disks1 + getAllDisks() + getBottomMask();
+	}
+
+	/**
+	 * Drops a disk of the player to move into the column and updates the
+	 * utility.
+	 */
+	public void dropDisk(int col) {
+		long disk = (getAllDisks() + getBottomMask(col)) & getColumnMask(col);
+		if (disk == 0 || utility != -1)
+			return;
+		moveCount++;
+		if (moveCount % 2 == 1) {
+			disks1 |= disk;
+			if (hasLineOfFour(disks1))
+				utility = 1;
+		} else {
+			disks2 |= disk;
+			if (hasLineOfFour(disks2))
+				utility = 0;
+		}
+		if (utility == -1 && moveCount == rows * cols)
+			utility = 0.5;
+	}
+
+	/**
+	 * Removes the top disk from the column. This undoes
+	 * {@link #dropDisk(int)} if the column was the last one played.
+	 */
+	public void removeDisk(int col) {
+		long disk = ((getAllDisks() + getBottomMask(col)) & getColumnMask(col) << 1) >>> 1;
+		if ((disk & getAllDisks()) == 0)
+			return;
+		disks1 &= ~disk;
+		disks2 &= ~disk;
+		moveCount--;
+		utility = -1;
+	}
+
+	@Override
+	public BitboardConnectFourState clone() {
+		try {
+			return (BitboardConnectFourState) super.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new IllegalStateException(e); // should never happen...
+		}
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj != null && getClass() == obj.getClass()) {
+			BitboardConnectFourState s = (BitboardConnectFourState) obj;
+			return disks1 == s.disks1 && disks2 == s.disks2 && rows == s.rows && cols == s.cols;
+		}
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(getKey());
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		for (int row = 0; row < rows; row++) {
+			for (int col = 0; col < cols; col++)
+				builder.append(" XO".charAt(getPlayerNum(row, col)));
+			builder.append("\n");
+		}
+		return builder.toString();
+	}
+
+	// ////////////////////////////////////////////////////////////////////
+	// bit operations
+
+	private long getAllDisks() {
+		return disks1 | disks2;
+	}
+
+	/** Returns true if four disks are aligned in one of the four directions. */
+	private boolean hasLineOfFour(long disks) {
+		int h = rows + 1;
+		return hasLineOfFour(disks, 1) || hasLineOfFour(disks, h) || hasLineOfFour(disks, h - 1)
+				|| hasLineOfFour(disks, h + 1);
+	}
+
+	/** Checks the direction in which neighbors differ by the given shift. */
+	private static boolean hasLineOfFour(long disks, int shift) {
+		long pairs = disks & (disks >>> shift);
+		return (pairs & (pairs >>> 2 * shift)) != 0;
+	}
+
+	private long getBottomMask(int col) {
+		return 1L << col * (rows + 1);
+	}
+
+	private long getBottomMask() {
+		long result = 0;
+		for (int col = 0; col < cols; col++)
+			result |= getBottomMask(col);
+		return result;
+	}
+
+	private long getColumnMask(int col) {
+		return ((1L << rows) - 1) << col * (rows + 1);
+	}
+
+	private long getTopMask(int col) {
+		return 1L << (rows - 1 + col * (rows + 1));
+	}
+}
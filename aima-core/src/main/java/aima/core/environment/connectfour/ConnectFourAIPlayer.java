@@ -7,16 +7,20 @@ import aima.core.search.adversarial.Game;
 import aima.core.search.adversarial.IterativeDeepeningAlphaBetaSearch;
 
 /**
- * Implements an iterative deepening Minimax search with alpha-beta pruning and
- * a special action ordering optimized for the Connect Four game.
+ * Implements an iterative deepening Minimax search with alpha-beta pruning,
+ * a transposition table, and a special action ordering optimized for the
+ * Connect Four game.
  * 
  * @author Ruediger Lunde
  */
 public class ConnectFourAIPlayer extends
 		IterativeDeepeningAlphaBetaSearch<ConnectFourState, Integer, String> {
 
+	private static final int TRANSPOSITION_TABLE_SIZE = 1 << 18;
+
 	public ConnectFourAIPlayer(Game<ConnectFourState, Integer, String> game, int time) {
 		super(game, 0.0, 1.0, time);
+		setTranspositionTable(ConnectFourState::getZobristHash, TRANSPOSITION_TABLE_SIZE);
 	}
 
 	@Override
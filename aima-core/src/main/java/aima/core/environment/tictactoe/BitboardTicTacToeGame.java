@@ -0,0 +1,82 @@
+package aima.core.environment.tictactoe;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import aima.core.search.adversarial.Game;
+import aima.core.util.datastructure.XYLocation;
+
+/**
+ * Provides an implementation of the Tic-tac-toe game based on
+ * {@link BitboardTicTacToeState}s. Players and actions are the same as in
+ * {@link TicTacToeGame}, and actions are returned in the same order. Action
+ * lists are computed once for each set of marked spaces and shared.
+ */
+public class BitboardTicTacToeGame implements Game<BitboardTicTacToeState, XYLocation, String> {
+
+	private BitboardTicTacToeState initialState = new BitboardTicTacToeState();
+	/** Actions, indexed by the bits of the marked spaces. */
+	private final List<List<XYLocation>> actionLists = new ArrayList<>();
+
+	public BitboardTicTacToeGame() {
+		XYLocation[] locations = new XYLocation[12];
+		for (int col = 0; col < 3; col++)
+			for (int row = 0; row < 3; row++)
+				locations[row * 4 + col] = new XYLocation(col, row);
+		for (int marked = 0; marked < 1 << 12; marked++) {
+			List<XYLocation> actions = new ArrayList<>();
+			for (int col = 0; col < 3; col++)
+				for (int row = 0; row < 3; row++)
+					if ((marked & 1 << (row * 4 + col)) == 0)
+						actions.add(locations[row * 4 + col]);
+			actionLists.add(Collections.unmodifiableList(actions));
+		}
+	}
+
+	@Override
+	public BitboardTicTacToeState getInitialState() {
+		return initialState;
+	}
+
+	@Override
+	public String[] getPlayers() {
+		return new String[] { TicTacToeState.X, TicTacToeState.O };
+	}
+
+	@Override
+	public String getPlayer(BitboardTicTacToeState state) {
+		return state.getPlayerToMove();
+	}
+
+	/** Returns the unmarked spaces. The list must not be modified. */
+	@Override
+	public List<XYLocation> getActions(BitboardTicTacToeState state) {
+		return actionLists.get(state.getMarkedPositions());
+	}
+
+	@Override
+	public BitboardTicTacToeState getResult(BitboardTicTacToeState state, XYLocation action) {
+		BitboardTicTacToeState result = state.clone();
+		result.mark(action);
+		return result;
+	}
+
+	@Override
+	public boolean isTerminal(BitboardTicTacToeState state) {
+		return state.getUtility() != -1;
+	}
+
+	@Override
+	public double getUtility(BitboardTicTacToeState state, String player) {
+		double result = state.getUtility();
+		if (result != -1) {
+			if (Objects.equals(player, TicTacToeState.O))
+				result = 1 - result;
+		} else {
+			throw new IllegalArgumentException("State is not terminal.");
+		}
+		return result;
+	}
+}
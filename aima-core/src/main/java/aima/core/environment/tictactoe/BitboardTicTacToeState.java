@@ -0,0 +1,160 @@
+package aima.core.environment.tictactoe;
+
+import java.util.Objects;
+
+import aima.core.util.datastructure.XYLocation;
+
+/**
+ * A state of the Tic-tac-toe game which represents the marks of each player
+ * by the bits of an int value. The space in column <code>col</code> and row
+ * <code>row</code> corresponds to bit <code>row * 4 + col</code>. The unused
+ * fourth bit of each row separates the rows, so that complete lines can be
+ * detected by a few shift operations. Marks can be set and removed in
+ * constant time.
+ */
+public class BitboardTicTacToeState implements Cloneable {
+	private static final int FULL_BOARD = 0x777;
+
+	private int xMarks;
+	private int oMarks;
+	private boolean xToMove = true;
+	private double utility = -1; // 1: win for X, 0: win for O, 0.5: draw
+
+	public BitboardTicTacToeState() {
+	}
+
+	/** Creates a state from a board as used by {@link TicTacToeState}. */
+	public BitboardTicTacToeState(String[] board, String playerToMove) {
+		for (int i = 0; i < 9; i++) {
+			int bit = 1 << (i / 3 * 4 + i % 3);
+			if (Objects.equals(board[i], TicTacToeState.X))
+				xMarks |= bit;
+			else if (Objects.equals(board[i], TicTacToeState.O))
+				oMarks |= bit;
+		}
+		if (hasLine(xMarks))
+			utility = 1;
+		else if (hasLine(oMarks))
+			utility = 0;
+		else if ((xMarks | oMarks) == FULL_BOARD)
+			utility = 0.5;
+		xToMove = Objects.equals(playerToMove, TicTacToeState.X);
+	}
+
+	public String getPlayerToMove() {
+		return xToMove ? TicTacToeState.X : TicTacToeState.O;
+	}
+
+	public boolean isEmpty(int col, int row) {
+		return ((xMarks | oMarks) & getBit(col, row)) == 0;
+	}
+
+	public String getValue(int col, int row) {
+		int bit = getBit(col, row);
+		return (xMarks & bit) != 0 ? TicTacToeState.X : (oMarks & bit) != 0 ? TicTacToeState.O : TicTacToeState.EMPTY;
+	}
+
+	public double getUtility() {
+		return utility;
+	}
+
+	/** Returns the bits of all marked spaces. */
+	public int getMarkedPositions() {
+		return xMarks | oMarks;
+	}
+
+	/**
+	 * Returns a bit pattern which identifies the state: the marks of X in the
+	 * lower 12 bits, the marks of O in the next 12 bits, and the player to move
+	 * in bit 24.
+	 */
+	public int getKey() {
+		return xMarks | oMarks << 12 | (xToMove ? 0 : 1 << 24);
+	}
+
+	public void mark(XYLocation action) {
+		mark(action.getX(), action.getY());
+	}
+
+	/** Marks the space for the player to move and updates the utility. */
+	public void mark(int col, int row) {
+		int bit = getBit(col, row);
+		if (utility != -1 || ((xMarks | oMarks) & bit) != 0)
+			return;
+		if (xToMove) {
+			xMarks |= bit;
+			if (hasLine(xMarks))
+				utility = 1;
+		} else {
+			oMarks |= bit;
+			if (hasLine(oMarks))
+				utility = 0;
+		}
+		if (utility == -1 && (xMarks | oMarks) == FULL_BOARD)
+			utility = 0.5;
+		xToMove = !xToMove;
+	}
+
+	/** Removes the mark of the player who moved last. This undoes {@link #mark(int, int)}. */
+	public void unmark(int col, int row) {
+		int bit = getBit(col, row);
+		int marks = xToMove ? oMarks : xMarks;
+		if ((marks & bit) == 0)
+			return;
+		if (xToMove)
+			oMarks &= ~bit;
+		else
+			xMarks &= ~bit;
+		xToMove = !xToMove;
+		utility = -1;
+	}
+
+	@Override
+	public BitboardTicTacToeState clone() {
+		try {
+			return (BitboardTicTacToeState) super.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new IllegalStateException(e); // should never happen...
+		}
+	}
+
+	@Override
+	public boolean equals(Object anObj) {
+		if (anObj != null && anObj.getClass() == getClass()) {
+			BitboardTicTacToeState anotherState = (BitboardTicTacToeState) anObj;
+			return xMarks == anotherState.xMarks && oMarks == anotherState.oMarks;
+		}
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		return xMarks | oMarks << 12;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		for (int row = 0; row < 3; row++) {
+			for (int col = 0; col < 3; col++) {
+				builder.append(getValue(col, row)).append(" ");
+			}
+			builder.append("\n");
+		}
+		return builder.toString();
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	private static int getBit(int col, int row) {
+		return 1 << (row * 4 + col);
+	}
+
+	/** Checks rows (shift 1), columns (4), and both diagonals (5 and 3). */
+	private static boolean hasLine(int marks) {
+		return (marks & marks >>> 1 & marks >>> 2) != 0 || (marks & marks >>> 4 & marks >>> 8) != 0
+				|| (marks & marks >>> 5 & marks >>> 10) != 0 || (marks & marks >>> 3 & marks >>> 6) != 0;
+	}
+}
@@ -5,6 +5,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 
+import aima.core.search.adversarial.Zobrist;
 import aima.core.util.datastructure.XYLocation;
 
 /**
@@ -18,8 +19,12 @@ public class TicTacToeState implements Cloneable {
 	public static final String O = "O";
 	public static final String X = "X";
 	public static final String EMPTY = "-";
+	/** Hash key component which indicates that O is to move. */
+	private static final long O_TO_MOVE_KEY = Zobrist.getKey(9, 0);
 	//
 	private String[] board;
+	/** Zobrist hash of the marks on the board and the player to move. */
+	private long zobristHash;
 
 	private String playerToMove;
 	private double utility = -1; // 1: win for X, 0: win for O, 0.5: draw
@@ -34,6 +39,11 @@ public class TicTacToeState implements Cloneable {
 		this.playerToMove = (Objects.equals(playerToMove, X) ? O : X);
 		analyzeUtility();
 		this.playerToMove = playerToMove;
+		for (int i = 0; i < 9; i++)
+			if (!Objects.equals(board[i], EMPTY))
+				zobristHash ^= getZobristKey(i, board[i]);
+		if (Objects.equals(playerToMove, O))
+			zobristHash ^= O_TO_MOVE_KEY;
 	}
 
 	public String getPlayerToMove() {
@@ -52,6 +62,14 @@ public class TicTacToeState implements Cloneable {
 		return utility;
 	}
 
+	/**
+	 * Returns a hash key of the board and the player to move which is
+	 * maintained incrementally.
+	 */
+	public long getZobristHash() {
+		return zobristHash;
+	}
+
 	public void mark(XYLocation action) {
 		mark(action.getX(), action.getY());
 	}
@@ -59,6 +77,7 @@ public class TicTacToeState implements Cloneable {
 	public void mark(int col, int row) {
 		if (utility == -1 && Objects.equals(getValue(col, row), EMPTY)) {
 			board[getAbsPosition(col, row)] = playerToMove;
+			zobristHash ^= getZobristKey(getAbsPosition(col, row), playerToMove) ^ O_TO_MOVE_KEY;
 			analyzeUtility();
 			playerToMove = (Objects.equals(playerToMove, X) ? O : X);
 		}
@@ -182,4 +201,8 @@ public class TicTacToeState implements Cloneable {
 	private int getAbsPosition(int col, int row) {
 		return row * 3 + col;
 	}
+
+	private static long getZobristKey(int position, String player) {
+		return Zobrist.getKey(position, Objects.equals(player, X) ? 0 : 1);
+	}
 }
@@ -0,0 +1,174 @@
+package aima.core.logic.fol;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import aima.core.logic.fol.parsing.ast.FOLNode;
+import aima.core.logic.fol.parsing.ast.Function;
+import aima.core.logic.fol.parsing.ast.Term;
+import aima.core.logic.fol.parsing.ast.Variable;
+
+/**
+ * A substitution which is extended by unification and can be reset to earlier
+ * states. In contrast to {@link Unifier}, bindings are not cascaded: a
+ * variable can be bound to a term which contains bound variables, and terms
+ * are dereferenced when they are looked at. Each binding is recorded on a
+ * trail, so that all bindings made after a mark can be undone in time
+ * proportional to their number. This allows to search through alternative
+ * unifiers (e.g. when joining the premises of a rule with facts) without
+ * copying substitutions.
+ * <p>
+ * The unification algorithm is the one of Figure 9.1 (including the occur
+ * check), so {@link #toMap()} returns the same substitution as
+ * {@link Unifier#unify(FOLNode, FOLNode)} for the same sequence of
+ * unifications.
+ */
+public class TrailSubstitution {
+
+	private Map<Variable, Term> bindings = new HashMap<Variable, Term>();
+	private List<Variable> trail = new ArrayList<Variable>();
+
+	public TrailSubstitution() {
+
+	}
+
+	/**
+	 * Returns a mark which can be passed to {@link #undo(int)}.
+	 */
+	public int getTrailMark() {
+		return trail.size();
+	}
+
+	/**
+	 * Removes all bindings which have been added after the mark was taken.
+	 */
+	public void undo(int mark) {
+		for (int i = trail.size() - 1; i >= mark; i--) {
+			bindings.remove(trail.remove(i));
+		}
+	}
+
+	public boolean isEmpty() {
+		return trail.isEmpty();
+	}
+
+	/**
+	 * Follows the bindings of a variable until an unbound variable or a
+	 * non-variable term is reached. Arguments of compound terms are not
+	 * dereferenced.
+	 */
+	public FOLNode deref(FOLNode x) {
+		while (x instanceof Variable) {
+			Term value = bindings.get(x);
+			if (null == value) {
+				break;
+			}
+			x = value;
+		}
+		return x;
+	}
+
+	/**
+	 * Extends the substitution so that x and y become identical.
+	 *
+	 * @return true if x and y could be unified. Otherwise the substitution
+	 *         remains unchanged and false is returned.
+	 */
+	public boolean unify(FOLNode x, FOLNode y) {
+		int mark = getTrailMark();
+		if (unifyRec(x, y)) {
+			return true;
+		}
+		undo(mark);
+		return false;
+	}
+
+	/**
+	 * Applies the substitution completely to a term.
+	 */
+	public Term subst(Term term) {
+		FOLNode t = deref(term);
+		if (t instanceof Function) {
+			Function f = (Function) t;
+			List<Term> args = new ArrayList<Term>(f.getArgs().size());
+			for (Term arg : f.getArgs()) {
+				args.add(subst(arg));
+			}
+			return new Function(f.getFunctionName(), args);
+		}
+		return (Term) t;
+	}
+
+	/**
+	 * Returns the substitution as map, in which all terms are fully
+	 * substituted. The variables are ordered by binding time.
+	 */
+	public Map<Variable, Term> toMap() {
+		Map<Variable, Term> result = new LinkedHashMap<Variable, Term>();
+		for (Variable var : trail) {
+			result.put(var, subst(var));
+		}
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return toMap().toString();
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	private boolean unifyRec(FOLNode x, FOLNode y) {
+		x = deref(x);
+		y = deref(y);
+		if (x.equals(y)) {
+			return true;
+		} else if (x instanceof Variable) {
+			return bind((Variable) x, y);
+		} else if (y instanceof Variable) {
+			return bind((Variable) y, x);
+		} else if (x.isCompound() && y.isCompound()) {
+			List<? extends FOLNode> xArgs = x.getArgs();
+			List<? extends FOLNode> yArgs = y.getArgs();
+			if (!x.getSymbolicName().equals(y.getSymbolicName())
+					|| xArgs.size() != yArgs.size()) {
+				return false;
+			}
+			for (int i = 0; i < xArgs.size(); i++) {
+				if (!unifyRec(xArgs.get(i), yArgs.get(i))) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+
+	private boolean bind(Variable var, FOLNode x) {
+		if (!(x instanceof Term) || occurs(var, x)) {
+			return false;
+		}
+		bindings.put(var, (Term) x);
+		trail.add(var);
+		return true;
+	}
+
+	private boolean occurs(Variable var, FOLNode x) {
+		x = deref(x);
+		if (var.equals(x)) {
+			return true;
+		} else if (x instanceof Function) {
+			for (Term arg : ((Function) x).getArgs()) {
+				if (occurs(var, arg)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+}
@@ -92,11 +92,12 @@ public class FOLBCAsk implements InferenceProcedure{
 		List<HashMap<Variable,Term>> result = new ArrayList<>();
 		finalAnswer.add(new ArrayList<>(Collections.singletonList(goal)));
 		HashMap<Variable,Term> temp;
-		if (fetchRulesForGoal(kb,goal).isEmpty())
+		List<Clause> rules = fetchRulesForGoal(kb,goal);
+		if (rules.isEmpty())
 			maybeFalse = true;
 		// for each rule (lhs ⇒ rhs) in FETCH-RULES-FOR-GOAL(KB, goal) do
 		for (Clause rule :
-				fetchRulesForGoal(kb,goal)) {
+				rules) {
 			//(lhs, rhs) ← STANDARDIZE-VARIABLES((lhs, rhs))
 			Clause tempClause = kb.standardizeApart(rule);
 			temp = new HashMap<>(theta);
@@ -150,31 +151,15 @@ public class FOLBCAsk implements InferenceProcedure{
 	}
 
 	/**
-	 * Fetches all those implication clauses whose rhs meet with the goal
+	 * Fetches all those implication clauses and facts whose rhs unify with the goal.
+	 * The knowledge base retrieves them from its term indexes.
 	 * @param kb
 	 * @param goal
 	 * @return
 	 */
 	private List<Clause> fetchRulesForGoal(FOLKnowledgeBase kb, Literal goal){
-		List<Clause> result = new ArrayList<>();
-		for (Clause clause :
-				kb.getAllDefiniteClauseImplications()) {
-			Literal rhs = clause.getPositiveLiterals().get(0);
-			if (rhs.getAtomicSentence().getSymbolicName().equals(goal.getAtomicSentence().getSymbolicName())){
-				result.add(clause);
-			}
-		}
-		for (Clause clause :
-				kb.getAllClauses()) {
-			if (clause.isUnitClause()){
-				for (Literal l :
-						clause.getLiterals()) {
-					if (l.getAtomicSentence().getSymbolicName().equals(goal.getAtomicSentence().getSymbolicName())) {
-						result.add(clause);
-					}
-				}
-			}
-		}
+		List<Clause> result = new ArrayList<>(kb.fetchImplicationsConcluding(goal));
+		result.addAll(kb.fetchUnifiableFacts(goal));
 		for (Clause clause :
 				result) {
 			ProofStep step = new BCProofStep(clause,this.bcaskHandler.proofs.get(0).getSteps(),goal);
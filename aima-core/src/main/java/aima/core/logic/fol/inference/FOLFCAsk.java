@@ -1,19 +1,23 @@
 package aima.core.logic.fol.inference;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import aima.core.logic.fol.TrailSubstitution;
 import aima.core.logic.fol.inference.proof.Proof;
 import aima.core.logic.fol.inference.proof.ProofFinal;
 import aima.core.logic.fol.inference.proof.ProofStep;
 import aima.core.logic.fol.inference.proof.ProofStepFoChAlreadyAFact;
 import aima.core.logic.fol.inference.proof.ProofStepFoChAssertFact;
+import aima.core.logic.fol.kb.DiscriminationTree;
 import aima.core.logic.fol.kb.FOLKnowledgeBase;
 import aima.core.logic.fol.kb.data.Clause;
 import aima.core.logic.fol.kb.data.Literal;
 import aima.core.logic.fol.parsing.ast.AtomicSentence;
+import aima.core.logic.fol.parsing.ast.FOLNode;
 import aima.core.logic.fol.parsing.ast.NotSentence;
 import aima.core.logic.fol.parsing.ast.Sentence;
 import aima.core.logic.fol.parsing.ast.Term;
@@ -50,16 +54,49 @@ import aima.core.logic.fol.parsing.ast.Variable;
  * sentences that can be inferred in one step from the implication sentences and
  * the atomic sentences already in KB. The function STANDARDIZE-VARIABLES
  * replaces all variables in its arguments with new ones that have not been used
- * before.
+ * before.<br>
+ * <br>
+ * Optionally, the semi-naive evaluation described as incremental forward
+ * chaining on page 336 can be used: every fact inferred on iteration t must be
+ * derived from at least one fact inferred on iteration t-1, so each iteration
+ * only considers premise matches which use at least one of the facts added in
+ * the previous iteration. For this, the body of each rule is compiled once per
+ * query into join plans, one for each premise which is matched against the new
+ * facts. A plan starts with this premise and continues greedily with the
+ * premise which has the most bound arguments, preferring the premises which
+ * match fewer facts in the KB. The premises are then joined with the facts of
+ * the KB by unification on a trail, so no intermediate substitutions are
+ * copied.
  * 
  * @author Ciaran O'Reilly
  * 
  */
 public class FOLFCAsk implements InferenceProcedure {
 
+	private boolean semiNaive = false;
+
 	public FOLFCAsk() {
 	}
 
+	/**
+	 * Constructor.
+	 * 
+	 * @param semiNaive
+	 *            if true, only premise matches which use a fact inferred on
+	 *            the previous iteration are considered on each iteration.
+	 */
+	public FOLFCAsk(boolean semiNaive) {
+		this.semiNaive = semiNaive;
+	}
+
+	public boolean isSemiNaive() {
+		return semiNaive;
+	}
+
+	public void setSemiNaive(boolean semiNaive) {
+		this.semiNaive = semiNaive;
+	}
+
 	//
 	// START-InferenceProcedure
 
@@ -97,6 +134,11 @@ public class FOLFCAsk implements InferenceProcedure {
 			return ansHandler;
 		}
 
+		if (semiNaive) {
+			new SemiNaiveForwardChaining(KB, alpha, ansHandler).run();
+			return ansHandler;
+		}
+
 		// repeat until new is empty
 		do {
 
@@ -126,15 +168,7 @@ public class FOLFCAsk implements InferenceProcedure {
 								alpha.getAtomicSentence());
 						// if theta is not fail then return theta
 						if (null != theta) {
-							for (Literal l : newSentences) {
-								Sentence s = null;
-								if (l.isPositiveLiteral()) {
-									s = l.getAtomicSentence();
-								} else {
-									s = new NotSentence(l.getAtomicSentence());
-								}
-								KB.tell(s);
-							}
+							tell(KB, newSentences);
 							ansHandler.setAnswers(KB.fetch(alpha));
 							return ansHandler;
 						}
@@ -142,15 +176,7 @@ public class FOLFCAsk implements InferenceProcedure {
 				}
 			}
 			// add new to KB
-			for (Literal l : newSentences) {
-				Sentence s = null;
-				if (l.isPositiveLiteral()) {
-					s = l.getAtomicSentence();
-				} else {
-					s = new NotSentence(l.getAtomicSentence());
-				}
-				KB.tell(s);
-			}
+			tell(KB, newSentences);
 		} while (newSentences.size() > 0);
 
 		// return false
@@ -172,6 +198,216 @@ public class FOLFCAsk implements InferenceProcedure {
 		return invLits;
 	}
 
+	private void tell(FOLKnowledgeBase KB, List<Literal> newSentences) {
+		for (Literal l : newSentences) {
+			Sentence s = null;
+			if (l.isPositiveLiteral()) {
+				s = l.getAtomicSentence();
+			} else {
+				s = new NotSentence(l.getAtomicSentence());
+			}
+			KB.tell(s);
+		}
+	}
+
+	private static void collectVariables(FOLNode node, Set<Variable> vars) {
+		if (node instanceof Variable) {
+			vars.add((Variable) node);
+		} else if (null != node.getArgs()) {
+			for (FOLNode arg : node.getArgs()) {
+				collectVariables(arg, vars);
+			}
+		}
+	}
+
+	/**
+	 * The order in which the premises of a rule are joined with the facts of
+	 * the KB, for each premise which is matched against the new facts.
+	 */
+	class JoinPlan {
+		private Clause implication;
+		private int[][] orders;
+
+		public JoinPlan(FOLKnowledgeBase KB, Clause implication) {
+			this.implication = implication;
+			List<Literal> premises = invert(implication.getNegativeLiterals());
+			int numberFacts = KB.getNumberUnitClauses();
+			int[] factCounts = new int[premises.size()];
+			for (int i = 0; i < premises.size(); i++) {
+				factCounts[i] = KB.fetchFactCandidates(premises.get(i), null,
+						0, numberFacts).size();
+			}
+			orders = new int[premises.size()][];
+			for (int k = 0; k < premises.size(); k++) {
+				orders[k] = createOrder(premises, factCounts, k);
+			}
+		}
+
+		public Clause getImplication() {
+			return implication;
+		}
+
+		/**
+		 * Returns the indexes of the premises in join order, starting with the
+		 * premise which is matched against the new facts.
+		 */
+		public int[] getOrder(int newFactsPremise) {
+			return orders[newFactsPremise];
+		}
+
+		private int[] createOrder(List<Literal> premises, int[] factCounts,
+				int first) {
+			int[] order = new int[premises.size()];
+			boolean[] used = new boolean[premises.size()];
+			Set<Variable> bound = new HashSet<Variable>();
+			int next = first;
+			for (int n = 0; n < order.length; n++) {
+				if (n > 0) {
+					next = -1;
+					int nextBound = -1;
+					for (int i = 0; i < premises.size(); i++) {
+						if (used[i]) {
+							continue;
+						}
+						int cntBound = countBoundArgs(premises.get(i), bound);
+						if (cntBound > nextBound
+								|| (cntBound == nextBound && factCounts[i] < factCounts[next])) {
+							next = i;
+							nextBound = cntBound;
+						}
+					}
+				}
+				order[n] = next;
+				used[next] = true;
+				collectVariables(premises.get(next).getAtomicSentence(), bound);
+			}
+			return order;
+		}
+
+		private int countBoundArgs(Literal premise, Set<Variable> bound) {
+			int cntBound = 0;
+			for (Term arg : premise.getAtomicSentence().getArgs()) {
+				Set<Variable> vars = new HashSet<Variable>();
+				collectVariables(arg, vars);
+				if (bound.containsAll(vars)) {
+					cntBound++;
+				}
+			}
+			return cntBound;
+		}
+	}
+
+	/**
+	 * Incremental forward chaining for one query, see page 336.
+	 */
+	class SemiNaiveForwardChaining {
+		private FOLKnowledgeBase KB;
+		private Literal alpha;
+		private FCAskAnswerHandler ansHandler;
+		private TrailSubstitution theta = new TrailSubstitution();
+		// local variables: new, the new sentences inferred on each iteration
+		private List<Literal> newSentences = new ArrayList<Literal>();
+		private DiscriminationTree<Literal> newSentencesIndex = new DiscriminationTree<Literal>();
+		// the facts told on the previous iteration are numbered from
+		// newFactsStart to newFactsEnd - 1
+		private int newFactsStart = 0;
+		private int newFactsEnd = 0;
+		// the rule being joined
+		private Clause impl;
+		private List<Literal> premises;
+		private int[] order;
+		private int newFactsPremise;
+
+		public SemiNaiveForwardChaining(FOLKnowledgeBase KB, Literal alpha,
+				FCAskAnswerHandler ansHandler) {
+			this.KB = KB;
+			this.alpha = alpha;
+			this.ansHandler = ansHandler;
+		}
+
+		public void run() {
+			List<JoinPlan> plans = new ArrayList<JoinPlan>();
+			for (Clause rule : KB.getAllDefiniteClauseImplications()) {
+				plans.add(new JoinPlan(KB, rule));
+			}
+			// on the first iteration all the facts in the KB are new
+			do {
+				newFactsEnd = KB.getNumberUnitClauses();
+				newSentences.clear();
+				newSentencesIndex.clear();
+				for (JoinPlan plan : plans) {
+					impl = KB.standardizeApart(plan.getImplication());
+					premises = invert(impl.getNegativeLiterals());
+					for (newFactsPremise = 0; newFactsPremise < premises
+							.size(); newFactsPremise++) {
+						order = plan.getOrder(newFactsPremise);
+						if (join(0)) {
+							return;
+						}
+					}
+				}
+				// add new to KB
+				tell(KB, newSentences);
+				newFactsStart = newFactsEnd;
+			} while (newSentences.size() > 0);
+		}
+
+		/**
+		 * Joins the premises from position n of the join order on.
+		 * 
+		 * @return true if a sentence which unifies with the query has been
+		 *         inferred.
+		 */
+		private boolean join(int n) {
+			if (n == order.length) {
+				return inferConclusion();
+			}
+			int premise = order[n];
+			// premises before the one matched against the new facts are only
+			// matched against older facts, so that each combination of facts
+			// is considered once
+			int from = premise == newFactsPremise ? newFactsStart : 0;
+			int to = premise < newFactsPremise ? newFactsStart : newFactsEnd;
+			Literal l = premises.get(premise);
+			int mark = theta.getTrailMark();
+			for (Literal fact : KB.fetchFactCandidates(l, theta, from, to)) {
+				if (theta.unify(l.getAtomicSentence(), fact.getAtomicSentence())) {
+					boolean found = join(n + 1);
+					theta.undo(mark);
+					if (found) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+
+		private boolean inferConclusion() {
+			Map<Variable, Term> bindings = theta.toMap();
+			// q' <- SUBST(theta, q)
+			Literal qDelta = KB.subst(bindings, impl.getPositiveLiterals()
+					.get(0));
+			// if q' does not unify with some sentence already in KB or
+			// new then do
+			if (!KB.isRenaming(qDelta)
+					&& !KB.isRenaming(qDelta,
+							newSentencesIndex.getUnifiableCandidates(qDelta))) {
+				// add q' to new
+				newSentences.add(qDelta);
+				newSentencesIndex.add(qDelta, qDelta);
+				ansHandler.addProofStep(impl, qDelta, bindings);
+				// if UNIFY(q', alpha) is not fail then return it
+				if (null != KB.unify(qDelta.getAtomicSentence(),
+						alpha.getAtomicSentence())) {
+					tell(KB, newSentences);
+					ansHandler.setAnswers(KB.fetch(alpha));
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
 	class FCAskAnswerHandler implements InferenceResult {
 
 		private ProofStep stepFinal = null;
@@ -1,6 +1,7 @@
 package aima.core.logic.fol.inference;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -12,6 +13,7 @@ import aima.core.logic.fol.inference.proof.Proof;
 import aima.core.logic.fol.inference.proof.ProofFinal;
 import aima.core.logic.fol.inference.proof.ProofStepGoal;
 import aima.core.logic.fol.inference.trace.FOLTFMResolutionTracer;
+import aima.core.logic.fol.kb.DiscriminationTree;
 import aima.core.logic.fol.kb.FOLKnowledgeBase;
 import aima.core.logic.fol.kb.data.Clause;
 import aima.core.logic.fol.kb.data.Literal;
@@ -36,6 +38,12 @@ import aima.core.logic.fol.parsing.ast.Variable;
  * http://logic.stanford.edu/classes/cs157/2008/lectures/lecture04.pdf</a>,
  * slide 21 for the propositional case. In addition, an Answer literal will be
  * used so that queries with Variables may be answered (see pg. 350 of AIMA3e).
+ * <br>
+ * <br>
+ * To skip pairs of clauses which cannot be resolved, the literals of the
+ * clauses are indexed in a {@link DiscriminationTree} in each round. A clause
+ * is only paired with the clauses which contain a literal that might unify
+ * with the complement of one of its literals.
  * 
  * @author Ciaran O'Reilly
  * 
@@ -132,13 +140,32 @@ public class FOLTFMResolution implements InferenceProcedure {
 			// for each Ci, Cj in clauses do
 			Clause[] clausesA = new Clause[clauses.size()];
 			clauses.toArray(clausesA);
+			DiscriminationTree<Integer> literalIndex = new DiscriminationTree<Integer>();
+			BitSet emptyClauses = new BitSet();
+			for (int i = 0; i < clausesA.length; i++) {
+				for (Literal l : clausesA[i].getLiterals()) {
+					literalIndex.add(l, i);
+				}
+				if (clausesA[i].isEmpty()) {
+					emptyClauses.set(i);
+				}
+			}
 			// Basically, using the simple T)wo F)inger M)ethod here.
 			for (int i = 0; i < clausesA.length; i++) {
 				Clause cI = clausesA[i];
 				if (null != tracer) {
 					tracer.stepOuterFor(cI);
 				}
-				for (int j = i; j < clausesA.length; j++) {
+				// Only clauses with a complementary literal can be resolved
+				BitSet partners = cI.isEmpty() ? emptyClauses : new BitSet();
+				for (Literal l : cI.getLiterals()) {
+					for (Integer j : literalIndex.getUnifiableCandidates(l
+							.getComplementaryLiteral())) {
+						partners.set(j);
+					}
+				}
+				for (int j = partners.nextSetBit(i); j >= 0; j = partners
+						.nextSetBit(j + 1)) {
 					Clause cJ = clausesA[j];
 
 					if (null != tracer) {
@@ -0,0 +1,256 @@
+package aima.core.logic.fol.kb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import aima.core.logic.fol.TrailSubstitution;
+import aima.core.logic.fol.kb.data.Literal;
+import aima.core.logic.fol.parsing.ast.AtomicSentence;
+import aima.core.logic.fol.parsing.ast.Constant;
+import aima.core.logic.fol.parsing.ast.FOLNode;
+import aima.core.logic.fol.parsing.ast.Variable;
+
+/**
+ * A discrimination tree which indexes items by literals. A literal is
+ * flattened into the sequence of its symbols in preorder, where each variable
+ * is replaced by a wildcard. The first symbol combines sign, predicate name
+ * and arity. Items whose literals share a prefix of this sequence share a path
+ * in the tree.
+ * <p>
+ * Retrieval follows the symbols of a query literal through the tree. A
+ * wildcard in the tree matches a complete subterm of the query, and a variable
+ * in the query skips a complete subterm in the tree. So only items whose
+ * literals might unify with the query are visited. Variables which occur more
+ * than once are not taken into account, so the candidates are a superset of
+ * the unifiable items. Callers which need exact results check the candidates
+ * by unification.
+ *
+ * @param <T>
+ *            the type of the indexed items
+ */
+public class DiscriminationTree<T> {
+
+	private Map<String, Node<T>> roots = new HashMap<String, Node<T>>();
+	private int size = 0;
+
+	public DiscriminationTree() {
+
+	}
+
+	/**
+	 * Adds an item to the index. An item can be added several times with
+	 * different literals.
+	 */
+	public void add(Literal literal, T item) {
+		Node<T> node = roots.get(getRootKey(literal.getAtomicSentence(),
+				literal.isPositiveLiteral()));
+		if (null == node) {
+			node = new Node<T>(0);
+			roots.put(getRootKey(literal.getAtomicSentence(),
+					literal.isPositiveLiteral()), node);
+		}
+		List<FOLNode> pending = new ArrayList<FOLNode>();
+		pushArgs(literal.getAtomicSentence(), pending);
+		while (!pending.isEmpty()) {
+			FOLNode term = pending.remove(pending.size() - 1);
+			if (term instanceof Variable) {
+				if (null == node.star) {
+					node.star = new Node<T>(0);
+				}
+				node = node.star;
+			} else {
+				String key = getKey(term);
+				Node<T> child = node.children.get(key);
+				if (null == child) {
+					child = new Node<T>(term.getArgs() == null ? 0 : term
+							.getArgs().size());
+					node.children.put(key, child);
+				}
+				node = child;
+				pushArgs(term, pending);
+			}
+		}
+		node.entries.add(new Entry<T>(size++, item));
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void clear() {
+		roots.clear();
+		size = 0;
+	}
+
+	/**
+	 * Returns the items whose literals might unify with the given literal, in
+	 * the order in which they have been added.
+	 */
+	public List<T> getUnifiableCandidates(Literal literal) {
+		return getUnifiableCandidates(literal.getAtomicSentence(),
+				literal.isPositiveLiteral(), null);
+	}
+
+	/**
+	 * Returns the items whose literals might unify with the given atomic
+	 * sentence with the given sign, in the order in which they have been
+	 * added.
+	 *
+	 * @param theta
+	 *            a substitution which is applied to the atomic sentence, or
+	 *            null.
+	 */
+	public List<T> getUnifiableCandidates(AtomicSentence atom,
+			boolean positive, TrailSubstitution theta) {
+		return getUnifiableCandidates(atom, positive, theta, 0, size);
+	}
+
+	/**
+	 * Returns the items whose literals might unify with the given atomic
+	 * sentence with the given sign, restricted to the items which have been
+	 * added as number <code>from</code> (inclusive) to number <code>to</code>
+	 * (exclusive), counting from 0.
+	 *
+	 * @param theta
+	 *            a substitution which is applied to the atomic sentence, or
+	 *            null.
+	 */
+	public List<T> getUnifiableCandidates(AtomicSentence atom,
+			boolean positive, TrailSubstitution theta, int from, int to) {
+		if (from >= to) {
+			return Collections.emptyList();
+		}
+		Node<T> root = roots.get(getRootKey(atom, positive));
+		if (null == root) {
+			return Collections.emptyList();
+		}
+		List<Entry<T>> entries = new ArrayList<Entry<T>>();
+		Pending args = null;
+		for (int i = atom.getArgs().size() - 1; i >= 0; i--) {
+			args = new Pending(atom.getArgs().get(i), args);
+		}
+		retrieve(root, args, theta, from, to, entries);
+		if (entries.size() > 1) {
+			Collections.sort(entries);
+		}
+		List<T> result = new ArrayList<T>(entries.size());
+		for (Entry<T> e : entries) {
+			result.add(e.item);
+		}
+		return result;
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	private void retrieve(Node<T> node, Pending pending,
+			TrailSubstitution theta, int from, int to, List<Entry<T>> result) {
+		if (null == pending) {
+			for (Entry<T> e : node.entries) {
+				if (e.number >= from && e.number < to) {
+					result.add(e);
+				}
+			}
+			return;
+		}
+		FOLNode term = null == theta ? pending.term : theta
+				.deref(pending.term);
+		if (term instanceof Variable) {
+			skip(node, 1, pending.next, theta, from, to, result);
+		} else {
+			Node<T> child = node.children.get(getKey(term));
+			if (null != child) {
+				Pending next = pending.next;
+				List<? extends FOLNode> args = term.getArgs();
+				if (null != args) {
+					for (int i = args.size() - 1; i >= 0; i--) {
+						next = new Pending(args.get(i), next);
+					}
+				}
+				retrieve(child, next, theta, from, to, result);
+			}
+			if (null != node.star) {
+				retrieve(node.star, pending.next, theta, from, to, result);
+			}
+		}
+	}
+
+	/** Skips count complete subterms in the tree. */
+	private void skip(Node<T> node, int count, Pending pending,
+			TrailSubstitution theta, int from, int to, List<Entry<T>> result) {
+		if (count == 0) {
+			retrieve(node, pending, theta, from, to, result);
+			return;
+		}
+		for (Node<T> child : node.children.values()) {
+			skip(child, count - 1 + child.arity, pending, theta, from, to,
+					result);
+		}
+		if (null != node.star) {
+			skip(node.star, count - 1, pending, theta, from, to, result);
+		}
+	}
+
+	private void pushArgs(FOLNode node, List<FOLNode> pending) {
+		List<? extends FOLNode> args = node.getArgs();
+		if (null != args) {
+			for (int i = args.size() - 1; i >= 0; i--) {
+				pending.add(args.get(i));
+			}
+		}
+	}
+
+	private String getRootKey(AtomicSentence atom, boolean positive) {
+		return (positive ? "+" : "-") + atom.getSymbolicName() + "/"
+				+ atom.getArgs().size();
+	}
+
+	private String getKey(FOLNode term) {
+		if (term instanceof Constant) {
+			return term.getSymbolicName();
+		}
+		// functions are distinguished from constants by their arity
+		return term.getSymbolicName() + "/" + term.getArgs().size();
+	}
+
+	private static class Node<T> {
+		// number of arguments of the symbol which leads to this node
+		final int arity;
+		final Map<String, Node<T>> children = new HashMap<String, Node<T>>();
+		Node<T> star;
+		final List<Entry<T>> entries = new ArrayList<Entry<T>>(1);
+
+		Node(int arity) {
+			this.arity = arity;
+		}
+	}
+
+	private static class Entry<T> implements Comparable<Entry<T>> {
+		final int number;
+		final T item;
+
+		Entry(int number, T item) {
+			this.number = number;
+			this.item = item;
+		}
+
+		public int compareTo(Entry<T> o) {
+			return Integer.compare(number, o.number);
+		}
+	}
+
+	/** Immutable list of the query terms which remain to be matched. */
+	private static class Pending {
+		final FOLNode term;
+		final Pending next;
+
+		Pending(FOLNode term, Pending next) {
+			this.term = term;
+			this.next = next;
+		}
+	}
+}
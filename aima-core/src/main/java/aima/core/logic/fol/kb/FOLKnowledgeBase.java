@@ -15,6 +15,7 @@ import aima.core.logic.fol.StandardizeApartIndexical;
 import aima.core.logic.fol.StandardizeApartIndexicalFactory;
 import aima.core.logic.fol.StandardizeApartResult;
 import aima.core.logic.fol.SubstVisitor;
+import aima.core.logic.fol.TrailSubstitution;
 import aima.core.logic.fol.Unifier;
 import aima.core.logic.fol.VariableCollector;
 import aima.core.logic.fol.domain.FOLDomain;
@@ -64,6 +65,10 @@ public class FOLKnowledgeBase {
 	private List<Clause> implicationDefiniteClauses = new ArrayList<Clause>();
 	// All the facts in the KB indexed by Atomic Sentence name (Note: pg. 279)
 	private Map<String, List<Literal>> indexFacts = new HashMap<String, List<Literal>>();
+	// The facts and the conclusions of the implications indexed by their
+	// terms, so that only unifiable candidates need to be checked
+	private DiscriminationTree<Clause> factIndex = new DiscriminationTree<Clause>();
+	private DiscriminationTree<Clause> implicationIndex = new DiscriminationTree<Clause>();
 	// Keep track of indexical keys for uniquely standardizing apart sentences
 	private StandardizeApartIndexical variableIndexical = StandardizeApartIndexicalFactory
 			.newStandardizeApartIndexical('v');
@@ -103,6 +108,8 @@ public class FOLKnowledgeBase {
 		this.allDefiniteClauses.clear();
 		this.implicationDefiniteClauses.clear();
 		this.indexFacts.clear();
+		this.factIndex.clear();
+		this.implicationIndex.clear();
 	}
 
 	public InferenceProcedure getInferenceProcedure() {
@@ -169,6 +176,15 @@ public class FOLKnowledgeBase {
 		return allDefiniteClauses.size() - implicationDefiniteClauses.size();
 	}
 
+	/**
+	 * Returns the number of unit clauses (positive and negative facts) in the
+	 * KB. Unit clauses are numbered from 0 in the order in which they were
+	 * told, see {@link #fetchFactCandidates(Literal, TrailSubstitution, int, int)}.
+	 */
+	public int getNumberUnitClauses() {
+		return factIndex.size();
+	}
+
 	public int getNumberRules() {
 		return clauses.size() - getNumberFacts();
 	}
@@ -194,14 +210,12 @@ public class FOLKnowledgeBase {
 		// Get all of the substitutions in the KB that p unifies with
 		Set<Map<Variable, Term>> allUnifiers = new LinkedHashSet<Map<Variable, Term>>();
 
-		List<Literal> matchingFacts = fetchMatchingFacts(l);
-		if (null != matchingFacts) {
-			for (Literal fact : matchingFacts) {
-				Map<Variable, Term> substitution = unifier.unify(
-						l.getAtomicSentence(), fact.getAtomicSentence());
-				if (null != substitution) {
-					allUnifiers.add(substitution);
-				}
+		TrailSubstitution theta = new TrailSubstitution();
+		for (Clause fact : factIndex.getUnifiableCandidates(l)) {
+			if (theta.unify(l.getAtomicSentence(), getFact(fact)
+					.getAtomicSentence())) {
+				allUnifiers.add(theta.toMap());
+				theta.undo(0);
 			}
 		}
 
@@ -209,20 +223,53 @@ public class FOLKnowledgeBase {
 	}
 
 	// Note: To support FOL-FC-Ask
-	public Set<Map<Variable, Term>> fetch(List<Literal> literals) {
+	public synchronized Set<Map<Variable, Term>> fetch(List<Literal> literals) {
 		Set<Map<Variable, Term>> possibleSubstitutions = new LinkedHashSet<Map<Variable, Term>>();
 
 		if (literals.size() > 0) {
-			Literal first = literals.get(0);
-			List<Literal> rest = literals.subList(1, literals.size());
-
-			recursiveFetch(new LinkedHashMap<Variable, Term>(), first, rest,
+			recursiveFetch(new TrailSubstitution(), literals, 0,
 					possibleSubstitutions);
 		}
 
 		return possibleSubstitutions;
 	}
 
+	/**
+	 * Returns the facts (unit clauses) of the KB which unify with the given
+	 * literal, in the order in which they were told.
+	 */
+	public synchronized List<Clause> fetchUnifiableFacts(Literal l) {
+		return filterUnifiable(l, factIndex.getUnifiableCandidates(l), true);
+	}
+
+	/**
+	 * Returns the facts (unit clauses) with numbers <code>from</code>
+	 * (inclusive) to <code>to</code> (exclusive) which might unify with the
+	 * given literal after applying theta. The literals of the candidates
+	 * still have to be unified with the literal, but candidates whose terms
+	 * do not match are skipped. This supports joins whose bindings are kept
+	 * on the trail of theta.
+	 */
+	public synchronized List<Literal> fetchFactCandidates(Literal l,
+			TrailSubstitution theta, int from, int to) {
+		List<Literal> result = new ArrayList<Literal>();
+		for (Clause fact : factIndex.getUnifiableCandidates(
+				l.getAtomicSentence(), l.isPositiveLiteral(), theta, from, to)) {
+			result.add(getFact(fact));
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the definite clause implications of the KB whose conclusion
+	 * unifies with the given (positive) literal, in the order in which they
+	 * were told.
+	 */
+	public synchronized List<Clause> fetchImplicationsConcluding(Literal l) {
+		return filterUnifiable(l, implicationIndex.getUnifiableCandidates(l),
+				false);
+	}
+
 	public Map<Variable, Term> unify(FOLNode x, FOLNode y) {
 		return unifier.unify(x, y);
 	}
@@ -281,13 +328,12 @@ public class FOLKnowledgeBase {
 	}
 
 	// Note: see pg. 281
-	public boolean isRenaming(Literal l) {
-		List<Literal> possibleMatches = fetchMatchingFacts(l);
-		if (null != possibleMatches) {
-			return isRenaming(l, possibleMatches);
+	public synchronized boolean isRenaming(Literal l) {
+		List<Literal> possibleMatches = new ArrayList<Literal>();
+		for (Clause fact : factIndex.getUnifiableCandidates(l)) {
+			possibleMatches.add(getFact(fact));
 		}
-
-		return false;
+		return isRenaming(l, possibleMatches);
 	}
 
 	// Note: see pg. 281
@@ -370,9 +416,10 @@ public class FOLKnowledgeBase {
 				}
 				if (c.isImplicationDefiniteClause()) {
 					implicationDefiniteClauses.add(c);
+					implicationIndex.add(c.getPositiveLiterals().get(0), c);
 				}
 				if (c.isUnitClause()) {
-					indexFact(c.getLiterals().iterator().next());
+					indexFact(c);
 				}
 			}
 		}
@@ -380,51 +427,62 @@ public class FOLKnowledgeBase {
 
 	// Only if it is a unit clause does it get indexed as a fact
 	// see pg. 279 for general idea.
-	private void indexFact(Literal fact) {
+	private void indexFact(Clause c) {
+		Literal fact = getFact(c);
 		String factKey = getFactKey(fact);
 		if (!indexFacts.containsKey(factKey)) {
 			indexFacts.put(factKey, new ArrayList<Literal>());
 		}
 
 		indexFacts.get(factKey).add(fact);
+		factIndex.add(fact, c);
 	}
 
-	private void recursiveFetch(Map<Variable, Term> theta, Literal l,
-			List<Literal> remainingLiterals,
+	private void recursiveFetch(TrailSubstitution theta,
+			List<Literal> literals, int index,
 			Set<Map<Variable, Term>> possibleSubstitutions) {
 
-		// Find all substitutions for current predicate based on the
+		// Find all facts for current predicate based on the
 		// substitutions of prior predicates in the list (i.e. SUBST with
-		// theta).
-		Set<Map<Variable, Term>> pSubsts = fetch(subst(theta, l));
-
-		// No substitutions, therefore cannot continue
-		if (null == pSubsts) {
-			return;
+		// theta). The bindings for shared variables across the predicates
+		// are maintained by theta and undone on backtracking.
+		Literal l = literals.get(index);
+		int mark = theta.getTrailMark();
+		for (Clause fact : factIndex.getUnifiableCandidates(
+				l.getAtomicSentence(), l.isPositiveLiteral(), theta)) {
+			if (theta.unify(l.getAtomicSentence(), getFact(fact)
+					.getAtomicSentence())) {
+				if (index == literals.size() - 1) {
+					// This means I am at the end of the chain of predicates
+					// and have found a valid substitution.
+					possibleSubstitutions.add(theta.toMap());
+				} else {
+					// Need to move to the next link in the chain of
+					// substitutions
+					recursiveFetch(theta, literals, index + 1,
+							possibleSubstitutions);
+				}
+				theta.undo(mark);
+			}
 		}
+	}
 
-		for (Map<Variable, Term> psubst : pSubsts) {
-			// Ensure all prior substitution information is maintained
-			// along the chain of predicates (i.e. for shared variables
-			// across the predicates).
-			psubst.putAll(theta);
-			if (remainingLiterals.size() == 0) {
-				// This means I am at the end of the chain of predicates
-				// and have found a valid substitution.
-				possibleSubstitutions.add(psubst);
-			} else {
-				// Need to move to the next link in the chain of substitutions
-				Literal first = remainingLiterals.get(0);
-				List<Literal> rest = remainingLiterals.subList(1,
-						remainingLiterals.size());
-
-				recursiveFetch(psubst, first, rest, possibleSubstitutions);
+	private List<Clause> filterUnifiable(Literal l, List<Clause> candidates,
+			boolean facts) {
+		List<Clause> result = new ArrayList<Clause>();
+		TrailSubstitution theta = new TrailSubstitution();
+		for (Clause c : candidates) {
+			Literal other = facts ? getFact(c) : c.getPositiveLiterals().get(0);
+			if (theta.unify(l.getAtomicSentence(), other.getAtomicSentence())) {
+				result.add(c);
+				theta.undo(0);
 			}
 		}
+		return result;
 	}
 
-	private List<Literal> fetchMatchingFacts(Literal l) {
-		return indexFacts.get(getFactKey(l));
+	private Literal getFact(Clause unitClause) {
+		return unitClause.getLiterals().iterator().next();
 	}
 
 	public Map<String, List<Literal>> getIndexFacts() {
@@ -0,0 +1,598 @@
+package aima.core.logic.propositional.inference;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import aima.core.logic.propositional.kb.KnowledgeBase;
+import aima.core.logic.propositional.kb.data.Clause;
+import aima.core.logic.propositional.kb.data.Literal;
+import aima.core.logic.propositional.kb.data.Model;
+import aima.core.logic.propositional.parsing.ast.ComplexSentence;
+import aima.core.logic.propositional.parsing.ast.Connective;
+import aima.core.logic.propositional.parsing.ast.PropositionSymbol;
+import aima.core.logic.propositional.parsing.ast.Sentence;
+import aima.core.logic.propositional.transformations.ConvertToConjunctionOfClauses;
+import aima.core.util.Tasks;
+
+/**
+ * Artificial Intelligence A Modern Approach (3rd Edition): page 262.<br>
+ * <br>
+ * A conflict-driven clause learning (CDCL) SAT solver. Like DPLL, it assigns
+ * values to symbols and propagates unit clauses, but when a clause becomes
+ * false, it analyzes the implication graph, learns a new clause which explains
+ * the conflict (first unique implication point), and jumps back to the
+ * decision level where the learned clause becomes a unit clause. The
+ * implementation follows the design of MiniSat:
+ * <ul>
+ * <li>Symbols are numbered, and literals are encoded as ints (<code>2 * symbol
+ * + 1</code> for negative literals). Clauses are int arrays.</li>
+ * <li>Unit propagation uses two watched literals per clause, so only clauses
+ * which watch a literal which has just become false are visited.</li>
+ * <li>Branching follows the VSIDS heuristic: symbols in recent conflicts get
+ * higher activities, and the most active unassigned symbol is chosen next. The
+ * last value of each symbol is reused (phase saving).</li>
+ * <li>The search restarts after numbers of conflicts which follow the Luby
+ * sequence. Learned clauses with low activity are deleted when their number
+ * exceeds a limit, which grows with each restart.</li>
+ * </ul>
+ * Solver objects can be reused. All search data is created for each call of
+ * {@link #solve(Set)}, only some statistics about the last call are kept.
+ */
+public class CDCLSolver implements SATSolver, SatisfiabilityChecker, EntailmentChecker {
+
+	private int restartInterval = 100;
+
+	private long conflictCount;
+	private long decisionCount;
+	private int restartCount;
+
+	/** Sets the number of conflicts which corresponds to one unit of the Luby sequence (default 100). */
+	public void setRestartInterval(int conflicts) {
+		restartInterval = conflicts;
+	}
+
+	/**
+	 * Checks the satisfiability of a sentence in propositional logic.
+	 *
+	 * @param s
+	 *            a sentence in propositional logic.
+	 * @return true if the sentence is satisfiable, false otherwise.
+	 */
+	@Override
+	public boolean isSatisfiable(Sentence s) {
+		return solve(ConvertToConjunctionOfClauses.apply(s).getClauses()) != null;
+	}
+
+	/**
+	 * Determine if KB |= &alpha; by testing the unsatisfiability of KB &amp;
+	 * ~&alpha;.
+	 *
+	 * @return true if KB |= &alpha;, false otherwise (also if the task was
+	 *         cancelled).
+	 */
+	@Override
+	public boolean isEntailed(KnowledgeBase kb, Sentence alpha) {
+		Set<Clause> kbAndNotAlpha = new LinkedHashSet<>(kb.asCNF());
+		Sentence notQuery = new ComplexSentence(Connective.NOT, alpha);
+		kbAndNotAlpha.addAll(ConvertToConjunctionOfClauses.apply(notQuery).getClauses());
+		return run(kbAndNotAlpha, new ArrayList<>()).status == UNSAT;
+	}
+
+	/**
+	 * Solve a given problem in CNF format.
+	 *
+	 * @param cnf
+	 *            a CNF representation of the problem to be solved.
+	 * @return a model which assigns values to all symbols of the CNF and
+	 *         satisfies it, or null if it cannot be satisfied or the task was
+	 *         cancelled.
+	 */
+	@Override
+	public Model solve(Set<Clause> cnf) {
+		List<PropositionSymbol> symbols = new ArrayList<>();
+		Search search = run(cnf, symbols);
+		if (search.status != SAT)
+			return null;
+		Map<PropositionSymbol, Boolean> values = new HashMap<>();
+		for (int var = 0; var < symbols.size(); var++)
+			values.put(symbols.get(var), search.varValues[var] == 1);
+		return new Model(values);
+	}
+
+	/** Returns the number of conflicts in the last call of {@link #solve(Set)}. */
+	public long getConflictCount() {
+		return conflictCount;
+	}
+
+	/** Returns the number of decisions in the last call of {@link #solve(Set)}. */
+	public long getDecisionCount() {
+		return decisionCount;
+	}
+
+	/** Returns the number of restarts in the last call of {@link #solve(Set)}. */
+	public int getRestartCount() {
+		return restartCount;
+	}
+
+	//
+	// PRIVATE
+	//
+
+	private static final int SAT = 1;
+	private static final int UNSAT = 0;
+	private static final int UNKNOWN = -1;
+
+	private static final double VAR_DECAY = 0.95;
+	private static final double CLAUSE_DECAY = 0.999;
+
+	/**
+	 * Returns the x-th element (starting with 0) of the Luby sequence 1, 1, 2,
+	 * 1, 1, 2, 4, 1, ...
+	 */
+	private static int luby(int x) {
+		int size = 1;
+		int seq = 0;
+		while (size < x + 1) {
+			seq++;
+			size = 2 * size + 1;
+		}
+		while (size - 1 != x) {
+			size = (size - 1) >> 1;
+			seq--;
+			x = x % size;
+		}
+		return 1 << seq;
+	}
+
+	/**
+	 * Searches for a model of the CNF. The symbols of the CNF are added to the
+	 * list, in the order of their indices in the search.
+	 */
+	private Search run(Set<Clause> cnf, List<PropositionSymbol> symbols) {
+		Map<PropositionSymbol, Integer> symbolIndices = new HashMap<>();
+		for (Clause clause : cnf)
+			for (PropositionSymbol symbol : clause.getSymbols())
+				if (!symbolIndices.containsKey(symbol)) {
+					symbolIndices.put(symbol, symbols.size());
+					symbols.add(symbol);
+				}
+		Search search = new Search(symbols.size(), cnf.size());
+		boolean consistent = true;
+		for (Clause clause : cnf) {
+			if (!clause.isTautology()) {
+				int[] lits = new int[clause.getNumberLiterals()];
+				int i = 0;
+				for (Literal literal : clause.getLiterals())
+					lits[i++] = 2 * symbolIndices.get(literal.getAtomicSentence())
+							+ (literal.isPositiveLiteral() ? 0 : 1);
+				consistent = consistent && search.addClause(lits);
+			}
+		}
+		search.status = consistent ? search.solve() : UNSAT;
+		conflictCount = search.conflicts;
+		decisionCount = search.decisions;
+		restartCount = search.restarts;
+		return search;
+	}
+
+	/** Search data for one call of solve. */
+	private class Search {
+		/** SAT, UNSAT, or UNKNOWN if the task was cancelled. */
+		int status = UNKNOWN;
+		/** Value of each symbol: -1 unassigned, 0 false, 1 true. */
+		final int[] varValues;
+		final int[] levels;
+		/** Index of the clause which implied the value of each symbol, or -1. */
+		final int[] reasons;
+		final boolean[] phases;
+		final boolean[] seen;
+		final int[] trail;
+		int trailSize;
+		int[] trailLimits = new int[16];
+		int decisionLevel;
+		int queueHead;
+
+		final List<int[]> clauses = new ArrayList<>();
+		boolean[] learned = new boolean[16];
+		double[] clauseActivities = new double[16];
+		int[] learnts = new int[16];
+		int learntCount;
+		double maxLearnts;
+		double clauseIncrement = 1;
+
+		/** Clause indices for each literal which is watched by the clauses. */
+		final int[][] watches;
+		final int[] watchSizes;
+
+		final double[] activities;
+		double varIncrement = 1;
+		/** Max-heap of symbols ordered by activity. */
+		final int[] heap;
+		final int[] heapIndices;
+		int heapSize;
+
+		long conflicts;
+		long decisions;
+		int restarts;
+
+		Search(int varCount, int clauseCount) {
+			varValues = new int[varCount];
+			Arrays.fill(varValues, -1);
+			levels = new int[varCount];
+			reasons = new int[varCount];
+			Arrays.fill(reasons, -1);
+			phases = new boolean[varCount];
+			seen = new boolean[varCount];
+			trail = new int[varCount];
+			watches = new int[2 * varCount][];
+			watchSizes = new int[2 * varCount];
+			for (int i = 0; i < watches.length; i++)
+				watches[i] = new int[4];
+			activities = new double[varCount];
+			heap = new int[varCount];
+			heapIndices = new int[varCount];
+			for (int var = 0; var < varCount; var++) {
+				heap[var] = var;
+				heapIndices[var] = var;
+			}
+			heapSize = varCount;
+			maxLearnts = Math.max(clauseCount / 3.0, 1000);
+		}
+
+		/** Adds a clause before search. Returns false if an inconsistency was found. */
+		boolean addClause(int[] lits) {
+			if (lits.length == 0)
+				return false;
+			if (lits.length == 1) {
+				int value = litValue(lits[0]);
+				if (value == -1)
+					enqueue(lits[0], -1);
+				return value != 0;
+			}
+			attach(storeClause(lits, false));
+			return true;
+		}
+
+		int solve() {
+			if (propagate() != -1)
+				return UNSAT;
+			int status = UNKNOWN;
+			while (status == UNKNOWN && !Tasks.currIsCancelled()) {
+				status = search(luby(restarts) * restartInterval);
+				if (status == UNKNOWN) {
+					restarts++;
+					maxLearnts *= 1.1;
+				}
+			}
+			return status;
+		}
+
+		/**
+		 * Searches until a model is found, unsatisfiability is proven, or the
+		 * number of conflicts reaches the limit.
+		 */
+		int search(int conflictLimit) {
+			int conflictsHere = 0;
+			while (true) {
+				int conflict = propagate();
+				if (conflict != -1) {
+					conflicts++;
+					conflictsHere++;
+					if (decisionLevel == 0)
+						return UNSAT;
+					int[] learnt = analyze(conflict);
+					cancelUntil(learnt.length > 1 ? levels[learnt[1] >> 1] : 0);
+					if (learnt.length == 1) {
+						enqueue(learnt[0], -1);
+					} else {
+						int c = storeClause(learnt, true);
+						attach(c);
+						bumpClause(c);
+						enqueue(learnt[0], c);
+					}
+					varIncrement /= VAR_DECAY;
+					clauseIncrement /= CLAUSE_DECAY;
+					if (Tasks.currIsCancelled())
+						return UNKNOWN;
+				} else {
+					if (conflictsHere >= conflictLimit) {
+						cancelUntil(0);
+						return UNKNOWN;
+					}
+					if (learntCount - trailSize >= maxLearnts)
+						reduceLearnts();
+					int var = nextDecisionVar();
+					if (var == -1)
+						return SAT;
+					decisions++;
+					if (decisionLevel == trailLimits.length)
+						trailLimits = Arrays.copyOf(trailLimits, 2 * decisionLevel);
+					trailLimits[decisionLevel++] = trailSize;
+					enqueue(2 * var + (phases[var] ? 0 : 1), -1);
+				}
+			}
+		}
+
+		/**
+		 * Propagates all enqueued assignments.
+		 *
+		 * @return the index of a clause which became false or -1.
+		 */
+		int propagate() {
+			int conflict = -1;
+			while (queueHead < trailSize && conflict == -1) {
+				int falseLit = trail[queueHead++] ^ 1;
+				int[] ws = watches[falseLit];
+				int size = watchSizes[falseLit];
+				int i = 0;
+				int j = 0;
+				while (i < size) {
+					int c = ws[i++];
+					int[] lits = clauses.get(c);
+					if (lits == null)
+						continue; // deleted clause, drop watch
+					if (lits[0] == falseLit) {
+						lits[0] = lits[1];
+						lits[1] = falseLit;
+					}
+					if (litValue(lits[0]) == 1) {
+						ws[j++] = c;
+						continue;
+					}
+					boolean newWatchFound = false;
+					for (int k = 2; k < lits.length && !newWatchFound; k++) {
+						if (litValue(lits[k]) != 0) {
+							lits[1] = lits[k];
+							lits[k] = falseLit;
+							addWatch(lits[1], c);
+							newWatchFound = true;
+						}
+					}
+					if (!newWatchFound) {
+						ws[j++] = c;
+						if (litValue(lits[0]) == 0) {
+							conflict = c;
+							while (i < size)
+								ws[j++] = ws[i++];
+						} else {
+							enqueue(lits[0], c);
+						}
+					}
+				}
+				watchSizes[falseLit] = j;
+			}
+			if (conflict != -1)
+				queueHead = trailSize;
+			return conflict;
+		}
+
+		/**
+		 * Derives a learned clause from the conflict (first UIP scheme). The
+		 * asserting literal is at position 0, a literal of the highest
+		 * remaining decision level at position 1.
+		 */
+		int[] analyze(int conflict) {
+			List<Integer> learnt = new ArrayList<>();
+			learnt.add(-1);
+			int pathCount = 0;
+			int p = -1;
+			int index = trailSize - 1;
+			int reason = conflict;
+			do {
+				if (learned[reason])
+					bumpClause(reason);
+				int[] lits = clauses.get(reason);
+				for (int j = (p == -1 ? 0 : 1); j < lits.length; j++) {
+					int var = lits[j] >> 1;
+					if (!seen[var] && levels[var] > 0) {
+						bumpVar(var);
+						seen[var] = true;
+						if (levels[var] >= decisionLevel)
+							pathCount++;
+						else
+							learnt.add(lits[j]);
+					}
+				}
+				while (!seen[trail[index] >> 1])
+					index--;
+				p = trail[index--];
+				reason = reasons[p >> 1];
+				seen[p >> 1] = false;
+				pathCount--;
+			} while (pathCount > 0);
+			learnt.set(0, p ^ 1);
+
+			// remove literals whose reasons are subsumed by the clause
+			int[] result = new int[learnt.size()];
+			int size = 0;
+			result[size++] = learnt.get(0);
+			for (int i = 1; i < learnt.size(); i++) {
+				int lit = learnt.get(i);
+				int r = reasons[lit >> 1];
+				boolean redundant = r != -1;
+				int[] lits = redundant ? clauses.get(r) : null;
+				for (int k = 1; redundant && k < lits.length; k++)
+					redundant = seen[lits[k] >> 1] || levels[lits[k] >> 1] == 0;
+				if (!redundant)
+					result[size++] = lit;
+			}
+			for (int i = 1; i < learnt.size(); i++)
+				seen[learnt.get(i) >> 1] = false;
+			result = Arrays.copyOf(result, size);
+
+			// find the backjump level
+			int maxPos = 1;
+			for (int i = 2; i < result.length; i++)
+				if (levels[result[i] >> 1] > levels[result[maxPos] >> 1])
+					maxPos = i;
+			if (result.length > 1) {
+				int tmp = result[1];
+				result[1] = result[maxPos];
+				result[maxPos] = tmp;
+			}
+			return result;
+		}
+
+		/** Removes all assignments above the given decision level. */
+		void cancelUntil(int level) {
+			if (decisionLevel > level) {
+				for (int i = trailSize - 1; i >= trailLimits[level]; i--) {
+					int var = trail[i] >> 1;
+					phases[var] = varValues[var] == 1;
+					varValues[var] = -1;
+					reasons[var] = -1;
+					if (heapIndices[var] == -1)
+						heapInsert(var);
+				}
+				trailSize = trailLimits[level];
+				queueHead = trailSize;
+				decisionLevel = level;
+			}
+		}
+
+		/** Deletes the less active half of the learned clauses which are not reasons. */
+		void reduceLearnts() {
+			Integer[] sorted = new Integer[learntCount];
+			for (int i = 0; i < learntCount; i++)
+				sorted[i] = learnts[i];
+			Arrays.sort(sorted, (c1, c2) -> Double.compare(clauseActivities[c1], clauseActivities[c2]));
+			int count = 0;
+			for (int i = 0; i < sorted.length; i++) {
+				int c = sorted[i];
+				int[] lits = clauses.get(c);
+				int var = lits[0] >> 1;
+				boolean locked = reasons[var] == c && varValues[var] != -1;
+				if (i < sorted.length / 2 && lits.length > 2 && !locked)
+					clauses.set(c, null);
+				else
+					learnts[count++] = c;
+			}
+			learntCount = count;
+		}
+
+		int nextDecisionVar() {
+			while (heapSize > 0) {
+				int var = heapRemoveMax();
+				if (varValues[var] == -1)
+					return var;
+			}
+			return -1;
+		}
+
+		/** Returns 1 for true, 0 for false, and -1 for unassigned literals. */
+		int litValue(int lit) {
+			int value = varValues[lit >> 1];
+			return value == -1 ? -1 : value ^ (lit & 1);
+		}
+
+		void enqueue(int lit, int reason) {
+			int var = lit >> 1;
+			varValues[var] = 1 ^ (lit & 1);
+			levels[var] = decisionLevel;
+			reasons[var] = reason;
+			trail[trailSize++] = lit;
+		}
+
+		int storeClause(int[] lits, boolean isLearned) {
+			int c = clauses.size();
+			clauses.add(lits);
+			if (c == learned.length) {
+				learned = Arrays.copyOf(learned, 2 * c);
+				clauseActivities = Arrays.copyOf(clauseActivities, 2 * c);
+			}
+			learned[c] = isLearned;
+			if (isLearned) {
+				if (learntCount == learnts.length)
+					learnts = Arrays.copyOf(learnts, 2 * learntCount);
+				learnts[learntCount++] = c;
+			}
+			return c;
+		}
+
+		void attach(int c) {
+			int[] lits = clauses.get(c);
+			addWatch(lits[0], c);
+			addWatch(lits[1], c);
+		}
+
+		void addWatch(int lit, int c) {
+			if (watchSizes[lit] == watches[lit].length)
+				watches[lit] = Arrays.copyOf(watches[lit], 2 * watchSizes[lit]);
+			watches[lit][watchSizes[lit]++] = c;
+		}
+
+		void bumpVar(int var) {
+			activities[var] += varIncrement;
+			if (activities[var] > 1e100) {
+				for (int i = 0; i < activities.length; i++)
+					activities[i] *= 1e-100;
+				varIncrement *= 1e-100;
+			}
+			if (heapIndices[var] != -1)
+				heapUp(heapIndices[var]);
+		}
+
+		void bumpClause(int c) {
+			clauseActivities[c] += clauseIncrement;
+			if (clauseActivities[c] > 1e20) {
+				for (int i = 0; i < learntCount; i++)
+					clauseActivities[learnts[i]] *= 1e-20;
+				clauseIncrement *= 1e-20;
+			}
+		}
+
+		// heap operations
+
+		void heapInsert(int var) {
+			heap[heapSize] = var;
+			heapIndices[var] = heapSize;
+			heapUp(heapSize++);
+		}
+
+		int heapRemoveMax() {
+			int result = heap[0];
+			heapIndices[result] = -1;
+			if (--heapSize > 0) {
+				heap[0] = heap[heapSize];
+				heapIndices[heap[0]] = 0;
+				heapDown(0);
+			}
+			return result;
+		}
+
+		void heapUp(int pos) {
+			int var = heap[pos];
+			while (pos > 0) {
+				int parent = (pos - 1) >> 1;
+				if (activities[heap[parent]] >= activities[var])
+					break;
+				heap[pos] = heap[parent];
+				heapIndices[heap[pos]] = pos;
+				pos = parent;
+			}
+			heap[pos] = var;
+			heapIndices[var] = pos;
+		}
+
+		void heapDown(int pos) {
+			int var = heap[pos];
+			while (2 * pos + 1 < heapSize) {
+				int child = 2 * pos + 1;
+				if (child + 1 < heapSize && activities[heap[child + 1]] > activities[heap[child]])
+					child++;
+				if (activities[heap[child]] <= activities[var])
+					break;
+				heap[pos] = heap[child];
+				heapIndices[heap[pos]] = pos;
+				pos = child;
+			}
+			heap[pos] = var;
+			heapIndices[var] = pos;
+		}
+	}
+}
@@ -0,0 +1,336 @@
+package aima.core.logic.propositional.inference;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import aima.core.logic.propositional.kb.KnowledgeBase;
+import aima.core.logic.propositional.kb.data.Clause;
+import aima.core.logic.propositional.kb.data.Literal;
+import aima.core.logic.propositional.parsing.ast.ComplexSentence;
+import aima.core.logic.propositional.parsing.ast.Connective;
+import aima.core.logic.propositional.parsing.ast.PropositionSymbol;
+import aima.core.logic.propositional.parsing.ast.Sentence;
+import aima.core.logic.propositional.transformations.ConvertToConjunctionOfClauses;
+import aima.core.util.Tasks;
+
+/**
+ * Artificial Intelligence A Modern Approach (3rd Edition): page 255.<br>
+ * <br>
+ * A resolution algorithm for propositional logic which is organized as
+ * given-clause loop instead of resolving all pairs of clauses in each round.
+ * The clauses are divided into processed clauses and unprocessed clauses. In
+ * each step, the shortest unprocessed clause (the given clause) is moved to
+ * the processed clauses and resolved with all processed clauses which contain a
+ * complementary literal. The resolvents become unprocessed clauses. The
+ * algorithm stops when the empty clause is derived (KB |= &alpha;) or no
+ * unprocessed clause is left (KB does not entail &alpha;). Additionally:
+ * <ul>
+ * <li>Set of support: Only the clauses of &not;&alpha; are unprocessed at the
+ * beginning, the clauses of KB are processed already. So every resolvent
+ * descends from the query and two clauses of KB are never resolved. This is
+ * complete only if KB is satisfiable, see pg. 255 of AIMA3e. Therefore, it is
+ * off by default, so that the results agree with {@link PLResolution} for all
+ * knowledge bases, and can be switched on for knowledge bases which are known
+ * to be consistent.</li>
+ * <li>Literals are encoded as ints (<code>2 * symbol + 1</code> for negative
+ * literals), and clauses are sorted int arrays. All clauses which have been
+ * derived so far are kept in a hash set, so duplicates are detected in
+ * constant time.</li>
+ * <li>Clauses are indexed by their literals. Resolution partners, subsumed
+ * clauses, and subsuming clauses are only searched for in the index lists of
+ * the literals of the clause at hand.</li>
+ * <li>Forward subsumption: A new clause is discarded if a kept clause is a
+ * subset of it. Backward subsumption: Kept clauses which are supersets of a
+ * new clause are deleted.</li>
+ * </ul>
+ *
+ * @see PLResolution
+ */
+public class GivenClausePLResolution extends PLResolution {
+
+	private boolean useSetOfSupport = false;
+	private int resolventCount;
+
+	/**
+	 * Default constructor, which will set the algorithm to discard tautologies
+	 * by default.
+	 */
+	public GivenClausePLResolution() {
+		this(true);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param discardTautologies
+	 *            true if the algorithm is to discard tautological clauses
+	 *            during processing, false otherwise.
+	 */
+	public GivenClausePLResolution(boolean discardTautologies) {
+		super(discardTautologies);
+	}
+
+	/**
+	 * Determines whether only the clauses of &not;&alpha; form the initial set
+	 * of support (default false). Without set of support, clauses of the
+	 * knowledge base are resolved with each other, too. With set of support,
+	 * an inconsistent knowledge base does not necessarily entail &alpha;.
+	 */
+	public void setUseSetOfSupport(boolean useSetOfSupport) {
+		this.useSetOfSupport = useSetOfSupport;
+	}
+
+	public boolean isUseSetOfSupport() {
+		return useSetOfSupport;
+	}
+
+	/**
+	 * PL-RESOLUTION(KB, &alpha;)<br>
+	 * A given-clause resolution algorithm for propositional logic.
+	 *
+	 * @param kb
+	 *            the knowledge base, a sentence in propositional logic.
+	 * @param alpha
+	 *            the query, a sentence in propositional logic.
+	 * @return true if KB |= &alpha;, false otherwise (also if the task was
+	 *         cancelled).
+	 */
+	@Override
+	public boolean isEntailed(KnowledgeBase kb, Sentence alpha) {
+		Set<Clause> kbClauses = kb.asCNF();
+		Set<Clause> queryClauses = ConvertToConjunctionOfClauses
+				.apply(new ComplexSentence(Connective.NOT, alpha)).getClauses();
+		Search search = new Search(kbClauses, queryClauses);
+		boolean result = search.refute();
+		resolventCount = search.resolvents;
+		return result;
+	}
+
+	/** Returns the number of resolvents which were computed in the last call of isEntailed. */
+	public int getResolventCount() {
+		return resolventCount;
+	}
+
+	//
+	// PRIVATE
+	//
+
+	/** A clause with a precomputed hash code. Literals are sorted. */
+	private static class IntClause {
+		final int[] lits;
+		final int hash;
+
+		IntClause(int[] lits) {
+			this.lits = lits;
+			hash = Arrays.hashCode(lits);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof IntClause && Arrays.equals(lits, ((IntClause) obj).lits);
+		}
+	}
+
+	private class Search {
+		final Map<PropositionSymbol, Integer> symbolIndices = new HashMap<>();
+		final List<int[]> clauses = new ArrayList<>();
+		final Set<IntClause> derived = new HashSet<>();
+		/** Kept (not deleted) clauses of each literal; deleted clauses are removed lazily. */
+		int[][] occurrences = new int[0][];
+		int[] occurrenceSizes = new int[0];
+		boolean[] deleted = new boolean[16];
+		boolean[] processed = new boolean[16];
+		int[] marks = new int[16];
+		int currMark;
+		final PriorityQueue<Integer> unprocessed = new PriorityQueue<>(
+				(c1, c2) -> clauses.get(c1).length != clauses.get(c2).length
+						? Integer.compare(clauses.get(c1).length, clauses.get(c2).length)
+						: Integer.compare(c1, c2));
+		boolean emptyClauseFound;
+		int resolvents;
+
+		Search(Set<Clause> kbClauses, Set<Clause> queryClauses) {
+			for (Clause clause : kbClauses)
+				add(toInts(clause), !useSetOfSupport);
+			for (Clause clause : queryClauses)
+				add(toInts(clause), true);
+		}
+
+		boolean refute() {
+			while (!emptyClauseFound && !unprocessed.isEmpty() && !Tasks.currIsCancelled()) {
+				int given = unprocessed.poll();
+				if (deleted[given])
+					continue;
+				processed[given] = true;
+				int[] g = clauses.get(given);
+				for (int i = 0; i < g.length && !emptyClauseFound && !deleted[given]; i++) {
+					int lit = g[i];
+					// new clauses are unprocessed, but adding them can compact the index list
+					int[] partners = Arrays.copyOf(occurrences[lit ^ 1], occurrenceSizes[lit ^ 1]);
+					for (int j = 0; j < partners.length && !emptyClauseFound; j++) {
+						int partner = partners[j];
+						if (processed[partner] && !deleted[partner]) {
+							int[] resolvent = resolve(g, lit, clauses.get(partner));
+							resolvents++;
+							if (resolvent != null)
+								add(resolvent, true);
+						}
+					}
+				}
+			}
+			return emptyClauseFound;
+		}
+
+		int[] toInts(Clause clause) {
+			int[] result = new int[clause.getNumberLiterals()];
+			int i = 0;
+			for (Literal literal : clause.getLiterals()) {
+				Integer var = symbolIndices.get(literal.getAtomicSentence());
+				if (var == null) {
+					var = symbolIndices.size();
+					symbolIndices.put(literal.getAtomicSentence(), var);
+					occurrences = Arrays.copyOf(occurrences, 2 * var + 2);
+					occurrenceSizes = Arrays.copyOf(occurrenceSizes, 2 * var + 2);
+					occurrences[2 * var] = new int[4];
+					occurrences[2 * var + 1] = new int[4];
+				}
+				result[i++] = 2 * var + (literal.isPositiveLiteral() ? 0 : 1);
+			}
+			Arrays.sort(result);
+			return result;
+		}
+
+		/**
+		 * Resolves clause c1 which contains literal lit with clause c2 which
+		 * contains the complementary literal. Returns null for discarded
+		 * tautologies.
+		 */
+		int[] resolve(int[] c1, int lit, int[] c2) {
+			int[] result = new int[c1.length + c2.length - 2];
+			int size = 0;
+			int i = 0;
+			int j = 0;
+			while (i < c1.length || j < c2.length) {
+				int next;
+				if (j == c2.length || i < c1.length && c1[i] <= c2[j]) {
+					next = c1[i++];
+					if (next == lit)
+						continue;
+				} else {
+					next = c2[j++];
+					if (next == (lit ^ 1))
+						continue;
+				}
+				if (size == 0 || result[size - 1] != next) {
+					if (size > 0 && result[size - 1] == (next ^ 1) && isDiscardTautologies())
+						return null;
+					result[size++] = next;
+				}
+			}
+			return size == result.length ? result : Arrays.copyOf(result, size);
+		}
+
+		/** Adds a new clause unless it is a duplicate, a discarded tautology or subsumed. */
+		void add(int[] lits, boolean unprocessedClause) {
+			if (lits.length == 0) {
+				emptyClauseFound = true;
+				return;
+			}
+			if (isDiscardTautologies() && isTautology(lits) || !derived.add(new IntClause(lits))
+					|| isSubsumed(lits))
+				return;
+			deleteSubsumedBy(lits);
+			int c = clauses.size();
+			clauses.add(lits);
+			if (c == deleted.length) {
+				deleted = Arrays.copyOf(deleted, 2 * c);
+				processed = Arrays.copyOf(processed, 2 * c);
+				marks = Arrays.copyOf(marks, 2 * c);
+			}
+			for (int lit : lits) {
+				if (occurrenceSizes[lit] == occurrences[lit].length)
+					occurrences[lit] = Arrays.copyOf(occurrences[lit], 2 * occurrenceSizes[lit]);
+				occurrences[lit][occurrenceSizes[lit]++] = c;
+			}
+			if (unprocessedClause)
+				unprocessed.add(c);
+			else
+				processed[c] = true;
+		}
+
+		boolean isTautology(int[] lits) {
+			for (int i = 1; i < lits.length; i++)
+				if (lits[i] == (lits[i - 1] ^ 1) && (lits[i] & 1) == 1)
+					return true;
+			return false;
+		}
+
+		/** Forward subsumption: checks whether a kept clause is a subset of the given literals. */
+		boolean isSubsumed(int[] lits) {
+			currMark++;
+			for (int lit : lits) {
+				int[] occ = occurrences[lit];
+				int size = compact(lit);
+				for (int j = 0; j < size; j++) {
+					int c = occ[j];
+					if (marks[c] != currMark) {
+						marks[c] = currMark;
+						if (isSubset(clauses.get(c), lits))
+							return true;
+					}
+				}
+			}
+			return false;
+		}
+
+		/** Backward subsumption: deletes all kept clauses which are supersets of the given literals. */
+		void deleteSubsumedBy(int[] lits) {
+			int rarest = lits[0];
+			for (int lit : lits)
+				if (occurrenceSizes[lit] < occurrenceSizes[rarest])
+					rarest = lit;
+			int size = compact(rarest);
+			for (int j = 0; j < size; j++) {
+				int c = occurrences[rarest][j];
+				if (isSubset(lits, clauses.get(c)))
+					deleted[c] = true;
+			}
+		}
+
+		/** Removes deleted clauses from the index list of a literal and returns the new size. */
+		int compact(int lit) {
+			int[] occ = occurrences[lit];
+			int size = 0;
+			for (int j = 0; j < occurrenceSizes[lit]; j++)
+				if (!deleted[occ[j]])
+					occ[size++] = occ[j];
+			occurrenceSizes[lit] = size;
+			return size;
+		}
+
+		boolean isSubset(int[] c1, int[] c2) {
+			if (c1.length > c2.length)
+				return false;
+			int j = 0;
+			for (int lit : c1) {
+				while (j < c2.length && c2[j] < lit)
+					j++;
+				if (j == c2.length || c2[j] != lit)
+					return false;
+				j++;
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,362 @@
+package aima.core.logic.propositional.inference;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import aima.core.logic.propositional.kb.data.Clause;
+import aima.core.logic.propositional.kb.data.Literal;
+import aima.core.logic.propositional.kb.data.Model;
+import aima.core.logic.propositional.parsing.ast.PropositionSymbol;
+import aima.core.util.CancellableThread;
+import aima.core.util.Tasks;
+
+/**
+ * A faster implementation of {@link WalkSAT}. It performs the same random
+ * walk, but the clauses are compiled once into flat int arrays, and the state
+ * of the search is updated incrementally on each flip instead of evaluating
+ * all clauses again:
+ * <ul>
+ * <li>Symbols are numbered, and literals are encoded as ints (<code>2 * symbol
+ * + 1</code> for negative literals).</li>
+ * <li>For each clause, the number of true literals is stored. The clauses
+ * which are false in the model are kept in a list, so a false clause can be
+ * selected in constant time.</li>
+ * <li>For each symbol, the make count (number of false clauses which become
+ * true when the symbol is flipped) and the break count (number of clauses in
+ * which the symbol provides the only true literal) is stored. Flipping the
+ * symbol changes the number of satisfied clauses by <code>make - break</code>,
+ * so the greedy move does not need to look at other clauses.</li>
+ * </ul>
+ * A flip only visits the clauses which contain the flipped symbol.
+ * Additionally, {@link #walkSAT(Set, double, int, int)} runs independent
+ * tries with random initial models in several threads.
+ */
+public class OptimizedWalkSAT extends WalkSAT {
+
+	private int threadCount = Runtime.getRuntime().availableProcessors();
+	private long flipCount;
+
+	/**
+	 * Default Constructor.
+	 */
+	public OptimizedWalkSAT() {
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param random
+	 *            the random generator to be used by the algorithm.
+	 */
+	public OptimizedWalkSAT(Random random) {
+		super(random);
+	}
+
+	/**
+	 * Sets the number of threads which are used for independent tries (default:
+	 * number of available processors).
+	 */
+	public void setThreadCount(int threadCount) {
+		if (threadCount < 1)
+			throw new IllegalArgumentException("At least one thread is needed.");
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * WALKSAT(clauses, p, max_flips)<br>
+	 *
+	 * @param clauses
+	 *            a set of clauses in propositional logic
+	 * @param p
+	 *            the probability of choosing to do a "random walk" move,
+	 *            typically around 0.5
+	 * @param maxFlips
+	 *            number of flips allowed before giving up. Note: a value < 0 is
+	 *            interpreted as infinity.
+	 *
+	 * @return a satisfying model or failure (null). Null is also returned if
+	 *         the task was cancelled.
+	 */
+	@Override
+	public Model walkSAT(Set<Clause> clauses, double p, int maxFlips) {
+		assertLegalProbability(p);
+		Formula formula = new Formula(clauses);
+		Walk walk = new Walk(formula, random);
+		boolean success = walk.run(p, maxFlips, () -> false);
+		flipCount = walk.flips;
+		return success ? formula.toModel(walk.values) : null;
+	}
+
+	/**
+	 * Runs WALKSAT up to <code>maxTries</code> times, each time with a new
+	 * random model, until a satisfying model is found. The tries are
+	 * distributed among the threads (see {@link #setThreadCount(int)}), and
+	 * each thread uses its own random generator, which is seeded by the random
+	 * generator of this object.
+	 *
+	 * @param maxTries
+	 *            number of tries. Note: a value < 0 is interpreted as
+	 *            infinity.
+	 * @return the first satisfying model found or failure (null). Null is
+	 *         also returned if the task was cancelled.
+	 */
+	public Model walkSAT(Set<Clause> clauses, double p, int maxFlips, int maxTries) {
+		assertLegalProbability(p);
+		Formula formula = new Formula(clauses);
+		AtomicReference<Model> result = new AtomicReference<>();
+		AtomicInteger tries = new AtomicInteger();
+		AtomicLong flips = new AtomicLong();
+		List<RuntimeException> failures = Collections.synchronizedList(new ArrayList<>());
+		List<CancellableThread> threads = new ArrayList<>();
+		for (int i = 0; i < threadCount; i++) {
+			Random threadRandom = new Random(random.nextLong());
+			CancellableThread thread = new CancellableThread(() -> {
+				try {
+					while (result.get() == null && !Tasks.currIsCancelled()
+							&& (maxTries < 0 || tries.getAndIncrement() < maxTries)) {
+						Walk walk = new Walk(formula, threadRandom);
+						boolean success = walk.run(p, maxFlips, () -> result.get() != null);
+						flips.addAndGet(walk.flips);
+						if (success && result.compareAndSet(null, formula.toModel(walk.values)))
+							threads.forEach(CancellableThread::cancel);
+					}
+				} catch (RuntimeException e) {
+					failures.add(e);
+					threads.forEach(CancellableThread::cancel);
+				}
+			});
+			thread.setDaemon(true);
+			threads.add(thread);
+		}
+		try {
+			threads.forEach(Thread::start);
+			for (Thread thread : threads) {
+				while (thread.isAlive()) {
+					if (Tasks.currIsCancelled())
+						threads.forEach(CancellableThread::cancel);
+					thread.join(50);
+				}
+			}
+		} catch (InterruptedException e) {
+			threads.forEach(CancellableThread::cancel);
+			Thread.currentThread().interrupt();
+		}
+		flipCount = flips.get();
+		if (!failures.isEmpty())
+			throw failures.get(0);
+		return result.get();
+	}
+
+	/** Returns the number of flips in the last call of <code>walkSAT</code> (summed up over all tries). */
+	public long getFlipCount() {
+		return flipCount;
+	}
+
+	//
+	// PRIVATE
+	//
+
+	/**
+	 * Flat representation of the clauses. Tautologies are dropped, they are
+	 * true in every model.
+	 */
+	private static class Formula {
+		final List<PropositionSymbol> symbols = new ArrayList<>();
+		/** Literals of clause c are stored at positions clauseStarts[c] to clauseStarts[c+1]-1. */
+		final int[] clauseStarts;
+		final int[] clauseLits;
+		/** Clauses which contain literal l are stored at positions occStarts[l] to occStarts[l+1]-1. */
+		final int[] occStarts;
+		final int[] occClauses;
+		boolean hasEmptyClause;
+
+		Formula(Set<Clause> clauses) {
+			Map<PropositionSymbol, Integer> symbolIndices = new HashMap<>();
+			List<Clause> relevant = new ArrayList<>();
+			int litCount = 0;
+			for (Clause clause : clauses) {
+				for (PropositionSymbol symbol : clause.getSymbols())
+					if (!symbolIndices.containsKey(symbol)) {
+						symbolIndices.put(symbol, symbols.size());
+						symbols.add(symbol);
+					}
+				if (clause.isEmpty())
+					hasEmptyClause = true;
+				else if (!clause.isTautology()) {
+					relevant.add(clause);
+					litCount += clause.getNumberLiterals();
+				}
+			}
+			clauseStarts = new int[relevant.size() + 1];
+			clauseLits = new int[litCount];
+			occStarts = new int[2 * symbols.size() + 1];
+			occClauses = new int[litCount];
+			int pos = 0;
+			for (int c = 0; c < relevant.size(); c++) {
+				clauseStarts[c] = pos;
+				for (Literal literal : relevant.get(c).getLiterals()) {
+					int lit = 2 * symbolIndices.get(literal.getAtomicSentence())
+							+ (literal.isPositiveLiteral() ? 0 : 1);
+					clauseLits[pos++] = lit;
+					occStarts[lit + 1]++;
+				}
+			}
+			clauseStarts[relevant.size()] = pos;
+			for (int lit = 0; lit < 2 * symbols.size(); lit++)
+				occStarts[lit + 1] += occStarts[lit];
+			int[] fill = new int[2 * symbols.size()];
+			for (int c = 0; c < relevant.size(); c++)
+				for (int i = clauseStarts[c]; i < clauseStarts[c + 1]; i++) {
+					int lit = clauseLits[i];
+					occClauses[occStarts[lit] + fill[lit]++] = c;
+				}
+		}
+
+		int getClauseCount() {
+			return clauseStarts.length - 1;
+		}
+
+		Model toModel(boolean[] values) {
+			Map<PropositionSymbol, Boolean> result = new HashMap<>();
+			for (int var = 0; var < symbols.size(); var++)
+				result.put(symbols.get(var), values[var]);
+			return new Model(result);
+		}
+	}
+
+	/** State of one try. */
+	private static class Walk {
+		final Formula f;
+		final Random random;
+		final boolean[] values;
+		final int[] trueCounts;
+		/** Xor of the symbols whose literals are true in the clause; identifies the only true literal. */
+		final int[] trueSymbolXors;
+		final int[] makeCounts;
+		final int[] breakCounts;
+		/** False clauses and their positions in that list. */
+		final int[] falseClauses;
+		final int[] falsePositions;
+		int falseCount;
+		long flips;
+
+		Walk(Formula f, Random random) {
+			this.f = f;
+			this.random = random;
+			int varCount = f.symbols.size();
+			int clauseCount = f.getClauseCount();
+			values = new boolean[varCount];
+			trueCounts = new int[clauseCount];
+			trueSymbolXors = new int[clauseCount];
+			makeCounts = new int[varCount];
+			breakCounts = new int[varCount];
+			falseClauses = new int[clauseCount];
+			falsePositions = new int[clauseCount];
+
+			// model <- a random assignment of true/false to the symbols in clauses
+			for (int var = 0; var < varCount; var++)
+				values[var] = random.nextBoolean();
+			for (int c = 0; c < clauseCount; c++) {
+				for (int i = f.clauseStarts[c]; i < f.clauseStarts[c + 1]; i++) {
+					int lit = f.clauseLits[i];
+					if (isTrue(lit)) {
+						trueCounts[c]++;
+						trueSymbolXors[c] ^= lit >> 1;
+					}
+				}
+				if (trueCounts[c] == 0)
+					addFalseClause(c);
+				else if (trueCounts[c] == 1)
+					breakCounts[trueSymbolXors[c]]++;
+			}
+		}
+
+		boolean run(double p, int maxFlips, BooleanSupplier stopped) {
+			if (f.hasEmptyClause)
+				return false;
+			for (long i = 0; i < maxFlips || maxFlips < 0; i++) {
+				// if model satisfies clauses then return model
+				if (falseCount == 0)
+					return true;
+				if ((i & 1023) == 0 && (Tasks.currIsCancelled() || stopped.getAsBoolean()))
+					return false;
+				// clause <- a randomly selected clause from clauses that is false in model
+				int c = falseClauses[random.nextInt(falseCount)];
+				int start = f.clauseStarts[c];
+				int end = f.clauseStarts[c + 1];
+				int var;
+				if (random.nextDouble() < p) {
+					// flip the value in model of a randomly selected symbol from clause
+					var = f.clauseLits[start + random.nextInt(end - start)] >> 1;
+				} else {
+					// flip whichever symbol in clause maximizes the number of satisfied clauses
+					var = f.clauseLits[start] >> 1;
+					for (int j = start + 1; j < end; j++) {
+						int v = f.clauseLits[j] >> 1;
+						if (makeCounts[v] - breakCounts[v] > makeCounts[var] - breakCounts[var])
+							var = v;
+					}
+				}
+				flip(var);
+			}
+			return falseCount == 0;
+		}
+
+		boolean isTrue(int lit) {
+			return values[lit >> 1] == ((lit & 1) == 0);
+		}
+
+		void flip(int var) {
+			int newTrue = 2 * var + (values[var] ? 1 : 0);
+			int newFalse = newTrue ^ 1;
+			values[var] = !values[var];
+			flips++;
+			for (int i = f.occStarts[newTrue]; i < f.occStarts[newTrue + 1]; i++) {
+				int c = f.occClauses[i];
+				if (trueCounts[c] == 0) {
+					removeFalseClause(c);
+					breakCounts[var]++;
+				} else if (trueCounts[c] == 1) {
+					breakCounts[trueSymbolXors[c]]--;
+				}
+				trueCounts[c]++;
+				trueSymbolXors[c] ^= var;
+			}
+			for (int i = f.occStarts[newFalse]; i < f.occStarts[newFalse + 1]; i++) {
+				int c = f.occClauses[i];
+				trueCounts[c]--;
+				trueSymbolXors[c] ^= var;
+				if (trueCounts[c] == 0) {
+					addFalseClause(c);
+					breakCounts[var]--;
+				} else if (trueCounts[c] == 1) {
+					breakCounts[trueSymbolXors[c]]++;
+				}
+			}
+		}
+
+		void addFalseClause(int c) {
+			falsePositions[c] = falseCount;
+			falseClauses[falseCount++] = c;
+			for (int i = f.clauseStarts[c]; i < f.clauseStarts[c + 1]; i++)
+				makeCounts[f.clauseLits[i] >> 1]++;
+		}
+
+		void removeFalseClause(int c) {
+			int last = falseClauses[--falseCount];
+			falseClauses[falsePositions[c]] = last;
+			falsePositions[last] = falsePositions[c];
+			for (int i = f.clauseStarts[c]; i < f.clauseStarts[c + 1]; i++)
+				makeCounts[f.clauseLits[i] >> 1]--;
+		}
+	}
+}
@@ -96,6 +96,10 @@ public class SATPlan {
 	private SATSolver         satSolver         = null;
 	private SolutionExtractor solutionExtractor = null;
 	
+	/**
+	 * Creates a planner which uses the given solver for the satisfiability
+	 * tests, e.g. a {@link CDCLSolver}.
+	 */
 	public SATPlan(SATSolver satSolver, SolutionExtractor solutionExtractor) {
 		this.satSolver         = satSolver;
 		this.solutionExtractor = solutionExtractor;
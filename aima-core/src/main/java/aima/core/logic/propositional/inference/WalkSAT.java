@@ -91,7 +91,7 @@ public class WalkSAT {
 	//
 	// SUPPORTING CODE
 	//
-	private Random random = new Random();
+	protected Random random = new Random();
 
 	/**
 	 * Default Constructor.
@@ -2,6 +2,7 @@ package aima.core.search.adversarial;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.ToLongFunction;
 
 import aima.core.search.framework.Metrics;
 
@@ -10,6 +11,12 @@ import aima.core.search.framework.Metrics;
  * action ordering. Maximal computation time is specified in seconds. The
  * algorithm is implemented as template method and can be configured and tuned
  * by subclassing.
+ * <p>
+ * Optionally, search results are stored in a {@link TranspositionTable}
+ * (see {@link #setTranspositionTable(ToLongFunction, int)}). Entries from
+ * earlier iterations and decisions cut off the search of states which are
+ * reached again, and their best actions are tried first at every ply.
+ * </p>
  *
  * @param <S> Type which is used for states in the game.
  * @param <A> Type which is used for actions in the game.
@@ -20,6 +27,10 @@ public class IterativeDeepeningAlphaBetaSearch<S, A, P> implements AdversarialSe
 
     public final static String METRICS_NODES_EXPANDED = "nodesExpanded";
     public final static String METRICS_MAX_DEPTH = "maxDepth";
+    public final static String METRICS_TT_PROBES = "ttProbes";
+    public final static String METRICS_TT_HITS = "ttHits";
+    public final static String METRICS_TT_CUTOFFS = "ttCutoffs";
+    public final static String METRICS_TT_HIT_RATE = "ttHitRate";
 
     protected Game<S, A, P> game;
     protected double utilMax;
@@ -28,8 +39,18 @@ public class IterativeDeepeningAlphaBetaSearch<S, A, P> implements AdversarialSe
     private boolean heuristicEvaluationUsed; // indicates that non-terminal nodes have been evaluated.
     private Timer timer;
     private boolean logEnabled;
+    private ToLongFunction<S> stateHashFn;
+    private TranspositionTable<A> table;
+    /** Player for whom the table values have been computed. */
+    private P tablePlayer;
 
     private Metrics metrics = new Metrics();
+    // statistics of the current decision, copied to the metrics at the end
+    private int nodesExpanded;
+    private int maxDepth;
+    private int tableProbes;
+    private int tableHits;
+    private int tableCutoffs;
 
     /**
      * Creates a new search object for a given game.
@@ -72,6 +93,21 @@ public class IterativeDeepeningAlphaBetaSearch<S, A, P> implements AdversarialSe
         logEnabled = b;
     }
 
+    /**
+     * Enables the transposition table. The table is kept between decisions as
+     * long as the player does not change.
+     *
+     * @param stateHashFn Function which maps states to hash keys, e.g. Zobrist
+     *                    hashes (see {@link Zobrist}). Equal states must have
+     *                    equal keys. Null disables the table.
+     * @param capacity    Maximal number of entries.
+     */
+    public void setTranspositionTable(ToLongFunction<S> stateHashFn, int capacity) {
+        this.stateHashFn = stateHashFn;
+        table = stateHashFn != null ? new TranspositionTable<>(capacity) : null;
+        tablePlayer = null;
+    }
+
     /**
      * Template method controlling the search. It is based on iterative
      * deepening and tries to make to a good decision in limited time. Credit
@@ -81,8 +117,15 @@ public class IterativeDeepeningAlphaBetaSearch<S, A, P> implements AdversarialSe
     @Override
     public A makeDecision(S state) {
         metrics = new Metrics();
+        nodesExpanded = maxDepth = tableProbes = tableHits = tableCutoffs = 0;
         StringBuffer logText = null;
         P player = game.getPlayer(state);
+        if (table != null) {
+            if (!player.equals(tablePlayer))
+                table.clear();
+            tablePlayer = player;
+            table.startNewSearch();
+        }
         List<A> results = orderActions(state, game.getActions(state), player, 0);
         timer.start();
         currDepthLimit = 0;
@@ -114,6 +157,14 @@ public class IterativeDeepeningAlphaBetaSearch<S, A, P> implements AdversarialSe
                 }
             }
         } while (!timer.timeOutOccurred() && heuristicEvaluationUsed);
+        metrics.set(METRICS_NODES_EXPANDED, nodesExpanded);
+        metrics.set(METRICS_MAX_DEPTH, maxDepth);
+        if (table != null) {
+            metrics.set(METRICS_TT_PROBES, tableProbes);
+            metrics.set(METRICS_TT_HITS, tableHits);
+            metrics.set(METRICS_TT_CUTOFFS, tableCutoffs);
+            metrics.set(METRICS_TT_HIT_RATE, tableProbes > 0 ? (double) tableHits / tableProbes : 0.0);
+        }
         return results.get(0);
     }
 
@@ -123,14 +174,33 @@ public class IterativeDeepeningAlphaBetaSearch<S, A, P> implements AdversarialSe
         if (game.isTerminal(state) || depth >= currDepthLimit || timer.timeOutOccurred()) {
             return eval(state, player);
         } else {
+            long key = 0;
+            int slot = -1;
+            if (table != null) {
+                key = stateHashFn.applyAsLong(state);
+                slot = findEntry(key);
+                if (slot != -1 && isCutoff(slot, depth, alpha, beta))
+                    return table.getValue(slot);
+            }
+            double alphaOrig = alpha;
+            boolean outerHeuristicEvaluationUsed = heuristicEvaluationUsed;
+            heuristicEvaluationUsed = false;
             double value = Double.NEGATIVE_INFINITY;
-            for (A action : orderActions(state, game.getActions(state), player, depth)) {
-                value = Math.max(value, minValue(game.getResult(state, action), //
-                        player, alpha, beta, depth + 1));
+            A bestAction = null;
+            for (A action : getOrderedActions(state, player, depth, slot)) {
+                double childValue = minValue(game.getResult(state, action), //
+                        player, alpha, beta, depth + 1);
+                if (childValue > value) {
+                    value = childValue;
+                    bestAction = action;
+                }
                 if (value >= beta)
-                    return value;
+                    break;
                 alpha = Math.max(alpha, value);
             }
+            if (table != null)
+                storeEntry(key, depth, value, alphaOrig, beta, bestAction);
+            heuristicEvaluationUsed |= outerHeuristicEvaluationUsed;
             return value;
         }
     }
@@ -141,21 +211,96 @@ public class IterativeDeepeningAlphaBetaSearch<S, A, P> implements AdversarialSe
         if (game.isTerminal(state) || depth >= currDepthLimit || timer.timeOutOccurred()) {
             return eval(state, player);
         } else {
+            long key = 0;
+            int slot = -1;
+            if (table != null) {
+                key = stateHashFn.applyAsLong(state);
+                slot = findEntry(key);
+                if (slot != -1 && isCutoff(slot, depth, alpha, beta))
+                    return table.getValue(slot);
+            }
+            double betaOrig = beta;
+            boolean outerHeuristicEvaluationUsed = heuristicEvaluationUsed;
+            heuristicEvaluationUsed = false;
             double value = Double.POSITIVE_INFINITY;
-            for (A action : orderActions(state, game.getActions(state), player, depth)) {
-                value = Math.min(value, maxValue(game.getResult(state, action), //
-                        player, alpha, beta, depth + 1));
+            A bestAction = null;
+            for (A action : getOrderedActions(state, player, depth, slot)) {
+                double childValue = maxValue(game.getResult(state, action), //
+                        player, alpha, beta, depth + 1);
+                if (childValue < value) {
+                    value = childValue;
+                    bestAction = action;
+                }
                 if (value <= alpha)
-                    return value;
+                    break;
                 beta = Math.min(beta, value);
             }
+            if (table != null)
+                storeEntry(key, depth, value, alpha, betaOrig, bestAction);
+            heuristicEvaluationUsed |= outerHeuristicEvaluationUsed;
             return value;
         }
     }
 
     private void updateMetrics(int depth) {
-        metrics.incrementInt(METRICS_NODES_EXPANDED);
-        metrics.set(METRICS_MAX_DEPTH, Math.max(metrics.getInt(METRICS_MAX_DEPTH), depth));
+        nodesExpanded++;
+        maxDepth = Math.max(maxDepth, depth);
+    }
+
+    private int findEntry(long key) {
+        tableProbes++;
+        int slot = table.find(key);
+        if (slot != -1)
+            tableHits++;
+        return slot;
+    }
+
+    /**
+     * Checks whether the table entry is deep enough and its value decides the
+     * search of the state within the given window.
+     */
+    private boolean isCutoff(int slot, int depth, double alpha, double beta) {
+        if (table.isHeuristic(slot) && table.getDepth(slot) < currDepthLimit - depth)
+            return false;
+        double value = table.getValue(slot);
+        byte bound = table.getBound(slot);
+        if (bound == TranspositionTable.EXACT || bound == TranspositionTable.LOWER_BOUND && value >= beta
+                || bound == TranspositionTable.UPPER_BOUND && value <= alpha) {
+            if (table.isHeuristic(slot))
+                heuristicEvaluationUsed = true;
+            tableCutoffs++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Stores the result of a state search, which was started with the given
+     * window. Results are incomplete after time-out and not stored.
+     */
+    private void storeEntry(long key, int depth, double value, double alpha, double beta, A bestAction) {
+        if (timer.timeOutOccurred())
+            return;
+        byte bound = value <= alpha ? TranspositionTable.UPPER_BOUND
+                : value >= beta ? TranspositionTable.LOWER_BOUND : TranspositionTable.EXACT;
+        table.store(key, currDepthLimit - depth, value, bound, heuristicEvaluationUsed, bestAction);
+    }
+
+    /**
+     * Orders the actions of the state by calling the primitive operation and
+     * moves the best action from the transposition table to the front.
+     */
+    private List<A> getOrderedActions(S state, P player, int depth, int slot) {
+        List<A> result = orderActions(state, game.getActions(state), player, depth);
+        if (slot != -1) {
+            A bestAction = table.getBestAction(slot);
+            int idx = bestAction != null ? result.indexOf(bestAction) : -1;
+            if (idx > 0) {
+                result = new ArrayList<>(result);
+                result.add(0, result.remove(idx));
+            }
+        }
+        return result;
     }
 
     /**
@@ -1,13 +1,13 @@
 package aima.core.search.adversarial;
 
-import aima.core.search.framework.GameTree;
 import aima.core.search.framework.Metrics;
-import aima.core.search.framework.Node;
-import aima.core.search.framework.NodeFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Artificial Intelligence A Modern Approach (4th Edition): page ???.<br>
@@ -28,7 +28,17 @@ import java.util.Random;
  * Figure ?.? The Monte Carlo tree search algorithm. A game tree, tree, is initialized, and
  * then we repeat the cycle of SELECT / EXPAND / SIMULATE/ BACKPROPAGATE until we run  out
  * of time, and return the move that led to the node with the highest number of playouts.
- *
+ * <p>
+ * The search stops after a given number of playouts or when the time limit is
+ * reached, whichever comes first. Nodes are stored in primitive arrays and
+ * know the actions of their state, so that the game is asked for the actions
+ * of a state only once. The statistics of a node are kept from the
+ * perspective of the player who made the move leading to it, utilities are
+ * assumed to range from 0 (loss) to 1 (win). Optionally, the subtree of the
+ * new state is reused in the next decision, and several threads can search in
+ * parallel (root parallelization: each thread grows its own tree, and the
+ * playouts of the root children are summed up at the end).
+ * </p>
  *
  * @author Suyash Jain
  *
@@ -41,103 +51,375 @@ import java.util.Random;
  */
 
 public class MonteCarloTreeSearch<S, A, P> implements AdversarialSearch<S, A> {
-	private int iterations = 0;
+	public final static String METRICS_PLAYOUTS = "playouts";
+	public final static String METRICS_TREE_SIZE = "treeSize";
+	public final static String METRICS_REUSED_NODES = "reusedNodes";
+
+	/** Depth up to which the new state is searched in the old tree. */
+	private static final int MAX_REUSE_DEPTH = 2;
+
+	private final int iterations;
 	private final Game<S, A, P> game;
-	private final GameTree<S, A> tree;
-	
+	private long timeLimit;
+	private int threadCount = 1;
+	private boolean treeReuseEnabled;
+	private final List<Tree> trees = new ArrayList<>();
+	private Metrics metrics = new Metrics();
+
+	/**
+	 * Creates a search which performs the given number of playouts per
+	 * decision.
+	 *
+	 * @param iterations
+	 *            Number of playouts per decision, values less than one mean
+	 *            no limit (a time limit is needed then).
+	 */
 	public MonteCarloTreeSearch(Game<S, A, P> game, int iterations) {
 		this.game = game;
 		this.iterations = iterations;
-		tree = new GameTree<>();
 	}
-	
+
+	/**
+	 * Sets the maximal computation time per decision in milliseconds. Values
+	 * less than one mean no limit (the default).
+	 */
+	public void setTimeLimit(long millis) {
+		timeLimit = millis;
+	}
+
+	/** Sets the number of threads which search in parallel (default 1). */
+	public void setThreadCount(int threadCount) {
+		if (threadCount < 1)
+			throw new IllegalArgumentException("At least one thread is needed.");
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * Enables reuse of the tree between decisions. If the new state is found
+	 * among the descendants of the previous root, its subtree with all
+	 * statistics becomes the new tree.
+	 */
+	public void setTreeReuseEnabled(boolean b) {
+		treeReuseEnabled = b;
+		if (!b)
+			trees.clear();
+	}
+
 	@Override
 	public A makeDecision(S state) {
-		// tree <-- NODE(state)
-		tree.addRoot(state);
+		if (iterations < 1 && timeLimit < 1)
+			throw new IllegalStateException("Neither an iteration count nor a time limit has been specified.");
+		metrics = new Metrics();
+		if (game.isTerminal(state))
+			return null;
+		long deadline = timeLimit > 0 ? System.currentTimeMillis() + timeLimit : Long.MAX_VALUE;
+		AtomicInteger remaining = new AtomicInteger(iterations > 0 ? iterations : Integer.MAX_VALUE);
+		while (trees.size() > threadCount)
+			trees.remove(trees.size() - 1);
+		while (trees.size() < threadCount)
+			trees.add(new Tree());
+		int reusedNodes = 0;
+		for (Tree tree : trees)
+			reusedNodes += tree.setRoot(state, treeReuseEnabled);
+
 		// while TIME-REMAINING() do
-		while (iterations != 0) {
-			// leaf <-- SELECT(tree)
-			Node<S, A> leaf = select(tree);
-			// child <-- EXPAND(leaf)
-			Node<S, A> child = expand(leaf);
-			// result <-- SIMULATE(child)
-			// result = true if player of root node wins
-			boolean result = simulate(child);
-			// BACKPROPAGATE(result, child)
-			backpropagate(result, child);
-			// repeat the four steps for set number of iterations
-			--iterations;
+		if (trees.size() == 1) {
+			trees.get(0).grow(remaining, deadline);
+		} else {
+			List<Thread> threads = new ArrayList<>();
+			List<RuntimeException> failures = Collections.synchronizedList(new ArrayList<>());
+			for (Tree tree : trees) {
+				Thread thread = new Thread(() -> {
+					try {
+						tree.grow(remaining, deadline);
+					} catch (RuntimeException e) {
+						failures.add(e);
+					}
+				});
+				thread.setDaemon(true);
+				threads.add(thread);
+				thread.start();
+			}
+			try {
+				for (Thread thread : threads)
+					thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (!failures.isEmpty())
+				throw failures.get(0);
 		}
+
 		// return the move in ACTIONS(state) whose node has highest number of playouts
-		return bestAction(tree.getRoot());
-	}
-	
-	private Node<S, A> select(GameTree<S, A> gameTree) {
-		Node<S, A> node = gameTree.getRoot();
-		while (!game.isTerminal(node.getState()) && isNodeFullyExpanded(node)) {
-			node = gameTree.getChildWithMaxUCT(node);
+		List<A> actions = trees.get(0).getActions(0);
+		long[] playouts = new long[actions.size()];
+		int treeSize = 0;
+		int playoutCount = 0;
+		for (Tree tree : trees) {
+			tree.addRootPlayouts(playouts);
+			treeSize += tree.size;
+			playoutCount += tree.playouts;
+			if (!treeReuseEnabled)
+				tree.clear();
 		}
-		return node;
+		metrics.set(METRICS_PLAYOUTS, playoutCount);
+		metrics.set(METRICS_TREE_SIZE, treeSize);
+		metrics.set(METRICS_REUSED_NODES, reusedNodes);
+		int best = 0;
+		for (int i = 1; i < playouts.length; i++)
+			if (playouts[i] > playouts[best])
+				best = i;
+		return actions.get(best);
 	}
-	
-	private Node<S, A> expand(Node<S, A> leaf) {
-		if (game.isTerminal(leaf.getState()))
-			return leaf;
-		else
-			return randomlySelectUnvisitedChild(leaf);
-	}
-	
-	private boolean simulate(Node<S, A> node) {
-		while (!game.isTerminal(node.getState())) {
-			Random rand = new Random();
-			A a = game.getActions(node.getState()).get(rand.nextInt(game.getActions(node.getState()).size()));
-			S result = game.getResult(node.getState(), a);
-			NodeFactory<S, A> nodeFactory = new NodeFactory<>();
-			node = nodeFactory.createNode(result);
-		}
-		return game.getUtility(node.getState(), game.getPlayer(tree.getRoot().getState())) > 0;
-	}
-	
-	private void backpropagate(boolean result, Node<S, A> node) {
-		tree.updateStats(result, node);
-		if (tree.getParent(node) != null) backpropagate(result, tree.getParent(node));
-	}
-	
-	private A bestAction(Node<S, A> root) {
-		Node<S, A> bestChild = tree.getChildWithMaxPlayouts(root);
-		for (A a : game.getActions(root.getState())) {
-			S result = game.getResult(root.getState(), a);
-			if (result.equals(bestChild.getState())) return a;
-		}
-		return null;
+
+	/**
+	 * Returns the number of playouts, the number of tree nodes, and the number
+	 * of nodes taken over from the previous decision.
+	 */
+	@Override
+	public Metrics getMetrics() {
+		return metrics;
 	}
-	
-	private boolean isNodeFullyExpanded(Node<S, A> node) {
-		List<S> visitedChildren = tree.getVisitedChildren(node);
-		for (A a : game.getActions(node.getState())) {
-			S result = game.getResult(node.getState(), a);
-			if (!visitedChildren.contains(result)) {
-				return false;
+
+	/**
+	 * Search tree with node data in arrays indexed by node. Node 0 is the
+	 * root. Each tree is used by one thread at a time.
+	 */
+	private class Tree {
+		private final P[] players = game.getPlayers();
+		private final Random random = new Random();
+
+		private Object[] states = new Object[0];
+		/** Actions of the state, null if not yet needed. */
+		private Object[] actionLists = new Object[0];
+		/** Action indices in expansion order. */
+		private int[][] expansionOrders = new int[0][];
+		/** Child for each action index, -1 if not yet expanded. */
+		private int[][] children = new int[0][];
+		private int[] expandedCounts = new int[0];
+		private int[] parents = new int[0];
+		/** Index of the player who moved to the node, -1 for the root. */
+		private int[] movers = new int[0];
+		private int[] visits = new int[0];
+		private double[] rewards = new double[0];
+		private int size;
+		private int playouts;
+
+		/**
+		 * Prepares the tree for a search from the given state.
+		 *
+		 * @return The number of nodes which have been reused.
+		 */
+		int setRoot(S state, boolean reuse) {
+			playouts = 0;
+			int root = reuse && size > 0 ? find(state, 0, 0) : -1;
+			if (root == -1) {
+				clear();
+				addNode(state, -1, -1);
+				return 0;
 			}
+			reRoot(root);
+			return size;
+		}
+
+		void clear() {
+			Arrays.fill(states, 0, size, null);
+			Arrays.fill(actionLists, 0, size, null);
+			size = 0;
+		}
+
+		/** Runs playouts until the budget is exhausted (at least one). */
+		void grow(AtomicInteger remaining, long deadline) {
+			double[] utilities = new double[players.length];
+			do {
+				iterate(utilities);
+				playouts++;
+			} while (remaining.decrementAndGet() > 0 && System.currentTimeMillis() < deadline);
+		}
+
+		void addRootPlayouts(long[] result) {
+			int[] rootChildren = children[0];
+			for (int i = 0; i < rootChildren.length; i++)
+				if (rootChildren[i] != -1)
+					result[i] += visits[rootChildren[i]];
+		}
+
+		private void iterate(double[] utilities) {
+			// leaf <-- SELECT(tree), child <-- EXPAND(leaf)
+			int node = 0;
+			while (true) {
+				int actionCount = getActions(node).size();
+				if (actionCount == 0)
+					break; // terminal state
+				if (expandedCounts[node] < actionCount) {
+					node = expand(node);
+					break;
+				}
+				node = getChildWithMaxUCT(node);
+			}
+			// result <-- SIMULATE(child)
+			S terminal = simulate(getState(node));
+			for (int i = 0; i < players.length; i++)
+				utilities[i] = game.getUtility(terminal, players[i]);
+			// BACKPROPAGATE(result, child)
+			for (; node != -1; node = parents[node]) {
+				visits[node]++;
+				if (movers[node] != -1)
+					rewards[node] += utilities[movers[node]];
+			}
+		}
+
+		private int expand(int node) {
+			int actionIdx = expansionOrders[node][expandedCounts[node]++];
+			S state = getState(node);
+			S result = game.getResult(state, getActions(node).get(actionIdx));
+			int child = addNode(result, node, getPlayerIndex(game.getPlayer(state)));
+			children[node][actionIdx] = child;
+			return child;
+		}
+
+		private int getChildWithMaxUCT(int node) {
+			double logN = Math.log(visits[node]);
+			int result = -1;
+			double maxUCT = Double.NEGATIVE_INFINITY;
+			for (int child : children[node]) {
+				double uct = rewards[child] / visits[child] + Math.sqrt(2 * logN / visits[child]);
+				if (uct > maxUCT) {
+					maxUCT = uct;
+					result = child;
+				}
+			}
+			return result;
+		}
+
+		private S simulate(S state) {
+			while (!game.isTerminal(state)) {
+				List<A> actions = game.getActions(state);
+				state = game.getResult(state, actions.get(random.nextInt(actions.size())));
+			}
+			return state;
+		}
+
+		@SuppressWarnings("unchecked")
+		private S getState(int node) {
+			return (S) states[node];
+		}
+
+		/** Returns the actions of the node's state, empty for terminal states. */
+		@SuppressWarnings("unchecked")
+		private List<A> getActions(int node) {
+			List<A> result = (List<A>) actionLists[node];
+			if (result == null) {
+				S state = getState(node);
+				result = game.isTerminal(state) ? Collections.emptyList() : game.getActions(state);
+				int[] order = new int[result.size()];
+				for (int i = 0; i < order.length; i++) {
+					int j = random.nextInt(i + 1);
+					order[i] = order[j];
+					order[j] = i;
+				}
+				int[] nodeChildren = new int[result.size()];
+				Arrays.fill(nodeChildren, -1);
+				actionLists[node] = result;
+				expansionOrders[node] = order;
+				children[node] = nodeChildren;
+			}
+			return result;
+		}
+
+		private int getPlayerIndex(P player) {
+			for (int i = 0; i < players.length; i++)
+				if (players[i].equals(player))
+					return i;
+			throw new IllegalArgumentException("Unknown player " + player + ".");
+		}
+
+		private int addNode(S state, int parent, int mover) {
+			if (size == states.length)
+				resize(Math.max(64, 2 * size));
+			states[size] = state;
+			actionLists[size] = null;
+			expansionOrders[size] = null;
+			children[size] = null;
+			expandedCounts[size] = 0;
+			parents[size] = parent;
+			movers[size] = mover;
+			visits[size] = 0;
+			rewards[size] = 0;
+			return size++;
+		}
+
+		private void resize(int capacity) {
+			states = Arrays.copyOf(states, capacity);
+			actionLists = Arrays.copyOf(actionLists, capacity);
+			expansionOrders = Arrays.copyOf(expansionOrders, capacity);
+			children = Arrays.copyOf(children, capacity);
+			expandedCounts = Arrays.copyOf(expandedCounts, capacity);
+			parents = Arrays.copyOf(parents, capacity);
+			movers = Arrays.copyOf(movers, capacity);
+			visits = Arrays.copyOf(visits, capacity);
+			rewards = Arrays.copyOf(rewards, capacity);
+		}
+
+		/** Searches the state among the descendants of the node, -1 if not found. */
+		private int find(S state, int node, int depth) {
+			if (state.equals(states[node]))
+				return node;
+			if (depth < MAX_REUSE_DEPTH && children[node] != null) {
+				for (int child : children[node]) {
+					if (child != -1) {
+						int result = find(state, child, depth + 1);
+						if (result != -1)
+							return result;
+					}
+				}
+			}
+			return -1;
+		}
+
+		/** Keeps the subtree of the node and makes it the root. */
+		private void reRoot(int root) {
+			int[] order = new int[size];
+			int count = 0;
+			order[count++] = root;
+			for (int i = 0; i < count; i++) {
+				int[] nodeChildren = children[order[i]];
+				if (nodeChildren != null)
+					for (int child : nodeChildren)
+						if (child != -1)
+							order[count++] = child;
+			}
+			// parents are copied before their children
+			Tree subtree = new Tree();
+			int[] newIndices = new int[size];
+			for (int i = 0; i < count; i++) {
+				int node = order[i];
+				newIndices[node] = i;
+				subtree.addNode(getState(node), i == 0 ? -1 : newIndices[parents[node]], i == 0 ? -1 : movers[node]);
+				subtree.actionLists[i] = actionLists[node];
+				subtree.expansionOrders[i] = expansionOrders[node];
+				subtree.children[i] = children[node];
+				subtree.expandedCounts[i] = expandedCounts[node];
+				subtree.visits[i] = visits[node];
+				subtree.rewards[i] = rewards[node];
+			}
+			for (int i = 0; i < count; i++) {
+				int[] nodeChildren = subtree.children[i];
+				if (nodeChildren != null)
+					for (int j = 0; j < nodeChildren.length; j++)
+						if (nodeChildren[j] != -1)
+							nodeChildren[j] = newIndices[nodeChildren[j]];
+			}
+			states = subtree.states;
+			actionLists = subtree.actionLists;
+			expansionOrders = subtree.expansionOrders;
+			children = subtree.children;
+			expandedCounts = subtree.expandedCounts;
+			parents = subtree.parents;
+			movers = subtree.movers;
+			visits = subtree.visits;
+			rewards = subtree.rewards;
+			size = count;
 		}
-		return true;
-	}
-	
-	
-	private Node<S, A> randomlySelectUnvisitedChild(Node<S, A> node) {
-		List<S> unvisitedChildren = new ArrayList<>();
-		List<S> visitedChildren = tree.getVisitedChildren(node);
-		for (A a : game.getActions(node.getState())) {
-			S result = game.getResult(node.getState(), a);
-			if (!visitedChildren.contains(result)) unvisitedChildren.add(result);
-		}
-		Random rand = new Random();
-		return tree.addChild(node, unvisitedChildren.get(rand.nextInt(unvisitedChildren.size())));
-	}
-	
-	@Override
-	public Metrics getMetrics() {
-		return null;
 	}
 }
@@ -0,0 +1,115 @@
+package aima.core.search.adversarial;
+
+import java.util.Arrays;
+
+/**
+ * Bounded hash table which stores results of depth-limited game tree searches.
+ * Each entry holds the hash key of a state, the remaining search depth, a
+ * value together with its bound type, and the best action found. Entries are
+ * stored in primitive arrays, indexed by the lower bits of the key. On
+ * collision, an entry is replaced if it stems from an earlier search or if the
+ * new result is based on a search of at least the same depth.
+ *
+ * @param <A> Type which is used for actions in the game.
+ */
+public class TranspositionTable<A> {
+	/** The value is exact. */
+	public static final byte EXACT = 0;
+	/** The value is a lower bound (the search failed high). */
+	public static final byte LOWER_BOUND = 1;
+	/** The value is an upper bound (the search failed low). */
+	public static final byte UPPER_BOUND = 2;
+
+	private final long[] keys;
+	private final double[] values;
+	private final byte[] depths;
+	private final byte[] bounds;
+	/** Indicates values which depend on the evaluation of non-terminal states. */
+	private final boolean[] heuristic;
+	/** Search number of the entry, 0 for empty slots. */
+	private final byte[] generations;
+	private final Object[] bestActions;
+	private final int mask;
+	private byte generation = 1;
+
+	/**
+	 * Creates a table with the given number of entries, rounded up to the next
+	 * power of two.
+	 */
+	public TranspositionTable(int capacity) {
+		int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+		keys = new long[size];
+		values = new double[size];
+		depths = new byte[size];
+		bounds = new byte[size];
+		heuristic = new boolean[size];
+		generations = new byte[size];
+		bestActions = new Object[size];
+		mask = size - 1;
+	}
+
+	/** Marks all entries as old, so that they are replaced preferentially. */
+	public void startNewSearch() {
+		generation = (byte) (generation == Byte.MAX_VALUE ? 1 : generation + 1);
+	}
+
+	/** Removes all entries. */
+	public void clear() {
+		Arrays.fill(generations, (byte) 0);
+		Arrays.fill(bestActions, null);
+	}
+
+	/** Returns the slot of the entry with the given key or -1. */
+	public int find(long key) {
+		int slot = getSlot(key);
+		return generations[slot] != 0 && keys[slot] == key ? slot : -1;
+	}
+
+	public double getValue(int slot) {
+		return values[slot];
+	}
+
+	/** Returns the depth of the search which computed the value. */
+	public int getDepth(int slot) {
+		return depths[slot];
+	}
+
+	/** Returns the bound type of the value. */
+	public byte getBound(int slot) {
+		return bounds[slot];
+	}
+
+	/**
+	 * Returns false if the value is based on terminal states only. In that
+	 * case, it is valid for any search depth.
+	 */
+	public boolean isHeuristic(int slot) {
+		return heuristic[slot];
+	}
+
+	@SuppressWarnings("unchecked")
+	public A getBestAction(int slot) {
+		return (A) bestActions[slot];
+	}
+
+	/**
+	 * Stores a search result unless the slot is occupied by a more valuable
+	 * entry of the current search.
+	 */
+	public void store(long key, int depth, double value, byte bound, boolean isHeuristic, A bestAction) {
+		int slot = getSlot(key);
+		if (generations[slot] == generation && depth < depths[slot])
+			return;
+		keys[slot] = key;
+		values[slot] = value;
+		depths[slot] = (byte) Math.min(depth, Byte.MAX_VALUE);
+		bounds[slot] = bound;
+		heuristic[slot] = isHeuristic;
+		generations[slot] = generation;
+		bestActions[slot] = bestAction;
+	}
+
+	private int getSlot(long key) {
+		return (int) (key ^ (key >>> 32)) & mask;
+	}
+}
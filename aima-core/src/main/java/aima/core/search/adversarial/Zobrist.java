@@ -0,0 +1,28 @@
+package aima.core.search.adversarial;
+
+/**
+ * Provides the random keys for Zobrist hashing of board game states. The hash
+ * of a state is the exclusive or of the keys of all (square, piece) pairs on
+ * the board, so it can be updated incrementally with each move. Keys are
+ * computed by a fixed bit mixing function and are therefore the same in all
+ * runs.
+ */
+public class Zobrist {
+
+	private Zobrist() {
+	}
+
+	/**
+	 * Returns the key for a piece on a square.
+	 *
+	 * @param square Index of the square, starting with 0.
+	 * @param piece  Small non-negative number identifying the kind of piece.
+	 */
+	public static long getKey(int square, int piece) {
+		// SplitMix64 finalizer
+		long z = (((long) square << 8) + piece + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
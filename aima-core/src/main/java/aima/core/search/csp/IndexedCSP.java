@@ -0,0 +1,679 @@
+package aima.core.search.csp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A compiled representation of a {@link CSP} in which variables and values are
+ * identified by integer indices. Values are numbered according to the order in
+ * the domains of the original CSP at compile time. The current domains are
+ * represented by bitsets, and all domain reductions are recorded on a trail, so
+ * that they can be undone in reverse order by {@link #undo(int)}. For binary
+ * constraints, support tables are computed once at compile time. They map each
+ * value of one variable to the bitset of compatible values of the other
+ * variable, so that consistency checks and arc revisions need no
+ * {@link Assignment} objects. Tables with equal contents, as obtained from
+ * constraints with the same relation over equal domains, are stored only
+ * once. Constraints of other arity are checked with an assignment which
+ * mirrors the current integer assignment.
+ * <p>
+ * Each binary constraint provides two arcs. The tail of an arc is the variable
+ * whose values are looked up in the support table, the head is the variable
+ * whose domain is described by the table entries. Arc <code>arc ^ 1</code> is
+ * the reverse of <code>arc</code>.
+ * <p>
+ * Instances are stateful (current domains, trail, and assignment) and must not
+ * be shared between threads. Use {@link #copy()} to obtain independent copies,
+ * which share the compiled tables.
+ *
+ * @param <VAR> Type which is used to represent variables
+ * @param <VAL> Type which is used to represent the values in the domains
+ */
+public class IndexedCSP<VAR extends Variable, VAL> implements Cloneable {
+
+    private final CSP<VAR, VAL> csp;
+    private final List<VAR> variables;
+    private final Object[][] values;
+    /** Start positions of the domain bitsets of the variables in {@link #domains}. */
+    private final int[] wordOffsets;
+    /** Maps the positions in {@link #domains} to variable indices. */
+    private final int[] wordVars;
+
+    private final List<Constraint<VAR, VAL>> constraints;
+    /** Variable indices in the scope of each constraint. */
+    private final int[][] scopes;
+    /** Constraints (indices) in which each variable participates. */
+    private final int[][] varConstraints;
+    /** First arc of each binary constraint or -1 for other constraints. */
+    private final int[] constraintArcs;
+    private final int[] arcTails;
+    private final int[] arcHeads;
+    /** Start positions of the support tables of the arcs in {@link #supports}. */
+    private final int[] supportOffsets;
+    private long[] supports;
+    /** Arcs with the variable as tail. */
+    private final int[][] varArcs;
+    private final boolean hasGeneralConstraints;
+
+    // state
+    private long[] domains;
+    private int[] domainSizes;
+    private int[] assignedValues;
+    private int assignedCount;
+    private Assignment<VAR, VAL> mirror;
+
+    private int[] trailPositions = new int[64];
+    private long[] trailWords = new long[64];
+    private int trailSize;
+
+    private int[] queue;
+    private boolean[] queued;
+
+    /**
+     * Compiles the given CSP. Later changes of the CSP are not reflected by
+     * the compiled representation.
+     */
+    public IndexedCSP(CSP<VAR, VAL> csp) {
+        this.csp = csp;
+        variables = new ArrayList<>(csp.getVariables());
+        int n = variables.size();
+        values = new Object[n][];
+        wordOffsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            Domain<VAL> domain = csp.getDomain(variables.get(i));
+            values[i] = new Object[domain.size()];
+            for (int j = 0; j < domain.size(); j++)
+                values[i][j] = domain.get(j);
+            wordOffsets[i + 1] = wordOffsets[i] + getWordCount(i);
+        }
+        wordVars = new int[wordOffsets[n]];
+        domains = new long[wordOffsets[n]];
+        domainSizes = new int[n];
+        for (int i = 0; i < n; i++) {
+            Arrays.fill(wordVars, wordOffsets[i], wordOffsets[i + 1], i);
+            for (int j = 0; j < values[i].length; j++)
+                domains[wordOffsets[i] + (j >> 6)] |= 1L << j;
+            domainSizes[i] = values[i].length;
+        }
+
+        constraints = new ArrayList<>(csp.getConstraints());
+        int m = constraints.size();
+        scopes = new int[m][];
+        constraintArcs = new int[m];
+        int[] constraintCounts = new int[n];
+        int[] arcCounts = new int[n];
+        int arcCount = 0;
+        boolean general = false;
+        for (int c = 0; c < m; c++) {
+            List<VAR> scope = constraints.get(c).getScope();
+            scopes[c] = new int[scope.size()];
+            for (int k = 0; k < scope.size(); k++) {
+                scopes[c][k] = csp.indexOf(scope.get(k));
+                constraintCounts[scopes[c][k]]++;
+            }
+            if (scope.size() == 2 && scopes[c][0] != scopes[c][1]) {
+                constraintArcs[c] = arcCount;
+                arcCount += 2;
+                arcCounts[scopes[c][0]]++;
+                arcCounts[scopes[c][1]]++;
+            } else {
+                constraintArcs[c] = -1;
+                general = true;
+            }
+        }
+        hasGeneralConstraints = general;
+
+        varConstraints = new int[n][];
+        varArcs = new int[n][];
+        for (int i = 0; i < n; i++) {
+            varConstraints[i] = new int[constraintCounts[i]];
+            varArcs[i] = new int[arcCounts[i]];
+        }
+        Arrays.fill(constraintCounts, 0);
+        Arrays.fill(arcCounts, 0);
+        arcTails = new int[arcCount];
+        arcHeads = new int[arcCount];
+        supportOffsets = new int[arcCount];
+        for (int c = 0; c < m; c++) {
+            for (int var : scopes[c])
+                varConstraints[var][constraintCounts[var]++] = c;
+            int arc = constraintArcs[c];
+            if (arc != -1) {
+                int var1 = scopes[c][0];
+                int var2 = scopes[c][1];
+                arcTails[arc] = var1;
+                arcHeads[arc] = var2;
+                arcTails[arc + 1] = var2;
+                arcHeads[arc + 1] = var1;
+                varArcs[var1][arcCounts[var1]++] = arc;
+                varArcs[var2][arcCounts[var2]++] = arc + 1;
+            }
+        }
+        supports = new long[1024];
+        int supportCount = 0;
+        Map<SupportTable, Integer> tableOffsets = new HashMap<>();
+        for (int c = 0; c < m; c++) {
+            int arc = constraintArcs[c];
+            if (arc != -1) {
+                SupportTable[] tables = computeSupports(c);
+                for (int i = 0; i < 2; i++) {
+                    Integer offset = tableOffsets.get(tables[i]);
+                    if (offset == null) {
+                        offset = supportCount;
+                        tableOffsets.put(tables[i], offset);
+                        long[] words = tables[i].words;
+                        if (supportCount + words.length > supports.length)
+                            supports = Arrays.copyOf(supports, Math.max(2 * supports.length, supportCount + words.length));
+                        System.arraycopy(words, 0, supports, supportCount, words.length);
+                        supportCount += words.length;
+                    }
+                    supportOffsets[arc + i] = offset;
+                }
+            }
+        }
+        supports = Arrays.copyOf(supports, supportCount);
+
+        assignedValues = new int[n];
+        Arrays.fill(assignedValues, -1);
+        if (hasGeneralConstraints)
+            mirror = new Assignment<>();
+    }
+
+    /** Returns the CSP from which this representation was compiled. */
+    public CSP<VAR, VAL> getCSP() {
+        return csp;
+    }
+
+    public int getVariableCount() {
+        return variables.size();
+    }
+
+    public VAR getVariable(int var) {
+        return variables.get(var);
+    }
+
+    public int indexOf(VAR var) {
+        return csp.indexOf(var);
+    }
+
+    /** Returns the number of values in the initial domain of the variable. */
+    public int getValueCount(int var) {
+        return values[var].length;
+    }
+
+    @SuppressWarnings("unchecked")
+    public VAL getValue(int var, int value) {
+        return (VAL) values[var][value];
+    }
+
+    /** Returns the number of constraints in which the variable participates. */
+    public int getDegree(int var) {
+        return varConstraints[var].length;
+    }
+
+    // ////////////////////////////////////////////////////////////////////
+    // domains
+
+    /** Returns the number of values in the current domain of the variable. */
+    public int getDomainSize(int var) {
+        return domainSizes[var];
+    }
+
+    public boolean isInDomain(int var, int value) {
+        return (domains[wordOffsets[var] + (value >> 6)] & 1L << value) != 0;
+    }
+
+    /**
+     * Returns the smallest value of the current domain which is not smaller
+     * than <code>from</code>, or -1 if no such value exists.
+     */
+    public int nextValue(int var, int from) {
+        int end = wordOffsets[var + 1];
+        int pos = wordOffsets[var] + (from >> 6);
+        if (pos >= end)
+            return -1;
+        long word = domains[pos] & -1L << from;
+        while (word == 0) {
+            if (++pos == end)
+                return -1;
+            word = domains[pos];
+        }
+        return (pos - wordOffsets[var]) * 64 + Long.numberOfTrailingZeros(word);
+    }
+
+    /** Returns the values of the current domain in ascending order. */
+    public int[] getDomainValues(int var) {
+        int[] result = new int[domainSizes[var]];
+        int i = 0;
+        for (int value = nextValue(var, 0); value != -1; value = nextValue(var, value + 1))
+            result[i++] = value;
+        return result;
+    }
+
+    /** Returns the current domain of the variable. */
+    @SuppressWarnings("unchecked")
+    public Domain<VAL> getDomain(int var) {
+        List<VAL> result = new ArrayList<>(domainSizes[var]);
+        for (int value = nextValue(var, 0); value != -1; value = nextValue(var, value + 1))
+            result.add((VAL) values[var][value]);
+        return new Domain<>(result);
+    }
+
+    /**
+     * Returns a copy of the original CSP whose domains are replaced by the
+     * current domains. Not very efficient...
+     */
+    public CSP<VAR, VAL> toCSP() {
+        CSP<VAR, VAL> result = csp.copyDomains();
+        for (int i = 0; i < variables.size(); i++)
+            result.setDomain(variables.get(i), getDomain(i));
+        return result;
+    }
+
+    /**
+     * Reduces the current domains to the domains of the given CSP, typically a
+     * result of {@link #toCSP()} which has been modified by inference.
+     *
+     * @return false if a domain became empty.
+     */
+    public boolean retainDomains(CSP<VAR, VAL> other) {
+        boolean consistent = true;
+        for (int i = 0; i < variables.size(); i++) {
+            Domain<VAL> domain = other.getDomain(variables.get(i));
+            for (int value = nextValue(i, 0); value != -1; value = nextValue(i, value + 1))
+                if (!domain.contains(getValue(i, value)))
+                    removeValue(i, value);
+            if (domainSizes[i] == 0)
+                consistent = false;
+        }
+        return consistent;
+    }
+
+    /** Returns the index of the value in the initial domain of the variable or -1. */
+    public int indexOf(int var, VAL value) {
+        for (int i = 0; i < values[var].length; i++)
+            if (Objects.equals(values[var][i], value))
+                return i;
+        return -1;
+    }
+
+    /** Removes the value from the current domain. Returns true if the domain was changed. */
+    public boolean removeValue(int var, int value) {
+        int pos = wordOffsets[var] + (value >> 6);
+        long word = domains[pos];
+        if ((word & 1L << value) == 0)
+            return false;
+        setWord(pos, word & ~(1L << value));
+        return true;
+    }
+
+    /** Reduces the current domain to the given value. Returns true if the domain was changed. */
+    public boolean retainValue(int var, int value) {
+        boolean changed = false;
+        int base = wordOffsets[var];
+        for (int pos = base; pos < wordOffsets[var + 1]; pos++) {
+            long word = domains[pos] & (pos - base == value >> 6 ? 1L << value : 0L);
+            if (word != domains[pos]) {
+                setWord(pos, word);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Returns a mark which can be passed to {@link #undo(int)} to restore the
+     * current domains.
+     */
+    public int getTrailMark() {
+        return trailSize;
+    }
+
+    /** Undoes all domain reductions which were performed after the mark was obtained. */
+    public void undo(int mark) {
+        while (trailSize > mark) {
+            trailSize--;
+            int pos = trailPositions[trailSize];
+            long word = trailWords[trailSize];
+            domainSizes[wordVars[pos]] += Long.bitCount(word) - Long.bitCount(domains[pos]);
+            domains[pos] = word;
+        }
+    }
+
+    // ////////////////////////////////////////////////////////////////////
+    // constraints
+
+    public int getConstraintCount() {
+        return constraints.size();
+    }
+
+    public Constraint<VAR, VAL> getConstraint(int constraint) {
+        return constraints.get(constraint);
+    }
+
+    /** Returns the indices of the variables in the scope of the constraint. Must not be modified. */
+    public int[] getScope(int constraint) {
+        return scopes[constraint];
+    }
+
+    /** Returns the constraints in which the variable participates. Must not be modified. */
+    public int[] getConstraints(int var) {
+        return varConstraints[var];
+    }
+
+    /** Returns the arcs which have the variable as tail. Must not be modified. */
+    public int[] getArcs(int var) {
+        return varArcs[var];
+    }
+
+    public int getArcTail(int arc) {
+        return arcTails[arc];
+    }
+
+    public int getArcHead(int arc) {
+        return arcHeads[arc];
+    }
+
+    /**
+     * Checks whether the constraint of the arc is satisfied if the tail has
+     * value <code>value</code> and the head has value <code>headValue</code>.
+     */
+    public boolean isCompatible(int arc, int value, int headValue) {
+        int pos = supportOffsets[arc] + value * getWordCount(arcHeads[arc]) + (headValue >> 6);
+        return (supports[pos] & 1L << headValue) != 0;
+    }
+
+    /**
+     * Counts the values in the current domain of the head which are not
+     * compatible with the given value of the tail.
+     */
+    public int countUnsupported(int arc, int value) {
+        int head = arcHeads[arc];
+        int pos = supportOffsets[arc] + value * getWordCount(head);
+        int result = 0;
+        for (int i = wordOffsets[head]; i < wordOffsets[head + 1]; i++)
+            result += Long.bitCount(domains[i] & ~supports[pos++]);
+        return result;
+    }
+
+    /**
+     * Removes all values from the current domain of the head which are not
+     * compatible with the given value of the tail. Returns true if the domain
+     * was changed.
+     */
+    public boolean removeUnsupported(int arc, int value) {
+        int head = arcHeads[arc];
+        int pos = supportOffsets[arc] + value * getWordCount(head);
+        boolean changed = false;
+        for (int i = wordOffsets[head]; i < wordOffsets[head + 1]; i++) {
+            long word = domains[i] & supports[pos++];
+            if (word != domains[i]) {
+                setWord(i, word);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Establishes arc-consistency for the arc: removes all values from the
+     * current domain of the tail which have no compatible value in the current
+     * domain of the head. Returns true if the domain was changed.
+     */
+    public boolean revise(int arc) {
+        int tail = arcTails[arc];
+        int head = arcHeads[arc];
+        int headWords = getWordCount(head);
+        int headOffset = wordOffsets[head];
+        boolean changed = false;
+        for (int value = nextValue(tail, 0); value != -1; value = nextValue(tail, value + 1)) {
+            int pos = supportOffsets[arc] + value * headWords;
+            boolean supported = false;
+            for (int i = 0; i < headWords && !supported; i++)
+                supported = (domains[headOffset + i] & supports[pos + i]) != 0;
+            if (!supported) {
+                removeValue(tail, value);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Re-establishes arc-consistency for all binary constraints after the
+     * domains of the given variables have been reduced. Constraints which are
+     * not binary are ignored.
+     *
+     * @return false if a domain became empty.
+     */
+    public boolean propagate(int... vars) {
+        int n = variables.size();
+        if (queue == null) {
+            queue = new int[n];
+            queued = new boolean[n];
+        }
+        int head = 0;
+        int size = 0;
+        for (int var : vars) {
+            if (!queued[var]) {
+                queued[var] = true;
+                queue[(head + size++) % n] = var;
+            }
+        }
+        boolean result = true;
+        while (size > 0 && result) {
+            int var = queue[head];
+            head = (head + 1) % n;
+            size--;
+            queued[var] = false;
+            for (int arc : varArcs[var]) {
+                int neighbor = arcHeads[arc];
+                if (revise(arc ^ 1)) {
+                    if (domainSizes[neighbor] == 0) {
+                        result = false;
+                        break;
+                    }
+                    if (!queued[neighbor]) {
+                        queued[neighbor] = true;
+                        queue[(head + size++) % n] = neighbor;
+                    }
+                }
+            }
+        }
+        while (size > 0) {
+            queued[queue[head]] = false;
+            head = (head + 1) % n;
+            size--;
+        }
+        return result;
+    }
+
+    // ////////////////////////////////////////////////////////////////////
+    // assignment
+
+    public void assign(int var, int value) {
+        if (assignedValues[var] == -1)
+            assignedCount++;
+        assignedValues[var] = value;
+        if (mirror != null)
+            mirror.add(variables.get(var), getValue(var, value));
+    }
+
+    public void unassign(int var) {
+        if (assignedValues[var] != -1) {
+            assignedValues[var] = -1;
+            assignedCount--;
+            if (mirror != null)
+                mirror.remove(variables.get(var));
+        }
+    }
+
+    /** Returns the value assigned to the variable or -1. */
+    public int getAssignedValue(int var) {
+        return assignedValues[var];
+    }
+
+    public boolean isAssigned(int var) {
+        return assignedValues[var] != -1;
+    }
+
+    public int getAssignedCount() {
+        return assignedCount;
+    }
+
+    public boolean isComplete() {
+        return assignedCount == variables.size();
+    }
+
+    /**
+     * Returns true if the current assignment does not violate any of the
+     * constraints in which the variable participates.
+     */
+    public boolean isConsistent(int var) {
+        for (int c : varConstraints[var])
+            if (!isSatisfied(c))
+                return false;
+        return true;
+    }
+
+    /**
+     * Returns true if the constraint is not violated by the current
+     * assignment. Binary constraints are considered as satisfied as long as
+     * not both variables are assigned.
+     */
+    public boolean isSatisfied(int constraint) {
+        int arc = constraintArcs[constraint];
+        if (arc != -1) {
+            int value1 = assignedValues[arcTails[arc]];
+            int value2 = assignedValues[arcHeads[arc]];
+            return value1 == -1 || value2 == -1 || isCompatible(arc, value1, value2);
+        }
+        return constraints.get(constraint).isSatisfiedWith(mirror);
+    }
+
+    /**
+     * Counts the constraints of the variable which would be violated if the
+     * variable was assigned the given value. The current assignment is not
+     * changed.
+     */
+    public int countConflicts(int var, int value) {
+        int oldValue = assignedValues[var];
+        int result = 0;
+        for (int arc : varArcs[var]) {
+            int headValue = assignedValues[arcHeads[arc]];
+            if (headValue != -1 && !isCompatible(arc, value, headValue))
+                result++;
+        }
+        if (hasGeneralConstraints) {
+            assign(var, value);
+            for (int c : varConstraints[var])
+                if (constraintArcs[c] == -1 && !constraints.get(c).isSatisfiedWith(mirror))
+                    result++;
+            if (oldValue != -1)
+                assign(var, oldValue);
+            else
+                unassign(var);
+        }
+        return result;
+    }
+
+    /** Returns a new assignment which contains the currently assigned values. */
+    public Assignment<VAR, VAL> getAssignment() {
+        Assignment<VAR, VAL> result = new Assignment<>();
+        for (int i = 0; i < variables.size(); i++)
+            if (assignedValues[i] != -1)
+                result.add(variables.get(i), getValue(i, assignedValues[i]));
+        return result;
+    }
+
+    /**
+     * Returns a copy which shares the compiled tables with this CSP and has
+     * its own domains, trail, and assignment.
+     */
+    @SuppressWarnings("unchecked")
+    public IndexedCSP<VAR, VAL> copy() {
+        IndexedCSP<VAR, VAL> result;
+        try {
+            result = (IndexedCSP<VAR, VAL>) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new UnsupportedOperationException("Could not copy CSP."); // should never happen!
+        }
+        result.domains = domains.clone();
+        result.domainSizes = domainSizes.clone();
+        result.assignedValues = assignedValues.clone();
+        result.mirror = mirror != null ? mirror.clone() : null;
+        result.trailPositions = new int[64];
+        result.trailWords = new long[64];
+        result.trailSize = 0;
+        result.queue = null;
+        result.queued = null;
+        return result;
+    }
+
+    // ////////////////////////////////////////////////////////////////////
+    // private methods
+
+    private int getWordCount(int var) {
+        return Math.max(1, (values[var].length + 63) >> 6);
+    }
+
+    private void setWord(int pos, long word) {
+        if (trailSize == trailPositions.length) {
+            trailPositions = Arrays.copyOf(trailPositions, 2 * trailSize);
+            trailWords = Arrays.copyOf(trailWords, 2 * trailSize);
+        }
+        trailPositions[trailSize] = pos;
+        trailWords[trailSize++] = domains[pos];
+        domainSizes[wordVars[pos]] += Long.bitCount(word) - Long.bitCount(domains[pos]);
+        domains[pos] = word;
+    }
+
+    /** Returns the support tables of the two arcs of a binary constraint. */
+    private SupportTable[] computeSupports(int constraint) {
+        Constraint<VAR, VAL> cons = constraints.get(constraint);
+        int arc = constraintArcs[constraint];
+        int var1 = arcTails[arc];
+        int var2 = arcHeads[arc];
+        int words1 = getWordCount(var1);
+        int words2 = getWordCount(var2);
+        long[] table1 = new long[values[var1].length * words2];
+        long[] table2 = new long[values[var2].length * words1];
+        Assignment<VAR, VAL> assignment = new Assignment<>();
+        for (int value1 = 0; value1 < values[var1].length; value1++) {
+            assignment.add(variables.get(var1), getValue(var1, value1));
+            for (int value2 = 0; value2 < values[var2].length; value2++) {
+                assignment.add(variables.get(var2), getValue(var2, value2));
+                if (cons.isSatisfiedWith(assignment)) {
+                    table1[value1 * words2 + (value2 >> 6)] |= 1L << value2;
+                    table2[value2 * words1 + (value1 >> 6)] |= 1L << value1;
+                }
+            }
+        }
+        return new SupportTable[] { new SupportTable(table1), new SupportTable(table2) };
+    }
+
+    /** Wraps the words of a support table to find equal tables. */
+    private static class SupportTable {
+        private final long[] words;
+        private final int hash;
+
+        SupportTable(long[] words) {
+            this.words = words;
+            hash = Arrays.hashCode(words);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof SupportTable && Arrays.equals(words, ((SupportTable) obj).words);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
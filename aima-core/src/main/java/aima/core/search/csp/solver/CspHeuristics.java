@@ -3,10 +3,12 @@ package aima.core.search.csp.solver;
 import aima.core.search.csp.Assignment;
 import aima.core.search.csp.CSP;
 import aima.core.search.csp.Constraint;
+import aima.core.search.csp.IndexedCSP;
 import aima.core.search.csp.Variable;
 import aima.core.util.datastructure.Pair;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -20,16 +22,54 @@ public class CspHeuristics {
 
     public interface VariableSelectionStrategy<VAR extends Variable, VAL> {
         List<VAR> apply(CSP<VAR, VAL> csp, List<VAR> vars);
+
+        /**
+         * Moves the best of the first <code>size</code> variables in <code>vars</code> to the front
+         * (keeping their order) and returns their number. The default implementation delegates to the
+         * object-based version, using a copy of the CSP with the current domains.
+         */
+        default int apply(IndexedCSP<VAR, VAL> csp, int[] vars, int size) {
+            List<VAR> candidates = new ArrayList<>(size);
+            for (int i = 0; i < size; i++)
+                candidates.add(csp.getVariable(vars[i]));
+            List<VAR> best = apply(csp.toCSP(), candidates);
+            for (int i = 0; i < best.size(); i++)
+                vars[i] = csp.indexOf(best.get(i));
+            return best.size();
+        }
     }
 
     public interface ValueOrderingStrategy<VAR extends Variable, VAL> {
         List<VAL> apply(CSP<VAR, VAL> csp, Assignment<VAR, VAL> assignment, VAR var);
+
+        /**
+         * Returns the values of the current domain of <code>var</code> in the order in which they are tried.
+         * The default implementation delegates to the object-based version, using a copy of the CSP with the
+         * current domains.
+         */
+        default int[] apply(IndexedCSP<VAR, VAL> csp, int var) {
+            List<VAL> values = apply(csp.toCSP(), csp.getAssignment(), csp.getVariable(var));
+            return values.stream().mapToInt(value -> csp.indexOf(var, value)).toArray();
+        }
     }
 
     public static <VAR extends Variable, VAL> VariableSelectionStrategy<VAR, VAL> mrv() { return new MrvHeuristic<>(); }
     public static <VAR extends Variable, VAL> VariableSelectionStrategy<VAR, VAL> deg() { return new DegHeuristic<>(); }
     public static <VAR extends Variable, VAL> VariableSelectionStrategy<VAR, VAL> mrvDeg() {
-        return (csp, vars) -> new DegHeuristic<VAR, VAL>().apply(csp, new MrvHeuristic<VAR, VAL>().apply(csp, vars));
+        return new VariableSelectionStrategy<VAR, VAL>() {
+            private final MrvHeuristic<VAR, VAL> mrv = new MrvHeuristic<>();
+            private final DegHeuristic<VAR, VAL> deg = new DegHeuristic<>();
+
+            @Override
+            public List<VAR> apply(CSP<VAR, VAL> csp, List<VAR> vars) {
+                return deg.apply(csp, mrv.apply(csp, vars));
+            }
+
+            @Override
+            public int apply(IndexedCSP<VAR, VAL> csp, int[] vars, int size) {
+                return deg.apply(csp, vars, mrv.apply(csp, vars, size));
+            }
+        };
     }
 
     public static <VAR extends Variable, VAL> ValueOrderingStrategy<VAR, VAL> lcv() { return new LcvHeuristic<>();}
@@ -54,6 +94,22 @@ public class CspHeuristics {
             }
             return result;
         }
+
+        @Override
+        public int apply(IndexedCSP<VAR, VAL> csp, int[] vars, int size) {
+            int result = 0;
+            int minValues = Integer.MAX_VALUE;
+            for (int i = 0; i < size; i++) {
+                int values = csp.getDomainSize(vars[i]);
+                if (values < minValues) {
+                    result = 0;
+                    minValues = values;
+                }
+                if (values == minValues)
+                    vars[result++] = vars[i];
+            }
+            return result;
+        }
     }
 
     /**
@@ -76,6 +132,22 @@ public class CspHeuristics {
             }
             return result;
         }
+
+        @Override
+        public int apply(IndexedCSP<VAR, VAL> csp, int[] vars, int size) {
+            int result = 0;
+            int maxDegree = -1;
+            for (int i = 0; i < size; i++) {
+                int degree = csp.getDegree(vars[i]);
+                if (degree > maxDegree) {
+                    result = 0;
+                    maxDegree = degree;
+                }
+                if (degree == maxDegree)
+                    vars[result++] = vars[i];
+            }
+            return result;
+        }
     }
 
     /**
@@ -94,6 +166,27 @@ public class CspHeuristics {
                     .collect(Collectors.toList());
         }
 
+        /**
+         * Counts the lost values with the support tables of the binary constraints. Values with equal counts
+         * keep their domain order.
+         */
+        @Override
+        public int[] apply(IndexedCSP<VAR, VAL> csp, int var) {
+            int[] values = csp.getDomainValues(var);
+            long[] keys = new long[values.length];
+            for (int i = 0; i < values.length; i++) {
+                long num = 0;
+                for (int arc : csp.getArcs(var))
+                    if (!csp.isAssigned(csp.getArcHead(arc)))
+                        num += csp.countUnsupported(arc, values[i]);
+                keys[i] = num << 32 | values[i];
+            }
+            Arrays.sort(keys);
+            for (int i = 0; i < values.length; i++)
+                values[i] = (int) keys[i];
+            return values;
+        }
+
         /**
          * Ignores constraints which are not binary.
          */
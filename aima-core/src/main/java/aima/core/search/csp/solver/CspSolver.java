@@ -2,6 +2,7 @@ package aima.core.search.csp.solver;
 
 import aima.core.search.csp.Assignment;
 import aima.core.search.csp.CSP;
+import aima.core.search.csp.IndexedCSP;
 import aima.core.search.csp.Variable;
 
 import java.util.ArrayList;
@@ -53,9 +54,27 @@ public abstract class CspSolver<VAR extends Variable, VAL> {
     }
 
 
+    /** Returns true if listeners are registered. */
+    protected boolean hasCspListeners() {
+        return !listeners.isEmpty();
+    }
+
     /** Informs all registered listeners about a state change. */
     protected void fireStateChanged(CSP<VAR, VAL> csp, Assignment<VAR, VAL> assignment, VAR variable) {
         listeners.forEach(listener -> listener.stateChanged(csp, assignment, variable));
     }
 
+    /**
+     * Informs all registered listeners about a state change of an integer-indexed CSP. CSP and assignment
+     * objects are only created if listeners are registered.
+     *
+     * @param assignmentChanged false if the last processing step was an inference step.
+     * @param var               index of the changed variable or -1.
+     */
+    protected void fireStateChanged(IndexedCSP<VAR, VAL> csp, boolean assignmentChanged, int var) {
+        if (!listeners.isEmpty())
+            fireStateChanged(csp.toCSP(), assignmentChanged ? csp.getAssignment() : null,
+                    var != -1 ? csp.getVariable(var) : null);
+    }
+
 }
@@ -6,13 +6,19 @@ import java.util.stream.Collectors;
 
 import aima.core.search.csp.Assignment;
 import aima.core.search.csp.CSP;
+import aima.core.search.csp.IndexedCSP;
 import aima.core.search.csp.Variable;
 import aima.core.search.csp.solver.inference.*;
+import aima.core.util.Tasks;
 
 /**
  * This backtracking search implementation can be configured with arbitrary strategies for variable selection,
  * value ordering, and inference. These strategies are represented by objects implementing standard interfaces.
  * The design supports experiments with user-defined strategies of all kinds.
+ * <p>
+ * Integer-indexed CSPs can be solved as well. All strategies defined in {@link CspHeuristics} and AC3 and
+ * forward checking support them directly. User-defined strategies which only implement the object-based
+ * methods are applied to a copy of the CSP with the current domains, which works but is much slower.
  *
  * @param <VAR> Type which is used to represent variables
  * @param <VAL> Type which is used to represent the values in the domains
@@ -74,6 +80,65 @@ public class FlexibleBacktrackingSolver<VAR extends Variable, VAL> extends Abstr
         return super.solve(csp);
     }
 
+    /**
+     * Applies a recursive backtracking search to an integer-indexed CSP. Domain reductions are undone by means
+     * of the trail, so the CSP is in its original state again when the method returns.
+     *
+     * @return the computed solution (possibly incomplete if the task was cancelled) or empty if no solution
+     * was found.
+     */
+    public Optional<Assignment<VAR, VAL>> solve(IndexedCSP<VAR, VAL> csp) {
+        int mark = csp.getTrailMark();
+        Assignment<VAR, VAL> result = null;
+        boolean consistent = true;
+        if (inferenceStrategy != null) {
+            consistent = inferenceStrategy.apply(csp);
+            if (csp.getTrailMark() > mark)
+                fireStateChanged(csp, false, -1);
+        }
+        if (consistent)
+            result = backtrack(csp, new int[csp.getVariableCount()]);
+        csp.undo(mark);
+        return result != null ? Optional.of(result) : Optional.empty();
+    }
+
+    /**
+     * Integer-based version of the backtracking template method.
+     *
+     * @param vars buffer for the variable selection.
+     * @return An assignment (possibly incomplete if task was cancelled) or null if no solution was found.
+     */
+    private Assignment<VAR, VAL> backtrack(IndexedCSP<VAR, VAL> csp, int[] vars) {
+        if (csp.isComplete() || Tasks.currIsCancelled())
+            return csp.getAssignment();
+        Assignment<VAR, VAL> result = null;
+        int size = 0;
+        for (int i = 0; i < vars.length; i++)
+            if (!csp.isAssigned(i))
+                vars[size++] = i;
+        if (varSelectionStrategy != null)
+            varSelectionStrategy.apply(csp, vars, size);
+        int var = vars[0];
+        int[] values = (valOrderingStrategy != null) ? valOrderingStrategy.apply(csp, var) : csp.getDomainValues(var);
+        for (int value : values) {
+            csp.assign(var, value);
+            fireStateChanged(csp, true, var);
+            if (csp.isConsistent(var)) {
+                int mark = csp.getTrailMark();
+                boolean consistent = inferenceStrategy == null || inferenceStrategy.apply(csp, var);
+                if (csp.getTrailMark() > mark)
+                    fireStateChanged(csp, false, -1);
+                if (consistent)
+                    result = backtrack(csp, vars);
+                csp.undo(mark);
+            }
+            csp.unassign(var);
+            if (result != null)
+                break;
+        }
+        return result;
+    }
+
     /**
      * Primitive operation, selecting a not yet assigned variable.
      */
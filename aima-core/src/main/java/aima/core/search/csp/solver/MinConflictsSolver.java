@@ -3,6 +3,7 @@ package aima.core.search.csp.solver;
 import aima.core.search.csp.Assignment;
 import aima.core.search.csp.CSP;
 import aima.core.search.csp.Constraint;
+import aima.core.search.csp.IndexedCSP;
 import aima.core.search.csp.Variable;
 import aima.core.search.csp.solver.CspSolver;
 import aima.core.util.Tasks;
@@ -34,6 +35,10 @@ import java.util.*;
  * chooses a minimal-conflict value for each variable in turn. The CONFLICTS
  * function counts the number of constraints violated by a particular value,
  * given the rest of the current assignment.
+ * <p>
+ * For integer-indexed CSPs, violated constraints and conflicted variables are
+ * maintained incrementally, so that a step only needs to look at the
+ * constraints of the changed variable.
  *
  * @param <VAR> Type which is used to represent variables
  * @param <VAL> Type which is used to represent the values in the domains
@@ -72,6 +77,83 @@ public class MinConflictsSolver<VAR extends Variable, VAL> extends CspSolver<VAR
 		return Optional.empty();
 	}
 
+	/**
+	 * Applies min-conflicts local search to an integer-indexed CSP. The
+	 * assignment of the CSP is cleared when the method returns.
+	 */
+	public Optional<Assignment<VAR, VAL>> solve(IndexedCSP<VAR, VAL> csp) {
+		int n = csp.getVariableCount();
+		for (int var = 0; var < n; var++) {
+			int[] values = csp.getDomainValues(var);
+			csp.assign(var, values[Util.randomInt(values.length)]);
+		}
+		fireStateChanged(csp, true, -1);
+		// conflicted variables in random-access form
+		int[] conflicts = new int[n];
+		int[] conflicted = new int[n];
+		int[] positions = new int[n];
+		int conflictedCount = 0;
+		boolean[] violated = new boolean[csp.getConstraintCount()];
+		for (int c = 0; c < violated.length; c++) {
+			if (!csp.isSatisfied(c)) {
+				violated[c] = true;
+				for (int var : csp.getScope(c))
+					conflicts[var]++;
+			}
+		}
+		for (int var = 0; var < n; var++)
+			if (conflicts[var] > 0) {
+				positions[var] = conflictedCount;
+				conflicted[conflictedCount++] = var;
+			}
+		Optional<Assignment<VAR, VAL>> result = Optional.empty();
+		int[] candidates = new int[0];
+		for (int i = 0; i < maxSteps && !Tasks.currIsCancelled(); i++) {
+			if (conflictedCount == 0) {
+				result = Optional.of(csp.getAssignment());
+				break;
+			}
+			int var = conflicted[Util.randomInt(conflictedCount)];
+			// find min-conflict value
+			if (candidates.length < csp.getValueCount(var))
+				candidates = new int[csp.getValueCount(var)];
+			int candidateCount = 0;
+			int minConflict = Integer.MAX_VALUE;
+			for (int value = csp.nextValue(var, 0); value != -1; value = csp.nextValue(var, value + 1)) {
+				int currConflict = csp.countConflicts(var, value);
+				if (currConflict <= minConflict) {
+					if (currConflict < minConflict) {
+						candidateCount = 0;
+						minConflict = currConflict;
+					}
+					candidates[candidateCount++] = value;
+				}
+			}
+			csp.assign(var, candidates[Util.randomInt(candidateCount)]);
+			// update violated constraints and conflicted variables
+			for (int c : csp.getConstraints(var)) {
+				boolean v = !csp.isSatisfied(c);
+				if (v != violated[c]) {
+					violated[c] = v;
+					for (int scopeVar : csp.getScope(c)) {
+						if (v && conflicts[scopeVar]++ == 0) {
+							positions[scopeVar] = conflictedCount;
+							conflicted[conflictedCount++] = scopeVar;
+						} else if (!v && --conflicts[scopeVar] == 0) {
+							int last = conflicted[--conflictedCount];
+							conflicted[positions[scopeVar]] = last;
+							positions[last] = positions[scopeVar];
+						}
+					}
+				}
+			}
+			fireStateChanged(csp, true, var);
+		}
+		for (int var = 0; var < n; var++)
+			csp.unassign(var);
+		return result;
+	}
+
 	private Assignment<VAR, VAL> generateRandomAssignment(CSP<VAR, VAL> csp) {
 		Assignment<VAR, VAL> result = new Assignment<>();
 		for (VAR var : csp.getVariables()) {
@@ -0,0 +1,279 @@
+package aima.core.search.csp.solver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import aima.core.search.csp.Assignment;
+import aima.core.search.csp.CSP;
+import aima.core.search.csp.IndexedCSP;
+import aima.core.search.csp.Variable;
+import aima.core.search.csp.solver.inference.AC3Strategy;
+import aima.core.search.csp.solver.inference.InferenceStrategy;
+import aima.core.util.CancellableThread;
+import aima.core.util.Tasks;
+
+/**
+ * Backtracking search which uses several threads. The search tree is split
+ * into subproblems at shallow depth: a subproblem is given by a sequence of
+ * value assignments, and as long as its length is below the split depth, it
+ * is expanded into one subproblem for each value of the next selected
+ * variable. Deeper subproblems are solved by a sequential
+ * {@link FlexibleBacktrackingSolver}. Each worker thread owns a deque of
+ * subproblems and a copy of the {@link IndexedCSP}. It takes new subproblems
+ * from the front of its own deque and steals from the back of the deques of
+ * other workers when its own deque is empty. All workers are cancelled as soon
+ * as one of them has found a solution.
+ * <p>
+ * Strategies are configured as for {@link FlexibleBacktrackingSolver}. They
+ * are shared by all workers and must be thread-safe. Registered
+ * listeners are informed about the steps of all workers. Notifications are
+ * serialized, so listeners need not be thread-safe.
+ *
+ * @param <VAR> Type which is used to represent variables
+ * @param <VAL> Type which is used to represent the values in the domains
+ */
+public class ParallelBacktrackingSolver<VAR extends Variable, VAL> extends CspSolver<VAR, VAL> {
+
+    private CspHeuristics.VariableSelectionStrategy<VAR, VAL> varSelectionStrategy;
+    private CspHeuristics.ValueOrderingStrategy<VAR, VAL> valOrderingStrategy;
+    private InferenceStrategy<VAR, VAL> inferenceStrategy;
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+    private int splitDepth = 4;
+
+    /**
+     * Selects the algorithm for SELECT-UNASSIGNED-VARIABLE. Uses the fluent interface design pattern.
+     */
+    public ParallelBacktrackingSolver<VAR, VAL> set(CspHeuristics.VariableSelectionStrategy<VAR, VAL> varStrategy) {
+        varSelectionStrategy = varStrategy;
+        return this;
+    }
+
+    /**
+     * Selects the algorithm for ORDER-DOMAIN-VALUES. Uses the fluent interface design pattern.
+     */
+    public ParallelBacktrackingSolver<VAR, VAL> set(CspHeuristics.ValueOrderingStrategy<VAR, VAL> valStrategy) {
+        valOrderingStrategy = valStrategy;
+        return this;
+    }
+
+    /**
+     * Selects the algorithm for INFERENCE. Uses the fluent interface design pattern.
+     */
+    public ParallelBacktrackingSolver<VAR, VAL> set(InferenceStrategy<VAR, VAL> iStrategy) {
+        inferenceStrategy = iStrategy;
+        return this;
+    }
+
+    /**
+     * Selects MRV&DEG for variable selection, LCV for domain ordering and AC3 as inference method.
+     */
+    public ParallelBacktrackingSolver<VAR, VAL> setAll() {
+        return set(CspHeuristics.mrvDeg()).set(CspHeuristics.lcv()).set(new AC3Strategy<>());
+    }
+
+    /** Sets the number of worker threads (default: number of available processors). */
+    public ParallelBacktrackingSolver<VAR, VAL> setThreadCount(int threadCount) {
+        if (threadCount < 1)
+            throw new IllegalArgumentException("At least one thread is needed.");
+        this.threadCount = threadCount;
+        return this;
+    }
+
+    /**
+     * Sets the number of assignments up to which subproblems are split (default 4). Larger values produce more
+     * and smaller subproblems.
+     */
+    public ParallelBacktrackingSolver<VAR, VAL> setSplitDepth(int splitDepth) {
+        this.splitDepth = splitDepth;
+        return this;
+    }
+
+    /** Compiles the CSP and solves the integer-indexed representation. */
+    @Override
+    public Optional<Assignment<VAR, VAL>> solve(CSP<VAR, VAL> csp) {
+        return solve(new IndexedCSP<>(csp));
+    }
+
+    /**
+     * Solves the integer-indexed CSP. The given CSP is only used as template for the copies of the workers and is
+     * not changed.
+     *
+     * @return the computed solution or empty if no solution exists or the task was cancelled.
+     */
+    public Optional<Assignment<VAR, VAL>> solve(IndexedCSP<VAR, VAL> csp) {
+        IndexedCSP<VAR, VAL> root = csp.copy();
+        if (inferenceStrategy != null) {
+            if (!inferenceStrategy.apply(root))
+                return Optional.empty();
+            if (root.getTrailMark() > 0)
+                fireStateChangedSynchronized(root, false, -1);
+        }
+        FlexibleBacktrackingSolver<VAR, VAL> leafSolver = new FlexibleBacktrackingSolver<>();
+        if (varSelectionStrategy != null)
+            leafSolver.set(varSelectionStrategy);
+        if (valOrderingStrategy != null)
+            leafSolver.set(valOrderingStrategy);
+        if (inferenceStrategy != null)
+            leafSolver.set(inferenceStrategy);
+        if (hasCspListeners())
+            leafSolver.addCspListener((c, assignment, var) -> fireStateChangedSynchronized(c, assignment, var));
+
+        Search search = new Search(leafSolver);
+        List<Worker> workers = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++)
+            workers.add(new Worker(search, root.copy()));
+        search.workers = workers;
+        search.pending.set(1);
+        workers.get(0).deque.add(new int[0]);
+
+        List<RuntimeException> failures = Collections.synchronizedList(new ArrayList<>());
+        List<CancellableThread> threads = new ArrayList<>();
+        for (Worker worker : workers) {
+            CancellableThread thread = new CancellableThread(() -> {
+                try {
+                    worker.run();
+                } catch (RuntimeException e) {
+                    failures.add(e);
+                    search.stop();
+                }
+            });
+            thread.setDaemon(true);
+            threads.add(thread);
+        }
+        search.threads = threads;
+        threads.forEach(Thread::start);
+        try {
+            for (Thread thread : threads) {
+                while (thread.isAlive()) {
+                    if (Tasks.currIsCancelled())
+                        search.stop();
+                    thread.join(50);
+                }
+            }
+        } catch (InterruptedException e) {
+            search.stop();
+            Thread.currentThread().interrupt();
+        }
+        if (!failures.isEmpty())
+            throw failures.get(0);
+        return Optional.ofNullable(search.solution.get());
+    }
+
+    private synchronized void fireStateChangedSynchronized(IndexedCSP<VAR, VAL> csp, boolean assignmentChanged,
+                                                           int var) {
+        fireStateChanged(csp, assignmentChanged, var);
+    }
+
+    private synchronized void fireStateChangedSynchronized(CSP<VAR, VAL> csp, Assignment<VAR, VAL> assignment,
+                                                           VAR var) {
+        fireStateChanged(csp, assignment, var);
+    }
+
+    /** State which is shared by all workers. */
+    private class Search {
+        final FlexibleBacktrackingSolver<VAR, VAL> leafSolver;
+        final AtomicReference<Assignment<VAR, VAL>> solution = new AtomicReference<>();
+        /** Number of subproblems which have been created but not yet completely processed. */
+        final AtomicInteger pending = new AtomicInteger();
+        volatile boolean stopped;
+        List<Worker> workers;
+        List<CancellableThread> threads;
+
+        Search(FlexibleBacktrackingSolver<VAR, VAL> leafSolver) {
+            this.leafSolver = leafSolver;
+        }
+
+        void stop() {
+            stopped = true;
+            threads.forEach(CancellableThread::cancel);
+        }
+    }
+
+    /** Processes subproblems, which are encoded as alternating sequences of variables and values. */
+    private class Worker implements Runnable {
+        final Search search;
+        final IndexedCSP<VAR, VAL> csp;
+        final ConcurrentLinkedDeque<int[]> deque = new ConcurrentLinkedDeque<>();
+        final int[] vars;
+
+        Worker(Search search, IndexedCSP<VAR, VAL> csp) {
+            this.search = search;
+            this.csp = csp;
+            vars = new int[csp.getVariableCount()];
+        }
+
+        @Override
+        public void run() {
+            while (!search.stopped && search.pending.get() > 0) {
+                int[] subproblem = deque.pollFirst();
+                for (int i = 0; subproblem == null && i < search.workers.size(); i++)
+                    subproblem = search.workers.get(i).deque.pollLast();
+                if (subproblem != null) {
+                    process(subproblem);
+                    search.pending.decrementAndGet();
+                } else {
+                    LockSupport.parkNanos(100000);
+                }
+            }
+        }
+
+        private void process(int[] subproblem) {
+            int mark = csp.getTrailMark();
+            int depth = 0;
+            boolean consistent = true;
+            while (consistent && depth < subproblem.length) {
+                int var = subproblem[depth++];
+                int value = subproblem[depth++];
+                consistent = csp.isInDomain(var, value);
+                if (consistent) {
+                    csp.assign(var, value);
+                    consistent = csp.isConsistent(var)
+                            && (inferenceStrategy == null || inferenceStrategy.apply(csp, var));
+                }
+            }
+            if (consistent) {
+                if (subproblem.length / 2 < splitDepth && !csp.isComplete())
+                    split(subproblem);
+                else
+                    solveLeaf();
+            }
+            csp.undo(mark);
+            for (int i = 0; i < depth; i += 2)
+                csp.unassign(subproblem[i]);
+        }
+
+        private void split(int[] subproblem) {
+            int size = 0;
+            for (int i = 0; i < vars.length; i++)
+                if (!csp.isAssigned(i))
+                    vars[size++] = i;
+            if (varSelectionStrategy != null)
+                varSelectionStrategy.apply(csp, vars, size);
+            int var = vars[0];
+            int[] values = (valOrderingStrategy != null) ? valOrderingStrategy.apply(csp, var) : csp.getDomainValues(var);
+            search.pending.addAndGet(values.length);
+            // the first value is taken first by this worker, the last values are stolen first
+            for (int i = values.length - 1; i >= 0; i--) {
+                int[] child = new int[subproblem.length + 2];
+                System.arraycopy(subproblem, 0, child, 0, subproblem.length);
+                child[subproblem.length] = var;
+                child[subproblem.length + 1] = values[i];
+                deque.addFirst(child);
+            }
+        }
+
+        private void solveLeaf() {
+            Optional<Assignment<VAR, VAL>> result = search.leafSolver.solve(csp);
+            // results of cancelled searches may be incomplete
+            if (result.isPresent() && !search.stopped && result.get().isComplete(csp.getCSP().getVariables())
+                    && search.solution.compareAndSet(null, result.get()))
+                search.stop();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package aima.core.search.csp.solver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import aima.core.search.csp.Assignment;
+import aima.core.search.csp.CSP;
+import aima.core.search.csp.Variable;
+import aima.core.search.csp.solver.inference.AC3Strategy;
+import aima.core.search.csp.solver.inference.ForwardCheckingStrategy;
+import aima.core.util.CancellableThread;
+import aima.core.util.Tasks;
+
+/**
+ * Runs a portfolio of CSP solvers concurrently, each in its own thread, and
+ * returns the first solution found. The other solvers are cancelled then. The
+ * search also stops if one of the complete solvers (backtracking solvers) has
+ * proven that no solution exists. Incomplete solvers like
+ * {@link MinConflictsSolver} cannot prove this, so their failure is ignored as
+ * long as other solvers are still running.
+ * <p>
+ * The solvers share the CSP, so they must not modify it (none of the solvers
+ * in this package does). Registered listeners are informed about the steps of
+ * all solvers. Notifications are serialized, so listeners need not be
+ * thread-safe.
+ *
+ * @param <VAR> Type which is used to represent variables
+ * @param <VAL> Type which is used to represent the values in the domains
+ */
+public class PortfolioCspSolver<VAR extends Variable, VAL> extends CspSolver<VAR, VAL> {
+
+    private final List<CspSolver<VAR, VAL>> solvers = new ArrayList<>();
+
+    /** Adds a solver to the portfolio. Uses the fluent interface design pattern. */
+    public PortfolioCspSolver<VAR, VAL> add(CspSolver<VAR, VAL> solver) {
+        solvers.add(solver);
+        return this;
+    }
+
+    /**
+     * Adds backtracking solvers with different combinations of variable selection, value ordering and inference
+     * strategies. Uses the fluent interface design pattern.
+     */
+    public PortfolioCspSolver<VAR, VAL> addHeuristicVariants() {
+        add(new FlexibleBacktrackingSolver<VAR, VAL>().setAll());
+        add(new FlexibleBacktrackingSolver<VAR, VAL>().set(CspHeuristics.mrv()).set(new ForwardCheckingStrategy<>()));
+        add(new FlexibleBacktrackingSolver<VAR, VAL>().set(CspHeuristics.deg()).set(CspHeuristics.lcv())
+                .set(new AC3Strategy<>()));
+        add(new FlexibleBacktrackingSolver<VAR, VAL>().set(CspHeuristics.mrvDeg()).set(new ForwardCheckingStrategy<>()));
+        return this;
+    }
+
+    public List<CspSolver<VAR, VAL>> getSolvers() {
+        return Collections.unmodifiableList(solvers);
+    }
+
+    /**
+     * Runs all solvers of the portfolio.
+     *
+     * @return the first solution found or empty if no solution was found or the task was cancelled.
+     */
+    @Override
+    public Optional<Assignment<VAR, VAL>> solve(CSP<VAR, VAL> csp) {
+        if (solvers.isEmpty())
+            throw new IllegalStateException("Portfolio contains no solvers.");
+        AtomicReference<Assignment<VAR, VAL>> solution = new AtomicReference<>();
+        List<RuntimeException> failures = Collections.synchronizedList(new ArrayList<>());
+        List<CancellableThread> threads = new ArrayList<>();
+        CspListener<VAR, VAL> listener = (c, assignment, var) -> fireStateChangedSynchronized(c, assignment, var);
+        for (CspSolver<VAR, VAL> solver : solvers) {
+            CancellableThread thread = new CancellableThread(() -> {
+                try {
+                    Optional<Assignment<VAR, VAL>> result = solver.solve(csp);
+                    // results of cancelled searches may be incomplete
+                    if (result.isPresent() && !CancellableThread.currIsCancelled()
+                            && result.get().isComplete(csp.getVariables()))
+                        solution.compareAndSet(null, result.get());
+                    if (solution.get() != null || !result.isPresent() && isComplete(solver))
+                        threads.forEach(CancellableThread::cancel);
+                } catch (RuntimeException e) {
+                    failures.add(e);
+                    threads.forEach(CancellableThread::cancel);
+                }
+            });
+            thread.setDaemon(true);
+            threads.add(thread);
+        }
+        if (hasCspListeners())
+            solvers.forEach(solver -> solver.addCspListener(listener));
+        try {
+            threads.forEach(Thread::start);
+            for (Thread thread : threads) {
+                while (thread.isAlive()) {
+                    if (Tasks.currIsCancelled())
+                        threads.forEach(CancellableThread::cancel);
+                    thread.join(50);
+                }
+            }
+        } catch (InterruptedException e) {
+            threads.forEach(CancellableThread::cancel);
+            Thread.currentThread().interrupt();
+        } finally {
+            solvers.forEach(solver -> solver.removeCspListener(listener));
+        }
+        if (!failures.isEmpty())
+            throw failures.get(0);
+        return Optional.ofNullable(solution.get());
+    }
+
+    private synchronized void fireStateChangedSynchronized(CSP<VAR, VAL> csp, Assignment<VAR, VAL> assignment,
+                                                           VAR var) {
+        fireStateChanged(csp, assignment, var);
+    }
+
+    /** Returns true if an empty result of the solver proves that no solution exists. */
+    private static boolean isComplete(CspSolver<?, ?> solver) {
+        return solver instanceof AbstractBacktrackingSolver || solver instanceof BackjumpingBacktrackingSolver
+                || solver instanceof ParallelBacktrackingSolver;
+    }
+}
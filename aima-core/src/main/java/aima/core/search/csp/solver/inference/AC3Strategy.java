@@ -82,6 +82,32 @@ public class AC3Strategy<VAR extends Variable, VAL> implements InferenceStrategy
 		return log.compactify();
 	}
 
+	/**
+	 * Makes an integer-indexed CSP arc-consistent using the precomputed support
+	 * tables.
+	 *
+	 * @return false if an inconsistency was found.
+	 */
+	@Override
+	public boolean apply(IndexedCSP<VAR, VAL> csp) {
+		int[] vars = new int[csp.getVariableCount()];
+		for (int i = 0; i < vars.length; i++)
+			vars[i] = i;
+		return csp.propagate(vars);
+	}
+
+	/**
+	 * Reduces the domain of the specified variable to its assigned value and
+	 * reestablishes arc-consistency.
+	 *
+	 * @return false if an inconsistency was found.
+	 */
+	@Override
+	public boolean apply(IndexedCSP<VAR, VAL> csp, int var) {
+		assert csp.isInDomain(var, csp.getAssignedValue(var));
+		return !csp.retainValue(var, csp.getAssignedValue(var)) || csp.propagate(var);
+	}
+
 	/**
 	 * For efficiency reasons the queue manages updated variables vj whereas the original AC3
 	 * manages neighbor arcs (vi, vj). Constraints which are not binary are ignored.
@@ -3,6 +3,7 @@ package aima.core.search.csp.solver.inference;
 import aima.core.search.csp.Assignment;
 import aima.core.search.csp.CSP;
 import aima.core.search.csp.Constraint;
+import aima.core.search.csp.IndexedCSP;
 import aima.core.search.csp.Variable;
 
 /**
@@ -40,6 +41,27 @@ public class ForwardCheckingStrategy<VAR extends Variable, VAL> implements Infer
         return log;
     }
 
+    /** The CSP is not changed at the beginning. */
+    @Override
+    public boolean apply(IndexedCSP<VAR, VAL> csp) {
+        return true;
+    }
+
+    /**
+     * Removes all values from the domains of the unassigned neighbors of <code>var</code> which are not
+     * compatible with the value of <code>var</code>. Support tables of binary constraints are used for this.
+     */
+    @Override
+    public boolean apply(IndexedCSP<VAR, VAL> csp, int var) {
+        int value = csp.getAssignedValue(var);
+        for (int arc : csp.getArcs(var)) {
+            int neighbor = csp.getArcHead(arc);
+            if (!csp.isAssigned(neighbor) && csp.removeUnsupported(arc, value) && csp.getDomainSize(neighbor) == 0)
+                return false;
+        }
+        return true;
+    }
+
     /**
      * Removes all values from the domain of <code>var</code> which are not consistent with
      * <code>constraint</code> and <code>assignment</code>. Modifies the domain log accordingly so
@@ -2,6 +2,7 @@ package aima.core.search.csp.solver.inference;
 
 import aima.core.search.csp.Assignment;
 import aima.core.search.csp.CSP;
+import aima.core.search.csp.IndexedCSP;
 import aima.core.search.csp.Variable;
 
 
@@ -22,4 +23,33 @@ public interface InferenceStrategy<VAR extends Variable, VAL> {
      * for <code>var</code>.
      */
     InferenceLog<VAR, VAL> apply(CSP<VAR, VAL> csp, Assignment<VAR, VAL> assignment, VAR var);
+
+    /**
+     * Inference method for integer-indexed CSPs which is called before backtracking is started. Domain reductions
+     * are recorded on the trail of the CSP.
+     *
+     * The default implementation applies the object-based version to a copy of the CSP with the current domains
+     * and transfers the reduced domains.
+     *
+     * @return false if an inconsistency was found.
+     */
+    default boolean apply(IndexedCSP<VAR, VAL> csp) {
+        CSP<VAR, VAL> copy = csp.toCSP();
+        boolean consistent = !apply(copy).inconsistencyFound();
+        return csp.retainDomains(copy) && consistent;
+    }
+
+    /**
+     * Inference method for integer-indexed CSPs which is called after <code>var</code> has been assigned a value.
+     * Domain reductions are recorded on the trail of the CSP.
+     *
+     * The default implementation works like {@link #apply(IndexedCSP)}.
+     *
+     * @return false if an inconsistency was found.
+     */
+    default boolean apply(IndexedCSP<VAR, VAL> csp, int var) {
+        CSP<VAR, VAL> copy = csp.toCSP();
+        boolean consistent = !apply(copy, csp.getAssignment(), csp.getVariable(var)).inconsistencyFound();
+        return csp.retainDomains(copy) && consistent;
+    }
 }
@@ -1,5 +1,7 @@
 package aima.core.search.framework;
 
+import aima.core.util.datastructure.IndexedPriorityQueue;
+
 import java.util.*;
 
 /**
@@ -18,6 +20,15 @@ public class QueueFactory {
 		return new PriorityQueue<E>(11, comparator);
 	}
 
+	/**
+	 * Returns an {@link IndexedPriorityQueue}, which removes and replaces
+	 * arbitrary elements in logarithmic time. Note that the smallest element
+	 * comes first!
+	 */
+	public static <E> IndexedPriorityQueue<E> createIndexedPriorityQueue(Comparator<? super E> comparator) {
+		return new IndexedPriorityQueue<E>(11, comparator);
+	}
+
 	/**
 	 * Returns a Last-in-first-out (Lifo) view on a {@link LinkedList}.
 	 */
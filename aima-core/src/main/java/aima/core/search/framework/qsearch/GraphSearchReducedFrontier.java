@@ -5,6 +5,7 @@ import java.util.*;
 import aima.core.search.framework.Node;
 import aima.core.search.framework.NodeFactory;
 import aima.core.search.framework.problem.Problem;
+import aima.core.util.datastructure.IndexedPriorityQueue;
 
 /**
  * Artificial Intelligence A Modern Approach (3rd Edition): Figure 3.7, page 77.
@@ -34,7 +35,9 @@ import aima.core.search.framework.problem.Problem;
  * priority queue frontiers. If a node is added to the frontier, this
  * implementation checks whether another node for the same state already exists
  * and decides whether to replace it or ignore the new node depending on the
- * node's costs (comparator of priority queue is used, if available).
+ * node's costs (comparator of priority queue is used, if available). With an
+ * {@link IndexedPriorityQueue} frontier the replacement is a logarithmic
+ * decrease-key operation instead of a linear scan of the queue.
  *
  * @param <S> The type used to represent states
  * @param <A> The type of the actions to be used to navigate through the state space
@@ -64,8 +67,12 @@ public class GraphSearchReducedFrontier<S, A> extends TreeSearch<S, A> {
 	@Override
 	public Optional<Node<S, A>> findNode(Problem<S, A> problem, Queue<Node<S, A>> frontier) {
 		// initialize the explored set to be empty
-		if (frontier instanceof PriorityQueue<?>)
+		if (frontier instanceof IndexedPriorityQueue<?>)
+			nodeComparator = ((IndexedPriorityQueue<Node<S, A>>) frontier).comparator();
+		else if (frontier instanceof PriorityQueue<?>)
 			nodeComparator = ((PriorityQueue<Node<S, A>>) frontier).comparator();
+		else
+			nodeComparator = null;
 		explored.clear();
 		frontierNodeLookup.clear();
 		return super.findNode(problem, frontier);
@@ -94,9 +101,13 @@ public class GraphSearchReducedFrontier<S, A> extends TreeSearch<S, A> {
 			} else if (nodeComparator != null && nodeComparator.compare(node, frontierNode) < 0) {
 				// child.STATE is in frontier with higher cost
 				// replace that frontier node with child
-				if (frontier.remove(frontierNode))
-					frontierNodeLookup.remove(frontierNode.getState());
-				frontier.add(node);
+				if (frontier instanceof IndexedPriorityQueue<?>) {
+					// decrease-key in logarithmic time
+					((IndexedPriorityQueue<Node<S, A>>) frontier).replace(frontierNode, node);
+				} else {
+					frontier.remove(frontierNode);
+					frontier.add(node);
+				}
 				frontierNodeLookup.put(node.getState(), node);
 			}
 		}
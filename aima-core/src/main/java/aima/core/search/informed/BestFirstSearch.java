@@ -38,7 +38,7 @@ public class BestFirstSearch<S, A> extends QueueBasedSearch<S, A> implements Inf
 	 *            node.
 	 */
 	public BestFirstSearch(QueueSearch<S, A> impl, final EvaluationFunction<S, A> evalFn) {
-		super(impl, QueueFactory.createPriorityQueue(Comparator.comparing(evalFn::applyAsDouble)));
+		super(impl, QueueFactory.createIndexedPriorityQueue(Comparator.comparing(evalFn::applyAsDouble)));
 		this.evalFn = evalFn;
 		impl.evalFn = evalFn; // for monitoring f-values in findNode in TreeSearch or GraphSearch
 	}
@@ -56,6 +56,6 @@ public class UniformCostSearch<S, A> extends QueueBasedSearch<S, A> {
 	 * search execution strategy.
 	 */
 	public UniformCostSearch(QueueSearch<S, A> impl) {
-		super(impl, QueueFactory.createPriorityQueue(Comparator.comparing(Node::getPathCost)));
+		super(impl, QueueFactory.createIndexedPriorityQueue(Comparator.comparing(Node::getPathCost)));
 	}
 }
\ No newline at end of file
@@ -0,0 +1,201 @@
+package aima.core.util.datastructure;
+
+import java.util.*;
+
+/**
+ * A binary heap based priority queue which knows the position of each of its
+ * elements. Compared to {@link PriorityQueue}, containment checks are
+ * performed in constant time and the removal or replacement of arbitrary
+ * elements in logarithmic time. The latter allows to decrease the key of an
+ * element, which is what uniform-cost and A* graph search do when a cheaper
+ * path to a state in the frontier is found. The smallest element comes first
+ * and ties are resolved exactly as by {@link PriorityQueue}.
+ * <br>
+ * Elements are identified by <code>equals</code> and <code>hashCode</code>,
+ * so the queue cannot hold two equal elements at the same time.
+ *
+ * @param <E> The type of the elements held in this queue
+ */
+public class IndexedPriorityQueue<E> extends AbstractQueue<E> {
+
+	private final Comparator<? super E> comparator;
+	private Object[] heap;
+	private int size;
+	private final HashMap<E, Integer> positions = new HashMap<>();
+
+	public IndexedPriorityQueue(Comparator<? super E> comparator) {
+		this(11, comparator);
+	}
+
+	public IndexedPriorityQueue(int initialCapacity, Comparator<? super E> comparator) {
+		this.comparator = comparator;
+		this.heap = new Object[Math.max(1, initialCapacity)];
+	}
+
+	/** Returns the comparator used to order the elements. */
+	public Comparator<? super E> comparator() {
+		return comparator;
+	}
+
+	/**
+	 * Inserts the specified element into this queue.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if an equal element is already contained in the queue.
+	 */
+	@Override
+	public boolean offer(E e) {
+		if (e == null)
+			throw new NullPointerException();
+		if (positions.containsKey(e))
+			throw new IllegalArgumentException("Element already contained in the queue: " + e);
+		if (size == heap.length)
+			heap = Arrays.copyOf(heap, size < 64 ? size * 2 + 2 : size + (size >> 1));
+		siftUp(size++, e);
+		return true;
+	}
+
+	@Override
+	public E poll() {
+		if (size == 0)
+			return null;
+		E result = elementAt(0);
+		positions.remove(result);
+		int last = --size;
+		E moved = elementAt(last);
+		heap[last] = null;
+		if (last > 0)
+			siftDown(0, moved);
+		return result;
+	}
+
+	@Override
+	public E peek() {
+		return size == 0 ? null : elementAt(0);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return positions.containsKey(o);
+	}
+
+	/** Removes the specified element in logarithmic time. */
+	@Override
+	public boolean remove(Object o) {
+		Integer position = positions.remove(o);
+		if (position == null)
+			return false;
+		removeAt(position);
+		return true;
+	}
+
+	/**
+	 * Replaces an element of the queue by another one, which takes the position
+	 * of the old element and is then moved up or down until the heap property
+	 * is restored. With a smaller replacement this is the decrease-key
+	 * operation of the heap.
+	 *
+	 * @return false if <code>oldElement</code> is not contained in the queue.
+	 * @throws IllegalArgumentException
+	 *             if <code>newElement</code> is already contained in the queue.
+	 */
+	public boolean replace(E oldElement, E newElement) {
+		Integer position = positions.get(oldElement);
+		if (position == null)
+			return false;
+		if (newElement == null)
+			throw new NullPointerException();
+		if (!oldElement.equals(newElement) && positions.containsKey(newElement))
+			throw new IllegalArgumentException("Element already contained in the queue: " + newElement);
+		positions.remove(oldElement);
+		if (comparator.compare(newElement, oldElement) < 0)
+			siftUp(position, newElement);
+		else
+			siftDown(position, newElement);
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(heap, 0, size, null);
+		size = 0;
+		positions.clear();
+	}
+
+	/** Returns an iterator over the elements in no particular order. */
+	@Override
+	public Iterator<E> iterator() {
+		return new Iterator<E>() {
+			private int cursor = 0;
+
+			@Override
+			public boolean hasNext() {
+				return cursor < size;
+			}
+
+			@Override
+			public E next() {
+				if (cursor >= size)
+					throw new NoSuchElementException();
+				return elementAt(cursor++);
+			}
+		};
+	}
+
+	// the position of the removed element has already been deleted from the map
+	private void removeAt(int i) {
+		int last = --size;
+		if (last == i) {
+			heap[i] = null;
+		} else {
+			E moved = elementAt(last);
+			heap[last] = null;
+			siftDown(i, moved);
+			if (heap[i] == moved)
+				siftUp(i, moved);
+		}
+	}
+
+	private void siftUp(int k, E e) {
+		while (k > 0) {
+			int parent = (k - 1) >>> 1;
+			E p = elementAt(parent);
+			if (comparator.compare(e, p) >= 0)
+				break;
+			place(k, p);
+			k = parent;
+		}
+		place(k, e);
+	}
+
+	private void siftDown(int k, E e) {
+		int half = size >>> 1;
+		while (k < half) {
+			int child = 2 * k + 1;
+			E c = elementAt(child);
+			int right = child + 1;
+			if (right < size && comparator.compare(c, elementAt(right)) > 0)
+				c = elementAt(child = right);
+			if (comparator.compare(e, c) <= 0)
+				break;
+			place(k, c);
+			k = child;
+		}
+		place(k, e);
+	}
+
+	private void place(int k, E e) {
+		heap[k] = e;
+		positions.put(e, k);
+	}
+
+	@SuppressWarnings("unchecked")
+	private E elementAt(int k) {
+		return (E) heap[k];
+	}
+}
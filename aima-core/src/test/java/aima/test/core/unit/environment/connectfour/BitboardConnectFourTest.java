@@ -0,0 +1,71 @@
+package aima.test.core.unit.environment.connectfour;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import aima.core.environment.connectfour.BitboardConnectFourGame;
+import aima.core.environment.connectfour.BitboardConnectFourState;
+import aima.core.environment.connectfour.ConnectFourGame;
+import aima.core.environment.connectfour.ConnectFourState;
+
+public class BitboardConnectFourTest {
+
+	@Test
+	public void testRandomGamesAgreeWithConnectFourState() {
+		BitboardConnectFourGame game = new BitboardConnectFourGame();
+		ConnectFourGame refGame = new ConnectFourGame();
+		Random random = new Random(0);
+		for (int i = 0; i < 200; i++) {
+			BitboardConnectFourState state = game.getInitialState();
+			ConnectFourState refState = refGame.getInitialState();
+			while (!refGame.isTerminal(refState)) {
+				List<Integer> actions = game.getActions(state);
+				Assert.assertEquals(refGame.getActions(refState), actions);
+				Assert.assertEquals(refGame.getPlayer(refState), game.getPlayer(state));
+				Assert.assertFalse(game.isTerminal(state));
+				Integer action = actions.get(random.nextInt(actions.size()));
+				state = game.getResult(state, action);
+				refState = refGame.getResult(refState, action);
+				for (int row = 0; row < refState.getRows(); row++)
+					for (int col = 0; col < refState.getCols(); col++)
+						Assert.assertEquals(refState.getPlayerNum(row, col), state.getPlayerNum(row, col));
+			}
+			Assert.assertTrue(game.isTerminal(state));
+			Assert.assertEquals(refState.getUtility(), state.getUtility(), 0);
+		}
+	}
+
+	@Test
+	public void testDropAndRemoveDisk() {
+		BitboardConnectFourState state = new BitboardConnectFourGame().getInitialState().clone();
+		for (int col : new int[] { 3, 3, 4, 4, 5, 5 })
+			state.dropDisk(col);
+		long key = state.getKey();
+		state.dropDisk(6);
+		Assert.assertEquals(1, state.getUtility(), 0);
+		state.removeDisk(6);
+		Assert.assertEquals(-1, state.getUtility(), 0);
+		Assert.assertEquals(key, state.getKey());
+		Assert.assertEquals(6, state.getMoves());
+		state.dropDisk(2);
+		Assert.assertEquals(1, state.getUtility(), 0);
+	}
+
+	@Test
+	public void testFullColumn() {
+		BitboardConnectFourState state = new BitboardConnectFourState(6, 7);
+		for (int i = 0; i < 6; i++)
+			state.dropDisk(0);
+		Assert.assertFalse(state.isPlayable(0));
+		state.dropDisk(0);
+		Assert.assertEquals(6, state.getMoves());
+		Assert.assertEquals(6, new BitboardConnectFourGame().getActions(state).size());
+		state.removeDisk(0);
+		Assert.assertTrue(state.isPlayable(0));
+		Assert.assertEquals(1, state.getPlayerNum(1, 0));
+		Assert.assertEquals(0, state.getPlayerNum(0, 0));
+	}
+}
@@ -0,0 +1,87 @@
+package aima.test.core.unit.environment.tictactoe;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import aima.core.environment.tictactoe.BitboardTicTacToeGame;
+import aima.core.environment.tictactoe.BitboardTicTacToeState;
+import aima.core.environment.tictactoe.TicTacToeGame;
+import aima.core.environment.tictactoe.TicTacToeState;
+import aima.core.search.adversarial.AlphaBetaSearch;
+import aima.core.search.adversarial.MinimaxSearch;
+import aima.core.util.datastructure.XYLocation;
+
+public class BitboardTicTacToeTest {
+
+	private BitboardTicTacToeGame game;
+	private BitboardTicTacToeState state;
+
+	@Before
+	public void setUp() {
+		game = new BitboardTicTacToeGame();
+		state = game.getInitialState();
+	}
+
+	@Test
+	public void testRandomGamesAgreeWithTicTacToeState() {
+		TicTacToeGame refGame = new TicTacToeGame();
+		Random random = new Random(0);
+		for (int i = 0; i < 200; i++) {
+			BitboardTicTacToeState s = game.getInitialState();
+			TicTacToeState refState = refGame.getInitialState();
+			while (!refGame.isTerminal(refState)) {
+				List<XYLocation> actions = game.getActions(s);
+				Assert.assertEquals(refGame.getActions(refState), actions);
+				Assert.assertEquals(refGame.getPlayer(refState), game.getPlayer(s));
+				Assert.assertFalse(game.isTerminal(s));
+				XYLocation action = actions.get(random.nextInt(actions.size()));
+				s = game.getResult(s, action);
+				refState = refGame.getResult(refState, action);
+				Assert.assertEquals(refState.toString(), s.toString());
+			}
+			Assert.assertTrue(game.isTerminal(s));
+			Assert.assertEquals(refGame.getUtility(refState, TicTacToeState.X), game.getUtility(s, TicTacToeState.X), 0);
+		}
+	}
+
+	@Test
+	public void testMarkAndUnmark() {
+		BitboardTicTacToeState s = state.clone();
+		s.mark(0, 0); // x
+		s.mark(1, 0); // o
+		int key = s.getKey();
+		s.mark(1, 1); // x
+		s.mark(2, 0); // o
+		s.mark(2, 2); // x
+		Assert.assertEquals(1, s.getUtility(), 0);
+		s.unmark(2, 2);
+		Assert.assertEquals(-1, s.getUtility(), 0);
+		s.unmark(2, 0);
+		s.unmark(1, 1);
+		Assert.assertEquals(key, s.getKey());
+		Assert.assertEquals(TicTacToeState.X, s.getPlayerToMove());
+		Assert.assertEquals(new BitboardTicTacToeState(new String[] { TicTacToeState.X, TicTacToeState.O,
+				TicTacToeState.EMPTY, TicTacToeState.EMPTY, TicTacToeState.EMPTY, TicTacToeState.EMPTY,
+				TicTacToeState.EMPTY, TicTacToeState.EMPTY, TicTacToeState.EMPTY }, TicTacToeState.X), s);
+	}
+
+	@Test
+	public void testMinmaxDecision() {
+		MinimaxSearch<BitboardTicTacToeState, XYLocation, String> search = MinimaxSearch.createFor(game);
+		search.makeDecision(state);
+		int expandedNodes = search.getMetrics().getInt(MinimaxSearch.METRICS_NODES_EXPANDED);
+		Assert.assertEquals(549945, expandedNodes);
+	}
+
+	@Test
+	public void testAlphaBetaDecision() {
+		AlphaBetaSearch<BitboardTicTacToeState, XYLocation, String> search = AlphaBetaSearch.createFor(game);
+		search.makeDecision(state);
+		int expandedNodes = search.getMetrics().getInt(MinimaxSearch.METRICS_NODES_EXPANDED);
+		Assert.assertEquals(18296, expandedNodes);
+	}
+}
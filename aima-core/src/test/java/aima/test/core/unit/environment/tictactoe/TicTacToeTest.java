@@ -173,4 +173,37 @@ public class TicTacToeTest {
 		int expandedNodes = search.getMetrics().getInt(MinimaxSearch.METRICS_NODES_EXPANDED);
 		Assert.assertEquals(76035, expandedNodes);
 	}
+
+	@Test
+	public void testIterativeDeepeningAlphaBetaDecisionWithTranspositionTable() {
+		IterativeDeepeningAlphaBetaSearch<TicTacToeState, XYLocation, String> search = IterativeDeepeningAlphaBetaSearch
+				.createFor(game, 0.0, 1.0, 100);
+		search.setTranspositionTable(TicTacToeState::getZobristHash, 1 << 12);
+		state.mark(0, 0); // x
+		state.mark(1, 0); // o
+		XYLocation action = search.makeDecision(state);
+		// x can force a win
+		MinimaxSearch<TicTacToeState, XYLocation, String> minimax = MinimaxSearch.createFor(game);
+		Assert.assertEquals(1.0, minimax.minValue(game.getResult(state, action), TicTacToeState.X), epsilon);
+		int expandedNodes = search.getMetrics().getInt(MinimaxSearch.METRICS_NODES_EXPANDED);
+		Assert.assertTrue(search.getMetrics().getInt(IterativeDeepeningAlphaBetaSearch.METRICS_TT_HITS) > 0);
+
+		search = IterativeDeepeningAlphaBetaSearch.createFor(game, 0.0, 1.0, 100);
+		search.makeDecision(state);
+		Assert.assertTrue(expandedNodes < search.getMetrics().getInt(MinimaxSearch.METRICS_NODES_EXPANDED));
+	}
+
+	@Test
+	public void testZobristHash() {
+		TicTacToeState state1 = game.getResult(game.getResult(state, new XYLocation(0, 0)), new XYLocation(1, 1));
+		state1 = game.getResult(state1, new XYLocation(2, 2));
+		TicTacToeState state2 = game.getResult(game.getResult(state, new XYLocation(2, 2)), new XYLocation(1, 1));
+		state2 = game.getResult(state2, new XYLocation(0, 0));
+		Assert.assertEquals(state1.getZobristHash(), state2.getZobristHash());
+		Assert.assertNotEquals(state.getZobristHash(), state1.getZobristHash());
+		String[] board = new String[] { TicTacToeState.X, TicTacToeState.EMPTY, TicTacToeState.EMPTY,
+				TicTacToeState.EMPTY, TicTacToeState.O, TicTacToeState.EMPTY,
+				TicTacToeState.EMPTY, TicTacToeState.EMPTY, TicTacToeState.X };
+		Assert.assertEquals(state1.getZobristHash(), new TicTacToeState(board, TicTacToeState.O).getZobristHash());
+	}
 }
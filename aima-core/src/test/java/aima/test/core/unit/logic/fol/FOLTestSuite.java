@@ -10,6 +10,7 @@ import aima.test.core.unit.logic.fol.inference.FOLModelEliminationTest;
 import aima.test.core.unit.logic.fol.inference.FOLOTTERLikeTheoremProverTest;
 import aima.test.core.unit.logic.fol.inference.FOLTFMResolutionTest;
 import aima.test.core.unit.logic.fol.inference.ParamodulationTest;
+import aima.test.core.unit.logic.fol.kb.DiscriminationTreeTest;
 import aima.test.core.unit.logic.fol.kb.FOLKnowledgeBaseTest;
 import aima.test.core.unit.logic.fol.kb.data.ChainTest;
 import aima.test.core.unit.logic.fol.kb.data.ClauseTest;
@@ -21,10 +22,10 @@ import aima.test.core.unit.logic.fol.parsing.FOLParserTest;
 		FOLFCAskTest.class, FOLModelEliminationTest.class,
 		FOLOTTERLikeTheoremProverTest.class, FOLTFMResolutionTest.class,
 		ParamodulationTest.class, ChainTest.class, ClauseTest.class,
-		FOLKnowledgeBaseTest.class, FOLLexerTest.class, FOLParserTest.class,
+		DiscriminationTreeTest.class, FOLKnowledgeBaseTest.class, FOLLexerTest.class, FOLParserTest.class,
 		CNFConverterTest.class, PredicateCollectorTest.class,
 		SubstVisitorTest.class, SubsumptionEliminationTest.class,
-		UnifierTest.class, VariableCollectorTest.class })
+		TrailSubstitutionTest.class, UnifierTest.class, VariableCollectorTest.class })
 public class FOLTestSuite {
 
 }
@@ -0,0 +1,78 @@
+package aima.test.core.unit.logic.fol;
+
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import aima.core.logic.fol.TrailSubstitution;
+import aima.core.logic.fol.Unifier;
+import aima.core.logic.fol.domain.DomainFactory;
+import aima.core.logic.fol.parsing.FOLParser;
+import aima.core.logic.fol.parsing.ast.Constant;
+import aima.core.logic.fol.parsing.ast.Sentence;
+import aima.core.logic.fol.parsing.ast.Term;
+import aima.core.logic.fol.parsing.ast.Variable;
+
+public class TrailSubstitutionTest {
+
+	private FOLParser parser;
+	private Unifier unifier;
+	private TrailSubstitution theta;
+
+	@Before
+	public void setUp() {
+		parser = new FOLParser(DomainFactory.knowsDomain());
+		unifier = new Unifier();
+		theta = new TrailSubstitution();
+	}
+
+	@Test
+	public void testSameResultsAsUnifier() {
+		String[][] pairs = { { "Knows(John, x)", "Knows(John, Jane)" },
+				{ "Knows(John, x)", "Knows(y, Bill)" },
+				{ "Knows(John, x)", "Knows(y, Mother(y))" },
+				{ "Knows(John, x)", "Knows(x, Elizabeth)" },
+				{ "Knows(x, Mother(x))", "Knows(Mother(y), z)" },
+				{ "Knows(x, y)", "Knows(y, Mother(Mother(John)))" },
+				{ "Knows(x, x)", "Knows(y, Mother(y))" },
+				{ "Knows(John, Jane)", "Knows(John, Jane)" } };
+		for (String[] pair : pairs) {
+			Sentence s1 = parser.parse(pair[0]);
+			Sentence s2 = parser.parse(pair[1]);
+			Map<Variable, Term> expected = unifier.unify(s1, s2);
+			Assert.assertEquals(pair[0] + " / " + pair[1], null != expected,
+					theta.unify(s1, s2));
+			if (null != expected) {
+				Assert.assertEquals(expected, theta.toMap());
+			}
+			theta.undo(0);
+			Assert.assertTrue(theta.isEmpty());
+		}
+	}
+
+	@Test
+	public void testUndoToMark() {
+		Assert.assertTrue(theta.unify(parser.parse("Knows(x, y)"),
+				parser.parse("Knows(John, z)")));
+		int mark = theta.getTrailMark();
+		Assert.assertTrue(theta.unify(new Variable("z"), new Constant("Jane")));
+		Assert.assertEquals(new Constant("Jane"), theta.subst(new Variable("y")));
+		Assert.assertFalse(theta.unify(new Variable("y"), new Constant("Bill")));
+		Assert.assertEquals(mark + 1, theta.getTrailMark());
+
+		theta.undo(mark);
+		Assert.assertEquals(new Variable("z"), theta.subst(new Variable("y")));
+		Assert.assertEquals(new Constant("John"), theta.deref(new Variable("x")));
+		Assert.assertTrue(theta.unify(new Variable("y"), new Constant("Bill")));
+		Assert.assertEquals(new Constant("Bill"), theta.subst(new Variable("z")));
+	}
+
+	@Test
+	public void testFailedUnificationLeavesSubstitutionUnchanged() {
+		Assert.assertFalse(theta.unify(parser.parse("Knows(x, Jane)"),
+				parser.parse("Knows(John, Bill)")));
+		Assert.assertTrue(theta.isEmpty());
+	}
+}
@@ -1,43 +1,107 @@
 package aima.test.core.unit.logic.fol.inference;
 
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.junit.Assert;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
 
+import aima.core.logic.fol.domain.FOLDomain;
 import aima.core.logic.fol.inference.FOLFCAsk;
+import aima.core.logic.fol.inference.InferenceResult;
+import aima.core.logic.fol.kb.FOLKnowledgeBase;
+import aima.core.logic.fol.parsing.ast.Constant;
+import aima.core.logic.fol.parsing.ast.Variable;
 import aima.test.core.unit.logic.fol.CommonFOLInferenceProcedureTests;
 
 /**
  * @author Ciaran O'Reilly
- * 
+ *
  */
+@RunWith(Parameterized.class)
 public class FOLFCAskTest extends CommonFOLInferenceProcedureTests {
 
+	@Parameters(name = "{index}: semiNaive={0}")
+	public static Collection<Object[]> inferenceAlgorithmSettings() {
+		return Arrays.asList(new Object[][] { { false }, { true } });
+	}
+
+	private boolean semiNaive;
+
+	public FOLFCAskTest(boolean semiNaive) {
+		this.semiNaive = semiNaive;
+	}
+
 	@Test
 	public void testDefiniteClauseKBKingsQueryCriminalXFalse() {
-		testDefiniteClauseKBKingsQueryCriminalXFalse(new FOLFCAsk());
+		testDefiniteClauseKBKingsQueryCriminalXFalse(new FOLFCAsk(semiNaive));
 	}
 
 	@Test
 	public void testDefiniteClauseKBKingsQueryRichardEvilFalse() {
-		testDefiniteClauseKBKingsQueryRichardEvilFalse(new FOLFCAsk());
+		testDefiniteClauseKBKingsQueryRichardEvilFalse(new FOLFCAsk(semiNaive));
 	}
 
 	@Test
 	public void testDefiniteClauseKBKingsQueryJohnEvilSucceeds() {
-		testDefiniteClauseKBKingsQueryJohnEvilSucceeds(new FOLFCAsk());
+		testDefiniteClauseKBKingsQueryJohnEvilSucceeds(new FOLFCAsk(semiNaive));
 	}
 
 	@Test
 	public void testDefiniteClauseKBKingsQueryEvilXReturnsJohnSucceeds() {
-		testDefiniteClauseKBKingsQueryEvilXReturnsJohnSucceeds(new FOLFCAsk());
+		testDefiniteClauseKBKingsQueryEvilXReturnsJohnSucceeds(new FOLFCAsk(semiNaive));
 	}
 
 	@Test
 	public void testDefiniteClauseKBKingsQueryKingXReturnsJohnAndRichardSucceeds() {
-		testDefiniteClauseKBKingsQueryKingXReturnsJohnAndRichardSucceeds(new FOLFCAsk());
+		testDefiniteClauseKBKingsQueryKingXReturnsJohnAndRichardSucceeds(new FOLFCAsk(semiNaive));
 	}
 
 	@Test
 	public void testDefiniteClauseKBWeaponsQueryCriminalXReturnsWestSucceeds() {
-		testDefiniteClauseKBWeaponsQueryCriminalXReturnsWestSucceeds(new FOLFCAsk());
+		testDefiniteClauseKBWeaponsQueryCriminalXReturnsWestSucceeds(new FOLFCAsk(semiNaive));
+	}
+
+	@Test
+	public void testAncestorsOverSeveralIterations() {
+		FOLKnowledgeBase kb = createAncestorKB();
+		InferenceResult answer = kb.ask("Ancestor(A, F)");
+		Assert.assertTrue(answer.isTrue());
+		Assert.assertEquals(1, answer.getProofs().size());
+
+		kb = createAncestorKB();
+		answer = kb.ask("Ancestor(x, E)");
+		Assert.assertTrue(answer.isTrue());
+		Assert.assertTrue(answer.getProofs().get(0).getAnswerBindings()
+				.get(new Variable("x")) instanceof Constant);
+
+		kb = createAncestorKB();
+		answer = kb.ask("Ancestor(F, A)");
+		Assert.assertTrue(answer.isPossiblyFalse());
+		Assert.assertEquals(0, answer.getProofs().size());
+		// the transitive closure of the 5 parent facts
+		Assert.assertEquals(15, kb.getIndexFacts().get("+Ancestor").size());
+	}
+
+	private FOLKnowledgeBase createAncestorKB() {
+		FOLDomain domain = new FOLDomain();
+		for (String c : new String[] { "A", "B", "C", "D", "E", "F" }) {
+			domain.addConstant(c);
+		}
+		domain.addPredicate("Parent");
+		domain.addPredicate("Ancestor");
+		FOLKnowledgeBase kb = new FOLKnowledgeBase(domain, new FOLFCAsk(
+				semiNaive));
+		kb.tell("Parent(A, B)");
+		kb.tell("Parent(B, C)");
+		kb.tell("Parent(C, D)");
+		kb.tell("Parent(D, E)");
+		kb.tell("Parent(E, F)");
+		kb.tell("(Parent(x, y) => Ancestor(x, y))");
+		kb.tell("((Ancestor(x, y) AND Ancestor(y, z)) => Ancestor(x, z))");
+		return kb;
 	}
-}
\ No newline at end of file
+}
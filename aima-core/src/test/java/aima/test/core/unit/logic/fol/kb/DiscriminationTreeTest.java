@@ -0,0 +1,97 @@
+package aima.test.core.unit.logic.fol.kb;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import aima.core.logic.fol.TrailSubstitution;
+import aima.core.logic.fol.Unifier;
+import aima.core.logic.fol.domain.DomainFactory;
+import aima.core.logic.fol.kb.DiscriminationTree;
+import aima.core.logic.fol.kb.data.Literal;
+import aima.core.logic.fol.parsing.FOLParser;
+import aima.core.logic.fol.parsing.ast.AtomicSentence;
+import aima.core.logic.fol.parsing.ast.Constant;
+import aima.core.logic.fol.parsing.ast.NotSentence;
+import aima.core.logic.fol.parsing.ast.Sentence;
+import aima.core.logic.fol.parsing.ast.Variable;
+
+public class DiscriminationTreeTest {
+
+	private static final String[] FACTS = { "Knows(John, Jane)",
+			"Knows(John, Bill)", "Knows(Jane, Mother(John))",
+			"Knows(Mother(Jane), x)", "Knows(x, x)", "Knows(Bill, Elizabeth)",
+			"NOT(Knows(John, Elizabeth))" };
+
+	private FOLParser parser;
+	private DiscriminationTree<String> tree;
+
+	@Before
+	public void setUp() {
+		parser = new FOLParser(DomainFactory.knowsDomain());
+		tree = new DiscriminationTree<String>();
+		for (String fact : FACTS) {
+			tree.add(literal(fact), fact);
+		}
+	}
+
+	@Test
+	public void testCandidates() {
+		Assert.assertEquals(Arrays.asList("Knows(John, Jane)",
+				"Knows(John, Bill)", "Knows(x, x)"),
+				tree.getUnifiableCandidates(literal("Knows(John, y)")));
+		Assert.assertEquals(Arrays.asList("Knows(Jane, Mother(John))",
+				"Knows(Mother(Jane), x)", "Knows(x, x)"),
+				tree.getUnifiableCandidates(literal("Knows(y, Mother(z))")));
+		Assert.assertEquals(Arrays.asList("NOT(Knows(John, Elizabeth))"),
+				tree.getUnifiableCandidates(literal("NOT(Knows(y, z))")));
+		Assert.assertEquals(7, tree.size());
+		tree.clear();
+		Assert.assertTrue(tree.getUnifiableCandidates(literal("Knows(y, z)"))
+				.isEmpty());
+	}
+
+	@Test
+	public void testCandidatesIncludeAllUnifiableLiterals() {
+		Unifier unifier = new Unifier();
+		String[] queries = { "Knows(y, z)", "Knows(John, Jane)",
+				"Knows(Jane, y)", "Knows(Mother(y), Bill)", "Knows(y, y)",
+				"Knows(Mother(Jane), Mother(y))", "NOT(Knows(John, y))" };
+		for (String query : queries) {
+			Literal q = literal(query);
+			List<String> candidates = tree.getUnifiableCandidates(q);
+			for (String fact : FACTS) {
+				Literal f = literal(fact);
+				if (f.isPositiveLiteral() == q.isPositiveLiteral()
+						&& null != unifier.unify(q.getAtomicSentence(),
+								f.getAtomicSentence())) {
+					Assert.assertTrue(query + " / " + fact,
+							candidates.contains(fact));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testCandidatesWithSubstitution() {
+		TrailSubstitution theta = new TrailSubstitution();
+		theta.unify(new Variable("y"), new Constant("Bill"));
+		List<String> candidates = tree.getUnifiableCandidates(
+				literal("Knows(y, z)").getAtomicSentence(), true, theta);
+		Assert.assertEquals(
+				Arrays.asList("Knows(x, x)", "Knows(Bill, Elizabeth)"),
+				candidates);
+	}
+
+	private Literal literal(String s) {
+		Sentence sentence = parser.parse(s);
+		if (sentence instanceof NotSentence) {
+			return new Literal((AtomicSentence) ((NotSentence) sentence)
+					.getNegated(), true);
+		}
+		return new Literal((AtomicSentence) sentence);
+	}
+}
@@ -85,4 +85,31 @@ public class FOLKnowledgeBaseTest {
 		Assert.assertEquals(1, kingsKB.getNumberRules());
 		Assert.assertEquals(3, kingsKB.getNumberFacts());
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testFetchUsesUnifiableFactsAndRules() {
+		kingsKB.tell("((King(x) AND Greedy(x)) => Evil(x))");
+		kingsKB.tell("(King(x) => Greedy(x))");
+		kingsKB.tell("King(John)");
+		kingsKB.tell("King(Richard)");
+		kingsKB.tell("Greedy(John)");
+
+		Literal kingJohn = new Literal((Predicate) kingsKB.getOriginalSentences().get(2));
+		Assert.assertEquals(1, kingsKB.fetchUnifiableFacts(kingJohn).size());
+		Assert.assertEquals(1, kingsKB.fetch(kingJohn).size());
+		List<Term> terms = new ArrayList<Term>();
+		terms.add(new Variable("y"));
+		Literal kingY = new Literal(new Predicate("King", terms));
+		Assert.assertEquals(2, kingsKB.fetchUnifiableFacts(kingY).size());
+		Assert.assertEquals(0, kingsKB.fetchImplicationsConcluding(kingY).size());
+		Literal evilY = new Literal(new Predicate("Evil", terms));
+		Assert.assertEquals(1, kingsKB.fetchImplicationsConcluding(evilY).size());
+
+		List<Literal> premises = new ArrayList<Literal>();
+		premises.add(kingY);
+		premises.add(new Literal(new Predicate("Greedy", terms)));
+		Assert.assertEquals(1, kingsKB.fetch(premises).size());
+		Assert.assertEquals("John", kingsKB.fetch(premises).iterator().next()
+				.get(new Variable("y")).getSymbolicName());
+	}
+}
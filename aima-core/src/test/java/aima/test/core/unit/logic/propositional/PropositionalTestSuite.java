@@ -3,7 +3,10 @@ package aima.test.core.unit.logic.propositional;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
+import aima.test.core.unit.logic.propositional.inference.CDCLSolverTest;
 import aima.test.core.unit.logic.propositional.inference.DPLLTest;
+import aima.test.core.unit.logic.propositional.inference.GivenClausePLResolutionTest;
+import aima.test.core.unit.logic.propositional.inference.OptimizedWalkSATTest;
 import aima.test.core.unit.logic.propositional.inference.PLFCEntailsTest;
 import aima.test.core.unit.logic.propositional.inference.PLResolutionTest;
 import aima.test.core.unit.logic.propositional.inference.TTEntailsTest;
@@ -21,7 +24,8 @@ import aima.test.core.unit.logic.propositional.visitors.ConvertToCNFTest;
 import aima.test.core.unit.logic.propositional.visitors.SymbolCollectorTest;
 
 @RunWith(Suite.class)
-@Suite.SuiteClasses({ DPLLTest.class, KnowledgeBaseTest.class, ModelTest.class,
+@Suite.SuiteClasses({ CDCLSolverTest.class, DPLLTest.class, GivenClausePLResolutionTest.class, KnowledgeBaseTest.class,
+		ModelTest.class, OptimizedWalkSATTest.class,
 		PLFCEntailsTest.class, PLResolutionTest.class, TTEntailsTest.class,
 		ComplexSentenceTest.class, ListTest.class, PLLexerTest.class,
 		PLParserTest.class, PropositionSymbolTest.class,
@@ -0,0 +1,115 @@
+package aima.test.core.unit.logic.propositional.inference;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import aima.core.logic.propositional.inference.CDCLSolver;
+import aima.core.logic.propositional.inference.DPLL;
+import aima.core.logic.propositional.kb.KnowledgeBase;
+import aima.core.logic.propositional.kb.data.Clause;
+import aima.core.logic.propositional.kb.data.Literal;
+import aima.core.logic.propositional.kb.data.Model;
+import aima.core.logic.propositional.parsing.PLParser;
+import aima.core.logic.propositional.parsing.ast.PropositionSymbol;
+import aima.core.logic.propositional.transformations.ConvertToConjunctionOfClauses;
+import aima.core.util.CancellableThread;
+import aima.core.util.Tasks;
+
+public class CDCLSolverTest {
+
+	private CDCLSolver solver;
+	private PLParser parser;
+
+	@Before
+	public void setUp() {
+		solver = new CDCLSolver();
+		parser = new PLParser();
+	}
+
+	@Test
+	public void testIsSatisfiable() {
+		Assert.assertTrue(solver.isSatisfiable(parser.parse("A & B & (A | B)")));
+		Assert.assertFalse(solver.isSatisfiable(parser.parse("A & ~A")));
+		Assert.assertFalse(solver.isSatisfiable(parser.parse("(A | B) & (A => B) & ~B")));
+		Assert.assertTrue(solver.isSatisfiable(parser.parse("(A <=> B) & (B => C) & ~C")));
+		Assert.assertTrue(solver.isSatisfiable(parser.parse("A | ~A")));
+	}
+
+	@Test
+	public void testModelSatisfiesClauses() {
+		Set<Clause> cnf = ConvertToConjunctionOfClauses
+				.apply(parser.parse("(A <=> B) & (B => C) & (C | D) & ~(A & D) & (E | ~E)")).getClauses();
+		Model model = solver.solve(cnf);
+		Assert.assertNotNull(model);
+		Assert.assertTrue(model.satisfies(cnf));
+		Assert.assertEquals(5, model.getAssignedSymbols().size());
+	}
+
+	@Test
+	public void testIsEntailed() {
+		KnowledgeBase kb = new KnowledgeBase();
+		kb.tell("P11 => ~B11");
+		kb.tell("B11 <=> (P12 | P21)");
+		kb.tell("~B11");
+		Assert.assertTrue(solver.isEntailed(kb, parser.parse("~P12")));
+		Assert.assertFalse(solver.isEntailed(kb, parser.parse("P11")));
+	}
+
+	@Test
+	public void testCancelledEntailmentCheck() {
+		KnowledgeBase kb = new KnowledgeBase();
+		// entails A, but unit propagation alone cannot show it
+		kb.tell("(A | B | C) & (A | B | ~C) & (A | ~B | C) & (A | ~B | ~C)");
+		Assert.assertTrue(solver.isEntailed(kb, parser.parse("A")));
+		Tasks.setIsCancelledFn(() -> true);
+		try {
+			Assert.assertFalse(solver.isEntailed(kb, parser.parse("A")));
+			Assert.assertFalse(solver.isEntailed(kb, parser.parse("B")));
+		} finally {
+			Tasks.setIsCancelledFn(CancellableThread::currIsCancelled);
+		}
+	}
+
+	@Test
+	public void testRandom3SATAgreesWithDPLL() {
+		Random random = new Random(42);
+		DPLL dpll = new DPLL();
+		for (int i = 0; i < 30; i++) {
+			Set<Clause> cnf = RandomCNF.createRandom3SAT(random, 12, 52);
+			Model model = solver.solve(cnf);
+			List<PropositionSymbol> symbols = new ArrayList<>();
+			cnf.forEach(c -> c.getSymbols().stream().filter(s -> !symbols.contains(s)).forEach(symbols::add));
+			Assert.assertEquals(dpll.dpll(cnf, symbols, new Model()), model != null);
+			if (model != null)
+				Assert.assertTrue(model.satisfies(cnf));
+		}
+	}
+
+	@Test
+	public void testPigeonholeIsUnsatisfiable() {
+		// 7 pigeons, 6 holes
+		Set<Clause> cnf = new LinkedHashSet<>();
+		for (int p = 0; p < 7; p++) {
+			List<Literal> literals = new ArrayList<>();
+			for (int h = 0; h < 6; h++)
+				literals.add(new Literal(new PropositionSymbol("P" + p + "_" + h)));
+			cnf.add(new Clause(literals));
+		}
+		for (int h = 0; h < 6; h++)
+			for (int p1 = 0; p1 < 7; p1++)
+				for (int p2 = p1 + 1; p2 < 7; p2++)
+					cnf.add(new Clause(new Literal(new PropositionSymbol("P" + p1 + "_" + h), false),
+							new Literal(new PropositionSymbol("P" + p2 + "_" + h), false)));
+		solver.setRestartInterval(10);
+		Assert.assertNull(solver.solve(cnf));
+		Assert.assertTrue(solver.getConflictCount() > 0);
+		Assert.assertTrue(solver.getRestartCount() > 0);
+	}
+}
@@ -0,0 +1,114 @@
+package aima.test.core.unit.logic.propositional.inference;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import aima.core.environment.wumpusworld.WumpusKnowledgeBase;
+import aima.core.logic.propositional.inference.CDCLSolver;
+import aima.core.logic.propositional.inference.GivenClausePLResolution;
+import aima.core.logic.propositional.kb.KnowledgeBase;
+import aima.core.logic.propositional.parsing.PLParser;
+import aima.core.logic.propositional.parsing.ast.ComplexSentence;
+import aima.core.logic.propositional.parsing.ast.Connective;
+import aima.core.logic.propositional.parsing.ast.PropositionSymbol;
+import aima.core.logic.propositional.parsing.ast.Sentence;
+
+public class GivenClausePLResolutionTest {
+
+	private GivenClausePLResolution resolution;
+	private PLParser parser;
+
+	@Before
+	public void setUp() {
+		resolution = new GivenClausePLResolution();
+		parser = new PLParser();
+	}
+
+	@Test
+	public void testSetOfSupportNeedsConsistentKB() {
+		KnowledgeBase kb = new KnowledgeBase();
+		kb.tell("A & ~A");
+		// like PLResolution by default
+		Assert.assertFalse(resolution.isUseSetOfSupport());
+		Assert.assertTrue(resolution.isEntailed(kb, parser.parse("B")));
+		resolution.setUseSetOfSupport(true);
+		Assert.assertFalse(resolution.isEntailed(kb, parser.parse("B")));
+	}
+
+	@Test
+	public void testEntailmentsOfPLResolutionTest() {
+		assertEntailed(false, "P11", "(B11 => ~P11) & B11");
+		assertEntailed(true, "B", "A & B");
+		assertEntailed(true, "~P11", "(B11 => ~P11) & B11");
+		assertEntailed(false, "B", "A | B");
+		assertEntailed(false, "~B11", "(B11 => ~P11) & B11");
+		assertEntailed(true, "~P21", "(B11 <=> P12 | P21) & ~B11");
+		assertEntailed(false, "B", "(B11 <=> P12 | P21) & ~B11");
+		assertEntailed(true, "P00", "B12 <=> P11 | P13 | P22 | P02", "B21 <=> P20 | P22 | P31 | P11",
+				"B01 <=> P00 | P02 | P11", "B10 <=> P11 | P20 | P00", "~B21", "~B12", "B10", "B01");
+		assertEntailed(true, "P00", "B10 <=> P11 | P20 | P00", "B01 <=> P00 | P02 | P11",
+				"B21 <=> P20 | P22 | P31 | P11", "B12 <=> P11 | P13 | P22 | P02", "~B21", "~B12", "B10", "B01");
+	}
+
+	@Test
+	public void testRandomKBsAgreeWithCDCL() {
+		Random random = new Random(11);
+		CDCLSolver cdcl = new CDCLSolver();
+		for (int i = 0; i < 40; i++) {
+			KnowledgeBase kb = new KnowledgeBase();
+			for (int j = 0; j < 25; j++)
+				kb.tell(createRandomClause(random, 10));
+			if (cdcl.isSatisfiable(kb.asSentence())) {
+				Sentence alpha = createRandomClause(random, 10);
+				boolean expected = cdcl.isEntailed(kb, alpha);
+				resolution.setUseSetOfSupport(true);
+				Assert.assertEquals(expected, resolution.isEntailed(kb, alpha));
+				resolution.setUseSetOfSupport(false);
+				Assert.assertEquals(expected, resolution.isEntailed(kb, alpha));
+			}
+		}
+	}
+
+	@Test
+	public void testWumpusKB() {
+		resolution.setUseSetOfSupport(true);
+		WumpusKnowledgeBase kb = new WumpusKnowledgeBase(4, 4, resolution);
+		kb.tell("~B_1_1 & ~S_1_1");
+		Assert.assertTrue(kb.asCNF().size() > 200);
+		Assert.assertTrue(resolution.isEntailed(kb, parser.parse("~P_1_2 & ~P_2_1")));
+		Assert.assertTrue(resolution.isEntailed(kb, parser.parse("~W_2_1")));
+		Assert.assertFalse(resolution.isEntailed(kb, parser.parse("~P_1_3")));
+		Assert.assertFalse(resolution.isEntailed(kb, parser.parse("W_4_4")));
+	}
+
+	/**
+	 * Checks the entailment with and without discarding tautologies and with
+	 * and without set of support.
+	 */
+	private void assertEntailed(boolean expected, String alpha, String... kbSentences) {
+		KnowledgeBase kb = new KnowledgeBase();
+		for (String sentence : kbSentences)
+			kb.tell(sentence);
+		for (boolean discardTautologies : new boolean[] { false, true }) {
+			GivenClausePLResolution resolution = new GivenClausePLResolution(discardTautologies);
+			for (boolean useSetOfSupport : new boolean[] { false, true }) {
+				resolution.setUseSetOfSupport(useSetOfSupport);
+				Assert.assertEquals(expected, resolution.isEntailed(kb, parser.parse(alpha)));
+			}
+		}
+	}
+
+	private Sentence createRandomClause(Random random, int symbolCount) {
+		List<Sentence> literals = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			Sentence symbol = new PropositionSymbol("S" + random.nextInt(symbolCount));
+			literals.add(random.nextBoolean() ? symbol : new ComplexSentence(Connective.NOT, symbol));
+		}
+		return Sentence.newDisjunction(literals);
+	}
+}
@@ -0,0 +1,96 @@
+package aima.test.core.unit.logic.propositional.inference;
+
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import aima.core.logic.propositional.inference.CDCLSolver;
+import aima.core.logic.propositional.inference.OptimizedWalkSAT;
+import aima.core.logic.propositional.kb.KnowledgeBase;
+import aima.core.logic.propositional.kb.data.Clause;
+import aima.core.logic.propositional.kb.data.Model;
+import aima.core.logic.propositional.parsing.PLParser;
+import aima.core.logic.propositional.transformations.ConvertToConjunctionOfClauses;
+
+public class OptimizedWalkSATTest {
+
+	private OptimizedWalkSAT walkSAT;
+	private PLParser parser;
+
+	@Before
+	public void setUp() {
+		walkSAT = new OptimizedWalkSAT(new Random(7));
+		parser = new PLParser();
+	}
+
+	@Test
+	public void testAIMAExample() {
+		KnowledgeBase kb = new KnowledgeBase();
+		kb.tell("P => Q");
+		kb.tell("L & M => P");
+		kb.tell("B & L => M");
+		kb.tell("A & P => L");
+		kb.tell("A & B => L");
+		kb.tell("A");
+		kb.tell("B");
+		Set<Clause> clauses = ConvertToConjunctionOfClauses.apply(kb.asSentence()).getClauses();
+		Model model = walkSAT.walkSAT(clauses, 0.5, 1000);
+		Assert.assertNotNull(model);
+		Assert.assertTrue(model.satisfies(clauses));
+		Assert.assertEquals(6, model.getAssignedSymbols().size());
+	}
+
+	@Test
+	public void testTautologiesAndEmptyClauses() {
+		Set<Clause> clauses = ConvertToConjunctionOfClauses.apply(parser.parse("(A | ~A) & (B | C) & ~C")).getClauses();
+		Model model = walkSAT.walkSAT(clauses, 0.5, 100);
+		Assert.assertNotNull(model);
+		Assert.assertTrue(model.satisfies(clauses));
+
+		Set<Clause> withEmpty = new LinkedHashSet<>(clauses);
+		withEmpty.add(new Clause());
+		Assert.assertNull(walkSAT.walkSAT(withEmpty, 0.5, 100));
+	}
+
+	@Test
+	public void testUnsatisfiableGivesUp() {
+		Set<Clause> clauses = ConvertToConjunctionOfClauses.apply(parser.parse("(A | B) & (A | ~B) & (~A | B) & (~A | ~B)"))
+				.getClauses();
+		Assert.assertNull(walkSAT.walkSAT(clauses, 0.5, 200));
+		Assert.assertEquals(200, walkSAT.getFlipCount());
+		walkSAT.setThreadCount(2);
+		Assert.assertNull(walkSAT.walkSAT(clauses, 0.5, 50, 6));
+		Assert.assertEquals(300, walkSAT.getFlipCount());
+	}
+
+	@Test
+	public void testRandom3SAT() {
+		Random random = new Random(42);
+		CDCLSolver cdcl = new CDCLSolver();
+		int solved = 0;
+		for (int i = 0; i < 20; i++) {
+			Set<Clause> clauses = RandomCNF.createRandom3SAT(random, 40, 160);
+			if (cdcl.solve(clauses) != null) {
+				Model model = walkSAT.walkSAT(clauses, 0.5, 100000);
+				Assert.assertNotNull(model);
+				Assert.assertTrue(model.satisfies(clauses));
+				solved++;
+			}
+		}
+		Assert.assertTrue(solved > 0);
+	}
+
+	@Test
+	public void testParallelTries() {
+		Set<Clause> clauses = RandomCNF.createRandom3SAT(new Random(3), 50, 200);
+		Assert.assertNotNull(new CDCLSolver().solve(clauses));
+		walkSAT.setThreadCount(3);
+		Model model = walkSAT.walkSAT(clauses, 0.5, 1000, -1);
+		Assert.assertNotNull(model);
+		Assert.assertTrue(model.satisfies(clauses));
+	}
+}
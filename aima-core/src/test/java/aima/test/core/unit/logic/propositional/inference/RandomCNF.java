@@ -0,0 +1,33 @@
+package aima.test.core.unit.logic.propositional.inference;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import aima.core.logic.propositional.kb.data.Clause;
+import aima.core.logic.propositional.kb.data.Literal;
+import aima.core.logic.propositional.parsing.ast.PropositionSymbol;
+
+/**
+ * Random problems in conjunctive normal form for testing SAT solvers.
+ */
+public class RandomCNF {
+
+	/**
+	 * Creates a set of distinct random clauses with three literals each over
+	 * the symbols <code>S0</code> to <code>S(symbolCount-1)</code>.
+	 */
+	public static Set<Clause> createRandom3SAT(Random random, int symbolCount, int clauseCount) {
+		Set<Clause> result = new LinkedHashSet<>();
+		while (result.size() < clauseCount) {
+			List<Literal> literals = new ArrayList<>();
+			for (int i = 0; i < 3; i++)
+				literals.add(new Literal(new PropositionSymbol("S" + random.nextInt(symbolCount)),
+						random.nextBoolean()));
+			result.add(new Clause(literals));
+		}
+		return result;
+	}
+}
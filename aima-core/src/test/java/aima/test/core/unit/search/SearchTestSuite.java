@@ -5,7 +5,9 @@ import aima.test.core.unit.search.adversarial.MinimaxSearchTest;
 import aima.test.core.unit.search.adversarial.MonteCarloTreeSearchTest;
 import aima.test.core.unit.search.csp.AssignmentTest;
 import aima.test.core.unit.search.csp.CSPTest;
+import aima.test.core.unit.search.csp.IndexedCSPTest;
 import aima.test.core.unit.search.csp.MapCSPTest;
+import aima.test.core.unit.search.csp.ParallelCspSolverTest;
 import aima.test.core.unit.search.csp.TreeCspSolverTest;
 import aima.test.core.unit.search.framework.MetricsTest;
 import aima.test.core.unit.search.framework.NodeTest;
@@ -21,7 +23,7 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
 @RunWith(Suite.class)
-@Suite.SuiteClasses({AlphaBetaSearchTest.class, MinimaxSearchTest.class, MonteCarloTreeSearchTest.class, AssignmentTest.class, CSPTest.class, MapCSPTest.class,
+@Suite.SuiteClasses({AlphaBetaSearchTest.class, MinimaxSearchTest.class, MonteCarloTreeSearchTest.class, AssignmentTest.class, CSPTest.class, IndexedCSPTest.class, MapCSPTest.class, ParallelCspSolverTest.class,
 		MetricsTest.class, TreeCspSolverTest.class, AStarSearchTest.class, GreedyBestFirstSearchTest.class, RecursiveBestFirstSearchTest.class,
 		AndOrSearchTest.class, LRTAStarAgentTest.class, OnlineDFSAgentTest.class,
 		BidirectionalSearchTest.class, BreadthFirstSearchTest.class, DepthFirstSearchTest.class,
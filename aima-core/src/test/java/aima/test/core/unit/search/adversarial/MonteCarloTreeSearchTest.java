@@ -4,6 +4,7 @@ import aima.core.environment.tictactoe.TicTacToeGame;
 import aima.core.environment.tictactoe.TicTacToeState;
 import aima.core.search.adversarial.Game;
 import aima.core.search.adversarial.MonteCarloTreeSearch;
+import aima.core.util.datastructure.XYLocation;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -44,4 +45,30 @@ public class MonteCarloTreeSearchTest {
 		TicTacToeState expectedState = new TicTacToeState(expectedBoard, TicTacToeState.X);
 		Assert.assertEquals(expectedState, game.getResult(state, monteCarloTreeSearch.makeDecision(state)));
 	}
+
+	@Test
+	public void testTimeLimitedParallelDecision() {
+		TicTacToeGame ticTacToe = new TicTacToeGame();
+		MonteCarloTreeSearch<TicTacToeState, XYLocation, String> search = new MonteCarloTreeSearch<>(ticTacToe, 0);
+		search.setTimeLimit(200);
+		search.setThreadCount(2);
+		String[] board = new String[]{TicTacToeState.X, TicTacToeState.X, TicTacToeState.EMPTY, TicTacToeState.EMPTY, TicTacToeState.O, TicTacToeState.EMPTY, TicTacToeState.EMPTY, TicTacToeState.EMPTY, TicTacToeState.EMPTY};
+		TicTacToeState state = new TicTacToeState(board, TicTacToeState.O);
+		String[] expectedBoard = new String[]{TicTacToeState.X, TicTacToeState.X, TicTacToeState.O, TicTacToeState.EMPTY, TicTacToeState.O, TicTacToeState.EMPTY, TicTacToeState.EMPTY, TicTacToeState.EMPTY, TicTacToeState.EMPTY};
+		Assert.assertEquals(new TicTacToeState(expectedBoard, TicTacToeState.X), ticTacToe.getResult(state, search.makeDecision(state)));
+		Assert.assertTrue(search.getMetrics().getInt(MonteCarloTreeSearch.METRICS_PLAYOUTS) > 0);
+	}
+
+	@Test
+	public void testTreeReuse() {
+		TicTacToeGame ticTacToe = new TicTacToeGame();
+		MonteCarloTreeSearch<TicTacToeState, XYLocation, String> search = new MonteCarloTreeSearch<>(ticTacToe, 2000);
+		search.setTreeReuseEnabled(true);
+		TicTacToeState state = ticTacToe.getInitialState();
+		state = ticTacToe.getResult(state, search.makeDecision(state));
+		Assert.assertEquals(0, search.getMetrics().getInt(MonteCarloTreeSearch.METRICS_REUSED_NODES));
+		state = ticTacToe.getResult(state, ticTacToe.getActions(state).get(0));
+		search.makeDecision(state);
+		Assert.assertTrue(search.getMetrics().getInt(MonteCarloTreeSearch.METRICS_REUSED_NODES) > 0);
+	}
 }
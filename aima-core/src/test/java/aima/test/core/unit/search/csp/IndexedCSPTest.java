@@ -0,0 +1,209 @@
+package aima.test.core.unit.search.csp;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import aima.core.search.csp.Assignment;
+import aima.core.search.csp.CSP;
+import aima.core.search.csp.Constraint;
+import aima.core.search.csp.Domain;
+import aima.core.search.csp.IndexedCSP;
+import aima.core.search.csp.Variable;
+import aima.core.search.csp.examples.MapCSP;
+import aima.core.search.csp.examples.NQueensCSP;
+import aima.core.search.csp.solver.CspHeuristics;
+import aima.core.search.csp.solver.CspListener;
+import aima.core.search.csp.solver.FlexibleBacktrackingSolver;
+import aima.core.search.csp.solver.MinConflictsSolver;
+import aima.core.search.csp.solver.ParallelBacktrackingSolver;
+import aima.core.search.csp.solver.inference.AC3Strategy;
+import aima.core.search.csp.solver.inference.ForwardCheckingStrategy;
+import aima.core.search.csp.solver.inference.InferenceLog;
+import aima.core.search.csp.solver.inference.InferenceStrategy;
+
+public class IndexedCSPTest {
+	private CSP<Variable, String> csp;
+	private IndexedCSP<Variable, String> indexedCsp;
+
+	@Before
+	public void setUp() {
+		csp = new MapCSP();
+		indexedCsp = new IndexedCSP<>(csp);
+	}
+
+	@Test
+	public void testDomainsAndTrail() {
+		int wa = indexedCsp.indexOf(MapCSP.WA);
+		Assert.assertEquals(3, indexedCsp.getDomainSize(wa));
+		int mark = indexedCsp.getTrailMark();
+		Assert.assertTrue(indexedCsp.removeValue(wa, 0));
+		Assert.assertFalse(indexedCsp.removeValue(wa, 0));
+		Assert.assertEquals(2, indexedCsp.getDomainSize(wa));
+		Assert.assertEquals(1, indexedCsp.nextValue(wa, 0));
+		Assert.assertTrue(indexedCsp.retainValue(wa, 2));
+		Assert.assertEquals(new Domain<>(MapCSP.BLUE), indexedCsp.getDomain(wa));
+		indexedCsp.undo(mark);
+		Assert.assertEquals(csp.getDomain(MapCSP.WA), indexedCsp.getDomain(wa));
+	}
+
+	@Test
+	public void testSupportTablesAndPropagation() {
+		int wa = indexedCsp.indexOf(MapCSP.WA);
+		int nt = indexedCsp.indexOf(MapCSP.NT);
+		int arc = -1;
+		for (int a : indexedCsp.getArcs(wa))
+			if (indexedCsp.getArcHead(a) == nt)
+				arc = a;
+		Assert.assertEquals(nt, indexedCsp.getArcTail(arc ^ 1));
+		Assert.assertFalse(indexedCsp.isCompatible(arc, 0, 0));
+		Assert.assertTrue(indexedCsp.isCompatible(arc, 0, 1));
+		Assert.assertEquals(1, indexedCsp.countUnsupported(arc, 0));
+
+		int mark = indexedCsp.getTrailMark();
+		indexedCsp.retainValue(wa, 0);
+		indexedCsp.retainValue(nt, 1);
+		Assert.assertTrue(indexedCsp.propagate(wa, nt));
+		Assert.assertEquals(new Domain<>(MapCSP.BLUE), indexedCsp.getDomain(indexedCsp.indexOf(MapCSP.SA)));
+		indexedCsp.retainValue(indexedCsp.indexOf(MapCSP.Q), 1);
+		Assert.assertFalse(indexedCsp.propagate(indexedCsp.indexOf(MapCSP.Q)));
+		indexedCsp.undo(mark);
+		Assert.assertEquals(3, indexedCsp.getDomainSize(indexedCsp.indexOf(MapCSP.SA)));
+	}
+
+	@Test
+	public void testBackTrackingSearch() {
+		Optional<Assignment<Variable, String>> results = new FlexibleBacktrackingSolver<Variable, String>()
+				.solve(indexedCsp);
+		Assert.assertTrue(results.isPresent());
+		Assert.assertEquals(MapCSP.BLUE, results.get().getValue(MapCSP.WA));
+		Assert.assertEquals(MapCSP.RED, results.get().getValue(MapCSP.NT));
+		Assert.assertEquals(MapCSP.GREEN, results.get().getValue(MapCSP.SA));
+		Assert.assertEquals(MapCSP.BLUE, results.get().getValue(MapCSP.Q));
+		Assert.assertEquals(MapCSP.RED, results.get().getValue(MapCSP.NSW));
+		Assert.assertEquals(MapCSP.BLUE, results.get().getValue(MapCSP.V));
+		Assert.assertEquals(MapCSP.RED, results.get().getValue(MapCSP.T));
+		Assert.assertEquals(0, indexedCsp.getAssignedCount());
+		Assert.assertEquals(0, indexedCsp.getTrailMark());
+	}
+
+	@Test
+	public void testSameStepsAsObjectBasedSearch() {
+		NQueensCSP queens = new NQueensCSP(8);
+		IndexedCSP<Variable, Integer> indexedQueens = new IndexedCSP<>(queens);
+		List<FlexibleBacktrackingSolver<Variable, Integer>> solvers = Arrays.asList(
+				new FlexibleBacktrackingSolver<Variable, Integer>().set(CspHeuristics.mrv()),
+				new FlexibleBacktrackingSolver<Variable, Integer>().set(new ForwardCheckingStrategy<>()),
+				new FlexibleBacktrackingSolver<Variable, Integer>().setAll());
+		for (FlexibleBacktrackingSolver<Variable, Integer> solver : solvers) {
+			CspListener.StepCounter<Variable, Integer> counter = new CspListener.StepCounter<>();
+			solver.addCspListener(counter);
+			Optional<Assignment<Variable, Integer>> result1 = solver.solve(queens);
+			String steps = counter.getResults().toString();
+			counter.reset();
+			Optional<Assignment<Variable, Integer>> result2 = solver.solve(indexedQueens);
+			Assert.assertTrue(result2.isPresent() && result2.get().isSolution(queens));
+			Assert.assertEquals(result1.get().toString(), result2.get().toString());
+			Assert.assertEquals(steps, counter.getResults().toString());
+		}
+	}
+
+	@Test
+	public void testObjectBasedStrategies() {
+		NQueensCSP queens = new NQueensCSP(8);
+		IndexedCSP<Variable, Integer> indexedQueens = new IndexedCSP<>(queens);
+		// strategies which only implement the object-based methods
+		CspHeuristics.VariableSelectionStrategy<Variable, Integer> mrv = (csp, vars) -> CspHeuristics
+				.<Variable, Integer>mrv().apply(csp, vars);
+		CspHeuristics.ValueOrderingStrategy<Variable, Integer> lcv = (csp, assignment, var) -> CspHeuristics
+				.<Variable, Integer>lcv().apply(csp, assignment, var);
+		InferenceStrategy<Variable, Integer> fc = new InferenceStrategy<Variable, Integer>() {
+			private final ForwardCheckingStrategy<Variable, Integer> strategy = new ForwardCheckingStrategy<>();
+
+			@Override
+			public InferenceLog<Variable, Integer> apply(CSP<Variable, Integer> csp) {
+				return strategy.apply(csp);
+			}
+
+			@Override
+			public InferenceLog<Variable, Integer> apply(CSP<Variable, Integer> csp,
+					Assignment<Variable, Integer> assignment, Variable var) {
+				return strategy.apply(csp, assignment, var);
+			}
+		};
+		FlexibleBacktrackingSolver<Variable, Integer> solver = new FlexibleBacktrackingSolver<Variable, Integer>()
+				.set(mrv).set(lcv).set(fc);
+		CspListener.StepCounter<Variable, Integer> counter = new CspListener.StepCounter<>();
+		solver.addCspListener(counter);
+		Optional<Assignment<Variable, Integer>> result1 = solver.solve(queens);
+		String steps = counter.getResults().toString();
+		counter.reset();
+		Optional<Assignment<Variable, Integer>> result2 = solver.solve(indexedQueens);
+		Assert.assertTrue(result2.isPresent() && result2.get().isSolution(queens));
+		Assert.assertEquals(result1.get().toString(), result2.get().toString());
+		Assert.assertEquals(steps, counter.getResults().toString());
+		Assert.assertEquals(0, indexedQueens.getTrailMark());
+
+		Optional<Assignment<Variable, Integer>> result3 = new ParallelBacktrackingSolver<Variable, Integer>()
+				.set(mrv).set(lcv).set(fc).setThreadCount(2).setSplitDepth(2).solve(new NQueensCSP(10));
+		Assert.assertTrue(result3.isPresent() && result3.get().isSolution(new NQueensCSP(10)));
+		Assert.assertFalse(new ParallelBacktrackingSolver<Variable, Integer>().set(mrv).set(fc).setThreadCount(2)
+				.solve(new NQueensCSP(3)).isPresent());
+	}
+
+	@Test
+	public void testAC3Inconsistency() {
+		CSP<Variable, String> csp2 = new MapCSP();
+		csp2.setDomain(MapCSP.WA, new Domain<>(MapCSP.RED));
+		csp2.setDomain(MapCSP.NT, new Domain<>(MapCSP.GREEN));
+		csp2.setDomain(MapCSP.SA, new Domain<>(MapCSP.RED, MapCSP.GREEN));
+		IndexedCSP<Variable, String> indexed2 = new IndexedCSP<>(csp2);
+		Assert.assertFalse(new AC3Strategy<Variable, String>().apply(indexed2));
+		Assert.assertFalse(new FlexibleBacktrackingSolver<Variable, String>().setAll().solve(indexed2).isPresent());
+	}
+
+	@Test
+	public void testNonBinaryConstraint() {
+		csp.addConstraint(new Constraint<Variable, String>() {
+			@Override
+			public List<Variable> getScope() {
+				return Arrays.asList(MapCSP.WA, MapCSP.V, MapCSP.T);
+			}
+
+			@Override
+			public boolean isSatisfiedWith(Assignment<Variable, String> assignment) {
+				// T differs from WA or V if both are assigned
+				String t = assignment.getValue(MapCSP.T);
+				return t == null || assignment.getValue(MapCSP.WA) == null || assignment.getValue(MapCSP.V) == null
+						|| !t.equals(assignment.getValue(MapCSP.WA)) || !t.equals(assignment.getValue(MapCSP.V));
+			}
+		});
+		IndexedCSP<Variable, String> indexed = new IndexedCSP<>(csp);
+		Optional<Assignment<Variable, String>> result = new FlexibleBacktrackingSolver<Variable, String>().setAll()
+				.solve(indexed);
+		Assert.assertTrue(result.isPresent() && result.get().isSolution(csp));
+		assertTDiffersFromWAOrV(result.get());
+		result = new FlexibleBacktrackingSolver<Variable, String>().solve(indexed);
+		Assert.assertTrue(result.isPresent() && result.get().isSolution(csp));
+		assertTDiffersFromWAOrV(result.get());
+	}
+
+	@Test
+	public void testMinConflictsSearch() {
+		NQueensCSP queens = new NQueensCSP(16);
+		IndexedCSP<Variable, Integer> indexedQueens = new IndexedCSP<>(queens);
+		Optional<Assignment<Variable, Integer>> result = new MinConflictsSolver<Variable, Integer>(10000)
+				.solve(indexedQueens);
+		Assert.assertTrue(result.isPresent() && result.get().isSolution(queens));
+		Assert.assertEquals(0, indexedQueens.getAssignedCount());
+	}
+
+	private void assertTDiffersFromWAOrV(Assignment<Variable, String> assignment) {
+		String t = assignment.getValue(MapCSP.T);
+		Assert.assertTrue(!t.equals(assignment.getValue(MapCSP.WA)) || !t.equals(assignment.getValue(MapCSP.V)));
+	}
+}
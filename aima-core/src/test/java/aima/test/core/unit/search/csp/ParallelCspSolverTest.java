@@ -0,0 +1,79 @@
+package aima.test.core.unit.search.csp;
+
+import java.util.Optional;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import aima.core.search.csp.Assignment;
+import aima.core.search.csp.CSP;
+import aima.core.search.csp.Variable;
+import aima.core.search.csp.examples.MapCSP;
+import aima.core.search.csp.examples.NQueensCSP;
+import aima.core.search.csp.solver.CspHeuristics;
+import aima.core.search.csp.solver.CspListener;
+import aima.core.search.csp.solver.FlexibleBacktrackingSolver;
+import aima.core.search.csp.solver.MinConflictsSolver;
+import aima.core.search.csp.solver.ParallelBacktrackingSolver;
+import aima.core.search.csp.solver.PortfolioCspSolver;
+import aima.core.search.csp.solver.inference.ForwardCheckingStrategy;
+
+public class ParallelCspSolverTest {
+
+	@Test
+	public void testParallelBacktracking() {
+		CSP<Variable, String> csp = new MapCSP();
+		Optional<Assignment<Variable, String>> result = new ParallelBacktrackingSolver<Variable, String>()
+				.setThreadCount(4).setSplitDepth(2).solve(csp);
+		Assert.assertTrue(result.isPresent() && result.get().isSolution(csp));
+
+		NQueensCSP queens = new NQueensCSP(12);
+		Optional<Assignment<Variable, Integer>> result2 = new ParallelBacktrackingSolver<Variable, Integer>().setAll()
+				.setThreadCount(3).solve(queens);
+		Assert.assertTrue(result2.isPresent() && result2.get().isSolution(queens));
+	}
+
+	@Test
+	public void testParallelBacktrackingWithoutSolution() {
+		for (int threads = 1; threads <= 4; threads++) {
+			Optional<Assignment<Variable, Integer>> result = new ParallelBacktrackingSolver<Variable, Integer>()
+					.set(CspHeuristics.mrv()).set(new ForwardCheckingStrategy<>()).setThreadCount(threads)
+					.setSplitDepth(2).solve(new NQueensCSP(2 + threads % 2));
+			Assert.assertFalse(result.isPresent());
+		}
+	}
+
+	@Test
+	public void testParallelBacktrackingListener() {
+		CSP<Variable, String> csp = new MapCSP();
+		ParallelBacktrackingSolver<Variable, String> solver = new ParallelBacktrackingSolver<Variable, String>()
+				.setAll().setThreadCount(2).setSplitDepth(1);
+		CspListener.StepCounter<Variable, String> counter = new CspListener.StepCounter<>();
+		solver.addCspListener(counter);
+		solver.solve(csp);
+		Assert.assertTrue(counter.getResults().getInt("assignmentCount") > 0);
+	}
+
+	@Test
+	public void testPortfolio() {
+		NQueensCSP queens = new NQueensCSP(16);
+		PortfolioCspSolver<Variable, Integer> portfolio = new PortfolioCspSolver<Variable, Integer>()
+				.addHeuristicVariants().add(new MinConflictsSolver<>(100000));
+		CspListener.StepCounter<Variable, Integer> counter = new CspListener.StepCounter<>();
+		portfolio.addCspListener(counter);
+		Optional<Assignment<Variable, Integer>> result = portfolio.solve(queens);
+		Assert.assertTrue(result.isPresent() && result.get().isSolution(queens));
+		Assert.assertTrue(counter.getResults().getInt("assignmentCount") > 0);
+	}
+
+	@Test
+	public void testPortfolioWithoutSolution() {
+		// the min-conflicts solver would take very long but is cancelled
+		PortfolioCspSolver<Variable, Integer> portfolio = new PortfolioCspSolver<Variable, Integer>()
+				.add(new MinConflictsSolver<>(Integer.MAX_VALUE))
+				.add(new FlexibleBacktrackingSolver<Variable, Integer>().setAll());
+		long start = System.currentTimeMillis();
+		Assert.assertFalse(portfolio.solve(new NQueensCSP(3)).isPresent());
+		Assert.assertTrue(System.currentTimeMillis() - start < 10000);
+	}
+}
@@ -0,0 +1,80 @@
+package aima.test.core.unit.util.datastructure;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import aima.core.util.datastructure.IndexedPriorityQueue;
+
+public class IndexedPriorityQueueTest {
+
+	private static class Item {
+		double key;
+
+		Item(double key) {
+			this.key = key;
+		}
+	}
+
+	private static final Comparator<Item> BY_KEY = Comparator.comparingDouble(item -> item.key);
+
+	@Test
+	public void testPollOrderMatchesPriorityQueue() {
+		Random random = new Random(7);
+		IndexedPriorityQueue<Item> indexed = new IndexedPriorityQueue<>(BY_KEY);
+		PriorityQueue<Item> standard = new PriorityQueue<>(11, BY_KEY);
+		for (int i = 0; i < 1000; i++) {
+			if (random.nextInt(3) == 0 && !standard.isEmpty()) {
+				Assert.assertSame(standard.poll(), indexed.poll());
+			} else {
+				Item item = new Item(random.nextInt(20));
+				standard.add(item);
+				indexed.add(item);
+			}
+		}
+		while (!standard.isEmpty())
+			Assert.assertSame(standard.poll(), indexed.poll());
+		Assert.assertTrue(indexed.isEmpty());
+		Assert.assertNull(indexed.poll());
+	}
+
+	@Test
+	public void testRemoveAndReplace() {
+		IndexedPriorityQueue<Item> queue = new IndexedPriorityQueue<>(BY_KEY);
+		List<Item> items = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			Item item = new Item(10 * i);
+			items.add(item);
+			queue.add(item);
+		}
+		Assert.assertTrue(queue.contains(items.get(5)));
+		Assert.assertTrue(queue.remove(items.get(5)));
+		Assert.assertFalse(queue.contains(items.get(5)));
+		Assert.assertFalse(queue.remove(items.get(5)));
+
+		// decrease-key: 90 -> 15
+		Item cheaper = new Item(15);
+		Assert.assertTrue(queue.replace(items.get(9), cheaper));
+		Assert.assertFalse(queue.contains(items.get(9)));
+		Assert.assertFalse(queue.replace(items.get(5), new Item(1)));
+		Assert.assertEquals(9, queue.size());
+
+		double[] expected = { 0, 10, 15, 20, 30, 40, 60, 70, 80 };
+		for (double key : expected)
+			Assert.assertEquals(key, queue.poll().key, 0.0);
+		Assert.assertTrue(queue.isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDuplicateElement() {
+		IndexedPriorityQueue<Item> queue = new IndexedPriorityQueue<>(BY_KEY);
+		Item item = new Item(1);
+		queue.add(item);
+		queue.add(item);
+	}
+}
@@ -74,7 +74,8 @@ public class WumpusAgentApp extends IntegrableApplication {
         p1.setDefaultValueIndex(2);
         Parameter p2 = new Parameter(PARAM_AGENT, "Hybrid Wumpus Agent", "Efficient Hybrid Wumpus Agent");
         p2.setDefaultValueIndex(1);
-        Parameter p3 = new Parameter(PARAM_CHECKER, "DPLLSatisfiable", "OptimizedDPLL", "OptimizedPLResolution (too slow!)");
+        Parameter p3 = new Parameter(PARAM_CHECKER, "DPLLSatisfiable", "OptimizedDPLL", "CDCL",
+                "OptimizedPLResolution (too slow!)");
         p3.setDefaultValueIndex(1);
         Parameter p4 = new Parameter(PARAM_VIEW, "Default", "Hide Room Content", "Show KB");
         return Arrays.asList(p1, p2, p3, p4);
@@ -122,6 +123,9 @@ public class WumpusAgentApp extends IntegrableApplication {
                 checker = new OptimizedDPLL();
                 break;
             case 2:
+                checker = new CDCLSolver();
+                break;
+            case 3:
                 checker = new OptimizedPLResolution();
                 break;
         }
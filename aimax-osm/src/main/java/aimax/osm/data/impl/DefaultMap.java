@@ -72,6 +72,11 @@ public class DefaultMap implements OsmMap {
 
 	private EntityClassifier<EntityViewInfo> entityClassifier;
 	private KDTree entityTree;
+	/** Bounding box and shape of a precomputed entity tree, possibly null. */
+	private BoundingBox entityTreeBox;
+	private byte[] entityTreeShape;
+	/** Spatial index of all nodes, created on demand. */
+	private WayNodeIndex wayNodeIndex;
 
 	private ArrayList<MapEventListener> listeners;
 
@@ -100,6 +105,9 @@ public class DefaultMap implements OsmMap {
 		markers.clear();
 		tracks.clear();
 		entityTree = null;
+		entityTreeBox = null;
+		entityTreeShape = null;
+		wayNodeIndex = null;
 		boundingBox = null;
 		fireMapDataEvent(new MapEvent(this, MapEvent.Type.MAP_CLEARED));
 	}
@@ -161,6 +169,7 @@ public class DefaultMap implements OsmMap {
 	/** Adds a node to the central node hashtable. */
 	protected void addNode(DefaultMapNode node) {
 		nodes.put(node.getId(), node);
+		wayNodeIndex = null;
 	}
 
 	/** {@inheritDoc} */
@@ -214,6 +223,7 @@ public class DefaultMap implements OsmMap {
 		for (long id : toDelete) {
 			nodes.remove(id);
 		}
+		wayNodeIndex = null;
 		BoundingBox bbAllNodes = new BoundingBox();
 		bbAllNodes.adjust(nodes.values());
 		bbAllNodes.adjust(pois);
@@ -231,7 +241,13 @@ public class DefaultMap implements OsmMap {
 	 * of interest.
 	 */
 	protected void applyClassifierAndUpdateTree(BoundingBox bb) {
-		entityTree = new KDTree(bb, 8000, 60);
+		if (entityTreeShape != null && isEqual(bb, entityTreeBox))
+			entityTree = new KDTree(bb, 8000, 60, entityTreeShape);
+		else
+			entityTree = new KDTree(bb, 8000, 60);
+		// the shape fits the classifier in use when it was recorded
+		entityTreeBox = null;
+		entityTreeShape = null;
 		for (MapWay way : ways.values())
 			updateEntityViewInfo(way, true);
 		for (MapNode poi : pois)
@@ -261,7 +277,17 @@ public class DefaultMap implements OsmMap {
 	 */
 	@Override
 	public MapNode getNearestWayNode(Position pos, MapWayFilter filter) {
-		return pos.selectNearest(nodes.values(), filter);
+		return getWayNodeIndex().getNearestNode(pos, filter);
+	}
+
+	/**
+	 * Returns a kd-tree with all nodes for nearest neighbor search. It is
+	 * created on first access after the node set has changed.
+	 */
+	public synchronized WayNodeIndex getWayNodeIndex() {
+		if (wayNodeIndex == null)
+			wayNodeIndex = new WayNodeIndex(nodes.values());
+		return wayNodeIndex;
 	}
 
 	/** Reduces the level of detail by selecting some of the given nodes. */
@@ -475,6 +501,21 @@ public class DefaultMap implements OsmMap {
 		return entityTree;
 	}
 
+	/**
+	 * Provides the shape of a previously built entity tree (see
+	 * {@link KDTree#getShape()}). It is used once, to split the next entity
+	 * tree in advance if the tree covers the same bounding box.
+	 */
+	public void setEntityTreeShape(BoundingBox bb, byte[] shape) {
+		entityTreeBox = bb;
+		entityTreeShape = shape;
+	}
+
+	private static boolean isEqual(BoundingBox bb1, BoundingBox bb2) {
+		return bb1.getLatMin() == bb2.getLatMin() && bb1.getLonMin() == bb2.getLonMin()
+				&& bb1.getLatMax() == bb2.getLatMax() && bb1.getLonMax() == bb2.getLonMax();
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public void addMapDataEventListener(MapEventListener listener) {
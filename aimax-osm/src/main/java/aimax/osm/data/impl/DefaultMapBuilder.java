@@ -38,6 +38,14 @@ public class DefaultMapBuilder implements MapBuilder {
 		result.setBoundingBox(bb);
 	}
 
+	/**
+	 * Provides the shape of a previously built entity tree, which saves
+	 * time during map compilation (see {@link DefaultMap#setEntityTreeShape(BoundingBox, byte[])}).
+	 */
+	public void setEntityTreeShape(BoundingBox bb, byte[] shape) {
+		result.setEntityTreeShape(bb, shape);
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public boolean isNodeDefined(long id, BoundingBox bb) {
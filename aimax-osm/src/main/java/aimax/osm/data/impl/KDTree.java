@@ -4,6 +4,7 @@ import aimax.osm.data.BoundingBox;
 import aimax.osm.data.EntityVisitor;
 import aimax.osm.data.entities.MapEntity;
 
+import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
@@ -42,6 +43,21 @@ public class KDTree {
 		entities = new ArrayList<>();
 	}
 	
+	/**
+	 * Constructs the root of an empty tree which is split in advance as
+	 * described by the given shape. For the same bounding box and the same
+	 * entities, the resulting partition is the same as when building the
+	 * tree from scratch, but entities are not moved around during insertion.
+	 * @param shape Split flags of all tree nodes in preorder as returned by
+	 * {@link #getShape()}.
+	 */
+	public KDTree(BoundingBox bb, int maxEntities, int maxDepth, byte[] shape) {
+		this(bb, maxEntities, maxDepth);
+		int end = split(shape, 0);
+		if (end != shape.length)
+			throw new IllegalArgumentException("Invalid kd-tree shape.");
+	}
+	
 	/** Constructor for inner and leaf nodes. */
 	private KDTree(BoundingBox bb, int maxEntities, int maxDepth, int depth) {
 		this(bb, maxEntities, maxDepth);
@@ -66,6 +82,38 @@ public class KDTree {
 		}
 	}
 	
+	/**
+	 * Returns the split flags of all tree nodes in preorder: 1 for inner
+	 * nodes, 0 for leafs. Together with the bounding box, they completely
+	 * describe the partition of the space.
+	 */
+	public byte[] getShape() {
+		ByteArrayOutputStream result = new ByteArrayOutputStream();
+		addShape(result);
+		return result.toByteArray();
+	}
+	
+	private void addShape(ByteArrayOutputStream result) {
+		if (children == null) {
+			result.write(0);
+		} else {
+			result.write(1);
+			children[0].addShape(result);
+			children[1].addShape(result);
+		}
+	}
+	
+	/** Splits the nodes as described by the shape and returns the end position. */
+	private int split(byte[] shape, int pos) {
+		if (pos >= shape.length)
+			throw new IllegalArgumentException("Invalid kd-tree shape.");
+		if (shape[pos++] == 0)
+			return pos;
+		createChildren();
+		pos = children[0].split(shape, pos);
+		return children[1].split(shape, pos);
+	}
+	
 	/**
 	 * Adds an entity at the right position in the tree and extends
 	 * the tree if necessary. It is assumed that the entity contains
@@ -76,23 +124,7 @@ public class KDTree {
 			entities.add(entity);
 			isSorted = false;
 			if (entities.size() > maxEntities && depth < maxDepth) {
-				computeSplitValues();
-				BoundingBox c1bb;
-				BoundingBox c2bb;
-				if (splitAtLat) {
-					c1bb = new BoundingBox
-					(bb.getLatMin(), bb.getLonMin(), splitValue, bb.getLonMax());
-					c2bb = new BoundingBox
-					(splitValue, bb.getLonMin(), bb.getLatMax(), bb.getLonMax());
-				} else {
-					c1bb = new BoundingBox
-					(bb.getLatMin(), bb.getLonMin(), bb.getLatMax(), splitValue);
-					c2bb = new BoundingBox
-					(bb.getLatMin(), splitValue, bb.getLatMax(), bb.getLonMax());
-				}
-				children = new KDTree[2];
-				children[0] = new KDTree(c1bb, maxEntities, maxDepth, depth+1);
-				children[1] = new KDTree(c2bb, maxEntities, maxDepth, depth+1);
+				createChildren();
 				List<DefaultMapEntity> tmp = entities;
 				entities = new ArrayList<>();
 				for (DefaultMapEntity ne : tmp)
@@ -113,6 +145,27 @@ public class KDTree {
 		}
 	}
 	
+	/** Splits this leaf into two children. */
+	private void createChildren() {
+		computeSplitValues();
+		BoundingBox c1bb;
+		BoundingBox c2bb;
+		if (splitAtLat) {
+			c1bb = new BoundingBox
+			(bb.getLatMin(), bb.getLonMin(), splitValue, bb.getLonMax());
+			c2bb = new BoundingBox
+			(splitValue, bb.getLonMin(), bb.getLatMax(), bb.getLonMax());
+		} else {
+			c1bb = new BoundingBox
+			(bb.getLatMin(), bb.getLonMin(), bb.getLatMax(), splitValue);
+			c2bb = new BoundingBox
+			(bb.getLatMin(), splitValue, bb.getLatMax(), bb.getLonMax());
+		}
+		children = new KDTree[2];
+		children[0] = new KDTree(c1bb, maxEntities, maxDepth, depth+1);
+		children[1] = new KDTree(c2bb, maxEntities, maxDepth, depth+1);
+	}
+	
 	/**
 	 * Splits the bounding box, so that the new boxes have equal size
 	 * and look square-like as much as possible.
@@ -0,0 +1,231 @@
+package aimax.osm.data.impl;
+
+import java.util.Collection;
+
+import aimax.osm.data.MapWayFilter;
+import aimax.osm.data.Position;
+import aimax.osm.data.entities.MapNode;
+import aimax.osm.data.entities.WayRef;
+
+/**
+ * Static kd-tree over the positions of map nodes which answers nearest
+ * neighbor queries in logarithmic time. In contrast to the entity tree (see
+ * {@link KDTree}), which partitions map entities for viewing, this tree
+ * contains single nodes and is stored implicitly: node positions are kept in
+ * primitive arrays which are reordered during construction, so that each
+ * subrange is split at its median element. Queries can be restricted to nodes
+ * which are part of a way accepted by a {@link MapWayFilter}. Nodes rejected
+ * by the filter are skipped without affecting the pruning of the remaining
+ * search space, so the result is always the nearest accepted node.
+ */
+public class WayNodeIndex {
+	/** Ranges with at most this number of nodes are not split. */
+	private static final int LEAF_SIZE = 8;
+
+	private final MapNode[] nodes;
+	private final float[] lats;
+	private final float[] lons;
+	/** Split dimension of each range, stored at the index of its median. */
+	private final boolean[] splitAtLat;
+
+	private float latMin = Float.MAX_VALUE;
+	private float latMax = -Float.MAX_VALUE;
+	private float lonMin = Float.MAX_VALUE;
+	private float lonMax = -Float.MAX_VALUE;
+
+	/**
+	 * Builds the tree. Nodes without position are ignored.
+	 */
+	public WayNodeIndex(Collection<MapNode> mapNodes) {
+		int size = 0;
+		for (MapNode node : mapNodes)
+			if (node.hasPosition())
+				size++;
+		nodes = new MapNode[size];
+		lats = new float[size];
+		lons = new float[size];
+		splitAtLat = new boolean[size];
+		int i = 0;
+		for (MapNode node : mapNodes) {
+			if (node.hasPosition()) {
+				nodes[i] = node;
+				lats[i] = node.getLat();
+				lons[i] = node.getLon();
+				latMin = Math.min(latMin, lats[i]);
+				latMax = Math.max(latMax, lats[i]);
+				lonMin = Math.min(lonMin, lons[i]);
+				lonMax = Math.max(lonMax, lons[i]);
+				i++;
+			}
+		}
+		build(0, size, latMin, latMax, lonMin, lonMax);
+	}
+
+	/** Returns the number of indexed nodes. */
+	public int size() {
+		return nodes.length;
+	}
+
+	/**
+	 * Returns the indexed node which is nearest to the given position. If a
+	 * filter is given, only nodes which are part of a way accepted by the
+	 * filter are considered.
+	 *
+	 * @param filter
+	 *            possibly null
+	 * @return A node or null
+	 */
+	public MapNode getNearestNode(Position pos, MapWayFilter filter) {
+		Query query = new Query(pos.getLat(), pos.getLon(), filter);
+		if (nodes.length > 0)
+			query.search(0, nodes.length, latMin, latMax, lonMin, lonMax);
+		return query.result;
+	}
+
+	/**
+	 * Reorders the range so that the median with respect to the wider side of
+	 * the bounding box is located in the middle, and continues recursively
+	 * with the two halves.
+	 */
+	private void build(int from, int to, float bLatMin, float bLatMax, float bLonMin, float bLonMax) {
+		if (to - from <= LEAF_SIZE)
+			return;
+		int mid = (from + to) >>> 1;
+		float latMid = (bLatMin + bLatMax) / 2f;
+		double width = (bLonMax - bLonMin) * Math.cos(Math.toRadians(latMid));
+		boolean atLat = bLatMax - bLatMin > width;
+		splitAtLat[mid] = atLat;
+		select(from, to, mid, atLat);
+		float split = atLat ? lats[mid] : lons[mid];
+		if (atLat) {
+			build(from, mid, bLatMin, split, bLonMin, bLonMax);
+			build(mid + 1, to, split, bLatMax, bLonMin, bLonMax);
+		} else {
+			build(from, mid, bLatMin, bLatMax, bLonMin, split);
+			build(mid + 1, to, bLatMin, bLatMax, split, bLonMax);
+		}
+	}
+
+	/**
+	 * Quickselect: afterwards, no element in [from, k) is greater and no
+	 * element in (k, to) is smaller than the element at k.
+	 */
+	private void select(int from, int to, int k, boolean atLat) {
+		float[] keys = atLat ? lats : lons;
+		int lo = from;
+		int hi = to - 1;
+		while (hi > lo) {
+			float pivot = keys[(lo + hi) >>> 1];
+			int i = lo;
+			int j = hi;
+			while (i <= j) {
+				while (keys[i] < pivot)
+					i++;
+				while (keys[j] > pivot)
+					j--;
+				if (i <= j)
+					swap(i++, j--);
+			}
+			if (k <= j)
+				hi = j;
+			else if (k >= i)
+				lo = i;
+			else
+				break;
+		}
+	}
+
+	private void swap(int i, int j) {
+		MapNode node = nodes[i];
+		nodes[i] = nodes[j];
+		nodes[j] = node;
+		float lat = lats[i];
+		lats[i] = lats[j];
+		lats[j] = lat;
+		float lon = lons[i];
+		lons[i] = lons[j];
+		lons[j] = lon;
+	}
+
+	/** State of one nearest neighbor query. */
+	private class Query {
+		private final float lat;
+		private final float lon;
+		private final double cosLat;
+		private final MapWayFilter filter;
+		private MapNode result;
+		private double dist = Double.MAX_VALUE;
+
+		Query(float lat, float lon, MapWayFilter filter) {
+			this.lat = lat;
+			this.lon = lon;
+			this.cosLat = Math.cos(Math.toRadians(lat));
+			this.filter = filter;
+		}
+
+		void search(int from, int to, float bLatMin, float bLatMax, float bLonMin, float bLonMax) {
+			if (getMinDistKM(bLatMin, bLatMax, bLonMin, bLonMax) >= dist)
+				return;
+			if (to - from <= LEAF_SIZE) {
+				for (int i = from; i < to; i++)
+					check(i);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			check(mid);
+			if (splitAtLat[mid]) {
+				float split = lats[mid];
+				if (lat < split) {
+					search(from, mid, bLatMin, split, bLonMin, bLonMax);
+					search(mid + 1, to, split, bLatMax, bLonMin, bLonMax);
+				} else {
+					search(mid + 1, to, split, bLatMax, bLonMin, bLonMax);
+					search(from, mid, bLatMin, split, bLonMin, bLonMax);
+				}
+			} else {
+				float split = lons[mid];
+				if (lon < split) {
+					search(from, mid, bLatMin, bLatMax, bLonMin, split);
+					search(mid + 1, to, bLatMin, bLatMax, split, bLonMax);
+				} else {
+					search(mid + 1, to, bLatMin, bLatMax, split, bLonMax);
+					search(from, mid, bLatMin, bLatMax, bLonMin, split);
+				}
+			}
+		}
+
+		private void check(int i) {
+			double newDist = Position.getDistKM(lat, lon, lats[i], lons[i]);
+			if (newDist < dist && isAccepted(nodes[i])) {
+				result = nodes[i];
+				dist = newDist;
+			}
+		}
+
+		private boolean isAccepted(MapNode node) {
+			if (filter == null)
+				return true;
+			for (WayRef ref : node.getWayRefs())
+				if (filter.isAccepted(ref.getWay()))
+					return true;
+			return false;
+		}
+
+		/**
+		 * Returns a lower bound of the haversine distance between the query
+		 * position and any position within the given bounding box.
+		 */
+		private double getMinDistKM(float bLatMin, float bLatMax, float bLonMin, float bLonMax) {
+			double latGap = Math.toRadians(Math.max(0f, Math.max(bLatMin - lat, lat - bLatMax)));
+			double lonGap = Math.toRadians(Math.max(0f, Math.max(bLonMin - lon, lon - bLonMax)));
+			if (latGap == 0 && lonGap == 0)
+				return 0;
+			// cosine is concave on [-90, 90], so its minimum is located at a box border
+			double cosBox = Math.min(Math.cos(Math.toRadians(bLatMin)), Math.cos(Math.toRadians(bLatMax)));
+			double sinLat = Math.sin(latGap / 2);
+			double sinLon = Math.sin(lonGap / 2);
+			double a = sinLat * sinLat + Math.max(0, cosLat * cosBox) * sinLon * sinLon;
+			return 2 * Position.EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+		}
+	}
+}
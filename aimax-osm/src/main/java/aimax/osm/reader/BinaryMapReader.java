@@ -0,0 +1,307 @@
+package aimax.osm.reader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import aimax.osm.data.BoundingBox;
+import aimax.osm.data.EntityClassifier;
+import aimax.osm.data.MapBuilder;
+import aimax.osm.data.entities.EntityAttribute;
+import aimax.osm.data.impl.DefaultMapBuilder;
+import aimax.osm.routing.RoadGraph;
+
+/**
+ * Reads maps written by {@link aimax.osm.writer.BinaryMapWriter}. Files are
+ * memory-mapped, and sections are only decoded when needed: a routing
+ * application can load a road graph without touching the map entities.
+ * <p>
+ * The file starts with a magic number and a version, followed by the
+ * sections and a directory. The last eight bytes hold the offset of the
+ * directory, which lists type, name, offset, and length of each section. All
+ * numbers are big-endian. Sections:
+ * </p>
+ * <ul>
+ * <li>strings: all names, attribute keys, and attribute values (UTF-8).</li>
+ * <li>bounds: the bounding box of the map.</li>
+ * <li>nodes: ids, latitudes, longitudes, name indices, and attributes, each
+ * stored as an array.</li>
+ * <li>ways: ids, name indices, attributes, and for each way the indices of its
+ * nodes.</li>
+ * <li>entity tree: bounding box and shape of the kd-tree used for viewing.</li>
+ * <li>road graph (named, any number): see {@link RoadGraph#read(ByteBuffer)}.</li>
+ * </ul>
+ * Attributes are stored as offsets per entity, followed by key and value
+ * indices.
+ */
+public class BinaryMapReader implements MapReader {
+	public static final int MAGIC = 0x414F4D42; // "AOMB"
+	public static final int VERSION = 1;
+
+	public static final int SECTION_STRINGS = 1;
+	public static final int SECTION_BOUNDS = 2;
+	public static final int SECTION_NODES = 3;
+	public static final int SECTION_WAYS = 4;
+	public static final int SECTION_ENTITY_TREE = 5;
+	public static final int SECTION_ROAD_GRAPH = 6;
+
+	/**
+	 * This implementation throws an <code>UnsupportedOperationException</code>.
+	 */
+	@Override
+	public void setFilter(BoundingBox bb) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * This implementation throws an <code>UnsupportedOperationException</code>.
+	 */
+	@Override
+	public void setFilter(EntityClassifier<Boolean> attFilter) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Reads all map entities from the file and sends them to the builder.
+	 */
+	@Override
+	public void readMap(File file, MapBuilder builder) {
+		try {
+			readMap(mapFile(file), builder);
+		} catch (FileNotFoundException e) {
+			OsmReader.LOG.warning("File " + file + " does not exist.");
+		} catch (Exception e) {
+			OsmReader.LOG.warning("The map could not be read. " + e);
+		}
+	}
+
+	/**
+	 * Reads all map entities from the stream and sends them to the builder.
+	 */
+	@Override
+	public void readMap(InputStream inputStream, MapBuilder builder) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			byte[] buffer = new byte[64 * 1024];
+			int count;
+			while ((count = inputStream.read(buffer)) != -1)
+				bytes.write(buffer, 0, count);
+			readMap(ByteBuffer.wrap(bytes.toByteArray()), builder);
+		} catch (IOException e) {
+			throw new OsmRuntimeException("Unable to read binary map.", e);
+		} finally {
+			try {
+				inputStream.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+	}
+
+	/** Returns the names of all road graphs stored in the file. */
+	public List<String> getRoadGraphNames(File file) throws IOException {
+		List<String> result = new ArrayList<>();
+		for (Section section : readDirectory(mapFile(file)))
+			if (section.type == SECTION_ROAD_GRAPH)
+				result.add(section.name);
+		return result;
+	}
+
+	/**
+	 * Reads a road graph from the file without loading any map entity.
+	 *
+	 * @return The graph or null if the file contains no graph with the given
+	 *         name.
+	 */
+	public RoadGraph readRoadGraph(File file, String name) throws IOException {
+		ByteBuffer buffer = mapFile(file);
+		for (Section section : readDirectory(buffer))
+			if (section.type == SECTION_ROAD_GRAPH && section.name.equals(name)) {
+				buffer.position((int) section.offset);
+				return RoadGraph.read(buffer);
+			}
+		return null;
+	}
+
+	@Override
+	public String[] fileFormatDescriptions() {
+		return new String[] { "Binary OSM Map (osmbin)" };
+	}
+
+	@Override
+	public String[] fileFormatExtensions() {
+		return new String[] { "osmbin" };
+	}
+
+	/** Decodes the entity sections in the order needed by the builder. */
+	protected void readMap(ByteBuffer buffer, MapBuilder builder) throws IOException {
+		List<Section> sections = readDirectory(buffer);
+		String[] strings = new String[0];
+		long[] nodeIds = new long[0];
+		for (Section section : sections) {
+			buffer.position((int) section.offset);
+			switch (section.type) {
+			case SECTION_STRINGS:
+				strings = readStrings(buffer);
+				break;
+			case SECTION_BOUNDS:
+				builder.setBoundingBox(readBoundingBox(buffer));
+				break;
+			case SECTION_NODES:
+				nodeIds = readNodes(buffer, strings, builder);
+				break;
+			case SECTION_WAYS:
+				readWays(buffer, strings, nodeIds, builder);
+				break;
+			case SECTION_ENTITY_TREE:
+				if (builder instanceof DefaultMapBuilder) {
+					BoundingBox bb = readBoundingBox(buffer);
+					byte[] shape = new byte[buffer.getInt()];
+					buffer.get(shape);
+					((DefaultMapBuilder) builder).setEntityTreeShape(bb, shape);
+				}
+				break;
+			default:
+				// road graphs are read on demand
+			}
+		}
+	}
+
+	private String[] readStrings(ByteBuffer buffer) {
+		String[] result = new String[buffer.getInt()];
+		for (int i = 0; i < result.length; i++) {
+			byte[] bytes = new byte[buffer.getInt()];
+			buffer.get(bytes);
+			result[i] = new String(bytes, StandardCharsets.UTF_8);
+		}
+		return result;
+	}
+
+	/** Adds all nodes with position to the builder and returns all node ids. */
+	private long[] readNodes(ByteBuffer buffer, String[] strings, MapBuilder builder) {
+		int n = buffer.getInt();
+		long[] ids = new long[n];
+		float[] lats = new float[n];
+		float[] lons = new float[n];
+		int[] names = new int[n];
+		buffer.asLongBuffer().get(ids);
+		buffer.position(buffer.position() + 8 * n);
+		buffer.asFloatBuffer().get(lats);
+		buffer.position(buffer.position() + 4 * n);
+		buffer.asFloatBuffer().get(lons);
+		buffer.position(buffer.position() + 4 * n);
+		buffer.asIntBuffer().get(names);
+		buffer.position(buffer.position() + 4 * n);
+		List<List<EntityAttribute>> atts = readAttributes(buffer, n, strings);
+		for (int i = 0; i < n; i++)
+			if (!Float.isNaN(lats[i]))
+				builder.addNode(ids[i], getString(strings, names[i]), atts.get(i), lats[i], lons[i]);
+		return ids;
+	}
+
+	private void readWays(ByteBuffer buffer, String[] strings, long[] nodeIds, MapBuilder builder) {
+		int m = buffer.getInt();
+		long[] ids = new long[m];
+		int[] names = new int[m];
+		buffer.asLongBuffer().get(ids);
+		buffer.position(buffer.position() + 8 * m);
+		buffer.asIntBuffer().get(names);
+		buffer.position(buffer.position() + 4 * m);
+		List<List<EntityAttribute>> atts = readAttributes(buffer, m, strings);
+		int[] offsets = readInts(buffer, m + 1);
+		int[] refs = readInts(buffer, offsets[m]);
+		List<Long> wayNodeIds = new ArrayList<>();
+		for (int i = 0; i < m; i++) {
+			wayNodeIds.clear();
+			for (int j = offsets[i]; j < offsets[i + 1]; j++)
+				wayNodeIds.add(nodeIds[refs[j]]);
+			builder.addWay(ids[i], getString(strings, names[i]), atts.get(i), wayNodeIds);
+		}
+	}
+
+	private List<List<EntityAttribute>> readAttributes(ByteBuffer buffer, int entityCount, String[] strings) {
+		int[] offsets = readInts(buffer, entityCount + 1);
+		int count = offsets[entityCount];
+		int[] keys = readInts(buffer, count);
+		int[] values = readInts(buffer, count);
+		List<List<EntityAttribute>> result = new ArrayList<>(entityCount);
+		for (int i = 0; i < entityCount; i++) {
+			if (offsets[i] == offsets[i + 1]) {
+				result.add(Collections.emptyList());
+			} else {
+				List<EntityAttribute> atts = new ArrayList<>(offsets[i + 1] - offsets[i]);
+				for (int j = offsets[i]; j < offsets[i + 1]; j++)
+					atts.add(new EntityAttribute(strings[keys[j]], strings[values[j]]));
+				result.add(atts);
+			}
+		}
+		return result;
+	}
+
+	private static int[] readInts(ByteBuffer buffer, int count) {
+		int[] result = new int[count];
+		buffer.asIntBuffer().get(result);
+		buffer.position(buffer.position() + 4 * count);
+		return result;
+	}
+
+	private static String getString(String[] strings, int idx) {
+		return idx != -1 ? strings[idx] : null;
+	}
+
+	private static BoundingBox readBoundingBox(ByteBuffer buffer) {
+		float latMin = buffer.getFloat();
+		float lonMin = buffer.getFloat();
+		float latMax = buffer.getFloat();
+		float lonMax = buffer.getFloat();
+		return new BoundingBox(latMin, lonMin, latMax, lonMax);
+	}
+
+	private static ByteBuffer mapFile(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+				FileChannel channel = raf.getChannel()) {
+			// the mapping remains valid after the channel is closed
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+	private static List<Section> readDirectory(ByteBuffer buffer) throws IOException {
+		if (buffer.limit() < 16 || buffer.getInt(0) != MAGIC)
+			throw new IOException("Not a binary map file.");
+		if (buffer.getInt(4) != VERSION)
+			throw new IOException("Unsupported binary map version " + buffer.getInt(4) + ".");
+		buffer.position((int) buffer.getLong(buffer.limit() - 8));
+		int count = buffer.getInt();
+		List<Section> result = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			int type = buffer.getInt();
+			byte[] name = new byte[buffer.getInt()];
+			buffer.get(name);
+			long offset = buffer.getLong();
+			buffer.getLong(); // length
+			result.add(new Section(type, new String(name, StandardCharsets.UTF_8), offset));
+		}
+		return result;
+	}
+
+	private static class Section {
+		final int type;
+		final String name;
+		final long offset;
+
+		Section(int type, String name, long offset) {
+			this.type = type;
+			this.name = name;
+			this.offset = offset;
+		}
+	}
+}
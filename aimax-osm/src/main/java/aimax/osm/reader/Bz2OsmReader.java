@@ -3,6 +3,7 @@ package aimax.osm.reader;
 import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
@@ -18,6 +19,7 @@ import java.lang.reflect.InvocationTargetException;
 public class Bz2OsmReader extends FilteringOsmReader {
 
 	private Class<?> compressorClass;
+	private boolean parallelDecompression = Runtime.getRuntime().availableProcessors() > 1;
 	
 	/**
 	 * Tries to find the <code>BZip2CompressorInputStream</code> class using
@@ -32,13 +34,31 @@ public class Bz2OsmReader extends FilteringOsmReader {
 		}
 	}
 	
+	public boolean isParallelDecompression() {
+		return parallelDecompression;
+	}
+
+	/**
+	 * Enables or disables decompression of bz2 blocks on all available
+	 * processors (see {@link ParallelBz2InputStream}). Enabled by default if
+	 * more than one processor is available.
+	 */
+	public void setParallelDecompression(boolean b) {
+		parallelDecompression = b;
+	}
+
 	@SuppressWarnings("resource")
 	protected InputStream createFileStream(File file) throws Exception {
 		InputStream result = new BufferedInputStream(new FileInputStream(file));
 		try {
 			if (compressorClass != null && file.getName().endsWith(".bz2")) {
 				Constructor<?> c = compressorClass.getConstructor(InputStream.class);
-				result = (InputStream) c.newInstance(result);
+				if (parallelDecompression) {
+					result = new ParallelBz2InputStream(result, Runtime.getRuntime().availableProcessors(),
+							in -> createDecoder(c, in));
+				} else {
+					result = (InputStream) c.newInstance(result);
+				}
 			}
 		} catch (InvocationTargetException e) {
 			LOG.warning("Failure occured while reading a map. Possibly unpacking problem.");
@@ -47,6 +67,18 @@ public class Bz2OsmReader extends FilteringOsmReader {
 		return result;
 	}
 	
+	private static InputStream createDecoder(Constructor<?> c, InputStream in) throws IOException {
+		try {
+			return (InputStream) c.newInstance(in);
+		} catch (InvocationTargetException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw new IOException(e.getCause());
+		} catch (ReflectiveOperationException e) {
+			throw new IOException(e);
+		}
+	}
+
 	public String[] fileFormatDescriptions() {
 		if (compressorClass != null)
 			return new String[] {"OSM File (osm)", "OSM BZip2 (osm.bz2)"};
@@ -0,0 +1,323 @@
+package aimax.osm.reader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.xml.parsers.SAXParser;
+
+import org.xml.sax.SAXException;
+
+import aimax.osm.data.BoundingBox;
+import aimax.osm.data.EntityClassifier;
+import aimax.osm.data.MapBuilder;
+import aimax.osm.data.OsmMap;
+import aimax.osm.data.entities.EntityAttribute;
+import aimax.osm.data.entities.EntityViewInfo;
+
+/**
+ * Parses OSM XML data in three stages which run concurrently and are
+ * connected by bounded queues:
+ * <ol>
+ * <li>A reader thread pulls blocks of bytes from the input stream. If the
+ * stream decompresses its data, decompression takes place here.</li>
+ * <li>A tokenizer thread runs the SAX parser with the usual element
+ * processors. Instead of a map builder, the processors feed a proxy which
+ * collects the parsed entities in batches.</li>
+ * <li>The calling thread passes the entities to the map builder.</li>
+ * </ol>
+ * The builder sees exactly the same sequence of calls as with sequential
+ * parsing, and it is only accessed by the calling thread. Exceptions of all
+ * stages are rethrown in the calling thread.
+ */
+public class OsmImportPipeline {
+	private static final int BLOCK_SIZE = 64 * 1024;
+	private static final int BLOCK_QUEUE_CAPACITY = 32;
+	private static final int BATCH_SIZE = 1000;
+	private static final int BATCH_QUEUE_CAPACITY = 32;
+
+	private static final byte[] END_OF_INPUT = new byte[0];
+	private static final List<Entity> END_OF_ENTITIES = Collections.emptyList();
+
+	private final BlockingQueue<byte[]> blocks = new ArrayBlockingQueue<>(BLOCK_QUEUE_CAPACITY);
+	private final BlockingQueue<List<Entity>> batches = new ArrayBlockingQueue<>(BATCH_QUEUE_CAPACITY);
+	private volatile Throwable failure;
+	/** Set when the calling thread stops the other stages. */
+	private volatile boolean shutDown;
+
+	/**
+	 * Reads all data from the stream and sends it to the builder. The stream
+	 * is closed afterwards.
+	 */
+	public void parse(InputStream inputStream, SAXParser parser, MapBuilder builder)
+			throws SAXException, IOException {
+		Thread reader = new Thread(() -> read(inputStream), "osm-reader");
+		Thread tokenizer = new Thread(() -> tokenize(parser), "osm-tokenizer");
+		reader.setDaemon(true);
+		tokenizer.setDaemon(true);
+		reader.start();
+		tokenizer.start();
+		try {
+			build(builder);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Map import interrupted.");
+		} catch (RuntimeException | Error e) {
+			fail(e);
+		} finally {
+			shutDown = true;
+			reader.interrupt();
+			tokenizer.interrupt();
+			try {
+				inputStream.close();
+			} catch (IOException e) {
+				// ignore, the data has been read or another failure is reported
+			}
+		}
+		rethrowFailure();
+	}
+
+	/** Stage 1: reads blocks of bytes from the stream. */
+	private void read(InputStream inputStream) {
+		try {
+			while (true) {
+				byte[] block = new byte[BLOCK_SIZE];
+				int length = inputStream.read(block);
+				if (length == -1)
+					break;
+				if (length > 0)
+					blocks.put(length < BLOCK_SIZE ? Arrays.copyOf(block, length) : block);
+			}
+		} catch (InterruptedException e) {
+			return;
+		} catch (Throwable e) {
+			fail(e);
+		}
+		try {
+			blocks.put(END_OF_INPUT);
+		} catch (InterruptedException e) {
+			// pipeline shut down
+		}
+	}
+
+	/** Stage 2: parses the XML data and collects entities. */
+	private void tokenize(SAXParser parser) {
+		EntityCollector collector = new EntityCollector();
+		try {
+			parser.parse(new BlockInputStream(), new OsmHandler(collector));
+			collector.flush();
+		} catch (InterruptedIOException e) {
+			return;
+		} catch (Throwable e) {
+			fail(e);
+		}
+		try {
+			batches.put(END_OF_ENTITIES);
+		} catch (InterruptedException e) {
+			// pipeline shut down
+		}
+	}
+
+	/** Stage 3: passes the entities to the builder. */
+	private void build(MapBuilder builder) throws InterruptedException {
+		while (true) {
+			List<Entity> batch = batches.take();
+			if (batch == END_OF_ENTITIES)
+				break;
+			for (Entity entity : batch)
+				entity.addTo(builder);
+		}
+	}
+
+	/** Records the first failure and stops the stages. */
+	private synchronized void fail(Throwable e) {
+		if (shutDown)
+			return; // late consequence of the shutdown
+		if (failure == null)
+			failure = e;
+		blocks.clear();
+		batches.clear();
+		blocks.offer(END_OF_INPUT);
+		batches.offer(END_OF_ENTITIES);
+	}
+
+	private void rethrowFailure() throws SAXException, IOException {
+		Throwable e = failure;
+		if (e == null)
+			return;
+		if (e instanceof SAXException)
+			throw (SAXException) e;
+		if (e instanceof IOException)
+			throw (IOException) e;
+		if (e instanceof RuntimeException)
+			throw (RuntimeException) e;
+		if (e instanceof Error)
+			throw (Error) e;
+		throw new OsmRuntimeException("Map import failed.", e);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// helper classes
+
+	/** Input stream of the tokenizer, reading the blocks of stage 1. */
+	private class BlockInputStream extends InputStream {
+		private byte[] block = new byte[0];
+		private int pos;
+
+		@Override
+		public int read() throws IOException {
+			if (pos == block.length && !nextBlock())
+				return -1;
+			return block[pos++] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0)
+				return 0;
+			if (pos == block.length && !nextBlock())
+				return -1;
+			int count = Math.min(len, block.length - pos);
+			System.arraycopy(block, pos, b, off, count);
+			pos += count;
+			return count;
+		}
+
+		private boolean nextBlock() throws InterruptedIOException {
+			if (block == END_OF_INPUT)
+				return false;
+			try {
+				block = blocks.take();
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException();
+			}
+			pos = 0;
+			return block != END_OF_INPUT;
+		}
+	}
+
+	/**
+	 * Map builder proxy used by the element processors of the tokenizer. It
+	 * copies the data of nodes and ways, because the processors reuse their
+	 * lists. Duplicate checks are left to stage 3.
+	 */
+	private class EntityCollector implements MapBuilder {
+		private List<Entity> batch = new ArrayList<>(BATCH_SIZE);
+
+		private void add(Entity entity) {
+			batch.add(entity);
+			if (batch.size() == BATCH_SIZE)
+				flush();
+		}
+
+		void flush() {
+			if (!batch.isEmpty()) {
+				try {
+					batches.put(batch);
+				} catch (InterruptedException e) {
+					throw new OsmRuntimeException("Map import interrupted.", e);
+				}
+				batch = new ArrayList<>(BATCH_SIZE);
+			}
+		}
+
+		@Override
+		public void setEntityClassifier(EntityClassifier<EntityViewInfo> classifier) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void setBoundingBox(BoundingBox bb) {
+			add(new Entity(bb));
+		}
+
+		@Override
+		public boolean isNodeDefined(long id, BoundingBox bb) {
+			return false;
+		}
+
+		@Override
+		public boolean isNodeReferenced(long id) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void addNode(long id, String name, List<EntityAttribute> atts, float lat, float lon) {
+			add(new Entity(id, name, copy(atts), lat, lon, null));
+		}
+
+		@Override
+		public boolean isWayDefined(long id) {
+			return false;
+		}
+
+		@Override
+		public void addWay(long id, String name, List<EntityAttribute> atts, List<Long> wayNodeIds) {
+			add(new Entity(id, name, copy(atts), 0, 0, new ArrayList<>(wayNodeIds)));
+		}
+
+		@Override
+		public boolean nodeRefsWithoutDefsAdded() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public OsmMap buildMap() {
+			throw new UnsupportedOperationException();
+		}
+
+		private List<EntityAttribute> copy(List<EntityAttribute> atts) {
+			return atts.isEmpty() ? Collections.emptyList() : new ArrayList<>(atts);
+		}
+	}
+
+	/** Parsed node, way, or bounding box. */
+	private static class Entity {
+		final long id;
+		final String name;
+		final List<EntityAttribute> atts;
+		final float lat;
+		final float lon;
+		/** Null for nodes. */
+		final List<Long> wayNodeIds;
+		/** Not null for bounding boxes. */
+		final BoundingBox bb;
+
+		Entity(long id, String name, List<EntityAttribute> atts, float lat, float lon, List<Long> wayNodeIds) {
+			this.id = id;
+			this.name = name;
+			this.atts = atts;
+			this.lat = lat;
+			this.lon = lon;
+			this.wayNodeIds = wayNodeIds;
+			this.bb = null;
+		}
+
+		Entity(BoundingBox bb) {
+			this.id = 0;
+			this.name = null;
+			this.atts = null;
+			this.lat = 0;
+			this.lon = 0;
+			this.wayNodeIds = null;
+			this.bb = bb;
+		}
+
+		/** Performs the builder calls of the element processors. */
+		void addTo(MapBuilder builder) {
+			if (bb != null)
+				builder.setBoundingBox(bb);
+			else if (wayNodeIds == null) {
+				if (!builder.isNodeDefined(id, null))
+					builder.addNode(id, name, atts, lat, lon);
+			} else if (!builder.isWayDefined(id))
+				builder.addWay(id, name, atts, wayNodeIds);
+		}
+	}
+}
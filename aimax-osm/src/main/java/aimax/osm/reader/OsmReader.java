@@ -28,6 +28,22 @@ import aimax.osm.data.MapBuilder;
 public class OsmReader implements MapReader {
 
 	protected static Logger LOG = Logger.getLogger("aimax.osm");
+
+	private boolean useImportPipeline = true;
+
+	public boolean isUseImportPipeline() {
+		return useImportPipeline;
+	}
+
+	/**
+	 * Selects the parsing strategy. If true (default), reading,
+	 * XML tokenizing, and map building run concurrently
+	 * (see {@link OsmImportPipeline}), otherwise all is done by the
+	 * calling thread.
+	 */
+	public void setUseImportPipeline(boolean b) {
+		useImportPipeline = b;
+	}
 	
 	/**
 	 * This implementation throws an <code>UnsupportedOperationException</code>.
@@ -91,7 +107,10 @@ public class OsmReader implements MapReader {
 	protected void parseMap(InputStream inputStream, MapBuilder consumer)
 			throws SAXException, IOException {
 		SAXParser parser = createParser();
-		parser.parse(inputStream, new OsmHandler(consumer));
+		if (useImportPipeline)
+			new OsmImportPipeline().parse(inputStream, parser, consumer);
+		else
+			parser.parse(inputStream, new OsmHandler(consumer));
 	}
 	
 	public String[] fileFormatDescriptions() {
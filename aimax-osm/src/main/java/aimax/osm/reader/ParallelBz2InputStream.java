@@ -0,0 +1,454 @@
+package aimax.osm.reader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Decompresses bz2 data on several threads. A bz2 stream consists of
+ * independently compressed blocks, each starting with a 48 bit magic number.
+ * Blocks are not byte-aligned, so a splitter thread scans the compressed
+ * data bit by bit for the magic numbers and passes each block to a pool of
+ * worker threads. A worker wraps the block into a single-block bz2 stream
+ * (header, block, end-of-stream marker with the block checksum) and
+ * decompresses it with an ordinary bz2 decoder. The decompressed blocks are
+ * delivered in their original order. Concatenated streams, as produced by
+ * parallel compressors, are supported.
+ * <p>
+ * The magic number can also occur by chance within compressed data. The
+ * affected block then fails to decompress and is merged with its successor
+ * before being decompressed again.
+ * </p>
+ */
+public class ParallelBz2InputStream extends InputStream {
+
+	/** Creates a decoder for a complete bz2 stream. */
+	public interface DecoderFactory {
+		InputStream createDecoder(InputStream compressed) throws IOException;
+	}
+
+	private static final long BLOCK_MAGIC = 0x314159265359L;
+	private static final long EOS_MAGIC = 0x177245385090L;
+	private static final long MAGIC_MASK = 0xFFFFFFFFFFFFL;
+	/** Maximal number of falsely split blocks merged before giving up. */
+	private static final int MAX_MERGES = 4;
+
+	private final InputStream source;
+	private final DecoderFactory decoderFactory;
+	private final ExecutorService workers;
+	private final Thread splitter;
+	/** Decompression tasks in block order, followed by {@link #END}. */
+	private final BlockingQueue<Task> tasks;
+	private static final Task END = new Task(null, null);
+
+	/** Task which was taken from the queue but not processed yet. */
+	private Task pushedBack;
+
+	private byte[] current = new byte[0];
+	private int pos;
+	private boolean finished;
+
+	/**
+	 * Starts decompressing the given stream.
+	 *
+	 * @param source
+	 *            bz2 compressed data, starting with a stream header.
+	 * @param threads
+	 *            number of decompression threads.
+	 */
+	public ParallelBz2InputStream(InputStream source, int threads, DecoderFactory decoderFactory) {
+		this.source = source;
+		this.decoderFactory = decoderFactory;
+		workers = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "bz2-decompression");
+			t.setDaemon(true);
+			return t;
+		});
+		tasks = new ArrayBlockingQueue<>(2 * threads);
+		splitter = new Thread(this::split, "bz2-splitter");
+		splitter.setDaemon(true);
+		splitter.start();
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (pos == current.length && !nextBlock())
+			return -1;
+		return current[pos++] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0)
+			return 0;
+		if (pos == current.length && !nextBlock())
+			return -1;
+		int count = Math.min(len, current.length - pos);
+		System.arraycopy(current, pos, b, off, count);
+		pos += count;
+		return count;
+	}
+
+	@Override
+	public int available() {
+		return current.length - pos;
+	}
+
+	@Override
+	public void close() throws IOException {
+		finished = true;
+		splitter.interrupt();
+		workers.shutdownNow();
+		source.close();
+	}
+
+	/** Waits for the next decompressed block. */
+	private boolean nextBlock() throws IOException {
+		while (!finished) {
+			Task task = takeTask();
+			if (task == END) {
+				finished = true;
+				workers.shutdown();
+				break;
+			}
+			if (task.failure != null)
+				throw task.failure;
+			current = getResult(task);
+			pos = 0;
+			if (current.length > 0)
+				return true;
+		}
+		return false;
+	}
+
+	private Task takeTask() throws IOException {
+		if (pushedBack != null) {
+			Task result = pushedBack;
+			pushedBack = null;
+			return result;
+		}
+		try {
+			return tasks.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for bz2 decompression.");
+		}
+	}
+
+	/**
+	 * Returns the decompressed data of the task. If decompression failed,
+	 * the block is merged with its successors in the same stream until
+	 * decompression succeeds.
+	 */
+	private byte[] getResult(Task task) throws IOException {
+		try {
+			return task.result.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for bz2 decompression.");
+		} catch (ExecutionException e) {
+			IOException failure = e.getCause() instanceof IOException ? (IOException) e.getCause()
+					: new IOException("Unable to decompress bz2 block.", e.getCause());
+			Chunk merged = task.chunk;
+			for (int i = 0; i < MAX_MERGES && !merged.lastInStream; i++) {
+				Task next = takeTask();
+				if (next == END || next.failure != null) {
+					pushedBack = next;
+					break;
+				}
+				next.result.cancel(true);
+				merged = merged.append(next.chunk);
+				try {
+					return decompress(merged);
+				} catch (IOException | RuntimeException e2) {
+					// the next magic number may also be a false one
+				}
+			}
+			throw failure;
+		}
+	}
+
+	/** Wraps the chunk into a complete bz2 stream and decompresses it. */
+	private byte[] decompress(Chunk chunk) throws IOException {
+		byte[] compressed = chunk.toStream();
+		InputStream decoder = decoderFactory.createDecoder(new ByteArrayInputStream(compressed));
+		byte[] result = new byte[Math.max(1024, compressed.length * 5)];
+		int length = 0;
+		int count;
+		while ((count = decoder.read(result, length, result.length - length)) != -1) {
+			length += count;
+			if (length == result.length)
+				result = Arrays.copyOf(result, result.length * 2);
+		}
+		decoder.close();
+		return Arrays.copyOf(result, length);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// splitting
+
+	/** Body of the splitter thread. */
+	private void split() {
+		try {
+			BitScanner scanner = new BitScanner(source);
+			int level = scanner.readStreamHeader();
+			if (level == -1)
+				throw new IOException("Input is not in bz2 format.");
+			while (level != -1) {
+				scanner.splitStream(level);
+				level = scanner.readStreamHeader();
+			}
+			tasks.put(END);
+		} catch (InterruptedException e) {
+			// stream closed
+		} catch (IOException e) {
+			try {
+				tasks.put(new Task(null, null, e));
+				tasks.put(END);
+			} catch (InterruptedException e2) {
+				// stream closed
+			}
+		}
+	}
+
+	private void submit(Chunk chunk) throws InterruptedException {
+		tasks.put(new Task(chunk, workers.submit(() -> decompress(chunk))));
+	}
+
+	/** Reads the compressed data and cuts it at the block magic numbers. */
+	private class BitScanner {
+		private final InputStream in;
+		private final byte[] buffer = new byte[64 * 1024];
+		private int bufferPos;
+		private int bufferLength;
+
+		/** Bytes of the current block, starting with the byte of its magic. */
+		private byte[] block = new byte[1024];
+		private int blockLength;
+		/** Bit position of the block start (relative to the stream). */
+		private long blockStart = -1;
+		/** Last bytes read, indexed by their position modulo 8. */
+		private final byte[] recent = new byte[8];
+
+		BitScanner(InputStream in) {
+			this.in = in;
+		}
+
+		private int nextByte() throws IOException {
+			if (bufferPos == bufferLength) {
+				bufferLength = in.read(buffer);
+				bufferPos = 0;
+				if (bufferLength <= 0) {
+					bufferLength = 0;
+					return -1;
+				}
+			}
+			return buffer[bufferPos++] & 0xFF;
+		}
+
+		/**
+		 * Reads a stream header and returns the block size level, or -1 at
+		 * the end of the input.
+		 */
+		int readStreamHeader() throws IOException {
+			int b = nextByte();
+			if (b == -1)
+				return -1;
+			if (b != 'B' || nextByte() != 'Z' || nextByte() != 'h')
+				throw new IOException("Invalid bz2 stream header.");
+			int level = nextByte() - '0';
+			if (level < 1 || level > 9)
+				throw new IOException("Invalid bz2 block size.");
+			return level;
+		}
+
+		/**
+		 * Splits one stream into blocks and submits them. Afterwards, the
+		 * input is positioned behind the end of the stream.
+		 */
+		void splitStream(int level) throws IOException, InterruptedException {
+			long window = 0;
+			long bitPos = 0; // number of bits read from the stream
+			blockStart = -1;
+			int b;
+			while ((b = nextByte()) != -1) {
+				recent[(int) (bitPos >>> 3) & 7] = (byte) b;
+				if (blockStart != -1)
+					appendToBlock((byte) b);
+				for (int i = 7; i >= 0; i--) {
+					window = ((window << 1) | ((b >>> i) & 1)) & MAGIC_MASK;
+					bitPos++;
+					if (bitPos < 48 || (window != BLOCK_MAGIC && window != EOS_MAGIC))
+						continue;
+					long magicStart = bitPos - 48;
+					if (blockStart != -1)
+						submitBlock(magicStart, level, window == EOS_MAGIC);
+					if (window == EOS_MAGIC) {
+						// skip combined checksum and padding
+						long end = (bitPos + 32 + 7) >>> 3;
+						for (long p = (bitPos + 7) >>> 3; p < end; p++)
+							if (nextByte() == -1)
+								throw new IOException("Unexpected end of bz2 stream.");
+						return;
+					}
+					startBlock(magicStart, (bitPos - 1) >>> 3);
+				}
+			}
+			throw new IOException("Unexpected end of bz2 stream.");
+		}
+
+		/** Starts a block with the bytes from the magic up to the current byte. */
+		private void startBlock(long magicStart, long currentByte) {
+			blockStart = magicStart;
+			blockLength = 0;
+			for (long p = magicStart >>> 3; p <= currentByte; p++)
+				appendToBlock(recent[(int) p & 7]);
+		}
+
+		private void appendToBlock(byte b) {
+			if (blockLength == block.length)
+				block = Arrays.copyOf(block, blockLength * 2);
+			block[blockLength++] = b;
+		}
+
+		private void submitBlock(long end, int level, boolean lastInStream) throws InterruptedException {
+			long bitLength = end - blockStart;
+			int bitOffset = (int) (blockStart & 7);
+			byte[] data = Arrays.copyOf(block, (int) ((bitOffset + bitLength + 7) >>> 3));
+			submit(new Chunk(level, lastInStream, new byte[][] { data }, new int[] { bitOffset },
+					new long[] { bitLength }));
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// helper classes
+
+	private static class Task {
+		final Chunk chunk;
+		final Future<byte[]> result;
+		final IOException failure;
+
+		Task(Chunk chunk, Future<byte[]> result) {
+			this(chunk, result, null);
+		}
+
+		Task(Chunk chunk, Future<byte[]> result, IOException failure) {
+			this.chunk = chunk;
+			this.result = result;
+			this.failure = failure;
+		}
+	}
+
+	/**
+	 * Compressed data of one block, consisting of one or more parts. Each
+	 * part is a bit sequence within a byte array.
+	 */
+	private static class Chunk {
+		final int level;
+		final boolean lastInStream;
+		final byte[][] parts;
+		final int[] bitOffsets;
+		final long[] bitLengths;
+
+		Chunk(int level, boolean lastInStream, byte[][] parts, int[] bitOffsets, long[] bitLengths) {
+			this.level = level;
+			this.lastInStream = lastInStream;
+			this.parts = parts;
+			this.bitOffsets = bitOffsets;
+			this.bitLengths = bitLengths;
+		}
+
+		Chunk append(Chunk next) {
+			int n = parts.length;
+			byte[][] newParts = Arrays.copyOf(parts, n + 1);
+			int[] newOffsets = Arrays.copyOf(bitOffsets, n + 1);
+			long[] newLengths = Arrays.copyOf(bitLengths, n + 1);
+			newParts[n] = next.parts[0];
+			newOffsets[n] = next.bitOffsets[0];
+			newLengths[n] = next.bitLengths[0];
+			return new Chunk(level, next.lastInStream, newParts, newOffsets, newLengths);
+		}
+
+		/** Creates a complete bz2 stream containing only this block. */
+		byte[] toStream() throws IOException {
+			long bits = 0;
+			for (long length : bitLengths)
+				bits += length;
+			// a false magic number can even cut the block checksum
+			if (bits < 48 + 32)
+				throw new IOException("Incomplete bz2 block.");
+			BitWriter writer = new BitWriter(4 + (int) ((bits + 48 + 32 + 7) >>> 3));
+			writer.write('B', 8);
+			writer.write('Z', 8);
+			writer.write('h', 8);
+			writer.write('0' + level, 8);
+			for (int i = 0; i < parts.length; i++)
+				writer.copy(parts[i], bitOffsets[i], bitLengths[i]);
+			writer.write(EOS_MAGIC, 48);
+			// the combined checksum of a single block stream is the block checksum
+			writer.write(readBits(48, 32), 32);
+			return writer.data;
+		}
+
+		/** Reads bits of the block, counting from the start of its magic number. */
+		private long readBits(long pos, int count) {
+			long result = 0;
+			int part = 0;
+			for (int i = 0; i < count; i++, pos++) {
+				while (pos >= bitLengths[part]) {
+					pos -= bitLengths[part];
+					part++;
+				}
+				long p = bitOffsets[part] + pos;
+				result = (result << 1) | ((parts[part][(int) (p >>> 3)] >>> (7 - (p & 7))) & 1);
+			}
+			return result;
+		}
+	}
+
+	/** Writes bit sequences into a byte array, most significant bit first. */
+	private static class BitWriter {
+		final byte[] data;
+		long pos;
+
+		BitWriter(int size) {
+			data = new byte[size];
+		}
+
+		void write(long value, int count) {
+			for (int i = count - 1; i >= 0; i--, pos++)
+				if (((value >>> i) & 1) != 0)
+					data[(int) (pos >>> 3)] |= 0x80 >>> (pos & 7);
+		}
+
+		void copy(byte[] src, int srcOffset, long count) {
+			long i = 0;
+			if ((pos & 7) == 0) {
+				// byte-wise copy with shift
+				int dst = (int) (pos >>> 3);
+				int shift = srcOffset;
+				for (; i + 8 <= count; i += 8) {
+					int idx = (int) ((srcOffset + i) >>> 3);
+					int value = (src[idx] & 0xFF) << shift;
+					if (shift > 0)
+						value |= (src[idx + 1] & 0xFF) >>> (8 - shift);
+					data[dst++] = (byte) value;
+				}
+				pos += i;
+			}
+			for (; i < count; i++, pos++) {
+				long s = srcOffset + i;
+				if (((src[(int) (s >>> 3)] >>> (7 - (s & 7))) & 1) != 0)
+					data[(int) (pos >>> 3)] |= 0x80 >>> (pos & 7);
+			}
+		}
+	}
+}
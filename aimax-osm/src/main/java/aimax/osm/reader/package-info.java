@@ -10,5 +10,10 @@
  * almost unchanged. Some refactoring was done to reduce the number of
  * classes needed and to improve speed by focusing on the relevant
  * data.
+ * <p>By default, reading (including bz2 decompression), XML tokenizing, and
+ * map building run on separate threads (see <code>OsmImportPipeline</code>
+ * and <code>ParallelBz2InputStream</code>).
+ * <p>Maps which are loaded frequently can be cached in a binary format
+ * (see <code>BinaryMapReader</code>).
  */
 package aimax.osm.reader;
\ No newline at end of file
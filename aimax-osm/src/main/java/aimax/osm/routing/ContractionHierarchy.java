@@ -0,0 +1,631 @@
+package aimax.osm.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
+
+import aimax.osm.data.MapWayFilter;
+import aimax.osm.data.OsmMap;
+import aimax.osm.data.Position;
+import aimax.osm.data.entities.MapNode;
+import aimax.osm.routing.OsmFunctions.OneWayMode;
+
+/**
+ * Contraction hierarchy over a {@link RoadGraph}. During
+ * preprocessing, the way nodes are contracted one after another in order of
+ * importance: a node is removed from the graph and shortcut edges are added
+ * between its remaining neighbors wherever the node lies on the only shortest
+ * path between them. Afterwards, shortest paths can be found by a
+ * bidirectional Dijkstra search which only follows edges leading to more
+ * important nodes. Such a search settles a few hundred nodes even on large
+ * maps, so that routing queries take milliseconds instead of seconds.
+ * <p>
+ * The hierarchy depends on the way filter and the one-way handling and must be
+ * rebuilt when the map changes. Queries are thread-safe.
+ * </p>
+ */
+public class ContractionHierarchy {
+	/** Maximal number of nodes settled by a witness search during contraction. */
+	private static final int WITNESS_SETTLE_LIMIT = 500;
+	/** Maximal number of nodes settled by a witness search for priority estimation. */
+	private static final int ESTIMATION_SETTLE_LIMIT = 50;
+
+	private final RoadGraph graph;
+
+	// all edges, original ones and shortcuts
+	private int edgeCount;
+	private int[] edgeFrom;
+	private int[] edgeTo;
+	private double[] edgeWeight;
+	/** First and second half of a shortcut, -1 for original edges. */
+	private int[] edgeChild1;
+	private int[] edgeChild2;
+
+	// edges leading to more important nodes (forward search)
+	private int[] upOffsets;
+	private int[] upEdges;
+	// edges coming from more important nodes, stored at their head (backward search)
+	private int[] downOffsets;
+	private int[] downEdges;
+
+	private final ConcurrentLinkedQueue<Query> queryPool = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Builds the hierarchy for all ways of the map which are accepted by the
+	 * filter. This is the expensive offline step.
+	 *
+	 * @param filter
+	 *            possibly null
+	 * @param ignoreOneways
+	 *            if true, all ways can be traveled in both directions
+	 */
+	public ContractionHierarchy(OsmMap map, MapWayFilter filter, boolean ignoreOneways) {
+		this(new RoadGraphBuilder(filter).build(map), ignoreOneways);
+	}
+
+	/**
+	 * Builds the hierarchy for a road graph. This is the expensive offline
+	 * step.
+	 *
+	 * @param ignoreOneways
+	 *            if true, all edges of the graph are used, otherwise only
+	 *            those which respect one-way restrictions.
+	 */
+	public ContractionHierarchy(RoadGraph graph, boolean ignoreOneways) {
+		this.graph = graph;
+		int capacity = Math.max(1024, graph.getEdgeCount());
+		edgeFrom = new int[capacity];
+		edgeTo = new int[capacity];
+		edgeWeight = new double[capacity];
+		edgeChild1 = new int[capacity];
+		edgeChild2 = new int[capacity];
+		OneWayMode mode = ignoreOneways ? OneWayMode.IGNORE : OneWayMode.TRAVEL_FORWARD;
+		for (int v = 0; v < graph.getNodeCount(); v++)
+			for (int e = graph.getFirstEdge(v); e < graph.getFirstEdge(v + 1); e++)
+				if (graph.isTraversable(e, mode))
+					addEdge(v, graph.getTarget(e), graph.getLength(e), -1, -1);
+		contract();
+	}
+
+	/** Returns the graph on which the hierarchy is based. */
+	public RoadGraph getGraph() {
+		return graph;
+	}
+
+	/** Returns the number of way nodes in the graph. */
+	public int getNodeCount() {
+		return graph.getNodeCount();
+	}
+
+	/** Returns the number of edges including shortcuts. */
+	public int getEdgeCount() {
+		return edgeCount;
+	}
+
+	/**
+	 * Computes a shortest path between two way nodes.
+	 *
+	 * @return The positions of the path nodes including start and end, or null
+	 *         if the nodes are not connected within the graph.
+	 */
+	public List<Position> findRoute(MapNode from, MapNode to) {
+		int[] path = findPath(graph.getNodeIndex(from), graph.getNodeIndex(to));
+		if (path == null)
+			return null;
+		List<Position> result = new ArrayList<>(path.length);
+		for (int node : path)
+			result.add(graph.getPosition(node));
+		return result;
+	}
+
+	/**
+	 * Computes a shortest path between two nodes of the graph.
+	 *
+	 * @return The indices of the path nodes including start and end, or null
+	 *         if one of the indices is -1 or the nodes are not connected.
+	 */
+	public int[] findPath(int from, int to) {
+		if (from == -1 || to == -1)
+			return null;
+		if (from == to)
+			return new int[] { from };
+		Query query = acquireQuery();
+		try {
+			List<Integer> edges = query.run(from, to);
+			if (edges == null)
+				return null;
+			IntList result = new IntList();
+			result.add(from);
+			for (int edge : edges)
+				unpack(edge, result);
+			return Arrays.copyOf(result.values, result.size);
+		} finally {
+			queryPool.add(query);
+		}
+	}
+
+	/**
+	 * Computes the length of a shortest path between two way nodes in KM.
+	 *
+	 * @return The distance or {@link Double#POSITIVE_INFINITY} if the nodes are
+	 *         not connected.
+	 */
+	public double getDistance(MapNode from, MapNode to) {
+		int s = graph.getNodeIndex(from);
+		int t = graph.getNodeIndex(to);
+		if (s == -1 || t == -1)
+			return Double.POSITIVE_INFINITY;
+		if (s == t)
+			return 0;
+		Query query = acquireQuery();
+		try {
+			query.run(s, t);
+			return query.best;
+		} finally {
+			queryPool.add(query);
+		}
+	}
+
+	/**
+	 * Computes the lengths of shortest paths from each source to each target
+	 * by a bucket-based many-to-many search: an upward search from each target
+	 * leaves its distances in buckets at the reached nodes, and an upward
+	 * search from each source scans the buckets of the nodes it reaches. This
+	 * needs one search per source and per target instead of one per pair.
+	 * Searches run in parallel.
+	 *
+	 * @return A matrix with one row per source. Entries are given in KM,
+	 *         {@link Double#POSITIVE_INFINITY} if the nodes are not connected
+	 *         or one of the indices is -1.
+	 */
+	public double[][] getDistances(int[] sources, int[] targets) {
+		int n = graph.getNodeCount();
+		int[][] reachedNodes = new int[targets.length][];
+		double[][] reachedDists = new double[targets.length][];
+		IntStream.range(0, targets.length).parallel().forEach(j -> {
+			reachedNodes[j] = new int[0];
+			reachedDists[j] = new double[0];
+			if (targets[j] != -1) {
+				Query query = acquireQuery();
+				try {
+					query.runUpward(targets[j], false);
+					reachedNodes[j] = Arrays.copyOf(query.touched.values, query.touched.size);
+					reachedDists[j] = new double[reachedNodes[j].length];
+					for (int i = 0; i < reachedNodes[j].length; i++)
+						reachedDists[j][i] = query.distB[reachedNodes[j][i]];
+				} finally {
+					queryPool.add(query);
+				}
+			}
+		});
+		// buckets in compressed row format, ordered by node
+		int[] bucketOffsets = new int[n + 1];
+		for (int[] nodes : reachedNodes)
+			for (int v : nodes)
+				bucketOffsets[v + 1]++;
+		for (int v = 0; v < n; v++)
+			bucketOffsets[v + 1] += bucketOffsets[v];
+		int[] bucketTargets = new int[bucketOffsets[n]];
+		double[] bucketDists = new double[bucketOffsets[n]];
+		int[] pos = Arrays.copyOf(bucketOffsets, n);
+		for (int j = 0; j < targets.length; j++) {
+			for (int i = 0; i < reachedNodes[j].length; i++) {
+				int v = reachedNodes[j][i];
+				bucketTargets[pos[v]] = j;
+				bucketDists[pos[v]++] = reachedDists[j][i];
+			}
+		}
+		double[][] result = new double[sources.length][targets.length];
+		IntStream.range(0, sources.length).parallel().forEach(i -> {
+			double[] row = result[i];
+			Arrays.fill(row, Double.POSITIVE_INFINITY);
+			if (sources[i] != -1) {
+				Query query = acquireQuery();
+				try {
+					query.runUpward(sources[i], true);
+					for (int k = 0; k < query.touched.size; k++) {
+						int v = query.touched.values[k];
+						for (int b = bucketOffsets[v]; b < bucketOffsets[v + 1]; b++) {
+							double d = query.distF[v] + bucketDists[b];
+							if (d < row[bucketTargets[b]])
+								row[bucketTargets[b]] = d;
+						}
+					}
+				} finally {
+					queryPool.add(query);
+				}
+			}
+		});
+		return result;
+	}
+
+	private Query acquireQuery() {
+		Query query = queryPool.poll();
+		return query != null ? query : new Query();
+	}
+
+	private int addEdge(int from, int to, double weight, int child1, int child2) {
+		if (edgeCount == edgeFrom.length) {
+			int capacity = edgeCount * 2;
+			edgeFrom = Arrays.copyOf(edgeFrom, capacity);
+			edgeTo = Arrays.copyOf(edgeTo, capacity);
+			edgeWeight = Arrays.copyOf(edgeWeight, capacity);
+			edgeChild1 = Arrays.copyOf(edgeChild1, capacity);
+			edgeChild2 = Arrays.copyOf(edgeChild2, capacity);
+		}
+		edgeFrom[edgeCount] = from;
+		edgeTo[edgeCount] = to;
+		edgeWeight[edgeCount] = weight;
+		edgeChild1[edgeCount] = child1;
+		edgeChild2[edgeCount] = child2;
+		return edgeCount++;
+	}
+
+	/** Appends the nodes of an edge without its tail to the list. */
+	private void unpack(int edge, IntList result) {
+		IntList stack = new IntList();
+		stack.add(edge);
+		while (stack.size > 0) {
+			int e = stack.values[--stack.size];
+			if (edgeChild1[e] == -1) {
+				result.add(edgeTo[e]);
+			} else {
+				stack.add(edgeChild2[e]);
+				stack.add(edgeChild1[e]);
+			}
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// preprocessing
+
+	/**
+	 * Contracts all nodes in the order given by a lazily updated priority
+	 * (edge difference plus number of contracted neighbors) and creates the
+	 * search graphs.
+	 */
+	private void contract() {
+		int n = graph.getNodeCount();
+		IntList[] out = new IntList[n];
+		IntList[] in = new IntList[n];
+		for (int v = 0; v < n; v++) {
+			out[v] = new IntList();
+			in[v] = new IntList();
+		}
+		for (int e = 0; e < edgeCount; e++) {
+			out[edgeFrom[e]].add(e);
+			in[edgeTo[e]].add(e);
+		}
+		boolean[] contracted = new boolean[n];
+		int[] contractedNeighbors = new int[n];
+		int[] rank = new int[n];
+		WitnessSearch witness = new WitnessSearch(n);
+		List<int[]> shortcuts = new ArrayList<>();
+
+		MinHeap queue = new MinHeap(n);
+		for (int v = 0; v < n; v++)
+			queue.insertOrDecrease(v, getPriority(v, out, in, contracted, contractedNeighbors, witness, null));
+
+		int nextRank = 0;
+		while (!queue.isEmpty()) {
+			int v = queue.removeMin();
+			shortcuts.clear();
+			double priority = getPriority(v, out, in, contracted, contractedNeighbors, witness, shortcuts);
+			if (!queue.isEmpty() && priority > queue.minKey()) {
+				queue.insertOrDecrease(v, priority); // lazy update
+				continue;
+			}
+			for (int[] shortcut : shortcuts)
+				addShortcut(shortcut[0], shortcut[1], out, in);
+			contracted[v] = true;
+			rank[v] = nextRank++;
+			// remove the node from the remaining graph
+			for (int i = 0; i < out[v].size; i++) {
+				int e = out[v].values[i];
+				in[edgeTo[e]].remove(e);
+				contractedNeighbors[edgeTo[e]]++;
+			}
+			for (int i = 0; i < in[v].size; i++) {
+				int e = in[v].values[i];
+				out[edgeFrom[e]].remove(e);
+				contractedNeighbors[edgeFrom[e]]++;
+			}
+		}
+		createSearchGraphs(rank);
+	}
+
+	/**
+	 * Adds a shortcut for the path consisting of the two edges. An edge with
+	 * the same end points which is longer than the shortcut is replaced.
+	 */
+	private void addShortcut(int e1, int e2, IntList[] out, IntList[] in) {
+		int u = edgeFrom[e1];
+		int w = edgeTo[e2];
+		double weight = edgeWeight[e1] + edgeWeight[e2];
+		for (int i = 0; i < out[u].size; i++) {
+			int e = out[u].values[i];
+			if (edgeTo[e] == w) {
+				if (edgeWeight[e] <= weight)
+					return;
+				out[u].remove(e);
+				in[w].remove(e);
+				break;
+			}
+		}
+		int e = addEdge(u, w, weight, e1, e2);
+		out[u].add(e);
+		in[w].add(e);
+	}
+
+	/**
+	 * Simulates the contraction of a node.
+	 *
+	 * @param shortcuts
+	 *            if not null, the pairs of edges (in, out) which need a
+	 *            shortcut are added to this list.
+	 */
+	private double getPriority(int v, IntList[] out, IntList[] in, boolean[] contracted, int[] contractedNeighbors,
+			WitnessSearch witness, List<int[]> shortcuts) {
+		int shortcutCount = 0;
+		int removedCount = 0;
+		double maxOut = 0;
+		for (int j = 0; j < out[v].size; j++) {
+			int e2 = out[v].values[j];
+			if (!contracted[edgeTo[e2]]) {
+				removedCount++;
+				maxOut = Math.max(maxOut, edgeWeight[e2]);
+			}
+		}
+		for (int i = 0; i < in[v].size; i++) {
+			int e1 = in[v].values[i];
+			int u = edgeFrom[e1];
+			if (contracted[u])
+				continue;
+			removedCount++;
+			witness.run(u, v, edgeWeight[e1] + maxOut, out, contracted,
+					shortcuts != null ? WITNESS_SETTLE_LIMIT : ESTIMATION_SETTLE_LIMIT);
+			for (int j = 0; j < out[v].size; j++) {
+				int e2 = out[v].values[j];
+				int w = edgeTo[e2];
+				if (contracted[w] || w == u)
+					continue;
+				if (witness.getDistance(w) > edgeWeight[e1] + edgeWeight[e2]) {
+					shortcutCount++;
+					if (shortcuts != null)
+						shortcuts.add(new int[] { e1, e2 });
+				}
+			}
+		}
+		return shortcutCount - removedCount + contractedNeighbors[v];
+	}
+
+	/** Stores the edges in compressed row format, ordered by node. */
+	private void createSearchGraphs(int[] rank) {
+		int n = graph.getNodeCount();
+		upOffsets = new int[n + 1];
+		downOffsets = new int[n + 1];
+		for (int e = 0; e < edgeCount; e++) {
+			if (rank[edgeFrom[e]] < rank[edgeTo[e]])
+				upOffsets[edgeFrom[e] + 1]++;
+			else
+				downOffsets[edgeTo[e] + 1]++;
+		}
+		for (int v = 0; v < n; v++) {
+			upOffsets[v + 1] += upOffsets[v];
+			downOffsets[v + 1] += downOffsets[v];
+		}
+		upEdges = new int[upOffsets[n]];
+		downEdges = new int[downOffsets[n]];
+		int[] upPos = Arrays.copyOf(upOffsets, n);
+		int[] downPos = Arrays.copyOf(downOffsets, n);
+		for (int e = 0; e < edgeCount; e++) {
+			if (rank[edgeFrom[e]] < rank[edgeTo[e]])
+				upEdges[upPos[edgeFrom[e]]++] = e;
+			else
+				downEdges[downPos[edgeTo[e]]++] = e;
+		}
+	}
+
+	/** Bounded Dijkstra search which ignores the node to be contracted. */
+	private class WitnessSearch {
+		private final double[] dist;
+		private final MinHeap heap;
+		private final IntList touched = new IntList();
+
+		WitnessSearch(int n) {
+			dist = new double[n];
+			Arrays.fill(dist, Double.POSITIVE_INFINITY);
+			heap = new MinHeap(n);
+		}
+
+		void run(int source, int ignored, double maxDist, IntList[] out, boolean[] contracted, int settleLimit) {
+			for (int i = 0; i < touched.size; i++)
+				dist[touched.values[i]] = Double.POSITIVE_INFINITY;
+			touched.size = 0;
+			heap.clear();
+			dist[source] = 0;
+			touched.add(source);
+			heap.insertOrDecrease(source, 0);
+			int settled = 0;
+			while (!heap.isEmpty() && heap.minKey() <= maxDist && settled++ < settleLimit) {
+				int u = heap.removeMin();
+				for (int i = 0; i < out[u].size; i++) {
+					int e = out[u].values[i];
+					int w = edgeTo[e];
+					if (w == ignored || contracted[w])
+						continue;
+					double d = dist[u] + edgeWeight[e];
+					if (d < dist[w]) {
+						if (dist[w] == Double.POSITIVE_INFINITY)
+							touched.add(w);
+						dist[w] = d;
+						heap.insertOrDecrease(w, d);
+					}
+				}
+			}
+		}
+
+		double getDistance(int node) {
+			return dist[node];
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// query
+
+	/** Bidirectional upward search. Instances are reused but not shared. */
+	private class Query {
+		private final double[] distF;
+		private final double[] distB;
+		private final int[] edgeF;
+		private final int[] edgeB;
+		private final MinHeap heapF;
+		private final MinHeap heapB;
+		private final IntList touched = new IntList();
+		private double best;
+		private int meetingNode;
+
+		Query() {
+			int n = graph.getNodeCount();
+			distF = new double[n];
+			distB = new double[n];
+			Arrays.fill(distF, Double.POSITIVE_INFINITY);
+			Arrays.fill(distB, Double.POSITIVE_INFINITY);
+			edgeF = new int[n];
+			edgeB = new int[n];
+			heapF = new MinHeap(n);
+			heapB = new MinHeap(n);
+		}
+
+		/** Returns the edges of the shortest path in hierarchy form or null. */
+		List<Integer> run(int s, int t) {
+			for (int i = 0; i < touched.size; i++) {
+				distF[touched.values[i]] = Double.POSITIVE_INFINITY;
+				distB[touched.values[i]] = Double.POSITIVE_INFINITY;
+			}
+			touched.size = 0;
+			heapF.clear();
+			heapB.clear();
+			best = Double.POSITIVE_INFINITY;
+			meetingNode = -1;
+			distF[s] = 0;
+			edgeF[s] = -1;
+			heapF.insertOrDecrease(s, 0);
+			distB[t] = 0;
+			edgeB[t] = -1;
+			heapB.insertOrDecrease(t, 0);
+			touched.add(s);
+			touched.add(t);
+			boolean forward = true;
+			while (true) {
+				boolean fActive = !heapF.isEmpty() && heapF.minKey() < best;
+				boolean bActive = !heapB.isEmpty() && heapB.minKey() < best;
+				if (!fActive && !bActive)
+					break;
+				if (forward ? fActive : !bActive)
+					expand(heapF, distF, edgeF, distB, upOffsets, upEdges, edgeTo);
+				else
+					expand(heapB, distB, edgeB, distF, downOffsets, downEdges, edgeFrom);
+				forward = !forward;
+			}
+			if (meetingNode == -1)
+				return null;
+			List<Integer> result = new ArrayList<>();
+			for (int v = meetingNode; edgeF[v] != -1; v = edgeFrom[edgeF[v]])
+				result.add(edgeF[v]);
+			Collections.reverse(result);
+			for (int v = meetingNode; edgeB[v] != -1; v = edgeTo[edgeB[v]])
+				result.add(edgeB[v]);
+			return result;
+		}
+
+		/**
+		 * Runs a complete upward search (forward) or downward search in
+		 * reverse direction (backward) from the node. Afterwards, the reached
+		 * nodes are stored in <code>touched</code>, and their distances in
+		 * <code>distF</code> or <code>distB</code>.
+		 */
+		void runUpward(int source, boolean forward) {
+			for (int i = 0; i < touched.size; i++) {
+				distF[touched.values[i]] = Double.POSITIVE_INFINITY;
+				distB[touched.values[i]] = Double.POSITIVE_INFINITY;
+			}
+			touched.size = 0;
+			MinHeap heap = forward ? heapF : heapB;
+			double[] dist = forward ? distF : distB;
+			int[] offsets = forward ? upOffsets : downOffsets;
+			int[] edges = forward ? upEdges : downEdges;
+			int[] heads = forward ? edgeTo : edgeFrom;
+			heap.clear();
+			dist[source] = 0;
+			heap.insertOrDecrease(source, 0);
+			touched.add(source);
+			while (!heap.isEmpty()) {
+				int u = heap.removeMin();
+				for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+					int e = edges[i];
+					int w = heads[e];
+					double d = dist[u] + edgeWeight[e];
+					if (d < dist[w]) {
+						if (dist[w] == Double.POSITIVE_INFINITY)
+							touched.add(w);
+						dist[w] = d;
+						heap.insertOrDecrease(w, d);
+					}
+				}
+			}
+		}
+
+		private void expand(MinHeap heap, double[] dist, int[] parentEdges, double[] otherDist, int[] offsets,
+				int[] edges, int[] heads) {
+			int u = heap.removeMin();
+			if (dist[u] + otherDist[u] < best) {
+				best = dist[u] + otherDist[u];
+				meetingNode = u;
+			}
+			for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+				int e = edges[i];
+				int w = heads[e];
+				double d = dist[u] + edgeWeight[e];
+				if (d < dist[w]) {
+					if (distF[w] == Double.POSITIVE_INFINITY && distB[w] == Double.POSITIVE_INFINITY)
+						touched.add(w);
+					dist[w] = d;
+					parentEdges[w] = e;
+					heap.insertOrDecrease(w, d);
+					if (d + otherDist[w] < best) {
+						best = d + otherDist[w];
+						meetingNode = w;
+					}
+				}
+			}
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// some helper classes
+
+	/** Growable array of primitive integers. */
+	private static class IntList {
+		int[] values = new int[4];
+		int size;
+
+		void add(int value) {
+			if (size == values.length)
+				values = Arrays.copyOf(values, size * 2);
+			values[size++] = value;
+		}
+
+		void remove(int value) {
+			for (int i = 0; i < size; i++) {
+				if (values[i] == value) {
+					values[i] = values[--size];
+					return;
+				}
+			}
+		}
+	}
+}
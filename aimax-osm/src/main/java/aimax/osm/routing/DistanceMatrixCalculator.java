@@ -0,0 +1,150 @@
+package aimax.osm.routing;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
+
+import aimax.osm.data.entities.MapNode;
+import aimax.osm.routing.OsmFunctions.OneWayMode;
+
+/**
+ * Computes the lengths of shortest paths between all pairs of origins and
+ * destinations. Without preprocessing, each row of the matrix is computed by
+ * one Dijkstra search on a {@link RoadGraph}, which starts at the origin and
+ * stops as soon as all destinations are settled. If a
+ * {@link ContractionHierarchy} is provided, its bucket-based many-to-many
+ * search is used instead. In both cases, rows are computed in parallel.
+ */
+public class DistanceMatrixCalculator {
+	private final RoadGraph graph;
+	private final OneWayMode oneWayMode;
+	/** Possibly null. */
+	private final ContractionHierarchy hierarchy;
+	private final ConcurrentLinkedQueue<Search> searchPool = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Creates a calculator which searches the road graph directly.
+	 *
+	 * @param ignoreOneways
+	 *            if true, all edges of the graph are used, otherwise only
+	 *            those which respect one-way restrictions.
+	 */
+	public DistanceMatrixCalculator(RoadGraph graph, boolean ignoreOneways) {
+		this.graph = graph;
+		this.oneWayMode = ignoreOneways ? OneWayMode.IGNORE : OneWayMode.TRAVEL_FORWARD;
+		this.hierarchy = null;
+	}
+
+	/** Creates a calculator which uses the hierarchy for all queries. */
+	public DistanceMatrixCalculator(ContractionHierarchy hierarchy) {
+		this.graph = hierarchy.getGraph();
+		this.oneWayMode = null;
+		this.hierarchy = hierarchy;
+	}
+
+	public RoadGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Computes the lengths of shortest paths between way nodes.
+	 *
+	 * @return A matrix with one row per origin and one column per destination.
+	 *         Entries are given in KM, {@link Double#POSITIVE_INFINITY} if the
+	 *         nodes are not connected or not part of the graph.
+	 */
+	public double[][] calculateDistances(List<MapNode> origins, List<MapNode> destinations) {
+		return calculateDistances(getNodeIndices(origins), getNodeIndices(destinations));
+	}
+
+	/**
+	 * Computes the lengths of shortest paths between nodes of the graph.
+	 *
+	 * @return A matrix with one row per source and one column per target.
+	 *         Entries are given in KM, {@link Double#POSITIVE_INFINITY} if the
+	 *         nodes are not connected or one of the indices is -1.
+	 */
+	public double[][] calculateDistances(int[] sources, int[] targets) {
+		if (hierarchy != null)
+			return hierarchy.getDistances(sources, targets);
+		boolean[] isTarget = new boolean[graph.getNodeCount()];
+		int targetCount = 0;
+		for (int t : targets) {
+			if (t != -1 && !isTarget[t]) {
+				isTarget[t] = true;
+				targetCount++;
+			}
+		}
+		final int distinctTargets = targetCount;
+		double[][] result = new double[sources.length][];
+		IntStream.range(0, sources.length).parallel().forEach(i -> {
+			Search search = searchPool.poll();
+			if (search == null)
+				search = new Search();
+			try {
+				result[i] = search.run(sources[i], targets, isTarget, distinctTargets);
+			} finally {
+				searchPool.add(search);
+			}
+		});
+		return result;
+	}
+
+	private int[] getNodeIndices(List<MapNode> nodes) {
+		int[] result = new int[nodes.size()];
+		for (int i = 0; i < result.length; i++)
+			result[i] = nodes.get(i) != null ? graph.getNodeIndex(nodes.get(i)) : -1;
+		return result;
+	}
+
+	/** One-to-many Dijkstra search. Instances are reused but not shared. */
+	private class Search {
+		private final double[] dist;
+		private final MinHeap heap;
+		/** Nodes with finite distance. */
+		private final int[] touched;
+		private int touchedCount;
+
+		Search() {
+			int n = graph.getNodeCount();
+			dist = new double[n];
+			Arrays.fill(dist, Double.POSITIVE_INFINITY);
+			heap = new MinHeap(n);
+			touched = new int[n];
+		}
+
+		double[] run(int source, int[] targets, boolean[] isTarget, int targetCount) {
+			for (int i = 0; i < touchedCount; i++)
+				dist[touched[i]] = Double.POSITIVE_INFINITY;
+			touchedCount = 0;
+			heap.clear();
+			if (source != -1) {
+				dist[source] = 0;
+				touched[touchedCount++] = source;
+				heap.insertOrDecrease(source, 0);
+			}
+			while (targetCount > 0 && !heap.isEmpty()) {
+				int u = heap.removeMin();
+				if (isTarget[u])
+					targetCount--;
+				for (int e = graph.getFirstEdge(u); e < graph.getFirstEdge(u + 1); e++) {
+					if (!graph.isTraversable(e, oneWayMode))
+						continue;
+					int w = graph.getTarget(e);
+					double d = dist[u] + graph.getLength(e);
+					if (d < dist[w]) {
+						if (dist[w] == Double.POSITIVE_INFINITY)
+							touched[touchedCount++] = w;
+						dist[w] = d;
+						heap.insertOrDecrease(w, d);
+					}
+				}
+			}
+			double[] result = new double[targets.length];
+			for (int j = 0; j < targets.length; j++)
+				result[j] = targets[j] != -1 ? dist[targets[j]] : Double.POSITIVE_INFINITY;
+			return result;
+		}
+	}
+}
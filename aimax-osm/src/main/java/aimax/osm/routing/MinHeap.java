@@ -0,0 +1,84 @@
+package aimax.osm.routing;
+
+import java.util.Arrays;
+
+/** Binary heap of node indices with decrease-key support. */
+class MinHeap {
+	private final int[] heap;
+	private final double[] keys;
+	/** Position of each node in the heap, -1 if not contained. */
+	private final int[] positions;
+	private int size;
+
+	MinHeap(int n) {
+		heap = new int[n];
+		keys = new double[n];
+		positions = new int[n];
+		Arrays.fill(positions, -1);
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	double minKey() {
+		return keys[heap[0]];
+	}
+
+	void clear() {
+		for (int i = 0; i < size; i++)
+			positions[heap[i]] = -1;
+		size = 0;
+	}
+
+	void insertOrDecrease(int node, double key) {
+		int pos = positions[node];
+		if (pos == -1) {
+			pos = size++;
+		} else if (key > keys[node]) {
+			keys[node] = key;
+			siftDown(pos, node);
+			return;
+		}
+		keys[node] = key;
+		siftUp(pos, node);
+	}
+
+	int removeMin() {
+		int result = heap[0];
+		positions[result] = -1;
+		int last = heap[--size];
+		if (size > 0)
+			siftDown(0, last);
+		return result;
+	}
+
+	private void siftUp(int pos, int node) {
+		while (pos > 0) {
+			int parent = (pos - 1) >>> 1;
+			if (keys[heap[parent]] <= keys[node])
+				break;
+			heap[pos] = heap[parent];
+			positions[heap[pos]] = pos;
+			pos = parent;
+		}
+		heap[pos] = node;
+		positions[node] = pos;
+	}
+
+	private void siftDown(int pos, int node) {
+		int half = size >>> 1;
+		while (pos < half) {
+			int child = 2 * pos + 1;
+			if (child + 1 < size && keys[heap[child + 1]] < keys[heap[child]])
+				child++;
+			if (keys[node] <= keys[heap[child]])
+				break;
+			heap[pos] = heap[child];
+			positions[heap[pos]] = pos;
+			pos = child;
+		}
+		heap[pos] = node;
+		positions[node] = pos;
+	}
+}
@@ -0,0 +1,200 @@
+package aimax.osm.routing;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import aimax.osm.data.Position;
+import aimax.osm.data.entities.MapNode;
+
+/**
+ * Compact, immutable representation of the routable part of a map. Nodes are
+ * identified by int indices which correspond to ascending OSM ids, positions
+ * are stored in primitive float arrays, and the directed edges of each node
+ * are stored in compressed sparse row format: the edges of node
+ * <code>v</code> have the indices <code>getFirstEdge(v)</code> to
+ * <code>getFirstEdge(v + 1) - 1</code>. Each way segment is represented by two
+ * edges, one for each direction. Edge lengths (in KM) are precomputed, and
+ * edges of one-way segments are flagged, so that the same graph serves
+ * searches which respect one-way restrictions and searches which ignore them.
+ * <p>
+ * In contrast to the entity objects of the map, the graph can be traversed
+ * without any allocation and needs 20 bytes per node and 18 bytes per way
+ * segment. Instances are created by {@link RoadGraphBuilder}.
+ * </p>
+ */
+public class RoadGraph {
+	/** Flag of an edge which follows the direction of a one-way segment. */
+	public static final byte ONEWAY_FORWARD = 1;
+	/** Flag of an edge which leads against the direction of a one-way segment. */
+	public static final byte ONEWAY_BACKWARD = 2;
+
+	private final long[] osmIds;
+	private final float[] lats;
+	private final float[] lons;
+	private final int[] offsets;
+	private final int[] targets;
+	private final float[] lengths;
+	private final byte[] flags;
+
+	/**
+	 * Creates a graph from its arrays, which are not copied.
+	 *
+	 * @param osmIds
+	 *            node ids in ascending order
+	 * @param offsets
+	 *            index of the first edge of each node, followed by the number
+	 *            of edges
+	 */
+	RoadGraph(long[] osmIds, float[] lats, float[] lons, int[] offsets, int[] targets, float[] lengths,
+			byte[] flags) {
+		this.osmIds = osmIds;
+		this.lats = lats;
+		this.lons = lons;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.lengths = lengths;
+		this.flags = flags;
+	}
+
+	public int getNodeCount() {
+		return osmIds.length;
+	}
+
+	public int getEdgeCount() {
+		return targets.length;
+	}
+
+	/**
+	 * Returns the index of the node with the given OSM id, or -1 if the node is
+	 * not part of the graph.
+	 */
+	public int getNodeIndex(long osmId) {
+		int idx = Arrays.binarySearch(osmIds, osmId);
+		return idx >= 0 ? idx : -1;
+	}
+
+	/**
+	 * Returns the index of the given map node, or -1 if the node is not part of
+	 * the graph.
+	 */
+	public int getNodeIndex(MapNode node) {
+		return getNodeIndex(node.getId());
+	}
+
+	public long getOsmId(int node) {
+		return osmIds[node];
+	}
+
+	public float getLat(int node) {
+		return lats[node];
+	}
+
+	public float getLon(int node) {
+		return lons[node];
+	}
+
+	public Position getPosition(int node) {
+		return new Position(lats[node], lons[node]);
+	}
+
+	/** Returns the straight-line distance between two nodes in KM. */
+	public double getDistKM(int node1, int node2) {
+		return Position.getDistKM(lats[node1], lons[node1], lats[node2], lons[node2]);
+	}
+
+	/**
+	 * Returns the index of the first edge leaving the given node. For
+	 * <code>node == getNodeCount()</code>, the number of edges is returned.
+	 */
+	public int getFirstEdge(int node) {
+		return offsets[node];
+	}
+
+	/** Returns the node to which the edge leads. */
+	public int getTarget(int edge) {
+		return targets[edge];
+	}
+
+	/** Returns the length of the edge in KM. */
+	public float getLength(int edge) {
+		return lengths[edge];
+	}
+
+	/**
+	 * Returns {@link #ONEWAY_FORWARD}, {@link #ONEWAY_BACKWARD}, or 0 if the
+	 * edge is part of a two-way segment.
+	 */
+	public byte getOnewayFlag(int edge) {
+		return flags[edge];
+	}
+
+	/**
+	 * Checks whether the edge can be used in the given mode. When traveling
+	 * backwards, the edge is used from its target to its source.
+	 */
+	public boolean isTraversable(int edge, OsmFunctions.OneWayMode mode) {
+		switch (mode) {
+		case TRAVEL_FORWARD:
+			return flags[edge] != ONEWAY_BACKWARD;
+		case TRAVEL_BACKWARDS:
+			return flags[edge] != ONEWAY_FORWARD;
+		default:
+			return true;
+		}
+	}
+
+	/**
+	 * Writes the arrays of the graph in binary form. The data can be read
+	 * back by {@link #read(ByteBuffer)}.
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(osmIds.length);
+		out.writeInt(targets.length);
+		for (long id : osmIds)
+			out.writeLong(id);
+		for (float lat : lats)
+			out.writeFloat(lat);
+		for (float lon : lons)
+			out.writeFloat(lon);
+		for (int offset : offsets)
+			out.writeInt(offset);
+		for (int target : targets)
+			out.writeInt(target);
+		for (float length : lengths)
+			out.writeFloat(length);
+		out.write(flags);
+	}
+
+	/**
+	 * Reads a graph written by {@link #write(DataOutput)}, starting at the
+	 * current position of the buffer. Bulk transfers make this fast, also for
+	 * memory-mapped files.
+	 */
+	public static RoadGraph read(ByteBuffer buffer) {
+		int nodeCount = buffer.getInt();
+		int edgeCount = buffer.getInt();
+		long[] osmIds = new long[nodeCount];
+		float[] lats = new float[nodeCount];
+		float[] lons = new float[nodeCount];
+		int[] offsets = new int[nodeCount + 1];
+		int[] targets = new int[edgeCount];
+		float[] lengths = new float[edgeCount];
+		byte[] flags = new byte[edgeCount];
+		buffer.asLongBuffer().get(osmIds);
+		buffer.position(buffer.position() + 8 * nodeCount);
+		buffer.asFloatBuffer().get(lats);
+		buffer.position(buffer.position() + 4 * nodeCount);
+		buffer.asFloatBuffer().get(lons);
+		buffer.position(buffer.position() + 4 * nodeCount);
+		buffer.asIntBuffer().get(offsets);
+		buffer.position(buffer.position() + 4 * (nodeCount + 1));
+		buffer.asIntBuffer().get(targets);
+		buffer.position(buffer.position() + 4 * edgeCount);
+		buffer.asFloatBuffer().get(lengths);
+		buffer.position(buffer.position() + 4 * edgeCount);
+		buffer.get(flags);
+		return new RoadGraph(osmIds, lats, lons, offsets, targets, lengths, flags);
+	}
+}
@@ -0,0 +1,122 @@
+package aimax.osm.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import aimax.osm.data.BoundingBox;
+import aimax.osm.data.MapWayFilter;
+import aimax.osm.data.OsmMap;
+import aimax.osm.data.Position;
+import aimax.osm.data.entities.MapNode;
+import aimax.osm.data.entities.MapWay;
+
+/**
+ * Compiles the ways of a map which are accepted by a way filter into a
+ * {@link RoadGraph}. Way nodes without position are skipped, and consecutive
+ * duplicates of a node within a way are ignored.
+ */
+public class RoadGraphBuilder {
+
+	private final MapWayFilter filter;
+
+	/**
+	 * @param filter
+	 *            possibly null, which means that all ways are routable.
+	 */
+	public RoadGraphBuilder(MapWayFilter filter) {
+		this.filter = filter;
+	}
+
+	public RoadGraph build(OsmMap map) {
+		List<MapWay> ways = new ArrayList<>();
+		HashMap<MapNode, Integer> nodeIndices = new HashMap<>();
+		List<MapNode> nodes = new ArrayList<>();
+		for (MapWay way : map.getWays(new BoundingBox(-90f, -180f, 90f, 180f))) {
+			if (filter != null && !filter.isAccepted(way))
+				continue;
+			ways.add(way);
+			for (MapNode node : way.getNodes()) {
+				if (node.hasPosition() && !nodeIndices.containsKey(node)) {
+					nodeIndices.put(node, -1);
+					nodes.add(node);
+				}
+			}
+		}
+		// node indices in ascending id order allow lookups by binary search
+		nodes.sort((n1, n2) -> Long.compare(n1.getId(), n2.getId()));
+		int n = nodes.size();
+		long[] osmIds = new long[n];
+		float[] lats = new float[n];
+		float[] lons = new float[n];
+		for (int i = 0; i < n; i++) {
+			MapNode node = nodes.get(i);
+			nodeIndices.put(node, i);
+			osmIds[i] = node.getId();
+			lats[i] = node.getLat();
+			lons[i] = node.getLon();
+		}
+
+		// collect segments and count the edges of each node
+		SegmentList segments = new SegmentList();
+		int[] offsets = new int[n + 1];
+		for (MapWay way : ways) {
+			boolean oneway = way.isOneway();
+			int prev = -1;
+			for (MapNode node : way.getNodes()) {
+				if (!node.hasPosition())
+					continue;
+				int curr = nodeIndices.get(node);
+				if (prev != -1 && prev != curr) {
+					segments.add(prev, curr, oneway);
+					offsets[prev + 1]++;
+					offsets[curr + 1]++;
+				}
+				prev = curr;
+			}
+		}
+		for (int i = 0; i < n; i++)
+			offsets[i + 1] += offsets[i];
+
+		int edgeCount = offsets[n];
+		int[] targets = new int[edgeCount];
+		float[] lengths = new float[edgeCount];
+		byte[] flags = new byte[edgeCount];
+		int[] pos = Arrays.copyOf(offsets, n);
+		for (int s = 0; s < segments.size; s++) {
+			int from = segments.from[s];
+			int to = segments.to[s];
+			float length = (float) Position.getDistKM(lats[from], lons[from], lats[to], lons[to]);
+			int e = pos[from]++;
+			targets[e] = to;
+			lengths[e] = length;
+			flags[e] = segments.oneway[s] ? RoadGraph.ONEWAY_FORWARD : 0;
+			e = pos[to]++;
+			targets[e] = from;
+			lengths[e] = length;
+			flags[e] = segments.oneway[s] ? RoadGraph.ONEWAY_BACKWARD : 0;
+		}
+		return new RoadGraph(osmIds, lats, lons, offsets, targets, lengths, flags);
+	}
+
+	/** Growable arrays of node index pairs. */
+	private static class SegmentList {
+		int[] from = new int[1024];
+		int[] to = new int[1024];
+		boolean[] oneway = new boolean[1024];
+		int size;
+
+		void add(int fromIdx, int toIdx, boolean isOneway) {
+			if (size == from.length) {
+				from = Arrays.copyOf(from, size * 2);
+				to = Arrays.copyOf(to, size * 2);
+				oneway = Arrays.copyOf(oneway, size * 2);
+			}
+			from[size] = fromIdx;
+			to[size] = toIdx;
+			oneway[size] = isOneway;
+			size++;
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package aimax.osm.routing;
+
+import aima.core.search.framework.problem.BidirectionalProblem;
+import aima.core.search.framework.problem.GeneralProblem;
+import aima.core.search.framework.problem.Problem;
+import aimax.osm.routing.OsmFunctions.OneWayMode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Implements a route finding problem on a {@link RoadGraph}. States are node
+ * indices and actions are edge indices of the graph, so that the search
+ * algorithms of aima-core can be applied without touching the entity objects
+ * of the map. Edge lengths (in kilometers) are used as cost values.
+ */
+public class RoadGraphProblem extends GeneralProblem<Integer, Integer>
+		implements BidirectionalProblem<Integer, Integer> {
+
+	private final Problem<Integer, Integer> reverseProblem;
+
+	/**
+	 * Creates a new route planning problem.
+	 *
+	 * @param from
+	 *            Index of the start node.
+	 * @param to
+	 *            Index of the goal node.
+	 */
+	public RoadGraphProblem(RoadGraph graph, int from, int to, boolean ignoreOneWays) {
+		super(from, createActionFunction(graph, ignoreOneWays ? OneWayMode.IGNORE : OneWayMode.TRAVEL_FORWARD),
+				(state, edge) -> graph.getTarget(edge), state -> state == to,
+				(state, edge, statePrimed) -> graph.getLength(edge));
+
+		reverseProblem = new GeneralProblem<>(to,
+				createActionFunction(graph, ignoreOneWays ? OneWayMode.IGNORE : OneWayMode.TRAVEL_BACKWARDS),
+				(state, edge) -> graph.getTarget(edge), state -> state == from,
+				(state, edge, statePrimed) -> graph.getLength(edge));
+	}
+
+	public Problem<Integer, Integer> getOriginalProblem() {
+		return this;
+	}
+
+	public Problem<Integer, Integer> getReverseProblem() {
+		return reverseProblem;
+	}
+
+	/** Returns a function which maps nodes to the edges usable in the given mode. */
+	public static Function<Integer, List<Integer>> createActionFunction(RoadGraph graph, OneWayMode mode) {
+		return state -> {
+			int first = graph.getFirstEdge(state);
+			int last = graph.getFirstEdge(state + 1);
+			List<Integer> result = new ArrayList<>(last - first);
+			for (int edge = first; edge < last; edge++)
+				if (graph.isTraversable(edge, mode))
+					result.add(edge);
+			return result;
+		};
+	}
+}
@@ -0,0 +1,27 @@
+package aimax.osm.routing;
+
+import aima.core.search.framework.Node;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Implements the straight-line-distance heuristic for {@link RoadGraphProblem}s.
+ */
+public class RoadGraphSldHeuristicFunction implements ToDoubleFunction<Node<Integer, Integer>> {
+	private final RoadGraph graph;
+	private final int goalState;
+
+	public RoadGraphSldHeuristicFunction(RoadGraph graph, int goalState) {
+		this.graph = graph;
+		this.goalState = goalState;
+	}
+
+	/**
+	 * Returns the straight-line-distance between the node of the state and the
+	 * goal node in KM.
+	 */
+	@Override
+	public double applyAsDouble(Node<Integer, Integer> node) {
+		return graph.getDistKM(node.getState(), goalState);
+	}
+}
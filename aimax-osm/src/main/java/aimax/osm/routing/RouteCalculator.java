@@ -6,6 +6,8 @@ import aima.core.search.framework.problem.Problem;
 import aima.core.search.framework.qsearch.GraphSearch;
 import aima.core.search.informed.AStarSearch;
 import aima.core.util.Tasks;
+import aimax.osm.data.MapEvent;
+import aimax.osm.data.MapEventListener;
 import aimax.osm.data.MapWayAttFilter;
 import aimax.osm.data.MapWayFilter;
 import aimax.osm.data.OsmMap;
@@ -13,18 +15,46 @@ import aimax.osm.data.Position;
 import aimax.osm.data.entities.MapNode;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.ToDoubleFunction;
 
 /**
  * Implements a search engine for shortest path calculations. Modified versions
  * can be implemented quite easily by overriding the various factory methods.
+ * By default, each partial route is computed by an A* search on the map. If
+ * contraction hierarchies are enabled, a hierarchy is built once per map and
+ * way selection, and all routes are computed by bidirectional hierarchy
+ * queries instead.
  * 
  * @author Ruediger Lunde
  */
 public class RouteCalculator {
 
+	private boolean useContractionHierarchies;
+	/** Map for which the hierarchies have been built. */
+	private OsmMap hierarchyMap;
+	/** Hierarchy for each task selection. */
+	private final Map<Integer, ContractionHierarchy> hierarchies = new HashMap<>();
+	private final MapEventListener hierarchyInvalidator = event -> {
+		if (event.getType() == MapEvent.Type.MAP_NEW || event.getType() == MapEvent.Type.MAP_CLEARED)
+			clearContractionHierarchies();
+	};
+
+	public boolean isUseContractionHierarchies() {
+		return useContractionHierarchies;
+	}
+
+	/**
+	 * Selects the routing engine. If true, routes are computed by contraction
+	 * hierarchy queries, otherwise by A* search.
+	 */
+	public void setUseContractionHierarchies(boolean b) {
+		useContractionHierarchies = b;
+	}
+
 	/** Returns the names of all supported way selection options. */
 	public String[] getTaskSelectionOptions() {
 		return new String[] { "Distance", "Distance (Car)", "Distance (Bike)" };
@@ -54,8 +84,18 @@ public class RouteCalculator {
 			boolean ignoreOneways = (taskSelection == 0);
 			List<MapNode[]> pNodeList = subdivideProblem(markers, map, wayFilter);
 			MapNode prevNode = null;
+			ContractionHierarchy hierarchy = useContractionHierarchies
+					? getContractionHierarchy(map, taskSelection) : null;
 			for (int i = 0; i < pNodeList.size()
 					&& !Tasks.currIsCancelled(); i++) {
+				if (hierarchy != null) {
+					List<Position> path = hierarchy.findRoute(pNodeList.get(i)[0], pNodeList.get(i)[1]);
+					if (path == null)
+						break;
+					// the first position duplicates the last one of the previous path
+					result.addAll(result.isEmpty() ? path : path.subList(1, path.size()));
+					continue;
+				}
 				Problem<MapNode, OsmMoveAction> problem = createProblem(pNodeList.get(i), map, wayFilter,
 						ignoreOneways, taskSelection);
 				ToDoubleFunction<Node<MapNode, OsmMoveAction>> h = createHeuristicFunction(pNodeList.get(i),
@@ -79,6 +119,68 @@ public class RouteCalculator {
 		return result;
 	}
 
+	/**
+	 * Computes the lengths of shortest routes from each origin to each
+	 * destination. Like in {@link #calculateRoute(List, OsmMap, int)}, the
+	 * markers are replaced by the nearest way nodes which comply with the way
+	 * selection. The searches share their work: a road graph search computes
+	 * a whole row at once, and with contraction hierarchies enabled, only one
+	 * search per origin and per destination is needed.
+	 *
+	 * @return A matrix with one row per origin and one column per destination.
+	 *         Entries are given in KM, {@link Double#POSITIVE_INFINITY} if no
+	 *         route exists.
+	 */
+	public double[][] calculateDistanceMatrix(List<MapNode> origins, List<MapNode> destinations, OsmMap map,
+			int taskSelection) {
+		MapWayFilter wayFilter = createMapWayFilter(map, taskSelection);
+		DistanceMatrixCalculator calculator = useContractionHierarchies
+				? new DistanceMatrixCalculator(getContractionHierarchy(map, taskSelection))
+				: new DistanceMatrixCalculator(new RoadGraphBuilder(wayFilter).build(map), taskSelection == 0);
+		return calculator.calculateDistances(getNearestWayNodes(origins, map, wayFilter),
+				getNearestWayNodes(destinations, map, wayFilter));
+	}
+
+	private List<MapNode> getNearestWayNodes(List<MapNode> markers, OsmMap map, MapWayFilter wayFilter) {
+		List<MapNode> result = new ArrayList<>(markers.size());
+		for (MapNode marker : markers)
+			result.add(map.getNearestWayNode(new Position(marker), wayFilter));
+		return result;
+	}
+
+	/**
+	 * Returns the contraction hierarchy for the given map and way selection.
+	 * It is built on first request, which is the expensive preprocessing step,
+	 * and kept until the map is replaced or cleared.
+	 */
+	public synchronized ContractionHierarchy getContractionHierarchy(OsmMap map, int taskSelection) {
+		if (map != hierarchyMap) {
+			clearContractionHierarchies();
+			if (hierarchyMap != null)
+				hierarchyMap.removeMapDataEventListener(hierarchyInvalidator);
+			hierarchyMap = map;
+			map.addMapDataEventListener(hierarchyInvalidator);
+		}
+		ContractionHierarchy result = hierarchies.get(taskSelection);
+		if (result == null) {
+			result = createContractionHierarchy(map, createMapWayFilter(map, taskSelection), taskSelection == 0,
+					taskSelection);
+			hierarchies.put(taskSelection, result);
+		}
+		return result;
+	}
+
+	/** Discards all contraction hierarchies built so far. */
+	public synchronized void clearContractionHierarchies() {
+		hierarchies.clear();
+	}
+
+	/** Factory method, responsible for contraction hierarchy creation. */
+	protected ContractionHierarchy createContractionHierarchy(OsmMap map, MapWayFilter wayFilter,
+			boolean ignoreOneways, int taskSelection) {
+		return new ContractionHierarchy(map, wayFilter, ignoreOneways);
+	}
+
 	/** Factory method, responsible for way filter creation. */
 	protected MapWayFilter createMapWayFilter(OsmMap map, int taskSelection) {
 		if (taskSelection == 1)
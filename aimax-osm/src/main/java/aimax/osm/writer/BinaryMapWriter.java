@@ -0,0 +1,261 @@
+package aimax.osm.writer;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import aimax.osm.data.BoundingBox;
+import aimax.osm.data.OsmMap;
+import aimax.osm.data.entities.EntityAttribute;
+import aimax.osm.data.entities.MapNode;
+import aimax.osm.data.entities.MapWay;
+import aimax.osm.data.impl.DefaultMap;
+import aimax.osm.data.impl.KDTree;
+import aimax.osm.reader.BinaryMapReader;
+import aimax.osm.reader.OsmRuntimeException;
+import aimax.osm.routing.RoadGraph;
+
+/**
+ * Writes a map to file in a compact binary format which can be read by
+ * {@link BinaryMapReader} much faster than XML. Besides nodes, ways, and
+ * their attributes, the file contains the partition of the entity tree (if
+ * the map is a {@link DefaultMap}) and the road graphs added to this writer.
+ * See {@link BinaryMapReader} for a description of the format.
+ */
+public class BinaryMapWriter implements MapWriter {
+
+	private static Logger LOG = Logger.getLogger("aimax.osm");
+
+	private final Map<String, RoadGraph> roadGraphs = new LinkedHashMap<>();
+
+	/**
+	 * Adds a road graph which is written with the next maps. Routing
+	 * applications can read it back without loading the map entities.
+	 */
+	public void addRoadGraph(String name, RoadGraph graph) {
+		roadGraphs.put(name, graph);
+	}
+
+	public void clearRoadGraphs() {
+		roadGraphs.clear();
+	}
+
+	/**
+	 * Writes all ways which intersect the bounding box together with their
+	 * nodes, and all points of interest inside the box to file.
+	 */
+	@Override
+	public void writeMap(File file, OsmMap map, BoundingBox bb) {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			writeMap(out, map, bb);
+		} catch (IOException e) {
+			LOG.warning("The map could not be written. " + e);
+		}
+	}
+
+	/**
+	 * This implementation throws an <code>UnsupportedOperationException</code>
+	 * because the format is binary.
+	 */
+	@Override
+	public void writeMap(OutputStreamWriter writer, OsmMap map, BoundingBox bb) {
+		throw new UnsupportedOperationException();
+	}
+
+	/** Writes the map to a data output stream. */
+	public void writeMap(DataOutputStream out, OsmMap map, BoundingBox bb) throws IOException {
+		// collect entities
+		Collection<MapWay> ways = map.getWays(bb);
+		HashMap<MapNode, Integer> nodeIndices = new HashMap<>();
+		List<MapNode> nodes = new ArrayList<>();
+		for (MapWay way : ways)
+			for (MapNode node : way.getNodes())
+				addNode(node, nodes, nodeIndices);
+		for (MapNode poi : map.getPois(bb))
+			addNode(poi, nodes, nodeIndices);
+		StringTable strings = new StringTable();
+		for (MapNode node : nodes)
+			strings.addAll(node.getName(), node.getAttributes());
+		for (MapWay way : ways)
+			strings.addAll(way.getName(), way.getAttributes());
+
+		List<Section> sections = new ArrayList<>();
+		out.writeInt(BinaryMapReader.MAGIC);
+		out.writeInt(BinaryMapReader.VERSION);
+
+		sections.add(new Section(BinaryMapReader.SECTION_STRINGS, "", out.size()));
+		out.writeInt(strings.list.size());
+		for (String text : strings.list) {
+			byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+		sections.add(new Section(BinaryMapReader.SECTION_BOUNDS, "", out.size()));
+		writeBoundingBox(out, bb);
+
+		sections.add(new Section(BinaryMapReader.SECTION_NODES, "", out.size()));
+		out.writeInt(nodes.size());
+		for (MapNode node : nodes)
+			out.writeLong(node.getId());
+		for (MapNode node : nodes)
+			out.writeFloat(node.getLat());
+		for (MapNode node : nodes)
+			out.writeFloat(node.getLon());
+		for (MapNode node : nodes)
+			out.writeInt(strings.indexOf(node.getName()));
+		List<EntityAttribute[]> attLists = new ArrayList<>(nodes.size());
+		for (MapNode node : nodes)
+			attLists.add(node.getAttributes());
+		writeAttributes(out, attLists, strings);
+
+		sections.add(new Section(BinaryMapReader.SECTION_WAYS, "", out.size()));
+		out.writeInt(ways.size());
+		for (MapWay way : ways)
+			out.writeLong(way.getId());
+		for (MapWay way : ways)
+			out.writeInt(strings.indexOf(way.getName()));
+		attLists.clear();
+		for (MapWay way : ways)
+			attLists.add(way.getAttributes());
+		writeAttributes(out, attLists, strings);
+		int refCount = 0;
+		out.writeInt(refCount);
+		for (MapWay way : ways) {
+			refCount += way.getNodes().size();
+			out.writeInt(refCount);
+		}
+		for (MapWay way : ways)
+			for (MapNode node : way.getNodes())
+				out.writeInt(nodeIndices.get(node));
+
+		if (map instanceof DefaultMap && ((DefaultMap) map).getEntityTree() != null) {
+			KDTree tree = ((DefaultMap) map).getEntityTree();
+			sections.add(new Section(BinaryMapReader.SECTION_ENTITY_TREE, "", out.size()));
+			writeBoundingBox(out, tree.getBoundingBox());
+			byte[] shape = tree.getShape();
+			out.writeInt(shape.length);
+			out.write(shape);
+		}
+		for (Map.Entry<String, RoadGraph> entry : roadGraphs.entrySet()) {
+			sections.add(new Section(BinaryMapReader.SECTION_ROAD_GRAPH, entry.getKey(), out.size()));
+			entry.getValue().write(out);
+		}
+
+		// directory and trailer
+		long directoryOffset = out.size();
+		if (directoryOffset > Integer.MAX_VALUE - 1024)
+			throw new OsmRuntimeException("Map too large for the binary format.");
+		out.writeInt(sections.size());
+		for (int i = 0; i < sections.size(); i++) {
+			Section section = sections.get(i);
+			long end = i + 1 < sections.size() ? sections.get(i + 1).offset : directoryOffset;
+			out.writeInt(section.type);
+			byte[] name = section.name.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(name.length);
+			out.write(name);
+			out.writeLong(section.offset);
+			out.writeLong(end - section.offset);
+		}
+		out.writeLong(directoryOffset);
+	}
+
+	@Override
+	public String[] fileFormatDescriptions() {
+		return new String[] { "Binary OSM Map (osmbin)" };
+	}
+
+	@Override
+	public String[] fileFormatExtensions() {
+		return new String[] { "osmbin" };
+	}
+
+	/**
+	 * Adds a node to the list. Way nodes without position are included and
+	 * written with NaN coordinates.
+	 */
+	private void addNode(MapNode node, List<MapNode> nodes, HashMap<MapNode, Integer> nodeIndices) {
+		if (!nodeIndices.containsKey(node)) {
+			nodeIndices.put(node, nodes.size());
+			nodes.add(node);
+		}
+	}
+
+	private void writeBoundingBox(DataOutputStream out, BoundingBox bb) throws IOException {
+		out.writeFloat(bb.getLatMin());
+		out.writeFloat(bb.getLonMin());
+		out.writeFloat(bb.getLatMax());
+		out.writeFloat(bb.getLonMax());
+	}
+
+	/**
+	 * Writes the attribute offsets of the entities followed by all keys and
+	 * all values.
+	 */
+	private void writeAttributes(DataOutputStream out, List<EntityAttribute[]> attLists, StringTable strings)
+			throws IOException {
+		int count = 0;
+		out.writeInt(count);
+		for (EntityAttribute[] atts : attLists) {
+			count += atts.length;
+			out.writeInt(count);
+		}
+		for (EntityAttribute[] atts : attLists)
+			for (EntityAttribute att : atts)
+				out.writeInt(strings.indexOf(att.getKey()));
+		for (EntityAttribute[] atts : attLists)
+			for (EntityAttribute att : atts)
+				out.writeInt(strings.indexOf(att.getValue()));
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// helper classes
+
+	private static class Section {
+		final int type;
+		final String name;
+		final long offset;
+
+		Section(int type, String name, long offset) {
+			this.type = type;
+			this.name = name;
+			this.offset = offset;
+		}
+	}
+
+	/** Assigns an index to each distinct string. */
+	private static class StringTable {
+		final List<String> list = new ArrayList<>();
+		final HashMap<String, Integer> indices = new HashMap<>();
+
+		void add(String text) {
+			if (text != null && !indices.containsKey(text)) {
+				indices.put(text, list.size());
+				list.add(text);
+			}
+		}
+
+		void addAll(String name, EntityAttribute[] atts) {
+			add(name);
+			for (EntityAttribute att : atts) {
+				add(att.getKey());
+				add(att.getValue());
+			}
+		}
+
+		/** Returns the index of the string or -1 for null. */
+		int indexOf(String text) {
+			return text != null ? indices.get(text) : -1;
+		}
+	}
+}
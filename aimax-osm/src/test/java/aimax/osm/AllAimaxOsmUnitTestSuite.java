@@ -0,0 +1,19 @@
+package aimax.osm;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+
+import aimax.osm.data.impl.WayNodeIndexTest;
+import aimax.osm.reader.ParallelBz2InputStreamTest;
+import aimax.osm.routing.ContractionHierarchyTest;
+import aimax.osm.routing.DistanceMatrixCalculatorTest;
+import aimax.osm.routing.MinHeapTest;
+import aimax.osm.routing.RoadGraphProblemTest;
+import aimax.osm.writer.BinaryMapWriterTest;
+
+@RunWith(Suite.class)
+@Suite.SuiteClasses({ ParallelBz2InputStreamTest.class, ContractionHierarchyTest.class,
+		DistanceMatrixCalculatorTest.class, MinHeapTest.class, RoadGraphProblemTest.class,
+		BinaryMapWriterTest.class, WayNodeIndexTest.class })
+public class AllAimaxOsmUnitTestSuite {
+}
@@ -0,0 +1,104 @@
+package aimax.osm.data.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import aimax.osm.data.MapBuilder;
+import aimax.osm.data.MapWayAttFilter;
+import aimax.osm.data.MapWayFilter;
+import aimax.osm.data.Position;
+import aimax.osm.data.entities.EntityAttribute;
+import aimax.osm.data.entities.MapNode;
+import aimax.osm.viewer.MapStyleFactory;
+
+public class WayNodeIndexTest {
+
+	/** Highway types with different acceptance by the car and bike filters. */
+	private static final String[] HIGHWAYS = { "motorway", "residential", "footway", "steps" };
+
+	private DefaultMap map;
+	private List<MapNode> nodes;
+
+	@Before
+	public void setUp() {
+		map = new DefaultMap();
+		map.setEntityClassifier(new MapStyleFactory().createDefaultClassifier());
+		Random random = new Random(5);
+		MapBuilder builder = map.getBuilder();
+		long nodeId = 1;
+		for (long wayId = 1; wayId <= 200; wayId++) {
+			float lat = 47f + random.nextFloat() * 0.2f;
+			float lon = 9f + random.nextFloat() * 0.3f;
+			List<Long> ids = new ArrayList<>();
+			for (int k = 0; k < 2 + random.nextInt(4); k++) {
+				builder.addNode(nodeId, null, new ArrayList<>(), lat, lon);
+				ids.add(nodeId++);
+				lat += (random.nextFloat() - 0.5f) * 0.004f;
+				lon += (random.nextFloat() - 0.5f) * 0.004f;
+			}
+			List<EntityAttribute> atts = new ArrayList<>();
+			atts.add(new EntityAttribute("highway", HIGHWAYS[random.nextInt(HIGHWAYS.length)]));
+			builder.addWay(wayId, null, atts, ids);
+		}
+		// points of interest are map nodes which are not part of a way
+		for (int i = 0; i < 100; i++) {
+			List<EntityAttribute> atts = new ArrayList<>();
+			atts.add(new EntityAttribute("amenity", "restaurant"));
+			builder.addNode(nodeId++, "POI " + i, atts, 47f + random.nextFloat() * 0.2f,
+					9f + random.nextFloat() * 0.3f);
+		}
+		builder.buildMap();
+		nodes = new ArrayList<>();
+		for (long id = 1; id < nodeId; id++)
+			nodes.add(map.getNode(id));
+		Assert.assertEquals(nodes.size(), map.getWayNodeIndex().size());
+	}
+
+	@Test
+	public void testNearestWayNode() {
+		assertNearestWayNodes(null);
+	}
+
+	@Test
+	public void testNearestWayNodeForCars() {
+		assertNearestWayNodes(MapWayAttFilter.createCarWayFilter());
+	}
+
+	@Test
+	public void testNearestWayNodeForBikes() {
+		assertNearestWayNodes(MapWayAttFilter.createBicycleWayFilter());
+	}
+
+	@Test
+	public void testEmptyMap() {
+		Assert.assertNull(new DefaultMap().getNearestWayNode(new Position(47f, 9f), null));
+	}
+
+	/**
+	 * Compares the result of the index with the result of a linear search for
+	 * positions inside and outside of the map and for the node positions
+	 * themselves.
+	 */
+	private void assertNearestWayNodes(MapWayFilter filter) {
+		Random random = new Random(7);
+		List<Position> positions = new ArrayList<>();
+		for (int i = 0; i < 500; i++)
+			positions.add(new Position(46.9f + random.nextFloat() * 0.4f, 8.9f + random.nextFloat() * 0.5f));
+		positions.addAll(Arrays.asList(new Position(0f, 0f), new Position(60f, -20f), new Position(47.1f, 120f)));
+		for (int i = 0; i < nodes.size(); i += 7)
+			positions.add(new Position(nodes.get(i)));
+		for (Position pos : positions) {
+			MapNode expected = pos.selectNearest(nodes, filter);
+			MapNode actual = map.getNearestWayNode(pos, filter);
+			Assert.assertNotNull(actual);
+			Assert.assertEquals(pos.getDistKM(expected), pos.getDistKM(actual), 0);
+			Assert.assertEquals(expected.getId(), actual.getId());
+		}
+	}
+}
@@ -0,0 +1,189 @@
+package aimax.osm.reader;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ParallelBz2InputStreamTest {
+
+	@Test
+	public void testMultiBlockStream() throws IOException {
+		byte[] compressed = compress(createText(new Random(1), 450000));
+		byte[] expected = readSequentially(compressed);
+		Assert.assertTrue(countBlocks(compressed) > 3);
+		Assert.assertArrayEquals(expected, readAll(new ParallelBz2InputStream(
+				new ByteArrayInputStream(compressed), 3, BZip2CompressorInputStream::new)));
+		Assert.assertArrayEquals(expected, readAll(new ParallelBz2InputStream(
+				new ByteArrayInputStream(compressed), 1, BZip2CompressorInputStream::new)));
+	}
+
+	@Test
+	public void testConcatenatedStreams() throws IOException {
+		Random random = new Random(2);
+		byte[][] streams = { compress(createText(random, 250000)), compress(new byte[0]),
+				compress(createText(random, 1000)), compress(createText(random, 120000)) };
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		for (byte[] stream : streams) {
+			compressed.write(stream);
+			expected.write(readSequentially(stream));
+		}
+		Assert.assertArrayEquals(expected.toByteArray(), readAll(new ParallelBz2InputStream(
+				new ByteArrayInputStream(compressed.toByteArray()), 2, BZip2CompressorInputStream::new)));
+	}
+
+	@Test
+	public void testSingleByteReads() throws IOException {
+		byte[] compressed = compress(createText(new Random(3), 150000));
+		byte[] expected = readSequentially(compressed);
+		InputStream in = new ParallelBz2InputStream(new ByteArrayInputStream(compressed), 2,
+				BZip2CompressorInputStream::new);
+		for (byte b : expected)
+			Assert.assertEquals(b & 0xFF, in.read());
+		Assert.assertEquals(-1, in.read());
+		in.close();
+	}
+
+	/**
+	 * Decompresses a block whose header contains the block magic number by
+	 * chance, 22 bits after the start of the block checksum. The false magic
+	 * number covers the last 10 bits of the checksum, the randomization flag,
+	 * the BWT origin pointer and the first 13 bits of the byte usage map. All
+	 * of them are controlled by the block data: the origin pointer is the
+	 * number of rotations which are smaller than the data, and the checksum is
+	 * fitted by varying the last bytes.
+	 */
+	@Test
+	public void testFalseBlockMagic() throws IOException {
+		Random random = new Random(6);
+		int[] smallBytes = concat(range(0x00, 0x10), range(0x30, 0x48));
+		int[] largeBytes = concat(range(0x49, 0x50), range(0x60, 0x70), range(0x80, 0xA0), range(0xC0, 0xD0));
+		byte[] data = new byte[760000];
+		data[0] = 0x48; // smaller than all the following large bytes
+		for (int i = 1; i < data.length; i++)
+			data[i] = nextByte(random, i <= 706866 ? smallBytes : largeBytes, data[i - 1]);
+		int crc = -1;
+		for (int i = 0; i < data.length - 4; i++)
+			crc = updateCrc(crc, data[i]);
+		int fitted;
+		do {
+			fitted = crc;
+			for (int i = data.length - 4; i < data.length; i++) {
+				data[i] = nextByte(random, largeBytes, data[i - 1]);
+				fitted = updateCrc(fitted, data[i]);
+			}
+		} while ((~fitted & 0x3FF) != 0xC5);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BZip2CompressorOutputStream encoder = new BZip2CompressorOutputStream(out, 9);
+		encoder.write(data);
+		encoder.close();
+		byte[] compressed = out.toByteArray();
+		Assert.assertEquals(2, countBlocks(compressed));
+		Assert.assertArrayEquals(data, readAll(new ParallelBz2InputStream(new ByteArrayInputStream(compressed), 2,
+				BZip2CompressorInputStream::new)));
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidInput() throws IOException {
+		readAll(new ParallelBz2InputStream(new ByteArrayInputStream(createText(new Random(4), 100)), 2,
+				BZip2CompressorInputStream::new));
+	}
+
+	@Test(expected = IOException.class)
+	public void testTruncatedStream() throws IOException {
+		byte[] compressed = compress(createText(new Random(5), 250000));
+		byte[] truncated = new byte[compressed.length - 100];
+		System.arraycopy(compressed, 0, truncated, 0, truncated.length);
+		readAll(new ParallelBz2InputStream(new ByteArrayInputStream(truncated), 2,
+				BZip2CompressorInputStream::new));
+	}
+
+	/** Creates some text resembling OSM XML. */
+	private byte[] createText(Random random, int length) {
+		StringBuilder result = new StringBuilder();
+		while (result.length() < length)
+			result.append("<node id=\"").append(random.nextInt(1000000)).append("\" lat=\"")
+					.append(47 + random.nextInt(100000) / 100000.0).append("\" lon=\"")
+					.append(9 + random.nextInt(100000) / 100000.0).append("\"/>\n");
+		return result.substring(0, length).getBytes(StandardCharsets.UTF_8);
+	}
+
+	/** Compresses with the smallest block size, so that streams contain many blocks. */
+	private byte[] compress(byte[] data) throws IOException {
+		ByteArrayOutputStream result = new ByteArrayOutputStream();
+		BZip2CompressorOutputStream out = new BZip2CompressorOutputStream(result, 1);
+		out.write(data);
+		out.close();
+		return result.toByteArray();
+	}
+
+	private byte[] readSequentially(byte[] compressed) throws IOException {
+		return readAll(new BZip2CompressorInputStream(new ByteArrayInputStream(compressed)));
+	}
+
+	private byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream result = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int count;
+		while ((count = in.read(buffer)) != -1)
+			result.write(buffer, 0, count);
+		in.close();
+		return result.toByteArray();
+	}
+
+	/** Returns a random byte from the set which differs from the previous one. */
+	private byte nextByte(Random random, int[] bytes, byte previous) {
+		byte result;
+		do {
+			result = (byte) bytes[random.nextInt(bytes.length)];
+		} while (result == previous); // avoid run-length encoding
+		return result;
+	}
+
+	/** Block checksum of bz2, a CRC-32 computed most significant bit first. */
+	private int updateCrc(int crc, byte b) {
+		crc ^= (b & 0xFF) << 24;
+		for (int k = 0; k < 8; k++)
+			crc = crc < 0 ? (crc << 1) ^ 0x04C11DB7 : crc << 1;
+		return crc;
+	}
+
+	private int[] range(int from, int to) {
+		int[] result = new int[to - from];
+		for (int i = 0; i < result.length; i++)
+			result[i] = from + i;
+		return result;
+	}
+
+	private int[] concat(int[]... arrays) {
+		int[] result = new int[0];
+		for (int[] array : arrays) {
+			int length = result.length;
+			result = Arrays.copyOf(result, length + array.length);
+			System.arraycopy(array, 0, result, length, array.length);
+		}
+		return result;
+	}
+
+	/** Counts the block magic numbers at arbitrary bit positions. */
+	private int countBlocks(byte[] compressed) {
+		int result = 0;
+		long window = 0;
+		for (int i = 0; i < compressed.length * 8; i++) {
+			window = ((window << 1) | ((compressed[i >>> 3] >>> (7 - (i & 7))) & 1)) & 0xFFFFFFFFFFFFL;
+			if (i >= 47 && window == 0x314159265359L)
+				result++;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,85 @@
+package aimax.osm.routing;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import aimax.osm.data.OsmMap;
+import aimax.osm.data.entities.MapNode;
+import aimax.osm.routing.OsmFunctions.OneWayMode;
+
+public class ContractionHierarchyTest {
+
+	private static final int SIZE = 8;
+
+	private OsmMap map;
+	private RoadGraph graph;
+
+	@Before
+	public void setUp() {
+		map = TestMaps.createGridMap(new Random(3), SIZE);
+		graph = new RoadGraphBuilder(null).build(map);
+	}
+
+	@Test
+	public void testRespectingOneways() {
+		checkRandomQueries(new ContractionHierarchy(graph, false), OneWayMode.TRAVEL_FORWARD, new Random(5));
+	}
+
+	@Test
+	public void testIgnoringOneways() {
+		checkRandomQueries(new ContractionHierarchy(graph, true), OneWayMode.IGNORE, new Random(7));
+	}
+
+	@Test
+	public void testIsolatedOnewayWay() {
+		ContractionHierarchy hierarchy = new ContractionHierarchy(graph, false);
+		int first = graph.getNodeIndex(SIZE * SIZE + 1);
+		int last = graph.getNodeIndex(SIZE * SIZE + 3);
+		int grid = graph.getNodeIndex(1);
+		Assert.assertArrayEquals(new int[] { first, graph.getNodeIndex(SIZE * SIZE + 2), last },
+				hierarchy.findPath(first, last));
+		Assert.assertNull(hierarchy.findPath(last, first));
+		Assert.assertNull(hierarchy.findPath(grid, first));
+		Assert.assertNull(hierarchy.findPath(first, grid));
+		Assert.assertEquals(Double.POSITIVE_INFINITY, hierarchy.getDistance(getNode(last), getNode(first)), 0);
+		Assert.assertArrayEquals(new int[] { grid }, hierarchy.findPath(grid, grid));
+		Assert.assertNull(hierarchy.findPath(-1, grid));
+	}
+
+	private void checkRandomQueries(ContractionHierarchy hierarchy, OneWayMode mode, Random random) {
+		int n = graph.getNodeCount();
+		int connected = 0;
+		int unconnected = 0;
+		for (int q = 0; q < 300; q++) {
+			int s = random.nextInt(n);
+			int t = random.nextInt(n);
+			double expected = TestMaps.getDistances(graph, s, mode)[t];
+			Assert.assertEquals(expected, hierarchy.getDistance(getNode(s), getNode(t)), 1e-9);
+			int[] path = hierarchy.findPath(s, t);
+			if (expected == Double.POSITIVE_INFINITY) {
+				Assert.assertNull(path);
+				unconnected++;
+			} else {
+				Assert.assertEquals(s, path[0]);
+				Assert.assertEquals(t, path[path.length - 1]);
+				double length = 0;
+				for (int i = 1; i < path.length; i++) {
+					double edgeLength = TestMaps.getEdgeLength(graph, path[i - 1], path[i], mode);
+					Assert.assertFalse("no edge " + path[i - 1] + " -> " + path[i], Double.isNaN(edgeLength));
+					length += edgeLength;
+				}
+				Assert.assertEquals(expected, length, 1e-9);
+				connected++;
+			}
+		}
+		Assert.assertTrue(connected > 0);
+		Assert.assertTrue(unconnected > 0);
+	}
+
+	private MapNode getNode(int node) {
+		return map.getNode(graph.getOsmId(node));
+	}
+}
@@ -0,0 +1,93 @@
+package aimax.osm.routing;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import aimax.osm.routing.OsmFunctions.OneWayMode;
+
+public class DistanceMatrixCalculatorTest {
+
+	private static final int SIZE = 8;
+
+	private RoadGraph graph;
+	private int[] sources;
+	private int[] targets;
+
+	@Before
+	public void setUp() {
+		graph = new RoadGraphBuilder(null).build(TestMaps.createGridMap(new Random(13), SIZE));
+		Random random = new Random(17);
+		int isolated = graph.getNodeIndex(SIZE * SIZE + 2);
+		sources = new int[12];
+		targets = new int[9];
+		for (int i = 0; i < sources.length; i++)
+			sources[i] = random.nextInt(graph.getNodeCount());
+		for (int j = 0; j < targets.length; j++)
+			targets[j] = random.nextInt(graph.getNodeCount());
+		// sources which are also targets, duplicates, unknown and unconnected nodes
+		targets[0] = sources[0];
+		targets[1] = sources[1];
+		targets[2] = targets[3];
+		targets[4] = isolated;
+		sources[2] = isolated;
+		sources[3] = -1;
+		targets[5] = -1;
+	}
+
+	@Test
+	public void testGraphSearchRespectingOneways() {
+		checkMatrix(new DistanceMatrixCalculator(graph, false), OneWayMode.TRAVEL_FORWARD);
+	}
+
+	@Test
+	public void testGraphSearchIgnoringOneways() {
+		checkMatrix(new DistanceMatrixCalculator(graph, true), OneWayMode.IGNORE);
+	}
+
+	@Test
+	public void testHierarchyRespectingOneways() {
+		ContractionHierarchy hierarchy = new ContractionHierarchy(graph, false);
+		double[][] matrix = checkMatrix(new DistanceMatrixCalculator(hierarchy), OneWayMode.TRAVEL_FORWARD);
+		checkOneToOneQueries(hierarchy, matrix);
+	}
+
+	@Test
+	public void testHierarchyIgnoringOneways() {
+		ContractionHierarchy hierarchy = new ContractionHierarchy(graph, true);
+		double[][] matrix = checkMatrix(new DistanceMatrixCalculator(hierarchy), OneWayMode.IGNORE);
+		checkOneToOneQueries(hierarchy, matrix);
+	}
+
+	/** Compares the matrix with a Dijkstra search for each source. */
+	private double[][] checkMatrix(DistanceMatrixCalculator calculator, OneWayMode mode) {
+		double[][] matrix = calculator.calculateDistances(sources, targets);
+		Assert.assertEquals(sources.length, matrix.length);
+		int unconnected = 0;
+		for (int i = 0; i < sources.length; i++) {
+			Assert.assertEquals(targets.length, matrix[i].length);
+			double[] expected = sources[i] != -1 ? TestMaps.getDistances(graph, sources[i], mode) : null;
+			for (int j = 0; j < targets.length; j++) {
+				double d = expected != null && targets[j] != -1 ? expected[targets[j]] : Double.POSITIVE_INFINITY;
+				Assert.assertEquals("entry " + i + ", " + j, d, matrix[i][j], 1e-9);
+				if (d == Double.POSITIVE_INFINITY)
+					unconnected++;
+			}
+		}
+		Assert.assertEquals(0, matrix[0][0], 0);
+		Assert.assertEquals(matrix[5][2], matrix[5][3], 0);
+		Assert.assertTrue(unconnected > sources.length + targets.length);
+		return matrix;
+	}
+
+	private void checkOneToOneQueries(ContractionHierarchy hierarchy, double[][] matrix) {
+		for (int i = 0; i < sources.length; i++) {
+			for (int j = 0; j < targets.length; j++) {
+				int[] path = hierarchy.findPath(sources[i], targets[j]);
+				Assert.assertEquals(matrix[i][j] == Double.POSITIVE_INFINITY, path == null);
+			}
+		}
+	}
+}
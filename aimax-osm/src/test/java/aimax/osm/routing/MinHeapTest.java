@@ -0,0 +1,71 @@
+package aimax.osm.routing;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MinHeapTest {
+
+	@Test
+	public void testRemoveMinOrder() {
+		MinHeap heap = new MinHeap(5);
+		Assert.assertTrue(heap.isEmpty());
+		heap.insertOrDecrease(3, 2.5);
+		heap.insertOrDecrease(1, 1.0);
+		heap.insertOrDecrease(4, 7.0);
+		heap.insertOrDecrease(4, 0.5); // decrease
+		heap.insertOrDecrease(1, 3.0); // increase
+		Assert.assertEquals(0.5, heap.minKey(), 0);
+		Assert.assertEquals(4, heap.removeMin());
+		Assert.assertEquals(3, heap.removeMin());
+		Assert.assertEquals(1, heap.removeMin());
+		Assert.assertTrue(heap.isEmpty());
+	}
+
+	@Test
+	public void testRandomOperations() {
+		Random random = new Random(19);
+		int n = 200;
+		MinHeap heap = new MinHeap(n);
+		double[] keys = new double[n];
+		for (int round = 0; round < 20; round++) {
+			Arrays.fill(keys, Double.NaN);
+			for (int op = 0; op < 1000; op++) {
+				int node = random.nextInt(n);
+				double key = random.nextInt(500);
+				heap.insertOrDecrease(node, key);
+				keys[node] = key;
+				if (random.nextInt(4) == 0) {
+					double min = minKey(keys);
+					Assert.assertEquals(min, heap.minKey(), 0);
+					int removed = heap.removeMin();
+					Assert.assertEquals(min, keys[removed], 0);
+					keys[removed] = Double.NaN;
+				}
+			}
+			if (round % 2 == 0) {
+				heap.clear();
+			} else {
+				while (!heap.isEmpty()) {
+					double min = minKey(keys);
+					int removed = heap.removeMin();
+					Assert.assertEquals(min, keys[removed], 0);
+					keys[removed] = Double.NaN;
+				}
+				Assert.assertTrue(Double.isNaN(minKey(keys)));
+			}
+			Assert.assertTrue(heap.isEmpty());
+		}
+	}
+
+	/** Returns the minimum of the keys which are not NaN, or NaN. */
+	private double minKey(double[] keys) {
+		double result = Double.NaN;
+		for (double key : keys)
+			if (!Double.isNaN(key) && (Double.isNaN(result) || key < result))
+				result = key;
+		return result;
+	}
+}
@@ -0,0 +1,144 @@
+package aimax.osm.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import aima.core.search.framework.qsearch.GraphSearch;
+import aima.core.search.informed.AStarSearch;
+import aimax.osm.data.MapBuilder;
+import aimax.osm.data.OsmMap;
+import aimax.osm.data.entities.EntityAttribute;
+import aimax.osm.data.entities.MapNode;
+import aimax.osm.data.impl.DefaultMapBuilder;
+
+public class RoadGraphProblemTest {
+
+	private OsmMap map;
+	private RoadGraph graph;
+
+	/**
+	 * Creates two rows of crossings, connected by two-way roads at both ends
+	 * and by one-way roads from 3 to 6 and from 5 to 2. Node 9 lies within a
+	 * road and nodes 7 and 8 form an unconnected road.
+	 */
+	@Before
+	public void setUp() {
+		MapBuilder builder = new DefaultMapBuilder();
+		addNode(builder, 1, 47.000f, 9.000f);
+		addNode(builder, 2, 47.001f, 9.013f);
+		addNode(builder, 3, 47.003f, 9.021f);
+		addNode(builder, 4, 47.012f, 8.998f);
+		addNode(builder, 5, 47.010f, 9.011f);
+		addNode(builder, 6, 47.013f, 9.024f);
+		addNode(builder, 7, 47.020f, 9.050f);
+		addNode(builder, 8, 47.021f, 9.060f);
+		addNode(builder, 9, 47.0004f, 9.006f);
+		addWay(builder, 1, false, 1, 9, 2, 3);
+		addWay(builder, 2, true, 3, 6);
+		addWay(builder, 3, false, 6, 5, 4);
+		addWay(builder, 4, true, 5, 2);
+		addWay(builder, 5, false, 4, 1);
+		addWay(builder, 6, false, 7, 8);
+		map = builder.buildMap();
+		graph = new RoadGraphBuilder(null).build(map);
+	}
+
+	@Test
+	public void testRespectingOneways() {
+		Assert.assertEquals(Arrays.asList(6L, 5L, 2L, 9L, 1L), findRoute(6, 1, false));
+		Assert.assertEquals(Arrays.asList(2L, 3L, 6L, 5L), findRoute(2, 5, false));
+		checkAllPairs(false);
+	}
+
+	@Test
+	public void testIgnoringOneways() {
+		Assert.assertEquals(Arrays.asList(6L, 3L, 2L, 9L, 1L), findRoute(6, 1, true));
+		Assert.assertEquals(Arrays.asList(2L, 5L), findRoute(2, 5, true));
+		checkAllPairs(true);
+	}
+
+	@Test
+	public void testUnreachable() {
+		Assert.assertNull(findRoute(1, 7, true));
+		Assert.assertNull(findRoute(8, 9, false));
+		Assert.assertEquals(Arrays.asList(8L, 7L), findRoute(8, 7, false));
+	}
+
+	/**
+	 * Compares the routes and their lengths with the routes found by the
+	 * OsmMap-based {@link RouteFindingProblem}.
+	 */
+	private void checkAllPairs(boolean ignoreOneways) {
+		for (long from = 1; from <= 9; from++) {
+			for (long to = 1; to <= 9; to++) {
+				MapNode fromNode = map.getNode(from);
+				MapNode toNode = map.getNode(to);
+				Optional<List<OsmMoveAction>> actions = new AStarSearch<>(new GraphSearch<>(),
+						new OsmSldHeuristicFunction(toNode))
+						.findActions(new RouteFindingProblem(fromNode, toNode, null, ignoreOneways));
+				List<Long> route = findRoute(from, to, ignoreOneways);
+				String pair = from + " -> " + to;
+				Assert.assertEquals(pair, actions.isPresent(), route != null);
+				if (route == null)
+					continue;
+				List<Long> expected = new ArrayList<>();
+				expected.add(from);
+				double expectedLength = 0;
+				for (OsmMoveAction action : actions.get()) {
+					List<MapNode> nodes = action.getNodes();
+					for (int i = 1; i < nodes.size(); i++)
+						expected.add(nodes.get(i).getId());
+					expectedLength += action.getTravelDistance();
+				}
+				Assert.assertEquals(pair, expected, route);
+				Assert.assertEquals(pair, expectedLength, getLength(route, ignoreOneways), 1e-4);
+			}
+		}
+	}
+
+	/** Returns the OSM ids of the route nodes, or null if there is no route. */
+	private List<Long> findRoute(long from, long to, boolean ignoreOneways) {
+		int s = graph.getNodeIndex(from);
+		int t = graph.getNodeIndex(to);
+		Optional<List<Integer>> edges = new AStarSearch<>(new GraphSearch<>(),
+				new RoadGraphSldHeuristicFunction(graph, t))
+				.findActions(new RoadGraphProblem(graph, s, t, ignoreOneways));
+		if (!edges.isPresent())
+			return null;
+		List<Long> result = new ArrayList<>();
+		result.add(from);
+		for (int edge : edges.get())
+			result.add(graph.getOsmId(graph.getTarget(edge)));
+		return result;
+	}
+
+	private double getLength(List<Long> route, boolean ignoreOneways) {
+		double result = 0;
+		for (int i = 1; i < route.size(); i++)
+			result += TestMaps.getEdgeLength(graph, graph.getNodeIndex(route.get(i - 1)),
+					graph.getNodeIndex(route.get(i)), ignoreOneways ? OsmFunctions.OneWayMode.IGNORE
+							: OsmFunctions.OneWayMode.TRAVEL_FORWARD);
+		return result;
+	}
+
+	private void addNode(MapBuilder builder, long id, float lat, float lon) {
+		builder.addNode(id, null, new ArrayList<>(), lat, lon);
+	}
+
+	private void addWay(MapBuilder builder, long id, boolean oneway, long... nodeIds) {
+		List<EntityAttribute> atts = new ArrayList<>();
+		atts.add(new EntityAttribute("highway", "residential"));
+		if (oneway)
+			atts.add(new EntityAttribute("oneway", "yes"));
+		List<Long> ids = new ArrayList<>();
+		for (long nodeId : nodeIds)
+			ids.add(nodeId);
+		builder.addWay(id, null, atts, ids);
+	}
+}
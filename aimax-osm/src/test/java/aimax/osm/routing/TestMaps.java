@@ -0,0 +1,118 @@
+package aimax.osm.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import aimax.osm.data.MapBuilder;
+import aimax.osm.data.OsmMap;
+import aimax.osm.data.entities.EntityAttribute;
+import aimax.osm.data.impl.DefaultMapBuilder;
+import aimax.osm.routing.OsmFunctions.OneWayMode;
+
+/**
+ * Small synthetic maps and a reference shortest path search for routing
+ * tests.
+ */
+public class TestMaps {
+
+	/**
+	 * Creates a map with <code>size</code> x <code>size</code> way nodes on a
+	 * slightly distorted grid. Rows and columns are covered by ways of random
+	 * length, some of which are missing or one-way. Additionally, the map
+	 * contains an isolated one-way way with the three nodes
+	 * <code>size * size + 1</code> to <code>size * size + 3</code>, so that
+	 * some pairs of nodes are not connected. Grid node ids start with 1.
+	 */
+	public static OsmMap createGridMap(Random random, int size) {
+		return createGridMap(random, size, new DefaultMapBuilder());
+	}
+
+	/** Adds the grid map entities to the builder and builds the map. */
+	public static OsmMap createGridMap(Random random, int size, MapBuilder builder) {
+		for (int i = 0; i < size; i++)
+			for (int j = 0; j < size; j++)
+				builder.addNode(i * size + j + 1, null, new ArrayList<>(), 47f + i * 0.01f + random.nextFloat()
+						* 0.004f, 9f + j * 0.01f + random.nextFloat() * 0.004f);
+		long wayId = 1;
+		for (int dir = 0; dir < 2; dir++) {
+			for (int i = 0; i < size; i++) {
+				int j = 0;
+				while (j < size - 1) {
+					int len = 1 + random.nextInt(4);
+					List<Long> ids = new ArrayList<>();
+					for (int k = j; k <= Math.min(size - 1, j + len); k++)
+						ids.add((long) (dir == 0 ? i * size + k + 1 : k * size + i + 1));
+					j += len;
+					if (random.nextInt(10) == 0)
+						continue;
+					if (random.nextBoolean())
+						Collections.reverse(ids);
+					builder.addWay(wayId++, null, createAttributes(random.nextInt(4) == 0), ids);
+				}
+			}
+		}
+		long first = size * size + 1;
+		for (int k = 0; k < 3; k++)
+			builder.addNode(first + k, null, new ArrayList<>(), 48f + k * 0.01f, 10f);
+		builder.addWay(wayId, null, createAttributes(true), Arrays.asList(first, first + 1, first + 2));
+		return builder.buildMap();
+	}
+
+	/**
+	 * Computes the lengths of shortest paths from the source to all nodes of
+	 * the graph by a textbook Dijkstra search.
+	 *
+	 * @return The distances in KM, {@link Double#POSITIVE_INFINITY} for
+	 *         unreachable nodes.
+	 */
+	public static double[] getDistances(RoadGraph graph, int source, OneWayMode mode) {
+		double[] dist = new double[graph.getNodeCount()];
+		Arrays.fill(dist, Double.POSITIVE_INFINITY);
+		dist[source] = 0;
+		PriorityQueue<double[]> queue = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+		queue.add(new double[] { 0, source });
+		while (!queue.isEmpty()) {
+			double[] entry = queue.poll();
+			int u = (int) entry[1];
+			if (entry[0] > dist[u])
+				continue;
+			for (int e = graph.getFirstEdge(u); e < graph.getFirstEdge(u + 1); e++) {
+				if (!graph.isTraversable(e, mode))
+					continue;
+				int w = graph.getTarget(e);
+				double d = dist[u] + graph.getLength(e);
+				if (d < dist[w]) {
+					dist[w] = d;
+					queue.add(new double[] { d, w });
+				}
+			}
+		}
+		return dist;
+	}
+
+	/**
+	 * Returns the length of the shortest edge from node <code>from</code> to
+	 * node <code>to</code> which can be traversed in the given mode, or
+	 * {@link Double#NaN} if there is none.
+	 */
+	public static double getEdgeLength(RoadGraph graph, int from, int to, OneWayMode mode) {
+		double result = Double.NaN;
+		for (int e = graph.getFirstEdge(from); e < graph.getFirstEdge(from + 1); e++)
+			if (graph.getTarget(e) == to && graph.isTraversable(e, mode)
+					&& (Double.isNaN(result) || graph.getLength(e) < result))
+				result = graph.getLength(e);
+		return result;
+	}
+
+	private static List<EntityAttribute> createAttributes(boolean oneway) {
+		List<EntityAttribute> result = new ArrayList<>();
+		result.add(new EntityAttribute("highway", "residential"));
+		if (oneway)
+			result.add(new EntityAttribute("oneway", "yes"));
+		return result;
+	}
+}
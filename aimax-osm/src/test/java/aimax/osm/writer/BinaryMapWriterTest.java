@@ -0,0 +1,143 @@
+package aimax.osm.writer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import aimax.osm.data.BoundingBox;
+import aimax.osm.data.MapBuilder;
+import aimax.osm.data.entities.EntityAttribute;
+import aimax.osm.data.entities.MapNode;
+import aimax.osm.data.entities.MapWay;
+import aimax.osm.data.impl.DefaultMap;
+import aimax.osm.reader.BinaryMapReader;
+import aimax.osm.routing.RoadGraph;
+import aimax.osm.routing.RoadGraphBuilder;
+import aimax.osm.routing.TestMaps;
+import aimax.osm.viewer.MapStyleFactory;
+
+public class BinaryMapWriterTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private DefaultMap map;
+	private RoadGraph graph;
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		map = createMap();
+		Random random = new Random(11);
+		MapBuilder builder = map.getBuilder();
+		// enough points of interest to split the entity tree
+		for (int i = 0; i < 9000; i++) {
+			List<EntityAttribute> atts = new ArrayList<>();
+			atts.add(new EntityAttribute("amenity", i % 2 == 0 ? "restaurant" : "parking"));
+			builder.addNode(100000 + i, i % 3 == 0 ? null : "POI " + i, atts, 47f + random.nextFloat() * 0.3f,
+					9f + random.nextFloat() * 0.3f);
+		}
+		TestMaps.createGridMap(random, 30, builder);
+		graph = new RoadGraphBuilder(null).build(map);
+
+		BinaryMapWriter writer = new BinaryMapWriter();
+		writer.addRoadGraph("all", graph);
+		// an empty graph
+		writer.addRoadGraph("none", new RoadGraphBuilder(way -> false).build(map));
+		file = folder.newFile("test.osmbin");
+		writer.writeMap(file, map, map.getBoundingBox());
+	}
+
+	@Test
+	public void testEntities() {
+		DefaultMap result = createMap();
+		MapBuilder builder = result.getBuilder();
+		new BinaryMapReader().readMap(file, builder);
+		builder.buildMap();
+
+		Assert.assertEquals(map.getNodeCount(), result.getNodeCount());
+		Assert.assertEquals(map.getWayCount(), result.getWayCount());
+		Assert.assertEquals(map.getPoiCount(), result.getPoiCount());
+		BoundingBox all = new BoundingBox(-90f, -180f, 90f, 180f);
+		for (MapWay way : map.getWays(all)) {
+			MapWay copy = result.getWay(way.getId());
+			Assert.assertNotNull(copy);
+			Assert.assertEquals(way.getName(), copy.getName());
+			Assert.assertArrayEquals(way.getAttributes(), copy.getAttributes());
+			Assert.assertEquals(way.getNodes().size(), copy.getNodes().size());
+			for (int i = 0; i < way.getNodes().size(); i++)
+				assertNodeEquals(way.getNodes().get(i), copy.getNodes().get(i));
+		}
+		for (MapNode poi : map.getPois(all))
+			assertNodeEquals(poi, result.getNode(poi.getId()));
+	}
+
+	@Test
+	public void testEntityTree() {
+		DefaultMap result = createMap();
+		MapBuilder builder = result.getBuilder();
+		new BinaryMapReader().readMap(file, builder);
+		builder.buildMap();
+
+		Assert.assertTrue(map.getEntityTree().getShape().length > 1);
+		Assert.assertArrayEquals(map.getEntityTree().getShape(), result.getEntityTree().getShape());
+		BoundingBox bb = map.getEntityTree().getBoundingBox();
+		BoundingBox bbCopy = result.getEntityTree().getBoundingBox();
+		Assert.assertEquals(bb.getLatMin(), bbCopy.getLatMin(), 0);
+		Assert.assertEquals(bb.getLonMin(), bbCopy.getLonMin(), 0);
+		Assert.assertEquals(bb.getLatMax(), bbCopy.getLatMax(), 0);
+		Assert.assertEquals(bb.getLonMax(), bbCopy.getLonMax(), 0);
+		List<double[]> coords = map.getEntityTree().getSplitCoords();
+		List<double[]> coordsCopy = result.getEntityTree().getSplitCoords();
+		Assert.assertEquals(coords.size(), coordsCopy.size());
+		for (int i = 0; i < coords.size(); i++)
+			Assert.assertArrayEquals(coords.get(i), coordsCopy.get(i), 0);
+	}
+
+	@Test
+	public void testRoadGraphs() throws IOException {
+		BinaryMapReader reader = new BinaryMapReader();
+		Assert.assertEquals(Arrays.asList("all", "none"), reader.getRoadGraphNames(file));
+		Assert.assertNull(reader.readRoadGraph(file, "bike"));
+		RoadGraph copy = reader.readRoadGraph(file, "all");
+		Assert.assertEquals(graph.getNodeCount(), copy.getNodeCount());
+		Assert.assertEquals(graph.getEdgeCount(), copy.getEdgeCount());
+		for (int v = 0; v < graph.getNodeCount(); v++) {
+			Assert.assertEquals(graph.getOsmId(v), copy.getOsmId(v));
+			Assert.assertEquals(graph.getLat(v), copy.getLat(v), 0);
+			Assert.assertEquals(graph.getLon(v), copy.getLon(v), 0);
+		}
+		for (int v = 0; v <= graph.getNodeCount(); v++)
+			Assert.assertEquals(graph.getFirstEdge(v), copy.getFirstEdge(v));
+		for (int e = 0; e < graph.getEdgeCount(); e++) {
+			Assert.assertEquals(graph.getTarget(e), copy.getTarget(e));
+			Assert.assertEquals(graph.getLength(e), copy.getLength(e), 0);
+			Assert.assertEquals(graph.getOnewayFlag(e), copy.getOnewayFlag(e));
+		}
+		Assert.assertEquals(0, reader.readRoadGraph(file, "none").getNodeCount());
+	}
+
+	private DefaultMap createMap() {
+		DefaultMap result = new DefaultMap();
+		result.setEntityClassifier(new MapStyleFactory().createDefaultClassifier());
+		return result;
+	}
+
+	private void assertNodeEquals(MapNode expected, MapNode actual) {
+		Assert.assertNotNull(actual);
+		Assert.assertEquals(expected.getId(), actual.getId());
+		Assert.assertEquals(expected.getLat(), actual.getLat(), 0);
+		Assert.assertEquals(expected.getLon(), actual.getLon(), 0);
+		Assert.assertEquals(expected.getName(), actual.getName());
+		Assert.assertArrayEquals(expected.getAttributes(), actual.getAttributes());
+	}
+}
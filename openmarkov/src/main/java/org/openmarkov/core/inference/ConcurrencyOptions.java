@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) CISIAD, UNED, Spain,  2019. Licensed under the GPLv3 licence
+ * Unless required by applicable law or agreed to in writing,
+ * this code is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OF ANY KIND.
+ */
+
+package org.openmarkov.core.inference;
+
+/**
+ * Options of the concurrent potential operations
+ * ({@code org.openmarkov.core.model.network.potential.operation.concurrent}), which
+ * are passed to each operation.
+ */
+public class ConcurrencyOptions implements Cloneable {
+
+	/**
+	 * Default number of operations (table cells times number of factors) below which
+	 * an operation is computed sequentially in the calling thread.
+	 */
+	public static final int DEFAULT_SEQUENTIAL_THRESHOLD = 1 << 15;
+
+	/**
+	 * When false every potential operation is computed sequentially
+	 */
+	private boolean enabled;
+
+	/**
+	 * Number of worker threads
+	 */
+	private int parallelism;
+
+	/**
+	 * Minimum amount of work for an operation (or a piece of it) to be split
+	 */
+	private int sequentialThreshold;
+
+	public ConcurrencyOptions() {
+		enabled = true;
+		parallelism = Runtime.getRuntime().availableProcessors();
+		sequentialThreshold = DEFAULT_SEQUENTIAL_THRESHOLD;
+	}
+
+	public ConcurrencyOptions(boolean enabled, int parallelism, int sequentialThreshold) {
+		this.setEnabled(enabled);
+		this.setParallelism(parallelism);
+		this.setSequentialThreshold(sequentialThreshold);
+	}
+
+	public ConcurrencyOptions(ConcurrencyOptions concurrencyOptions) {
+		this(concurrencyOptions.enabled, concurrencyOptions.parallelism, concurrencyOptions.sequentialThreshold);
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * @param parallelism Number of worker threads. Values lower than 1 are set to 1
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	public int getSequentialThreshold() {
+		return sequentialThreshold;
+	}
+
+	/**
+	 * @param sequentialThreshold Minimum amount of work to go parallel. Values lower than 1 are set to 1
+	 */
+	public void setSequentialThreshold(int sequentialThreshold) {
+		this.sequentialThreshold = Math.max(1, sequentialThreshold);
+	}
+
+	/**
+	 * @return True when the operations must run in parallel; i.e., they are enabled and
+	 * there is more than one worker thread.
+	 */
+	public boolean isParallel() {
+		return enabled && parallelism > 1;
+	}
+
+	public ConcurrencyOptions clone() {
+		return new ConcurrencyOptions(this);
+	}
+
+}
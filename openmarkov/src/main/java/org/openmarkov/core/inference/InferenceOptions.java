@@ -31,20 +31,25 @@ public class InferenceOptions {
 
 	private TemporalOptions temporalOptions;
 
+	private ConcurrencyOptions concurrencyOptions;
+
 	// Constructor
 	public InferenceOptions(ProbNet probNet, Variable simulationIndexVariable) {
 		this.probNet = probNet;
 		this.simulationIndexVariable = simulationIndexVariable;
+		this.concurrencyOptions = new ConcurrencyOptions();
 	}
 
 	public InferenceOptions() {
 		this.multiCriteriaOptions = new MulticriteriaOptions();
 		this.temporalOptions = new TemporalOptions();
+		this.concurrencyOptions = new ConcurrencyOptions();
 	}
 
 	public InferenceOptions(InferenceOptions inferenceOptions) {
 		this.multiCriteriaOptions = new MulticriteriaOptions(inferenceOptions.getMultiCriteriaOptions());
 		this.temporalOptions = new TemporalOptions(inferenceOptions.getTemporalOptions());
+		this.concurrencyOptions = new ConcurrencyOptions(inferenceOptions.getConcurrencyOptions());
 	}
 
 	/**
@@ -81,6 +86,17 @@ public class InferenceOptions {
 		this.temporalOptions = temporalOptions;
 	}
 
+	/**
+	 * @return Options for the concurrent potential operations used in the inference
+	 */
+	public ConcurrencyOptions getConcurrencyOptions() {
+		return concurrencyOptions;
+	}
+
+	public void setConcurrencyOptions(ConcurrencyOptions concurrencyOptions) {
+		this.concurrencyOptions = concurrencyOptions;
+	}
+
 	/**
 	 * Prints decision criteria, simulation indices and discount rate
 	 */
@@ -10,12 +10,32 @@ package org.openmarkov.core.io.database;
 import org.openmarkov.core.model.network.Variable;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+/**
+ * Cases of a set of variables; each case assigns a state index to every variable.
+ * The cases are stored either as rows ({@code int[][]}) or, in columnar mode, as one
+ * bit-packed column per variable, which needs much less memory and lets the counting
+ * of the cases ({@link #getCounts(List)}) read the data sequentially.
+ */
 public class CaseDatabase {
+
+	/**
+	 * Number of cases whose positions are computed together when counting a columnar database
+	 */
+	private static final int COUNT_BLOCK_SIZE = 1024;
+
 	private List<Variable> variables;
 	private int[][] cases;
 
+	/**
+	 * Packed values of each variable. Null unless the database is columnar
+	 */
+	private PackedColumn[] columns;
+
+	private int numCases;
+
 	/**
 	 * Constructor for CaseDatabase.
 	 *
@@ -26,28 +46,100 @@ public class CaseDatabase {
 		super();
 		this.variables = new ArrayList<>(variables);
 		this.cases = cases;
+		this.numCases = cases.length;
+	}
+
+	/**
+	 * Constructor for CaseDatabase.
+	 *
+	 * @param variables List of variables
+	 * @param cases     bidimensional array with the cases
+	 * @param columnar  if true the cases are packed in columns and {@code cases} is not kept
+	 */
+	public CaseDatabase(List<Variable> variables, int[][] cases, boolean columnar) {
+		this(variables, cases);
+		if (columnar) {
+			pack();
+		}
 	}
 
 	public CaseDatabase(CaseDatabase database) {
 		super();
 		this.variables = new ArrayList<>(database.getVariables());
-		int[][] casesToCopy = database.getCases();
-		this.cases = new int[casesToCopy.length][variables.size()];
-
-		for (int i = 0; i < cases.length; ++i) {
-			for (int j = 0; j < cases[i].length; ++i) {
-				cases[i][j] = casesToCopy[i][j];
+		this.numCases = database.numCases;
+		if (database.isColumnar()) {
+			// Packed columns are never modified, so they can be shared
+			this.columns = database.columns.clone();
+		} else {
+			this.cases = new int[numCases][];
+			for (int i = 0; i < numCases; ++i) {
+				cases[i] = database.cases[i].clone();
 			}
 		}
 	}
 
 	/**
-	 * Returns the cases.
+	 * @return A columnar copy of this database, or this database if it is already columnar
+	 */
+	public CaseDatabase toColumnar() {
+		if (isColumnar()) {
+			return this;
+		}
+		return new CaseDatabase(variables, cases, true);
+	}
+
+	/**
+	 * @return true if the cases are stored as bit-packed columns
+	 */
+	public boolean isColumnar() {
+		return columns != null;
+	}
+
+	private void pack() {
+		columns = new PackedColumn[variables.size()];
+		for (int j = 0; j < columns.length; j++) {
+			columns[j] = new PackedColumn(cases, j, variables.get(j).getNumStates());
+		}
+		cases = null;
+	}
+
+	/**
+	 * Returns the cases. In columnar mode the rows are rebuilt on each call, so
+	 * changes in the returned array are not stored in the database; use
+	 * {@link #getCase(int, int[])} to read the cases one by one.
 	 *
 	 * @return the cases.
 	 */
 	public int[][] getCases() {
-		return cases;
+		if (cases != null) {
+			return cases;
+		}
+		int[][] rows = new int[numCases][columns.length];
+		for (int j = 0; j < columns.length; j++) {
+			for (int i = 0; i < numCases; i++) {
+				rows[i][j] = columns[j].get(i);
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * Copies the states of a case into {@code dataCase}. In columnar mode the
+	 * states are read from the packed columns, without building the rows.
+	 *
+	 * @param index    index of the case
+	 * @param dataCase array with one element per variable, which is overwritten
+	 * @return dataCase
+	 */
+	public int[] getCase(int index, int[] dataCase) {
+		if (cases != null) {
+			System.arraycopy(cases[index], 0, dataCase, 0, variables.size());
+		} else {
+			for (int j = 0; j < columns.length; j++) {
+				dataCase[j] = columns[j].get(index);
+			}
+		}
+		return dataCase;
 	}
 
 	/**
@@ -87,9 +179,13 @@ public class CaseDatabase {
 		int indexOfVariable = variables.indexOf(variable);
 
 		if (indexOfVariable != -1) {
-			casesOfVariable = new int[cases.length];
-			for (int i = 0; i < cases.length; ++i) {
-				casesOfVariable[i] = cases[i][indexOfVariable];
+			casesOfVariable = new int[numCases];
+			if (columns != null) {
+				columns[indexOfVariable].addTo(0, numCases, 1, casesOfVariable);
+			} else {
+				for (int i = 0; i < numCases; ++i) {
+					casesOfVariable[i] = cases[i][indexOfVariable];
+				}
 			}
 		}
 
@@ -102,7 +198,55 @@ public class CaseDatabase {
 	 * @return number of cases
 	 */
 	public int getNumCases() {
-		return cases.length;
+		return numCases;
+	}
+
+	/**
+	 * Counts the cases of each configuration of the given variables. The counts
+	 * are laid out as the table of a {@code TablePotential} with the same
+	 * variables: the first variable changes fastest.
+	 *
+	 * @param countVariables variables of the database, in the order of the table
+	 * @return the number of cases of each configuration
+	 * @throws IllegalArgumentException if a variable is not in the database
+	 */
+	public double[] getCounts(List<Variable> countVariables) {
+		int numCountVariables = countVariables.size();
+		int[] indexes = new int[numCountVariables];
+		int[] offsets = new int[numCountVariables];
+		int tableSize = 1;
+		for (int j = 0; j < numCountVariables; j++) {
+			Variable variable = countVariables.get(j);
+			indexes[j] = variables.indexOf(variable);
+			if (indexes[j] == -1) {
+				throw new IllegalArgumentException("Variable " + variable.getName() + " is not in the database");
+			}
+			offsets[j] = tableSize;
+			tableSize *= variable.getNumStates();
+		}
+		double[] counts = new double[tableSize];
+		if (columns == null) {
+			for (int[] row : cases) {
+				int position = 0;
+				for (int j = 0; j < numCountVariables; j++) {
+					position += offsets[j] * row[indexes[j]];
+				}
+				counts[position]++;
+			}
+		} else {
+			int[] positions = new int[COUNT_BLOCK_SIZE];
+			for (int from = 0; from < numCases; from += COUNT_BLOCK_SIZE) {
+				int length = Math.min(COUNT_BLOCK_SIZE, numCases - from);
+				Arrays.fill(positions, 0, length, 0);
+				for (int j = 0; j < numCountVariables; j++) {
+					columns[indexes[j]].addTo(from, length, offsets[j], positions);
+				}
+				for (int i = 0; i < length; i++) {
+					counts[positions[i]]++;
+				}
+			}
+		}
+		return counts;
 	}
 
 }
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) CISIAD, UNED, Spain,  2019. Licensed under the GPLv3 licence
+ * Unless required by applicable law or agreed to in writing,
+ * this code is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OF ANY KIND.
+ */
+
+package org.openmarkov.core.io.database;
+
+/**
+ * Values of one variable in all the cases of a {@code CaseDatabase}, packed in
+ * {@code long} words with the minimum number of bits needed by the largest
+ * state index. A value never spans two words, so that each word holds
+ * {@code 64 / bitsPerValue} values.
+ */
+final class PackedColumn {
+
+	private final long[] words;
+
+	private final int bitsPerValue;
+
+	private final int valuesPerWord;
+
+	private final long mask;
+
+	private final int size;
+
+	/**
+	 * @param cases     rows of the database
+	 * @param column    index of the variable in the rows
+	 * @param numStates number of states of the variable
+	 */
+	PackedColumn(int[][] cases, int column, int numStates) {
+		int maxValue = numStates - 1;
+		for (int[] row : cases) {
+			if (row[column] < 0) {
+				throw new IllegalArgumentException("Negative state index " + row[column] + " in column " + column);
+			}
+			maxValue = Math.max(maxValue, row[column]);
+		}
+		size = cases.length;
+		bitsPerValue = Math.max(1, 32 - Integer.numberOfLeadingZeros(maxValue));
+		valuesPerWord = Long.SIZE / bitsPerValue;
+		mask = (1L << bitsPerValue) - 1;
+		words = new long[(size + valuesPerWord - 1) / valuesPerWord];
+		for (int i = 0; i < size; i++) {
+			words[i / valuesPerWord] |= (long) cases[i][column] << ((i % valuesPerWord) * bitsPerValue);
+		}
+	}
+
+	/**
+	 * @param index index of the case
+	 * @return The value of the variable in that case
+	 */
+	int get(int index) {
+		return (int) ((words[index / valuesPerWord] >>> ((index % valuesPerWord) * bitsPerValue)) & mask);
+	}
+
+	/**
+	 * Adds {@code factor} times the value of each case in [{@code from}, {@code from + length})
+	 * to {@code positions}, decoding the words sequentially.
+	 *
+	 * @param from      index of the first case
+	 * @param length    number of cases
+	 * @param factor    multiplier of the values
+	 * @param positions output. {@code positions[i]} is incremented with the value of case {@code from + i}
+	 */
+	void addTo(int from, int length, int factor, int[] positions) {
+		if (length <= 0) {
+			return;
+		}
+		int word = from / valuesPerWord;
+		int slot = from - word * valuesPerWord;
+		long bits = words[word] >>> (slot * bitsPerValue);
+		for (int i = 0; i < length; i++) {
+			if (slot == valuesPerWord) {
+				bits = words[++word];
+				slot = 0;
+			}
+			positions[i] += (int) (bits & mask) * factor;
+			bits >>>= bitsPerValue;
+			slot++;
+		}
+	}
+
+	/**
+	 * @return Number of cases
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return Number of bits used by each value
+	 */
+	int getBitsPerValue() {
+		return bitsPerValue;
+	}
+
+}
@@ -551,6 +551,7 @@ public class ProbNet extends Graph<Node> implements Cloneable {
 		//Copy Inference Options
 		copyNet.getInferenceOptions().setMultiCriteriaOptions(this.getInferenceOptions().getMultiCriteriaOptions());
 		copyNet.getInferenceOptions().setTemporalOptions(this.getInferenceOptions().getTemporalOptions());
+		copyNet.getInferenceOptions().setConcurrencyOptions(this.getInferenceOptions().getConcurrencyOptions());
 		return copyNet;
 	}
 
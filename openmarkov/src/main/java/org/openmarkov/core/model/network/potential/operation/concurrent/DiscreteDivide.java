@@ -7,38 +7,58 @@
 
 package org.openmarkov.core.model.network.potential.operation.concurrent;
 
-import org.openmarkov.core.model.network.potential.TablePotential;
+import java.util.concurrent.RecursiveAction;
 
-public class DiscreteDivide implements Runnable {
+/**
+ * Divides the potentials of a {@code SharedDataDivide} in the interval of quotient
+ * positions [{@code initialPosition}, {@code finalPosition}). Intervals longer than
+ * {@code sdd.intervalLength} are split in two halves computed by forked tasks.
+ */
+@SuppressWarnings("serial") public class DiscreteDivide extends RecursiveAction {
+
+	private final SharedDataDivide sdd;
 
-	int[] dimension;
-	int[] potentialsPositions;
-	private TablePotential quotient;
-	private int numVariables;
-	private int[] quotientCoordinate;
-	private int[] quotientDimension;
-	private TablePotential numerator;
-	private TablePotential denominator;
-	private int[] offset;
-	private int[][] offsetsAccumulate;
+	private final int initialPosition;
 
-	public DiscreteDivide(SharedDataDivide sdd, int logicalProcessor) {
-		this.numerator = sdd.numerator;
-		this.denominator = sdd.denominator;
-		this.quotientCoordinate = sdd.quotientCoordinate;
-		this.quotientDimension = sdd.quotientDimension;
-		this.offsetsAccumulate = sdd.offsetAccumulate;
-		this.quotient = sdd.result;
+	private final int finalPosition;
+
+	public DiscreteDivide(SharedDataDivide sdd, int initialPosition, int finalPosition) {
+		this.sdd = sdd;
+		this.initialPosition = initialPosition;
+		this.finalPosition = finalPosition;
 	}
 
-	public void run() {
-		int tamTable = 1; // If numVariables == 0 the potential is a constant
-		if (numVariables > 0) {
-			tamTable = dimension[numVariables - 1] * offset[numVariables - 1];
+	@Override protected void compute() {
+		if (finalPosition - initialPosition > sdd.intervalLength) {
+			int middlePosition = (initialPosition + finalPosition) >>> 1;
+			invokeAll(new DiscreteDivide(sdd, initialPosition, middlePosition),
+					new DiscreteDivide(sdd, middlePosition, finalPosition));
+		} else {
+			computeInterval();
+		}
+	}
+
+	/**
+	 * Computes sequentially the interval
+	 */
+	private void computeInterval() {
+		double[] numeratorValues = sdd.numerator.values;
+		double[] denominatorValues = sdd.denominator.values;
+		double[] quotientValues = sdd.result.values;
+		int[] quotientDimension = sdd.quotientDimension;
+		int[][] offsetsAccumulate = sdd.offsetAccumulate;
+
+		// Coordinate and positions of the first configuration of the interval
+		int[] quotientCoordinate = new int[sdd.numVariables];
+		DiscretePotentialOperations.getCoordinate(initialPosition, sdd.quotientOffsets, quotientCoordinate);
+		int[] potentialsPositions = new int[2];
+		for (int iPotential = 0; iPotential < 2; iPotential++) {
+			potentialsPositions[iPotential] = DiscretePotentialOperations
+					.getPosition(quotientCoordinate, sdd.offsetsInPotentials[iPotential]);
 		}
 
 		int incrementedVariable = 0;
-		for (int quotientPosition = 0; quotientPosition < tamTable; quotientPosition++) {
+		for (int quotientPosition = initialPosition; quotientPosition < finalPosition; quotientPosition++) {
 			/* increment the result coordinate and
 			   find out which variable is to be incremented */
 			for (int iVariable = 0; iVariable < quotientCoordinate.length; iVariable++) {
@@ -58,11 +78,11 @@ public class DiscreteDivide implements Runnable {
 			}
 
 			// divide
-			if (denominator.values[potentialsPositions[1]] == 0.0) {
-				quotient.values[quotientPosition] = 0.0;
+			if (denominatorValues[potentialsPositions[1]] == 0.0) {
+				quotientValues[quotientPosition] = 0.0;
 			} else {
-				quotient.values[quotientPosition] = numerator.values[potentialsPositions[0]]
-						/ denominator.values[potentialsPositions[1]];
+				quotientValues[quotientPosition] = numeratorValues[potentialsPositions[0]]
+						/ denominatorValues[potentialsPositions[1]];
 			}
 			for (int iPotential = 0; iPotential < 2; iPotential++) {
 				// update the current position in each potential table
@@ -7,62 +7,72 @@
 
 package org.openmarkov.core.model.network.potential.operation.concurrent;
 
-public class DiscreteMultiply implements Runnable {
+import java.util.concurrent.RecursiveAction;
 
-	volatile protected SharedDataMultiply sdm;
-
-	protected int logicalProcessor;
-
-	protected int[] resultDimension;
-
-	protected int[] resultCoordinate;
-
-	protected double[] resultTable;
+/**
+ * Multiplies the potentials of a {@code SharedDataMultiply} in the interval of result
+ * positions [{@code initialPosition}, {@code finalPosition}). Intervals longer than
+ * {@code sdm.intervalLength} are split in two halves computed by forked tasks.
+ */
+@SuppressWarnings("serial") public class DiscreteMultiply extends RecursiveAction {
 
-	protected int[] potentialsPositions;
+	protected final SharedDataMultiply sdm;
 
-	protected double[][] tables;
+	protected final int initialPosition;
 
-	protected int[][] offAccPotentials;
+	protected final int finalPosition;
 
-	protected int numPotentials;
+	public DiscreteMultiply(SharedDataMultiply sdm, int initialPosition, int finalPosition) {
+		this.sdm = sdm;
+		this.initialPosition = initialPosition;
+		this.finalPosition = finalPosition;
+	}
 
-	protected double constantFactor;
+	@Override protected void compute() {
+		if (finalPosition - initialPosition > sdm.intervalLength) {
+			int middlePosition = (initialPosition + finalPosition) >>> 1;
+			invokeAll(split(initialPosition, middlePosition), split(middlePosition, finalPosition));
+		} else {
+			computeInterval();
+		}
+	}
 
-	public DiscreteMultiply(SharedDataMultiply sdm, int logicalProcessor) {
-		this.sdm = sdm;
-		this.logicalProcessor = logicalProcessor;
-		potentialsPositions = sdm.potentialsPositions[logicalProcessor];
-		resultDimension = sdm.result.getDimensions();
-		resultCoordinate = sdm.resultIntervals[logicalProcessor];
-		tables = sdm.tables;
-		offAccPotentials = sdm.offAccPotentials;
-		resultTable = sdm.result.values;
-		numPotentials = sdm.numPotentials;
-		constantFactor = sdm.constantFactor;
+	/**
+	 * @param initialPosition first position of the subinterval
+	 * @param finalPosition   position after the last one of the subinterval
+	 * @return A task of the same type for a subinterval
+	 */
+	protected DiscreteMultiply split(int initialPosition, int finalPosition) {
+		return new DiscreteMultiply(sdm, initialPosition, finalPosition);
 	}
 
-	public void run() {
+	/**
+	 * Computes sequentially the interval
+	 */
+	protected void computeInterval() {
+		int numPotentials = sdm.numPotentials;
+		double[][] tables = sdm.tables;
+		int[][] offAccPotentials = sdm.offAccPotentials;
+		int[] resultDimension = sdm.resultDimensions;
+		double[] resultTable = sdm.resultValues;
+		double constantFactor = sdm.constantFactor;
+
+		// Coordinate and positions of the first configuration of the interval
+		int[] resultCoordinate = new int[sdm.numResultVariables];
+		DiscretePotentialOperations.getCoordinate(initialPosition, sdm.offsetsResult, resultCoordinate);
+		int[] potentialsPositions = new int[numPotentials];
+		for (int iPotential = 0; iPotential < numPotentials; iPotential++) {
+			potentialsPositions[iPotential] = DiscretePotentialOperations
+					.getPosition(resultCoordinate, sdm.offsetsInPotentials[iPotential]);
+		}
+
 		// Multiply
 		int incrementedVariable = 0;
 		double mulResult;
-
-		int initialPosition = sdm.resultPositionIntervals[logicalProcessor];
-		int finalPosition = initialPosition + sdm.lengthResultIntervals[logicalProcessor];
-		
-		/*
-		System.out.println("Logical processor: " + logicalProcessor + 
-			", Initial position: " + initialPosition + ", Final position: " +
-			finalPosition + ". Total iterations: " 
-			+ (finalPosition - initialPosition) + "\n" 
-			+ "First resultCoordinate: " 
-			+ openmarkov.UtilTestMethods.printArrayOfIntegers(resultCoordinate));
-		*/
-
 		for (int resultPosition = initialPosition; resultPosition < finalPosition; resultPosition++) {
 			mulResult = constantFactor;
 
-          /* increment the result coordinate and
+			/* increment the result coordinate and
 			   find out which variable is to be incremented */
 			for (int iVariable = 0; iVariable < resultCoordinate.length; iVariable++) {
 				// try by incrementing the current variable (given by iVariable)
@@ -83,28 +93,12 @@ public class DiscreteMultiply implements Runnable {
 			// multiply
 			for (int iPotential = 0; iPotential < numPotentials; iPotential++) {
 				// multiply the numbers
-				try {
-					mulResult = mulResult * tables[iPotential][potentialsPositions[iPotential]];
-				} catch (Exception e) {
-					System.err.println(getErrorMsg(e, iPotential));
-				}
+				mulResult = mulResult * tables[iPotential][potentialsPositions[iPotential]];
 				// update the current position in each potential table
 				potentialsPositions[iPotential] += offAccPotentials[iPotential][incrementedVariable];
-
 			}
 			resultTable[resultPosition] = mulResult;
 		}
 	}
 
-	private String getErrorMsg(Exception e, int iPotential) {
-		String error = new String();
-		error = error + e.getMessage();
-		error = error + "Logical processor: " + logicalProcessor + "\n";
-		error = error + "iPotential: " + iPotential + "\n";
-		error = error + "potentialsPositions.length: " + potentialsPositions.length + "\n";
-		error = error + "tables[iPotential].length: " + sdm.tables[iPotential].length + "\n";
-		error = error + "potentialsPositions[iPotential]: " + potentialsPositions[iPotential] + "\n";
-
-		return error;
-	}
 }
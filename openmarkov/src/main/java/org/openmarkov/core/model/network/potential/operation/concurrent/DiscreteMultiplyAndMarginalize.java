@@ -7,37 +7,53 @@
 
 package org.openmarkov.core.model.network.potential.operation.concurrent;
 
-public class DiscreteMultiplyAndMarginalize extends DiscreteMultiply implements Runnable {
-
-	private SharedDataMultiplyAndMarginalize sdm;
-
-	private int resultSize;
-
-	private int[] currentPositions;
-
-	private int eliminationSize;
+/**
+ * Multiplies the potentials of a {@code SharedDataMultiplyAndMarginalize} and sums out the
+ * variables to eliminate, for the interval of result positions
+ * [{@code initialPosition}, {@code finalPosition}).
+ */
+@SuppressWarnings("serial") public class DiscreteMultiplyAndMarginalize extends DiscreteMultiply {
 
-	private int[] unionCoordinate;
+	private final SharedDataMultiplyAndMarginalize sdmm;
 
-	private int[] unionDimensions;
+	public DiscreteMultiplyAndMarginalize(SharedDataMultiplyAndMarginalize sdmm, int initialPosition,
+			int finalPosition) {
+		super(sdmm, initialPosition, finalPosition);
+		this.sdmm = sdmm;
+	}
 
-	public DiscreteMultiplyAndMarginalize(SharedDataMultiplyAndMarginalize sdm, int logicalProcessor) {
-		super(sdm, logicalProcessor);
-		resultSize = sdm.result.values.length;
-		eliminationSize = sdm.eliminationSize;
-		unionCoordinate = sdm.unionCoordinate;
-		unionDimensions = sdm.unionDimensions;
+	@Override protected DiscreteMultiply split(int initialPosition, int finalPosition) {
+		return new DiscreteMultiplyAndMarginalize(sdmm, initialPosition, finalPosition);
 	}
 
-	public void run() {
+	@Override protected void computeInterval() {
+		int numPotentials = sdmm.numPotentials;
+		double[][] tables = sdmm.tables;
+		int[][] offAccPotentials = sdmm.offAccPotentials;
+		int[] unionDimensions = sdmm.unionDimensions;
+		double[] resultTable = sdmm.resultValues;
+		double constantFactor = sdmm.constantFactor;
+		int eliminationSize = sdmm.eliminationSize;
+
+		// Coordinate in the product potential of the first configuration of the interval:
+		// variables to eliminate at 0 followed by the coordinate of the variables to keep
+		int numVariablesToEliminate = sdmm.variablesToEliminate.size();
+		int[] resultCoordinate = new int[sdmm.numResultVariables];
+		DiscretePotentialOperations.getCoordinate(initialPosition, sdmm.offsetsResult, resultCoordinate);
+		int[] unionCoordinate = new int[unionDimensions.length];
+		System.arraycopy(resultCoordinate, 0, unionCoordinate, numVariablesToEliminate, resultCoordinate.length);
+		int[] currentPositions = new int[numPotentials];
+		for (int i = 0; i < numPotentials; i++) {
+			currentPositions[i] = sdmm.initialPositions[i] + DiscretePotentialOperations
+					.getPosition(unionCoordinate, sdmm.offsetsInPotentials[i]);
+		}
+
 		// Auxiliary variables for the nested loops
 		double multiplicationResult; // product of the table values
 		double accumulator; // in general, the sum or the maximum
 		int increasedVariable = 0; // when computing the next configuration
 
 		// outer iterations correspond to the variables to keep
-		int initialPosition = sdm.resultPositionIntervals[logicalProcessor];
-		int finalPosition = initialPosition + sdm.lengthResultIntervals[logicalProcessor];
 		for (int outerIteration = initialPosition; outerIteration < finalPosition; outerIteration++) {
 			// Inner iterations correspond to the variables to eliminate
 			// accumulator summarizes the result of all inner iterations
@@ -53,17 +69,9 @@ public class DiscreteMultiplyAndMarginalize extends DiscreteMultiply implements
 			// next inner iterations
 			for (int innerIteration = 1; innerIteration < eliminationSize; innerIteration++) {
 
-				// find the next configuration and the index of	 the
-				// increased
-				// variable
-				for (int j = 0; j < unionCoordinate.length; j++) {
-					unionCoordinate[j]++;
-					if (unionCoordinate[j] < unionDimensions[j]) {
-						increasedVariable = j;
-						break;
-					}
-					unionCoordinate[j] = 0;
-				}
+				// find the next configuration and the index of the
+				// increased variable
+				increasedVariable = nextConfiguration(unionDimensions, unionCoordinate, increasedVariable);
 
 				// update the positions of the potentials we are multiplying
 				for (int i = 0; i < numPotentials; i++) {
@@ -73,30 +81,18 @@ public class DiscreteMultiplyAndMarginalize extends DiscreteMultiply implements
 				// multiply the table values of the potentials
 				multiplicationResult = constantFactor;
 				for (int i = 0; i < numPotentials; i++) {
-					multiplicationResult = multiplicationResult * tables[i][currentPositions[i]];
+					multiplicationResult *= tables[i][currentPositions[i]];
 				}
 
 				// update the accumulator (for this inner iteration)
 				accumulator += multiplicationResult;
-				// accumulator =
-				// operator.combine(accumlator,multiplicationResult);
 
 			} // end of inner iteration
 
 			// when eliminationSize == 0 there is a multiplication without
 			// marginalization but we must find the next configuration
-			if (outerIteration < resultSize - 1) {
-				// find the next configuration and the index of the
-				// increased
-				// variable
-				for (int j = 0; j < unionCoordinate.length; j++) {
-					unionCoordinate[j]++;
-					if (unionCoordinate[j] < unionDimensions[j]) {
-						increasedVariable = j;
-						break;
-					}
-					unionCoordinate[j] = 0;
-				}
+			if (outerIteration < finalPosition - 1) {
+				increasedVariable = nextConfiguration(unionDimensions, unionCoordinate, increasedVariable);
 
 				// update the positions of the potentials we are multiplying
 				for (int i = 0; i < numPotentials; i++) {
@@ -104,9 +100,23 @@ public class DiscreteMultiplyAndMarginalize extends DiscreteMultiply implements
 				}
 			}
 
-			resultTable[outerIteration] = accumulator / eliminationSize;
+			resultTable[outerIteration] = accumulator;
 
 		} // end of outer iteration
+	}
 
+	/**
+	 * Finds the next configuration and the index of the increased variable
+	 */
+	private static int nextConfiguration(int[] dimensions, int[] coordinate, int increasedVariable) {
+		for (int j = 0; j < coordinate.length; j++) {
+			coordinate[j]++;
+			if (coordinate[j] < dimensions[j]) {
+				return j;
+			}
+			coordinate[j] = 0;
+		}
+		return increasedVariable;
 	}
+
 }
@@ -7,12 +7,27 @@
 
 package org.openmarkov.core.model.network.potential.operation.concurrent;
 
+import org.openmarkov.core.inference.ConcurrencyOptions;
 import org.openmarkov.core.model.network.Variable;
 import org.openmarkov.core.model.network.potential.Potential;
 import org.openmarkov.core.model.network.potential.TablePotential;
+import org.openmarkov.core.model.network.potential.operation.AuxiliaryOperations;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
 
+/**
+ * Concurrent versions of some operations of
+ * {@link org.openmarkov.core.model.network.potential.operation.DiscretePotentialOperations}.
+ * The result table is split recursively in intervals until each interval is smaller than the
+ * sequential threshold. Operations below that threshold, or when concurrency is disabled, are
+ * computed sequentially in the calling thread. The options are passed to each operation, so
+ * inference algorithms with different options do not interfere; the operations with the same
+ * parallelism share one {@code ForkJoinPool}.
+ */
 public class DiscretePotentialOperations {
 
 	// Attributes
@@ -20,79 +35,150 @@ public class DiscretePotentialOperations {
 	 * Number of logical processors, bear in mind that logical processors are
 	 * not always the physical ones. If the processors have a n
 	 * hyper threading then logical processors = n * physical processors.
+	 * It is the default parallelism of the operations.
 	 */
 	public static int numLogicalProcessors = java.lang.Runtime.getRuntime().availableProcessors();
 
-	// Constructor. Don't let anyone instantiate this class because in contains 
+	/**
+	 * Number of intervals per worker thread in which an operation is split, at most. More
+	 * intervals than threads let the pool balance the load by work stealing.
+	 */
+	private static final int INTERVALS_PER_THREAD = 4;
+
+	/**
+	 * Options of the operations which are called without options
+	 */
+	private static final ConcurrencyOptions DEFAULT_OPTIONS = new ConcurrencyOptions();
+
+	/**
+	 * Pools of the operations, by parallelism. Created lazily.
+	 */
+	private static final ConcurrentMap<Integer, ForkJoinPool> pools = new ConcurrentHashMap<>();
+
+	// Constructor. Don't let anyone instantiate this class because in contains
 	// only static methods.
 	private DiscretePotentialOperations() {
 	}
 
 	// Methods
+
+	/**
+	 * @param parallelism number of worker threads
+	 * @return The pool with the given parallelism, created if it does not exist yet
+	 */
+	static ForkJoinPool getPool(int parallelism) {
+		return pools.computeIfAbsent(parallelism, ForkJoinPool::new);
+	}
+
+	/**
+	 * @param parallelism number of worker threads
+	 * @return True if an operation has been computed in parallel with the given parallelism
+	 */
+	static boolean hasPool(int parallelism) {
+		return pools.containsKey(parallelism);
+	}
+
 	/**
-	 *
 	 * @param potentials ArrayList of Potentials
 	 * @return The multiplied potentials
 	 * @throws Exception Exception
 	 */
 	public static TablePotential multiply(List<TablePotential> potentials) throws Exception {
+		return multiply(potentials, DEFAULT_OPTIONS);
+	}
+
+	/**
+	 * @param potentials         ArrayList of Potentials
+	 * @param concurrencyOptions options of the computation
+	 * @return The multiplied potentials
+	 * @throws Exception Exception
+	 */
+	public static TablePotential multiply(List<TablePotential> potentials, ConcurrencyOptions concurrencyOptions) {
+		if (!concurrencyOptions.isParallel() || potentials.size() < 2 || hasInterventions(potentials)) {
+			return org.openmarkov.core.model.network.potential.operation.DiscretePotentialOperations
+					.multiply(potentials);
+		}
 		// Sequential part
 		SharedDataMultiply sdm = new SharedDataMultiply(potentials);
 		sdm.initialize();
-
-		// Concurrent part
-		// Starts concurrency
-		Thread[] multipliers = new Thread[numLogicalProcessors];
-		DiscreteMultiply[] cdm = new DiscreteMultiply[numLogicalProcessors];
-		for (int i = 0; i < numLogicalProcessors; i++) {
-			cdm[i] = new DiscreteMultiply(sdm, i);
-			multipliers[i] = new Thread(cdm[i]);
-			multipliers[i].start();
-			//cdm[i].run();
+		long work = (long) sdm.resultSize * sdm.numPotentials;
+		if (sdm.numResultVariables == 0 || work < concurrencyOptions.getSequentialThreshold()) {
+			return org.openmarkov.core.model.network.potential.operation.DiscretePotentialOperations
+					.multiply(potentials);
 		}
 
-		// Synchronization. The current thread waits until all 
-		// concurrent operations finish
-		for (int i = 0; i < numLogicalProcessors; i++) {
-			try {
-				multipliers[i].join();
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
-		}
+		// Concurrent part
+		sdm.intervalLength = getIntervalLength(sdm.resultSize, sdm.numPotentials, concurrencyOptions);
+		getPool(concurrencyOptions.getParallelism()).invoke(new DiscreteMultiply(sdm, 0, sdm.resultSize));
 
-		return sdm.result;
+		return sdm.buildResult();
 	}
 
+	/**
+	 * @param tablePotentials        potentials to multiply
+	 * @param fSVariablesToKeep      variables of the resulting potential
+	 * @param fSVariablesToEliminate variables eliminated by summing out
+	 * @return The potential resulting of multiplying and summing out
+	 * @throws Exception Exception
+	 */
 	public static TablePotential multiplyAndMarginalize(List<TablePotential> tablePotentials,
 			List<Variable> fSVariablesToKeep, List<Variable> fSVariablesToEliminate) throws Exception {
+		return multiplyAndMarginalize(tablePotentials, fSVariablesToKeep, fSVariablesToEliminate, DEFAULT_OPTIONS);
+	}
+
+	/**
+	 * @param tablePotentials        potentials to multiply
+	 * @param fSVariablesToKeep      variables of the resulting potential
+	 * @param fSVariablesToEliminate variables eliminated by summing out
+	 * @param concurrencyOptions     options of the computation
+	 * @return The potential resulting of multiplying and summing out
+	 */
+	public static TablePotential multiplyAndMarginalize(List<TablePotential> tablePotentials,
+			List<Variable> fSVariablesToKeep, List<Variable> fSVariablesToEliminate,
+			ConcurrencyOptions concurrencyOptions) {
+		if (!concurrencyOptions.isParallel() || fSVariablesToKeep.isEmpty()) {
+			return org.openmarkov.core.model.network.potential.operation.DiscretePotentialOperations
+					.multiplyAndMarginalize(tablePotentials, fSVariablesToKeep, fSVariablesToEliminate);
+		}
 
 		// Sequential part
 		SharedDataMultiplyAndMarginalize sdm = new SharedDataMultiplyAndMarginalize(tablePotentials, fSVariablesToKeep,
 				fSVariablesToEliminate);
 		sdm.initializeMultiplyAndMarginalize();
+		int operationsPerPosition = sdm.eliminationSize * Math.max(1, sdm.numPotentials);
+		long work = (long) sdm.resultSize * operationsPerPosition;
+		if (sdm.numPotentials == 0 || work < concurrencyOptions.getSequentialThreshold()) {
+			return org.openmarkov.core.model.network.potential.operation.DiscretePotentialOperations
+					.multiplyAndMarginalize(tablePotentials, fSVariablesToKeep, fSVariablesToEliminate);
+		}
 
 		// Concurrent part
-		// Starts concurrency
-		Thread[] multipliers = new Thread[numLogicalProcessors];
-		DiscreteMultiplyAndMarginalize[] cdm = new DiscreteMultiplyAndMarginalize[numLogicalProcessors];
-		for (int i = 0; i < numLogicalProcessors; i++) {
-			cdm[i] = new DiscreteMultiplyAndMarginalize(sdm, i);
-			multipliers[i] = new Thread(cdm[i]);
-			multipliers[i].start();
-		}
+		sdm.intervalLength = getIntervalLength(sdm.resultSize, operationsPerPosition, concurrencyOptions);
+		getPool(concurrencyOptions.getParallelism())
+				.invoke(new DiscreteMultiplyAndMarginalize(sdm, 0, sdm.resultSize));
+
+		return sdm.buildResult();
+	}
 
-		// Synchronization. The current thread waits until all 
-		// concurrent operations finish
-		for (int i = 0; i < numLogicalProcessors; i++) {
-			try {
-				multipliers[i].join();
-			} catch (InterruptedException e) {
-				e.printStackTrace();
+	/**
+	 * @param potentials          potentials to multiply
+	 * @param variablesOfInterest variables that must be kept (although this set may contain
+	 *                            some variables that are not in any potential)
+	 * @param concurrencyOptions  options of the computation
+	 * @return The potential resulting of multiplying and summing out the other variables
+	 */
+	public static TablePotential multiplyAndMarginalize(List<TablePotential> potentials,
+			List<Variable> variablesOfInterest, ConcurrencyOptions concurrencyOptions) {
+		List<Variable> variablesToKeep = new ArrayList<>();
+		List<Variable> variablesToEliminate = new ArrayList<>();
+		for (Variable variable : AuxiliaryOperations.getUnionVariables(potentials)) {
+			if (variablesOfInterest.contains(variable)) {
+				variablesToKeep.add(variable);
+			} else {
+				variablesToEliminate.add(variable);
 			}
 		}
-
-		return sdm.result;
+		return multiplyAndMarginalize(potentials, variablesToKeep, variablesToEliminate, concurrencyOptions);
 	}
 
 	/**
@@ -101,108 +187,101 @@ public class DiscretePotentialOperations {
 	 * @return numeratorPotential / denominatorPotential {@code TablePotential}
 	 */
 	public static TablePotential divide(Potential numeratorPotential, Potential denominatorPotential) {
+		return divide(numeratorPotential, denominatorPotential, DEFAULT_OPTIONS);
+	}
+
+	/**
+	 * @param numeratorPotential   {@code Potential}
+	 * @param denominatorPotential {@code Potential}
+	 * @param concurrencyOptions   options of the computation
+	 * @return numeratorPotential / denominatorPotential {@code TablePotential}
+	 */
+	public static TablePotential divide(Potential numeratorPotential, Potential denominatorPotential,
+			ConcurrencyOptions concurrencyOptions) {
+		if (!concurrencyOptions.isParallel() || numeratorPotential.getNumVariables() == 0
+				|| denominatorPotential.getNumVariables() == 0) {
+			return org.openmarkov.core.model.network.potential.operation.DiscretePotentialOperations
+					.divide(numeratorPotential, denominatorPotential);
+		}
 		// Sequential part
 		SharedDataDivide sdd = new SharedDataDivide(numeratorPotential, denominatorPotential);
 		sdd.initialize();
-
-		// Concurrent part
-		// Starts concurrency
-		Thread[] multipliers = new Thread[numLogicalProcessors];
-		DiscreteDivide[] cdd = new DiscreteDivide[numLogicalProcessors];
-		for (int i = 0; i < numLogicalProcessors; i++) {
-			cdd[i] = new DiscreteDivide(sdd, i);
-			multipliers[i] = new Thread(cdd[i]);
-			multipliers[i].start();
+		if (sdd.tableSize < concurrencyOptions.getSequentialThreshold()) {
+			return org.openmarkov.core.model.network.potential.operation.DiscretePotentialOperations
+					.divide(numeratorPotential, denominatorPotential);
 		}
 
-		// Synchronization. The current thread waits until all 
-		// concurrent operations finish
-		for (int i = 0; i < numLogicalProcessors; i++) {
-			try {
-				multipliers[i].join();
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
-		}
+		// Concurrent part
+		sdd.intervalLength = getIntervalLength(sdd.tableSize, 1, concurrencyOptions);
+		getPool(concurrencyOptions.getParallelism()).invoke(new DiscreteDivide(sdd, 0, sdd.tableSize));
 
 		return sdd.result;
 	}
 
 	/**
-	 * Calculates potentialPositions for each interval
+	 * @param resultSize            number of positions of the result
+	 * @param operationsPerPosition cost of computing one position of the result
+	 * @param concurrencyOptions    options of the computation
+	 * @return Maximum number of result positions computed by one task without splitting it
 	 */
-	static void splitOperatorsPotentials(List<TablePotential> potentials, TablePotential result,
-			int[][] resultIntervals, int[][] potentialsPositions) {
-
-		List<Variable> resultVariables = result.getVariables();
-
-		int aux;
-		int numIntervals = org.openmarkov.core.model.network.potential.operation.concurrent.DiscretePotentialOperations.numLogicalProcessors;
-
-		for (int i = 0; i < numIntervals; i++) {
-			for (int j = 0; j < potentials.size(); j++) {
-				TablePotential potential = potentials.get(j);
-				int[] offsetsPotential = potential.getOffsets();
-				List<Variable> potentialVariables = potential.getVariables();
-				aux = 0;
+	static int getIntervalLength(int resultSize, int operationsPerPosition, ConcurrencyOptions concurrencyOptions) {
+		int minLength = Math.max(1, concurrencyOptions.getSequentialThreshold() / Math.max(1, operationsPerPosition));
+		int balancedLength = resultSize / (concurrencyOptions.getParallelism() * INTERVALS_PER_THREAD);
+		return Math.max(minLength, balancedLength);
+	}
 
-				// This is different for each operation (marginalization, etc)
-				for (int k = 0; k < potentialVariables.size(); k++) {
-					Variable variable = potentialVariables.get(k);
-					// gets the variable coordinate value in the 
-					// potentialPosition
-					int indexResult = resultVariables.indexOf(variable);
-					int valueResult = resultIntervals[i][indexResult];
-					aux += offsetsPotential[k] * valueResult;
-				}
-				potentialsPositions[i][j] = aux;
-			}
+	/**
+	 * Computes the coordinate of a position in a table
+	 *
+	 * @param position   position in the table
+	 * @param offsets    offsets of the table variables
+	 * @param coordinate output. Its length must be greater or equal than {@code offsets.length}
+	 */
+	static void getCoordinate(int position, int[] offsets, int[] coordinate) {
+		int remainder = position;
+		for (int j = offsets.length - 1; j >= 0; j--) {
+			coordinate[j] = remainder / offsets[j];
+			remainder = remainder % offsets[j];
 		}
 	}
 
 	/**
-	 * Divides an operation in {@code numLogicalProcessors} parts by
-	 * computing the following arrays {@code resultIntervals},
-	 * {@code lengthResultIntervals} and
-	 * {@code variableToIncrement}.
+	 * @param coordinate     coordinate in the result table
+	 * @param offsetsInTable offset in a potential of each result variable (0 when the potential
+	 *                       does not contain the variable)
+	 * @return Position in the potential table corresponding to {@code coordinate}
 	 */
-	static void splitResultPotential(TablePotential result, int[][] resultIntervals, int[] lengthResultIntervals,
-			int[] resultPositionIntervals) {
-		int[] offsetsResult = result.getOffsets();
-		int[] dimensions = result.getDimensions();
-		int numIntervals = org.openmarkov.core.model.network.potential.operation.concurrent.DiscretePotentialOperations.numLogicalProcessors;
-		int numResultVariables = offsetsResult.length;
-		int lastVariable = numResultVariables - 1;
-		int resultSize = offsetsResult[lastVariable] * dimensions[lastVariable];
-
-		int intervalLength = resultSize / numIntervals;
-
-		int remainderConfigurations = resultSize % numIntervals;
+	static int getPosition(int[] coordinate, int[] offsetsInTable) {
+		int position = 0;
+		for (int j = 0; j < offsetsInTable.length; j++) {
+			position += offsetsInTable[j] * coordinate[j];
+		}
+		return position;
+	}
 
-		// Calculate length of each interval
-		resultPositionIntervals[0] = 0;
-		for (int i = 0; i < numIntervals; i++) {
-			lengthResultIntervals[i] = intervalLength;
-			if (i < remainderConfigurations) {
-				lengthResultIntervals[i]++;
-			}
-			if (i > 0) {
-				resultPositionIntervals[i] = resultPositionIntervals[i - 1] + lengthResultIntervals[i];
-			}
+	/**
+	 * @param variables variables of the result table
+	 * @param potential an operand
+	 * @return Offset in {@code potential} of each variable in {@code variables}
+	 */
+	static int[] getOffsetsInPotential(List<Variable> variables, TablePotential potential) {
+		List<Variable> potentialVariables = potential.getVariables();
+		int[] potentialOffsets = potential.getOffsets();
+		int[] offsetsInPotential = new int[variables.size()];
+		for (int j = 0; j < offsetsInPotential.length; j++) {
+			int index = potentialVariables.indexOf(variables.get(j));
+			offsetsInPotential[j] = (index != -1) ? potentialOffsets[index] : 0;
 		}
+		return offsetsInPotential;
+	}
 
-		int actualPosition = 0;
-		// Calculate intervals
-		// First configuration starts with (0,0,...,0).  
-		int i;
-		for (i = 1; i < numIntervals; i++) {
-			actualPosition += lengthResultIntervals[i - 1];
-			int remainder = actualPosition;
-			for (int j = lastVariable; j >= 0; j--) {
-				resultIntervals[i][j] = remainder / offsetsResult[j];
-				remainder = remainder % offsetsResult[j];
+	private static boolean hasInterventions(List<TablePotential> potentials) {
+		for (TablePotential potential : potentials) {
+			if (potential.strategyTrees != null) {
+				return true;
 			}
 		}
+		return false;
 	}
 
 }
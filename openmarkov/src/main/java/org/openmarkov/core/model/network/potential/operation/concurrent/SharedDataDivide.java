@@ -17,8 +17,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Contains shared data used concurrently by a set of threads computing an
- * operation. This class is not synchronized because the set of threads
+ * Contains shared data used concurrently by a set of tasks computing an
+ * operation. This class is not synchronized because the set of tasks
  * accomplish the three conditions of Bernstein
  * All data have package access because they will be used outside this class,
  * only in this package and the access must be efficient (there is not getX or
@@ -32,17 +32,23 @@ public class SharedDataDivide {
 
 	int numVariables;
 
-	double[][] tables;
-
 	int[] quotientDimension;
 
-	int[] quotientCoordinate;
+	int[] quotientOffsets;
 
 	int[][] offsetAccumulate;
 
-	int[][] potentialPositions;
+	/**
+	 * Offset of each quotient variable in the numerator (first row) and the denominator (second row)
+	 */
+	int[][] offsetsInPotentials;
+
+	int tableSize;
 
-	int tamTable;
+	/**
+	 * Maximum number of quotient positions computed by one task without splitting it
+	 */
+	int intervalLength;
 
 	TablePotential result;
 
@@ -51,43 +57,38 @@ public class SharedDataDivide {
 		this.denominator = (TablePotential) denominator;
 	}
 
+	/**
+	 * Creates the quotient potential and computes the offsets.
+	 * Condition: numerator and denominator are not constant potentials
+	 */
 	public void initialize() {
-		List<Variable> quotientVariables = numerator.getVariables();
-		TablePotential quotient = null;
-		try {
-			quotient = new TablePotential(quotientVariables, PotentialRole.JOINT_PROBABILITY);
-		} catch (Exception e) {
-			e.printStackTrace();
+		// Quotient potential variables = numerator potential variables union
+		// denominator potential variables
+		List<Variable> quotientVariables = new ArrayList<>(numerator.getVariables());
+		for (Variable variable : denominator.getVariables()) {
+			if (!quotientVariables.contains(variable)) {
+				quotientVariables.add(variable);
+			}
 		}
+		result = new TablePotential(quotientVariables, PotentialRole.JOINT_PROBABILITY);
 
-		int numVariables = quotient.getVariables().size();
-
-		// Gets the tables of each TablePotential
-		double[][] tables = new double[2][];
-		tables[0] = numerator.values;
-		tables[1] = denominator.values;
+		numVariables = result.getNumVariables();
 
 		// Gets dimension
-		quotientDimension = quotient.getDimensions();
+		quotientDimension = result.getDimensions();
+		quotientOffsets = result.getOffsets();
+		tableSize = result.values.length;
 
 		// Gets offset accumulate
-		ArrayList<TablePotential> potentials = new ArrayList<>();
+		List<TablePotential> potentials = new ArrayList<>();
 		potentials.add(numerator);
 		potentials.add(denominator);
-		offsetAccumulate = DiscretePotentialOperations.getAccumulatedOffsets(potentials, quotient);
-
-		// Gets coordinate
-		if (numVariables != 0) {
-			quotientCoordinate = new int[numVariables];
-		} else {
-			quotientCoordinate = new int[1];
-			quotientCoordinate[0] = 0;
-		}
+		offsetAccumulate = DiscretePotentialOperations.getAccumulatedOffsets(potentials, result);
 
-		// Position in each table potential
-		int[] potentialsPositions = new int[2];
+		offsetsInPotentials = new int[2][];
 		for (int i = 0; i < 2; i++) {
-			potentialsPositions[i] = 0;
+			offsetsInPotentials[i] = org.openmarkov.core.model.network.potential.operation.concurrent.DiscretePotentialOperations
+					.getOffsetsInPotential(quotientVariables, potentials.get(i));
 		}
 	}
 
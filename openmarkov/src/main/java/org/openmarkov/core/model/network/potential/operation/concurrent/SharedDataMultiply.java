@@ -7,6 +7,8 @@
 
 package org.openmarkov.core.model.network.potential.operation.concurrent;
 
+import org.openmarkov.core.model.network.Criterion;
+import org.openmarkov.core.model.network.Variable;
 import org.openmarkov.core.model.network.potential.PotentialRole;
 import org.openmarkov.core.model.network.potential.TablePotential;
 import org.openmarkov.core.model.network.potential.operation.AuxiliaryOperations;
@@ -17,9 +19,11 @@ import java.util.Collections;
 import java.util.List;
 
 /**
- * Contains shared data used concurrently by a set of threads computing an
- * operation. This class is not synchronized because the set of threads
- * accomplish the three conditions of Bernstein
+ * Contains shared data used concurrently by a set of tasks computing an
+ * operation. This class is not synchronized because the set of tasks
+ * accomplish the three conditions of Bernstein: all the attributes are written
+ * before the tasks are forked and each task writes a disjoint interval of the
+ * result table.
  * All data have package access because they will be used outside this class,
  * only in this package and the access must be efficient (there is not getX or
  * setX)
@@ -27,38 +31,47 @@ import java.util.List;
 public class SharedDataMultiply {
 
 	// Attributes related to the arguments
-	volatile List<TablePotential> potentials;
+	List<TablePotential> potentials;
 
-	volatile int numPotentials;
+	int numPotentials;
 
-	volatile int[][] offAccPotentials;
+	int[][] offAccPotentials;
+
+	/**
+	 * Offset of each result variable in each potential (0 if the potential does not contain it).
+	 * First coordinate = potential, second coordinate = result variable.
+	 */
+	int[][] offsetsInPotentials;
 
 	/**
 	 * Probability tables of potentials
 	 */
-	volatile double[][] tables;
+	double[][] tables;
 
 	// Attributes related to result
-	volatile TablePotential result;
+	List<Variable> resultVariables;
 
-	volatile int numResultVariables;
+	int numResultVariables;
 
-	volatile int[] resultDimensions;
+	int[] resultDimensions;
 
-	volatile int[] offsetsResult;
+	int[] offsetsResult;
 
-	// Product of constant potentials (1 if none)
-	volatile double constantFactor;
+	int resultSize;
 
-	// Attributes related to splitted potentials. 
-	// First coordinate = numLogicalProcessors
-	volatile int[] resultPositionIntervals;
+	double[] resultValues;
 
-	volatile int[][] resultIntervals;
+	PotentialRole role;
 
-	volatile int[] lengthResultIntervals;
+	Criterion criterion;
 
-	volatile int[][] potentialsPositions;
+	// Product of constant potentials (1 if none)
+	double constantFactor;
+
+	/**
+	 * Maximum number of result positions computed by one task without splitting it
+	 */
+	int intervalLength;
 
 	// Constructor
 	public SharedDataMultiply(List<TablePotential> potentials) {
@@ -68,56 +81,59 @@ public class SharedDataMultiply {
 	// Methods
 
 	/**
-	 * Initialize the attributes using the potentials and the number of logical
-	 * processors
-	 *
-	 * @throws Exception Exception
+	 * Initialize the attributes using the potentials
 	 */
-	public void initialize() throws Exception {
+	public void initialize() {
+		role = DiscretePotentialOperations.getRole(potentials);
+		for (int i = 0; i < potentials.size() && criterion == null; i++) {
+			criterion = potentials.get(i).getCriterion();
+		}
+
 		// Sort the potentials according to the table size
 		Collections.sort(potentials);
 
 		// Gets constant factor: The product of constant potentials
-		constantFactor = org.openmarkov.core.model.network.potential.operation.DiscretePotentialOperations
-				.getConstantFactor(potentials);
+		constantFactor = DiscretePotentialOperations.getConstantFactor(potentials);
 
-		//nonConstantPotentials may be redundant, but since potentials may be modified by other threads,
-		// separating declaration and assignment avoids that other threads mess with "potentials" while this
-		// thread is updating it.
-		List<TablePotential> nonConstantPotentials = AuxiliaryOperations.getNonConstantPotentials(potentials);
-		potentials = nonConstantPotentials;
+		potentials = AuxiliaryOperations.getNonConstantPotentials(potentials);
 
 		numPotentials = potentials.size();
 
 		// Gets the union
-		result = new TablePotential(AuxiliaryOperations.getUnionVariables(potentials), PotentialRole.JOINT_PROBABILITY);
-
-		numResultVariables = result.getVariables().size();
+		resultVariables = AuxiliaryOperations.getUnionVariables(potentials);
+		numResultVariables = resultVariables.size();
+		resultDimensions = TablePotential.calculateDimensions(resultVariables);
+		if (numResultVariables > 0) {
+			offsetsResult = TablePotential.calculateOffsets(resultDimensions);
+			resultSize = offsetsResult[numResultVariables - 1] * resultDimensions[numResultVariables - 1];
+		} else {
+			offsetsResult = new int[0];
+			resultSize = 1;
+		}
+		resultValues = new double[resultSize];
 
 		// Gets the tables of each TablePotential
 		tables = new double[numPotentials][];
+		offsetsInPotentials = new int[numPotentials][];
 		for (int i = 0; i < numPotentials; i++) {
 			tables[i] = potentials.get(i).values;
+			offsetsInPotentials[i] = org.openmarkov.core.model.network.potential.operation.concurrent.DiscretePotentialOperations
+					.getOffsetsInPotential(resultVariables, potentials.get(i));
 		}
 
 		// Gets offset accumulate
-		offAccPotentials = DiscretePotentialOperations.getAccumulatedOffsets(potentials, result);
-
-		// Position in each table potential
-		potentialsPositions = new int[org.openmarkov.core.model.network.potential.operation.concurrent.DiscretePotentialOperations.numLogicalProcessors][numPotentials];
-
-		// splits potentials
-		offsetsResult = result.getOffsets();
-		int numIntervals = org.openmarkov.core.model.network.potential.operation.concurrent.DiscretePotentialOperations.numLogicalProcessors;
-		int numResultVariables = offsetsResult.length;
-		resultIntervals = new int[numIntervals][numResultVariables];
-		lengthResultIntervals = new int[numIntervals];
-		resultPositionIntervals = new int[numIntervals];
-
-		org.openmarkov.core.model.network.potential.operation.concurrent.DiscretePotentialOperations
-				.splitResultPotential(result, resultIntervals, lengthResultIntervals, resultPositionIntervals);
-		org.openmarkov.core.model.network.potential.operation.concurrent.DiscretePotentialOperations
-				.splitOperatorsPotentials(potentials, result, resultIntervals, potentialsPositions);
+		offAccPotentials = DiscretePotentialOperations.getAccumulatedOffsets(potentials, resultVariables);
+	}
+
+	/**
+	 * @return The result potential, once all the tasks have finished
+	 */
+	TablePotential buildResult() {
+		TablePotential result = new TablePotential(resultVariables, role, resultValues);
+		if (criterion != null) {
+			result.setCriterion(criterion);
+		}
+		return result;
 	}
 
 }
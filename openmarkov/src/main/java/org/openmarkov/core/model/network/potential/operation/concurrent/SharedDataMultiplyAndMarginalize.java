@@ -9,10 +9,17 @@ package org.openmarkov.core.model.network.potential.operation.concurrent;
 
 import org.openmarkov.core.model.network.Variable;
 import org.openmarkov.core.model.network.potential.TablePotential;
+import org.openmarkov.core.model.network.potential.operation.DiscretePotentialOperations;
 
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Shared data of a multiplication followed by the sum out of some variables. The result
+ * attributes inherited from {@code SharedDataMultiply} refer to the variables to keep,
+ * whereas the offsets of the potentials refer to the union of the variables to eliminate
+ * and the variables to keep (in this order).
+ */
 public class SharedDataMultiplyAndMarginalize extends SharedDataMultiply {
 
 	List<Variable> variablesToKeep;
@@ -22,53 +29,67 @@ public class SharedDataMultiplyAndMarginalize extends SharedDataMultiply {
 	// Attributes related to the product potential that will be marginalized
 	List<Variable> unionVariables;
 
-	int[] unionCoordinate;
-
 	int[] unionDimensions;
 
+	int[] initialPositions;
+
 	int eliminationSize;
 
-	@SuppressWarnings("unchecked") public SharedDataMultiplyAndMarginalize(List<TablePotential> potentials,
-			List<Variable> fSVariablesToKeep, List<Variable> fSVariablesToEliminate) {
+	public SharedDataMultiplyAndMarginalize(List<TablePotential> potentials, List<Variable> fSVariablesToKeep,
+			List<Variable> fSVariablesToEliminate) {
 
 		super(potentials);
 
 		this.variablesToKeep = fSVariablesToKeep;
 
-		this.variablesToEliminate = (ArrayList<Variable>) ((Object) fSVariablesToEliminate);
+		this.variablesToEliminate = fSVariablesToEliminate;
 	}
 
 	/**
 	 * Does some previous not parallel operations
-	 *
-	 * @throws Exception Exception
 	 */
-	public void initializeMultiplyAndMarginalize() throws Exception {
-		super.initialize();
+	public void initializeMultiplyAndMarginalize() {
+		role = DiscretePotentialOperations.getRole(potentials);
+
+		// Constant potentials are those that do not depend on any variables.
+		// The product of all the constant potentials is the constant factor.
+		constantFactor = 1.0;
+		List<TablePotential> nonConstantPotentials = new ArrayList<>();
+		for (TablePotential potential : potentials) {
+			if (potential.getNumVariables() != 0) {
+				nonConstantPotentials.add(potential);
+			} else {
+				constantFactor *= potential.values[potential.getInitialPosition()];
+			}
+		}
+		potentials = nonConstantPotentials;
+		numPotentials = potentials.size();
+
 		// variables in the resulting potential
-		List<Variable> unionVariables = new ArrayList<>(variablesToEliminate);
+		resultVariables = variablesToKeep;
+		numResultVariables = resultVariables.size();
+		resultDimensions = TablePotential.calculateDimensions(resultVariables);
+		offsetsResult = TablePotential.calculateOffsets(resultDimensions);
+		resultSize = TablePotential.computeTableSize(resultVariables);
+		resultValues = new double[resultSize];
+
+		// variables of the product potential
+		unionVariables = new ArrayList<>(variablesToEliminate);
 		unionVariables.addAll(variablesToKeep);
-		int numUnionVariables = unionVariables.size();
-
-		// current coordinate in the resulting potential
-		unionCoordinate = new int[numUnionVariables];
 		unionDimensions = TablePotential.calculateDimensions(unionVariables);
 
-		// Defines some arrays for the proper potentials...
-		double[][] tables = new double[numPotentials][];
-		int[] initialPositions = new int[numPotentials];
-		int[] currentPositions = new int[numPotentials];
-		int[][] accumulatedOffsets = new int[numPotentials][];
-		// ... and initializes them
-		TablePotential unionPotential = new TablePotential(unionVariables, null);
+		// Defines some arrays for the proper potentials and initializes them
+		tables = new double[numPotentials][];
+		initialPositions = new int[numPotentials];
+		offAccPotentials = new int[numPotentials][];
+		offsetsInPotentials = new int[numPotentials][];
 		for (int i = 0; i < numPotentials; i++) {
-			TablePotential potential = (TablePotential) potentials.get(i);
+			TablePotential potential = potentials.get(i);
 			tables[i] = potential.values;
 			initialPositions[i] = potential.getInitialPosition();
-			currentPositions[i] = initialPositions[i];
-			accumulatedOffsets[i] = unionPotential
-					//.getAccumulatedOffsets(potential.getOriginalVariables());
-					.getAccumulatedOffsets(potential.getVariables());
+			offAccPotentials[i] = TablePotential.getAccumulatedOffsets(unionVariables, potential.getVariables());
+			offsetsInPotentials[i] = org.openmarkov.core.model.network.potential.operation.concurrent.DiscretePotentialOperations
+					.getOffsetsInPotential(unionVariables, potential);
 		}
 
 		// The elimination size is the product of the dimensions of the
@@ -77,7 +98,6 @@ public class SharedDataMultiplyAndMarginalize extends SharedDataMultiply {
 		for (Variable variable : variablesToEliminate) {
 			eliminationSize *= variable.getNumStates();
 		}
-
 	}
 
 }
@@ -7,6 +7,7 @@
 
 package org.openmarkov.inference.huginPropagation;
 
+import org.openmarkov.core.inference.ConcurrencyOptions;
 import org.openmarkov.core.model.graph.Graph;
 import org.openmarkov.core.model.graph.Link;
 import org.openmarkov.core.model.network.Variable;
@@ -34,6 +35,11 @@ public abstract class ClusterForest extends Graph<ClusterOfVariables> {
 	 * variable.
 	 */
 	protected Map<Variable, ClusterOfVariables> variables2Clusters;
+	/**
+	 * Options of the potential operations of the clusters. Sequential by default.
+	 */
+	private ConcurrencyOptions concurrencyOptions = new ConcurrencyOptions(false, 1,
+			ConcurrencyOptions.DEFAULT_SEQUENTIAL_THRESHOLD);
 
 	// Constructors
 
@@ -106,6 +112,20 @@ public abstract class ClusterForest extends Graph<ClusterOfVariables> {
 	public void introduceFindingPotential(Variable variable, Potential potential) {
 	}
 
+	/**
+	 * @return Options of the potential operations of the clusters
+	 */
+	public ConcurrencyOptions getConcurrencyOptions() {
+		return concurrencyOptions;
+	}
+
+	/**
+	 * @param concurrencyOptions options of the potential operations of the clusters
+	 */
+	public void setConcurrencyOptions(ConcurrencyOptions concurrencyOptions) {
+		this.concurrencyOptions = concurrencyOptions;
+	}
+
 	public void increaseNumNodes() {
 		numClusters++;
 	}
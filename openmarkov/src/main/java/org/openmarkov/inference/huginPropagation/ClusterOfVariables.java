@@ -158,7 +158,7 @@ public abstract class ClusterOfVariables {
 		}
 		boolean isRootClique = separatorVariables.size() == 0;
 		TablePotential collectedEvidence = null;
-		posteriorPotential = DiscretePotentialOperations.multiply(potentials);
+		posteriorPotential = multiply(potentials);
 		upgoingMessage = (isRootClique) ?
 				posteriorPotential :
 				DiscretePotentialOperations.marginalize(posteriorPotential, separatorVariables);
@@ -207,8 +207,7 @@ public abstract class ClusterOfVariables {
 			for (ClusterOfVariables otherChild : otherChildren) {
 				potentials.add(otherChild.getUpgoingMessage(storageLevel));
 			}
-			child.setDowngoingPotential(
-					DiscretePotentialOperations.multiplyAndMarginalize(potentials, child.getSeparatorVariables()));
+			child.setDowngoingPotential(multiplyAndMarginalize(potentials, child.getSeparatorVariables()));
 			child.setPosteriorPotential(child.getPosteriorPotential(storageLevel));
 		}
 	}
@@ -231,7 +230,7 @@ public abstract class ClusterOfVariables {
 		if (potentials.size() == 0) {
 			return null;
 		}
-		return DiscretePotentialOperations.multiply(potentials);
+		return multiply(potentials);
 	}
 
 	/**
@@ -276,7 +275,7 @@ public abstract class ClusterOfVariables {
 		for (ClusterOfVariables child : children) {
 			potentials.add(child.collectEvidence(storageLevel));
 		}
-		return DiscretePotentialOperations.multiply(potentials);
+		return multiply(potentials);
 	}
 
 	/**
@@ -293,6 +292,18 @@ public abstract class ClusterOfVariables {
 		evidencePotentials.add(potential);
 	}
 
+	/**
+	 * Removes the evidence potentials and the messages and posterior potential
+	 * computed with them, so that new evidence can be introduced without
+	 * compiling the forest again.
+	 */
+	public void resetEvidence() {
+		evidencePotentials.clear();
+		upgoingMessage = null;
+		downgoingMessage = null;
+		posteriorPotential = null;
+	}
+
 	/**
 	 * @return separatorVariables <code>ArrayList</code> of <code>Variable</code>
 	 * s.
@@ -320,6 +331,43 @@ public abstract class ClusterOfVariables {
 		return collectEvidence(storageLevel);
 	}
 
+	/**
+	 * Multiplies potentials with the concurrency options of the forest.
+	 *
+	 * @param potentials potentials to multiply
+	 * @return The product of the potentials
+	 */
+	protected TablePotential multiply(List<TablePotential> potentials) {
+		return org.openmarkov.core.model.network.potential.operation.concurrent.DiscretePotentialOperations
+				.multiply(potentials, clusterForest.getConcurrencyOptions());
+	}
+
+	/**
+	 * Multiplies potentials and sums out the variables not in
+	 * <code>variablesOfInterest</code>, with the concurrency options of the forest.
+	 *
+	 * @param potentials          potentials to multiply
+	 * @param variablesOfInterest variables of the result
+	 * @return The marginalized product of the potentials
+	 */
+	protected TablePotential multiplyAndMarginalize(List<TablePotential> potentials,
+			List<Variable> variablesOfInterest) {
+		return org.openmarkov.core.model.network.potential.operation.concurrent.DiscretePotentialOperations
+				.multiplyAndMarginalize(potentials, variablesOfInterest, clusterForest.getConcurrencyOptions());
+	}
+
+	/**
+	 * Divides two potentials with the concurrency options of the forest.
+	 *
+	 * @param numerator   <code>Potential</code>
+	 * @param denominator <code>Potential</code>
+	 * @return numerator / denominator
+	 */
+	protected TablePotential divide(Potential numerator, Potential denominator) {
+		return org.openmarkov.core.model.network.potential.operation.concurrent.DiscretePotentialOperations
+				.divide(numerator, denominator, clusterForest.getConcurrencyOptions());
+	}
+
 	/**
 	 * @return name <code>String</code>.
 	 */
@@ -335,13 +383,12 @@ public abstract class ClusterOfVariables {
 	public void compilePriorPotentials() {
 		if (separatorVariables.size() == 0) { // root clique, without separator
 			if (priorPotentials.size() > 1) {
-				TablePotential priorPotential = DiscretePotentialOperations.multiply(priorPotentials);
+				TablePotential priorPotential = multiply(priorPotentials);
 				priorPotentials.clear();
 				priorPotentials.add(priorPotential);
 			}
 		} else { // no root clique, with separator
-			TablePotential priorPotential = DiscretePotentialOperations
-					.multiplyAndMarginalize(priorPotentials, getVariables());
+			TablePotential priorPotential = multiplyAndMarginalize(priorPotentials, getVariables());
 			priorPotentials.clear();
 			priorPotentials.add(priorPotential);
 		}
@@ -303,11 +303,16 @@ public abstract class ClusterPropagation extends InferenceAlgorithm implements P
 	/**
 	 * For each <code>Finding</code> in the <code>EvidenceCase</code> gets the
 	 * <code>Potential</code> associated to the probability and insert this in
-	 * the <code>ClusterOfVariables</code> associated to the finding variable
+	 * the <code>ClusterOfVariables</code> associated to the finding variable.
+	 * The evidence introduced before is discarded.
 	 *
 	 * @param evidenceCase <code>EvidenceCase</code>.
  	 */
 	private void introduceEvidence(EvidenceCase evidenceCase) {
+		// the new evidence replaces the one previously introduced
+		for (ClusterOfVariables cluster : clusterForest.getNodes()) {
+			cluster.resetEvidence();
+		}
 		// gets the evidence in an ArrayList<Potential>
 		List<Finding> findings = null;
 		if (evidenceCase != null) {
@@ -359,6 +364,7 @@ public abstract class ClusterPropagation extends InferenceAlgorithm implements P
 			ProbNet markovNet = projectTablesAndBuildMarkovDecisionNetwork(probNet, null);
 			heuristic = heuristicFactory(markovNet);
 			clusterForest = createForest(markovNet, heuristic);
+			clusterForest.setConcurrencyOptions(probNet.getInferenceOptions().getConcurrencyOptions());
 			// Multiply prior potentials in each clique to form one prior potential
 			for (ClusterOfVariables rootCluster : clusterForest.getRootClusters()) {
 				rootCluster.compilePriorPotentials();
@@ -50,11 +50,11 @@ public class HuginClique extends ClusterOfVariables {
 			Potential upgoingChildMessage = childClique.getUpgoingMessage(storageLevel);
 			Potential posteriorMarginalized = DiscretePotentialOperations
 					.marginalize(posteriorPotential, childClique.getSeparatorVariables());
-			TablePotential division = DiscretePotentialOperations.divide(posteriorMarginalized, upgoingChildMessage);
+			TablePotential division = divide(posteriorMarginalized, upgoingChildMessage);
 			List<TablePotential> potentials = new ArrayList<TablePotential>();
 			potentials.add(division);
 			potentials.add(childClique.getPosteriorPotential(storageLevel));
-			childClique.setPosteriorPotential(DiscretePotentialOperations.multiply(potentials));
+			childClique.setPosteriorPotential(multiply(potentials));
 			childClique.distributeEvidence(storageLevel);
 		}
 	}
@@ -93,6 +93,25 @@ public class LikelihoodWeighting extends StochasticPropagation implements Propag
 		return valuesSampledAndWeight;
 	}
 
+    @Override
+    protected double sampleAndWeight(int[] configuration, Random randomGenerator) {
+        double weight = 1.0;
+        // The variables are in topological order, so the parents of each variable are already set
+        for (int variableIndex = 0; variableIndex < configuration.length; variableIndex++) {
+            if (samplingPlan.getFinding(variableIndex) == -1) {
+                configuration[variableIndex] = samplingPlan.sample(variableIndex, configuration, randomGenerator);
+            } else {
+                // Weight by conditional probabilities of evidence findings, ignoring parentless nodes with
+                // P(finding) != 0 as they are constant across samples (see getValuesSampledAndWeight)
+                double probability = samplingPlan.getProbability(variableIndex, configuration);
+                if (!samplingPlan.isParentless(variableIndex) || probability == 0) {
+                    weight *= probability;
+                }
+            }
+        }
+        return weight;
+    }
+
 	@Override
     public List<Variable> getVariablesToSample() {
 		List<Variable> variablesToSample = new ArrayList<>(sortedVariables);
@@ -79,6 +79,24 @@ public class LogicSampling extends StochasticPropagation implements Propagation
         return valuesAndWeight;
     }
 
+    /**
+     * Samples every node in topological order and weights the sample as 0 if any sampled evidence variable
+     * does not match its finding.
+     */
+    @Override
+    protected double sampleAndWeight(int[] configuration, Random randomGenerator) {
+        for (int variableIndex = 0; variableIndex < configuration.length; variableIndex++) {
+            configuration[variableIndex] = samplingPlan.sample(variableIndex, configuration, randomGenerator);
+        }
+        for (int variableIndex = 0; variableIndex < configuration.length; variableIndex++) {
+            int finding = samplingPlan.getFinding(variableIndex);
+            if (finding != -1 && configuration[variableIndex] != finding) {
+                return 0;
+            }
+        }
+        return 1.0;
+    }
+
     @Override
     public List<Variable> getVariablesToSample() {
 		return sortedVariables;
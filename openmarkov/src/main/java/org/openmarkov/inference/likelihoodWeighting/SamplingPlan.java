@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) CISIAD, UNED, Spain,  2019. Licensed under the GPLv3 licence
+ * Unless required by applicable law or agreed to in writing,
+ * this code is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OF ANY KIND.
+ */
+package org.openmarkov.inference.likelihoodWeighting;
+
+import org.openmarkov.core.exception.NonProjectablePotentialException;
+import org.openmarkov.core.exception.WrongCriterionException;
+import org.openmarkov.core.model.network.EvidenceCase;
+import org.openmarkov.core.model.network.ProbNet;
+import org.openmarkov.core.model.network.Variable;
+import org.openmarkov.core.model.network.potential.Potential;
+import org.openmarkov.core.model.network.potential.TablePotential;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compiled form of a bayesian network for stochastic propagation. The variables are indexed
+ * in topological order and the conditional probability table of each one is flattened, with
+ * the offsets of its parents precomputed, so that a sample is a reused {@code int[]}
+ * configuration (state index of each variable) instead of a {@code HashMap}.
+ */
+public class SamplingPlan {
+
+    private final int numVariables;
+
+    private final int[] numStates;
+
+    // Conditional probability table of each variable, the variable being the first one
+    private final double[][] tables;
+
+    // Offset of each variable in its own table
+    private final int[] variableOffsets;
+
+    // Topological indexes of the parents of each variable...
+    private final int[][] parents;
+
+    // ... and their offsets in the table of the child
+    private final int[][] parentOffsets;
+
+    // State of each variable with a finding; -1 for the others
+    private final int[] findings;
+
+    private final HashMap<Variable, Integer> indexes;
+
+    /**
+     * @param probNet         network whose nodes contain the conditional probabilities
+     * @param sortedVariables variables of {@code probNet} in topological order
+     * @param evidence        findings; they are written in every configuration
+     * @throws NonProjectablePotentialException when a potential can not be converted to a table
+     * @throws WrongCriterionException          when a potential can not be converted to a table
+     */
+    public SamplingPlan(ProbNet probNet, List<Variable> sortedVariables, EvidenceCase evidence)
+            throws NonProjectablePotentialException, WrongCriterionException {
+        numVariables = sortedVariables.size();
+        numStates = new int[numVariables];
+        tables = new double[numVariables][];
+        variableOffsets = new int[numVariables];
+        parents = new int[numVariables][];
+        parentOffsets = new int[numVariables][];
+        findings = new int[numVariables];
+        indexes = new HashMap<>();
+        for (int i = 0; i < numVariables; i++) {
+            indexes.put(sortedVariables.get(i), i);
+        }
+
+        for (int i = 0; i < numVariables; i++) {
+            Variable variable = sortedVariables.get(i);
+            numStates[i] = variable.getNumStates();
+            findings[i] = evidence.contains(variable) ? evidence.getFinding(variable).getStateIndex() : -1;
+
+            Potential potential = probNet.getNode(variable).getPotentials().get(0);
+            TablePotential table = (potential instanceof TablePotential) ?
+                    (TablePotential) potential :
+                    potential.getCPT();
+            List<Variable> tableVariables = table.getVariables();
+            int[] offsets = table.getOffsets();
+            tables[i] = table.values;
+            variableOffsets[i] = offsets[0];
+            int numParents = tableVariables.size() - 1;
+            parents[i] = new int[numParents];
+            parentOffsets[i] = new int[numParents];
+            for (int j = 0; j < numParents; j++) {
+                parents[i][j] = indexes.get(tableVariables.get(j + 1));
+                parentOffsets[i][j] = offsets[j + 1];
+            }
+        }
+    }
+
+    /**
+     * @return A new configuration with the findings already set
+     */
+    public int[] createConfiguration() {
+        int[] configuration = new int[numVariables];
+        for (int i = 0; i < numVariables; i++) {
+            configuration[i] = Math.max(0, findings[i]);
+        }
+        return configuration;
+    }
+
+    /**
+     * @param variable a variable of the network
+     * @return Its topological index
+     */
+    public int getIndex(Variable variable) {
+        return indexes.get(variable);
+    }
+
+    /**
+     * @param variableIndex topological index of a variable
+     * @return The state of its finding, or -1 if it has no finding
+     */
+    public int getFinding(int variableIndex) {
+        return findings[variableIndex];
+    }
+
+    /**
+     * @param variableIndex topological index of a variable
+     * @return True if the variable has no parents
+     */
+    public boolean isParentless(int variableIndex) {
+        return parents[variableIndex].length == 0;
+    }
+
+    /**
+     * Samples a variable given the states of its parents in {@code configuration}, consuming
+     * one random number, as {@code TablePotential.sampleConditionedVariable} does.
+     *
+     * @param variableIndex   topological index of the variable to sample
+     * @param configuration   states of the variables; those of the parents must be already set
+     * @param randomGenerator random generator
+     * @return The index of the state sampled
+     */
+    public int sample(int variableIndex, int[] configuration, Random randomGenerator) {
+        double[] table = tables[variableIndex];
+        int offset = variableOffsets[variableIndex];
+        int position = getParentsPosition(variableIndex, configuration);
+        int lastState = numStates[variableIndex] - 1;
+        int sampleIndex = 0;
+        double random = randomGenerator.nextDouble();
+        double accumulatedProbability = table[position];
+        // Make sure we don't go out of bounds even if the sum of probabilities is smaller than one.
+        while (random > accumulatedProbability && sampleIndex < lastState) {
+            ++sampleIndex;
+            position += offset;
+            accumulatedProbability += table[position];
+        }
+        return sampleIndex;
+    }
+
+    /**
+     * @param variableIndex topological index of a variable
+     * @param configuration states of the variable and its parents
+     * @return The conditional probability of the state of the variable given its parents
+     */
+    public double getProbability(int variableIndex, int[] configuration) {
+        return tables[variableIndex][configuration[variableIndex] * variableOffsets[variableIndex]
+                + getParentsPosition(variableIndex, configuration)];
+    }
+
+    private int getParentsPosition(int variableIndex, int[] configuration) {
+        int[] variableParents = parents[variableIndex];
+        int[] offsets = parentOffsets[variableIndex];
+        int position = 0;
+        for (int j = 0; j < variableParents.length; j++) {
+            position += configuration[variableParents[j]] * offsets[j];
+        }
+        return position;
+    }
+
+}
@@ -23,6 +23,11 @@ import org.openmarkov.core.model.network.type.BayesianNetworkType;
 import org.openmarkov.core.model.network.type.NetworkType;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Father of likelihood wieghting and logic sampling for bayesian networks. It reunites its many similarities.
@@ -40,8 +45,11 @@ public abstract class StochasticPropagation extends InferenceAlgorithm implement
     private static final int DEFAULT_SAMPLE_SIZE = 10000; // Default sample size
     private int sampleSize;
 
+    // random generator of the first chain; the one used by getValuesSampledAndWeight
     Random randomGenerator;
     Long seed;
+    // number of threads drawing samples
+    private int numThreads;
 
     private EvidenceCase postResolutionEvidence;
     // Post- and pre-resolution evidence combined
@@ -49,6 +57,11 @@ public abstract class StochasticPropagation extends InferenceAlgorithm implement
     List<Variable> sortedVariables;
     private List<Variable> variablesOfInterest;
     List<Variable> variablesToSample;
+    // Compiled network used for sampling; null if some potential could not be compiled
+    SamplingPlan samplingPlan;
+    // Topological index and index among the variables of interest of each variable to sample
+    private int[] indexesOfVariablesToSample;
+    private int[] indexesOfVariablesOfInterest;
 
     // whether the algorithm stores the samples
     private boolean storingSamples;
@@ -76,6 +89,7 @@ public abstract class StochasticPropagation extends InferenceAlgorithm implement
         this.postResolutionEvidence = new EvidenceCase();
         this.storingSamples = false;
         this.seed = null;
+        this.numThreads = 1;
     }
 
     @Override
@@ -103,6 +117,30 @@ public abstract class StochasticPropagation extends InferenceAlgorithm implement
      */
     protected abstract double[] getValuesSampledAndWeight();
 
+    /**
+     * Computes a sample using the compiled {@code samplingPlan}. It may be called concurrently from several
+     * threads, each one with its own configuration and random generator.
+     * @param configuration the state of every variable, in topological order, with the findings already set.
+     *                      The states of the variables to sample are written in it. It is reused between samples.
+     * @param randomGenerator the random generator of the calling chain.
+     * @return the weight of the sample.
+     */
+    protected abstract double sampleAndWeight(int[] configuration, Random randomGenerator);
+
+    /**
+     * Compiles the network and the fused evidence for sampling.
+     * @return the sampling plan, or null if some potential can not be converted into a table, in which case
+     * the samples are computed by {@code getValuesSampledAndWeight}.
+     */
+    private SamplingPlan compileSamplingPlan() {
+        try {
+            return new SamplingPlan(probNet, sortedVariables, fusedEvidence);
+        } catch (NonProjectablePotentialException | WrongCriterionException e) {
+            logger.warn("The network could not be compiled for sampling: " + e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Propagates the evidence through the net using a stochastic propagation algorithm.
      * It returns the posterior values and, if <code>storingSamples</code> is true,
@@ -125,63 +163,55 @@ public abstract class StochasticPropagation extends InferenceAlgorithm implement
 
         int numOfVariablesOfInterest = variablesOfInterest.size();
 
-        /// Create a table of accumulated probabilities. Initialize it.
-        double[][] accumulatedProbabilities = new double[numOfVariablesOfInterest][];
-        for (int indexOfVariable = 0; indexOfVariable < numOfVariablesOfInterest; indexOfVariable++) {
-            double[] accumulatedProbability = new double[variablesOfInterest.get(indexOfVariable).getNumStates()];
-            accumulatedProbabilities[indexOfVariable] = accumulatedProbability;
-        }
-
-
         variablesToSample = getVariablesToSample();
         int numOfVariablesToSample = variablesToSample.size();
 
-        // each sample contains one integer for the state of each variable plus one double for the weight
-        samples = new double[getSampleSize()][numOfVariablesToSample + 1];
+        samplingPlan = compileSamplingPlan();
 
-        accumulatedWeight = 0;
-        numPositiveSamples = 0;
-
-        // auxiliary variables for the "for" loop:
-        // values sampled for the variables of interest, plus the weight of the sample
-        double[] valuesSampledAndWeight;
-        // weight of the sample
-        double weight;
-
-        randomGenerator = new XORShiftRandom();
-        // If a seed was set, use it
-        if (seed != null) {
-            randomGenerator.setSeed(seed);
+        // Topological index and index among the variables of interest (-1 if it is not) of each variable to sample
+        indexesOfVariablesToSample = new int[numOfVariablesToSample];
+        indexesOfVariablesOfInterest = new int[numOfVariablesToSample];
+        for (int indexOfVariable = 0; indexOfVariable < numOfVariablesToSample; indexOfVariable++) {
+            Variable variable = variablesToSample.get(indexOfVariable);
+            indexesOfVariablesToSample[indexOfVariable] = sortedVariables.indexOf(variable);
+            indexesOfVariablesOfInterest[indexOfVariable] = variablesOfInterest.indexOf(variable);
         }
 
-        // sample and store the results
-        // for each sample...
-        for (int sampleIndex = 0; sampleIndex < sampleSize; sampleIndex++) {
-            valuesSampledAndWeight = getValuesSampledAndWeight();
+        // each sample contains one integer for the state of each variable plus one double for the weight
+        samples = storingSamples ? new double[getSampleSize()][numOfVariablesToSample + 1] : null;
+
+        // The samples are split in consecutive chains, each one with its own random generator. Only compiled
+        // networks are sampled in parallel, because the potentials are not thread-safe.
+        int numChains = (samplingPlan != null) ? Math.max(1, Math.min(numThreads, sampleSize)) : 1;
+        long firstSeed = (seed != null) ? seed : System.nanoTime();
+        SampleChain[] chains = new SampleChain[numChains];
+        int firstSample = 0;
+        for (int chainIndex = 0; chainIndex < numChains; chainIndex++) {
+            int chainSize = sampleSize / numChains + ((chainIndex < sampleSize % numChains) ? 1 : 0);
+            XORShiftRandom chainRandomGenerator = new XORShiftRandom();
+            chainRandomGenerator.setSeed(getChainSeed(firstSeed, chainIndex));
+            chains[chainIndex] = new SampleChain(firstSample, firstSample + chainSize, chainRandomGenerator);
+            firstSample += chainSize;
+        }
+        randomGenerator = chains[0].randomGenerator;
 
-            weight = valuesSampledAndWeight[valuesSampledAndWeight.length - 1];
-            accumulatedWeight += weight;
-            if (weight > 0) {
-                numPositiveSamples++;
-            }
-            if (storingSamples) {
-                samples[sampleIndex][variablesToSample.size()] = weight;
-            }
+        if (numChains == 1) {
+            chains[0].call();
+        } else {
+            runInParallel(chains);
+        }
 
-            int stateSampled;
-            int indexOfVariableOfInterest = 0;
-            for (int indexOfVariable = 0; indexOfVariable < numOfVariablesToSample; indexOfVariable++) {
-                // for each variable...
-                stateSampled = (int) valuesSampledAndWeight[indexOfVariable];
-                indexOfVariableOfInterest = variablesOfInterest.indexOf(variablesToSample.get(indexOfVariable));
-//                if (variablesOfInterest.contains(variablesToSample.get(indexOfVariable))) {
-                	//wrong index
-                if(indexOfVariableOfInterest!=-1) {
-                    accumulatedProbabilities[indexOfVariableOfInterest][stateSampled] += weight;
-                    indexOfVariableOfInterest++;
-                }
-                if (storingSamples) {
-                    samples[sampleIndex][indexOfVariable] = stateSampled;
+        // Merge the chains in order, so that the result only depends on the seed and the number of threads
+        double[][] accumulatedProbabilities = chains[0].accumulatedProbabilities;
+        accumulatedWeight = chains[0].accumulatedWeight;
+        numPositiveSamples = chains[0].numPositiveSamples;
+        for (int chainIndex = 1; chainIndex < numChains; chainIndex++) {
+            SampleChain chain = chains[chainIndex];
+            accumulatedWeight += chain.accumulatedWeight;
+            numPositiveSamples += chain.numPositiveSamples;
+            for (int i = 0; i < accumulatedProbabilities.length; i++) {
+                for (int j = 0; j < accumulatedProbabilities[i].length; j++) {
+                    accumulatedProbabilities[i][j] += chain.accumulatedProbabilities[i][j];
                 }
             }
         }
@@ -224,6 +254,125 @@ public abstract class StochasticPropagation extends InferenceAlgorithm implement
     } // End of getPosteriorValues
 
 
+    /**
+     * Runs the chains on a pool of {@code numThreads} threads and waits for all of them.
+     */
+    private void runInParallel(SampleChain[] chains) {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(numThreads, chains.length));
+        try {
+            for (Future<SampleChain> future : executor.invokeAll(Arrays.asList(chains))) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Stochastic propagation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Stochastic propagation failed", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * The first chain uses the seed itself, so that a single-threaded propagation is not affected by the
+     * number of chains. The seeds of the other chains are scrambled (SplitMix64) so that their streams are
+     * independent.
+     * @param seed seed of the propagation
+     * @param chainIndex index of the chain
+     * @return the seed of the random generator of the chain; never 0, which is a fixed point of XORShift.
+     */
+    static long getChainSeed(long seed, int chainIndex) {
+        if (chainIndex == 0 && seed != 0) {
+            return seed;
+        }
+        long z = seed + (chainIndex + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (z != 0) ? z : 0x9E3779B97F4A7C15L;
+    }
+
+    /**
+     * A consecutive range of samples drawn with its own random generator, accumulating its own weights.
+     */
+    private class SampleChain implements Callable<SampleChain> {
+
+        private final int firstSample;
+        private final int lastSample;
+        private final Random randomGenerator;
+
+        private double[][] accumulatedProbabilities;
+        private double accumulatedWeight;
+        private int numPositiveSamples;
+
+        SampleChain(int firstSample, int lastSample, Random randomGenerator) {
+            this.firstSample = firstSample;
+            this.lastSample = lastSample;
+            this.randomGenerator = randomGenerator;
+        }
+
+        @Override
+        public SampleChain call() {
+            int numOfVariablesToSample = indexesOfVariablesToSample.length;
+
+            /// Create a table of accumulated probabilities. Initialize it.
+            accumulatedProbabilities = new double[variablesOfInterest.size()][];
+            for (int indexOfVariable = 0; indexOfVariable < accumulatedProbabilities.length; indexOfVariable++) {
+                accumulatedProbabilities[indexOfVariable] =
+                        new double[variablesOfInterest.get(indexOfVariable).getNumStates()];
+            }
+
+            // state of every variable, in topological order, reused by all the samples of the chain
+            int[] configuration = (samplingPlan != null) ?
+                    samplingPlan.createConfiguration() :
+                    new int[sortedVariables.size()];
+
+            // auxiliary variables for the "for" loop:
+            // values sampled for the variables of interest, plus the weight of the sample
+            double[] valuesSampledAndWeight;
+            // weight of the sample
+            double weight;
+
+            // sample and store the results
+            // for each sample...
+            for (int sampleIndex = firstSample; sampleIndex < lastSample; sampleIndex++) {
+                if (samplingPlan != null) {
+                    weight = sampleAndWeight(configuration, randomGenerator);
+                } else {
+                    valuesSampledAndWeight = getValuesSampledAndWeight();
+                    for (int indexOfVariable = 0; indexOfVariable < numOfVariablesToSample; indexOfVariable++) {
+                        configuration[indexesOfVariablesToSample[indexOfVariable]] =
+                                (int) valuesSampledAndWeight[indexOfVariable];
+                    }
+                    weight = valuesSampledAndWeight[numOfVariablesToSample];
+                }
+
+                accumulatedWeight += weight;
+                if (weight > 0) {
+                    numPositiveSamples++;
+                }
+                if (storingSamples) {
+                    samples[sampleIndex][numOfVariablesToSample] = weight;
+                }
+
+                int stateSampled;
+                int indexOfVariableOfInterest;
+                for (int indexOfVariable = 0; indexOfVariable < numOfVariablesToSample; indexOfVariable++) {
+                    // for each variable...
+                    stateSampled = configuration[indexesOfVariablesToSample[indexOfVariable]];
+                    indexOfVariableOfInterest = indexesOfVariablesOfInterest[indexOfVariable];
+                    if (indexOfVariableOfInterest != -1) {
+                        accumulatedProbabilities[indexOfVariableOfInterest][stateSampled] += weight;
+                    }
+                    if (storingSamples) {
+                        samples[sampleIndex][indexOfVariable] = stateSampled;
+                    }
+                }
+            }
+            return this;
+        }
+    }
+
     public void setSampleSize(int sampleSize) {
         this.sampleSize = sampleSize;
     }
@@ -236,6 +385,19 @@ public abstract class StochasticPropagation extends InferenceAlgorithm implement
         this.seed = seed;
     }
 
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    /**
+     * Sets the number of threads that draw the samples. The samples are split in as many chains, each one with
+     * an independent random generator, so the result is reproducible for a given seed and number of threads.
+     * @param numThreads number of threads; 1 (the default) samples sequentially.
+     */
+    public void setNumThreads(int numThreads) {
+        this.numThreads = Math.max(1, numThreads);
+    }
+
     public double getAlgorithmExecutionTime() {
         return algorithmExecutionTime;
     }
@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) CISIAD, UNED, Spain,  2019. Licensed under the GPLv3 licence
+ * Unless required by applicable law or agreed to in writing,
+ * this code is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OF ANY KIND.
+ */
+
+package org.openmarkov.inference.variableElimination;
+
+import org.openmarkov.core.model.network.Variable;
+import org.openmarkov.core.model.network.potential.TablePotential;
+import org.openmarkov.core.model.network.potential.operation.DiscretePotentialOperations;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Variable elimination for several queries on the same set of probability potentials.
+ * <p>
+ * A single elimination order is chosen for all the variables. Each potential is
+ * assigned to the bucket of the first of its variables in that order, and the
+ * message produced when a variable is eliminated is sent to the bucket of the first
+ * remaining variable of its domain, which makes the buckets a tree (a forest when the
+ * network is not connected). The probability of a variable is obtained from the
+ * potentials of its bucket and the messages it receives from its neighbours in the tree.
+ * The messages are computed on demand and kept, so the eliminations shared by several
+ * queries are done only once: the probabilities of all the variables cost about twice
+ * the elimination of one of them.
+ */
+public class MultiQueryVariableElimination {
+
+	/**
+	 * Variables in elimination order
+	 */
+	private final List<Variable> eliminationOrder;
+
+	/**
+	 * Index of each variable in the elimination order, which is also the index of its bucket
+	 */
+	private final Map<Variable, Integer> positions;
+
+	/**
+	 * Potentials assigned to each bucket
+	 */
+	private final List<List<TablePotential>> bucketPotentials;
+
+	/**
+	 * Variables of each bucket: those of its potentials and of the messages from its children
+	 */
+	private final List<List<Variable>> bucketVariables;
+
+	/**
+	 * Variables of the message sent by each bucket to its parent
+	 */
+	private final List<List<Variable>> separators;
+
+	/**
+	 * Parent of each bucket; -1 for the roots
+	 */
+	private final int[] parents;
+
+	private final List<List<Integer>> children;
+
+	/**
+	 * Cached message from each bucket to its parent
+	 */
+	private final TablePotential[] upgoingMessages;
+
+	/**
+	 * Cached message from the parent of each bucket to the bucket
+	 */
+	private final TablePotential[] downgoingMessages;
+
+	/**
+	 * @param potentials probability potentials, usually projected on the evidence. Constant
+	 *                   potentials are ignored, because they do not change the normalized probabilities
+	 */
+	public MultiQueryVariableElimination(List<TablePotential> potentials) {
+		List<TablePotential> nonConstantPotentials = new ArrayList<>();
+		for (TablePotential potential : potentials) {
+			if (potential.getNumVariables() != 0) {
+				nonConstantPotentials.add(potential);
+			}
+		}
+		eliminationOrder = getEliminationOrder(nonConstantPotentials);
+		int numVariables = eliminationOrder.size();
+		positions = new HashMap<>();
+		for (int i = 0; i < numVariables; i++) {
+			positions.put(eliminationOrder.get(i), i);
+		}
+
+		bucketPotentials = new ArrayList<>(numVariables);
+		List<Set<Variable>> bucketDomains = new ArrayList<>(numVariables);
+		children = new ArrayList<>(numVariables);
+		for (int i = 0; i < numVariables; i++) {
+			bucketPotentials.add(new ArrayList<>());
+			bucketDomains.add(new LinkedHashSet<>());
+			children.add(new ArrayList<>());
+		}
+		for (TablePotential potential : nonConstantPotentials) {
+			int bucket = getFirstPosition(potential.getVariables());
+			bucketPotentials.get(bucket).add(potential);
+			bucketDomains.get(bucket).addAll(potential.getVariables());
+		}
+
+		// Symbolic elimination: the buckets are complete when their variable is eliminated
+		bucketVariables = new ArrayList<>(numVariables);
+		separators = new ArrayList<>(numVariables);
+		parents = new int[numVariables];
+		for (int i = 0; i < numVariables; i++) {
+			List<Variable> variables = new ArrayList<>(bucketDomains.get(i));
+			List<Variable> separator = new ArrayList<>(variables);
+			separator.remove(eliminationOrder.get(i));
+			bucketVariables.add(variables);
+			separators.add(separator);
+			if (separator.isEmpty()) {
+				parents[i] = -1;
+			} else {
+				parents[i] = getFirstPosition(separator);
+				bucketDomains.get(parents[i]).addAll(separator);
+				children.get(parents[i]).add(i);
+			}
+		}
+
+		upgoingMessages = new TablePotential[numVariables];
+		downgoingMessages = new TablePotential[numVariables];
+	}
+
+	/**
+	 * @param variable a variable
+	 * @return True if the variable appears in some non constant potential
+	 */
+	public boolean contains(Variable variable) {
+		return positions.containsKey(variable);
+	}
+
+	/**
+	 * @param variable a variable contained in the potentials
+	 * @return The product of all the potentials marginalized onto {@code variable}, not normalized
+	 */
+	public TablePotential getProbability(Variable variable) {
+		int bucket = positions.get(variable);
+		List<TablePotential> factors = collectFactors(bucket, -1);
+		if (parents[bucket] != -1) {
+			factors.add(getDowngoingMessage(bucket));
+		}
+		return marginalize(factors, bucketVariables.get(bucket), Collections.singletonList(variable));
+	}
+
+	/**
+	 * @return The variables in the order in which they are eliminated
+	 */
+	public List<Variable> getEliminationOrder() {
+		return Collections.unmodifiableList(eliminationOrder);
+	}
+
+	/**
+	 * @return Message from {@code bucket} to its parent, which sums out the variable of the bucket
+	 */
+	private TablePotential getUpgoingMessage(int bucket) {
+		if (upgoingMessages[bucket] == null) {
+			upgoingMessages[bucket] = marginalize(collectFactors(bucket, -1), bucketVariables.get(bucket),
+					separators.get(bucket));
+		}
+		return upgoingMessages[bucket];
+	}
+
+	/**
+	 * @return Message from the parent of {@code bucket} to {@code bucket}
+	 */
+	private TablePotential getDowngoingMessage(int bucket) {
+		if (downgoingMessages[bucket] == null) {
+			int parent = parents[bucket];
+			List<TablePotential> factors = collectFactors(parent, bucket);
+			if (parents[parent] != -1) {
+				factors.add(getDowngoingMessage(parent));
+			}
+			downgoingMessages[bucket] = marginalize(factors, bucketVariables.get(parent), separators.get(bucket));
+		}
+		return downgoingMessages[bucket];
+	}
+
+	/**
+	 * @param bucket        a bucket
+	 * @param excludedChild child whose message is not collected, or -1
+	 * @return The potentials of {@code bucket} and the messages of its children
+	 */
+	private List<TablePotential> collectFactors(int bucket, int excludedChild) {
+		List<TablePotential> factors = new ArrayList<>(bucketPotentials.get(bucket));
+		for (int child : children.get(bucket)) {
+			if (child != excludedChild) {
+				factors.add(getUpgoingMessage(child));
+			}
+		}
+		return factors;
+	}
+
+	/**
+	 * @param factors         potentials to multiply
+	 * @param domain          variables of the bucket, which contain those of {@code factors}
+	 * @param variablesToKeep variables of the result. Those that are not in {@code factors} are
+	 *                        dropped, since the result does not depend on them
+	 * @return The product of {@code factors} with the variables not in {@code variablesToKeep} summed out
+	 */
+	private static TablePotential marginalize(List<TablePotential> factors, List<Variable> domain,
+			List<Variable> variablesToKeep) {
+		Set<Variable> present = new HashSet<>();
+		for (TablePotential factor : factors) {
+			present.addAll(factor.getVariables());
+		}
+		List<Variable> keptVariables = new ArrayList<>();
+		List<Variable> variablesToEliminate = new ArrayList<>();
+		for (Variable variable : domain) {
+			if (present.contains(variable)) {
+				if (variablesToKeep.contains(variable)) {
+					keptVariables.add(variable);
+				} else {
+					variablesToEliminate.add(variable);
+				}
+			}
+		}
+		return DiscretePotentialOperations.multiplyAndMarginalize(factors, keptVariables, variablesToEliminate);
+	}
+
+	private int getFirstPosition(List<Variable> variables) {
+		int first = Integer.MAX_VALUE;
+		for (Variable variable : variables) {
+			first = Math.min(first, positions.get(variable));
+		}
+		return first;
+	}
+
+	/**
+	 * Greedy order: at each step eliminates the variable that adds the fewest links to the
+	 * interaction graph, breaking ties by the size of the potential it creates and then by
+	 * the order in which the variables appear in the potentials.
+	 *
+	 * @param potentials non constant potentials
+	 * @return All the variables of the potentials in elimination order
+	 */
+	private static List<Variable> getEliminationOrder(List<TablePotential> potentials) {
+		Map<Variable, Set<Variable>> neighbours = new HashMap<>();
+		List<Variable> remaining = new ArrayList<>();
+		for (TablePotential potential : potentials) {
+			for (Variable variable : potential.getVariables()) {
+				Set<Variable> variableNeighbours = neighbours.get(variable);
+				if (variableNeighbours == null) {
+					variableNeighbours = new LinkedHashSet<>();
+					neighbours.put(variable, variableNeighbours);
+					remaining.add(variable);
+				}
+				variableNeighbours.addAll(potential.getVariables());
+				variableNeighbours.remove(variable);
+			}
+		}
+
+		List<Variable> order = new ArrayList<>(remaining.size());
+		while (!remaining.isEmpty()) {
+			int best = -1;
+			long bestFillIn = Long.MAX_VALUE;
+			double bestWeight = Double.POSITIVE_INFINITY;
+			for (int i = 0; i < remaining.size(); i++) {
+				Variable variable = remaining.get(i);
+				List<Variable> variableNeighbours = new ArrayList<>(neighbours.get(variable));
+				long fillIn = 0;
+				double weight = variable.getNumStates();
+				for (int j = 0; j < variableNeighbours.size(); j++) {
+					Variable neighbour = variableNeighbours.get(j);
+					weight *= neighbour.getNumStates();
+					Set<Variable> adjacent = neighbours.get(neighbour);
+					for (int k = j + 1; k < variableNeighbours.size(); k++) {
+						if (!adjacent.contains(variableNeighbours.get(k))) {
+							fillIn++;
+						}
+					}
+				}
+				if (fillIn < bestFillIn || (fillIn == bestFillIn && weight < bestWeight)) {
+					best = i;
+					bestFillIn = fillIn;
+					bestWeight = weight;
+				}
+			}
+			Variable eliminated = remaining.remove(best);
+			Set<Variable> eliminatedNeighbours = neighbours.remove(eliminated);
+			for (Variable neighbour : eliminatedNeighbours) {
+				Set<Variable> adjacent = neighbours.get(neighbour);
+				adjacent.remove(eliminated);
+				adjacent.addAll(eliminatedNeighbours);
+				adjacent.remove(neighbour);
+			}
+			order.add(eliminated);
+		}
+		return order;
+	}
+
+}
@@ -34,6 +34,7 @@ import org.openmarkov.core.model.network.potential.Potential;
 import org.openmarkov.core.model.network.potential.PotentialRole;
 import org.openmarkov.core.model.network.potential.TablePotential;
 import org.openmarkov.core.model.network.potential.operation.DiscretePotentialOperations;
+import org.openmarkov.inference.variableElimination.MultiQueryVariableElimination;
 import org.openmarkov.inference.variableElimination.VariableEliminationCore;
 
 import java.util.ArrayList;
@@ -75,6 +76,12 @@ public class VEPropagation extends VariableElimination implements Propagation {
 
 	private HashMap<Variable,Potential> optimalPolicies;
 
+	/**
+	 * When true and the network is a Bayesian network, the eliminations are shared by all the
+	 * variables of interest instead of running a complete variable elimination for each one.
+	 */
+	private boolean multiQuery = true;
+
 	/**
 	 * @param network Probabilistic network to be resolved
 	 * @throws NotEvaluableNetworkException  Constructor
@@ -144,11 +151,23 @@ public class VEPropagation extends VariableElimination implements Propagation {
 		List<Variable> evidenceVariables = evidence.getVariables();
 
 		if (variablesOfInterest != null) {
+			MultiQueryVariableElimination sharedElimination = null;
+			if (multiQuery && variablesOfInterest.size() > 1 && isMultiQueryApplicable()) {
+				ProbNet markovNetwork = TaskUtilities.projectTablesAndBuildMarkovDecisionNetwork(probNet, evidence);
+				List<TablePotential> potentials = new ArrayList<>();
+				for (Potential potential : markovNetwork.getPotentials()) {
+					potentials.add((TablePotential) potential);
+				}
+				sharedElimination = new MultiQueryVariableElimination(potentials);
+			}
 			for (Variable variableOfInterest : variablesOfInterest) {
 				try {
 					Variable variableOfInterestInProbnet = probNet.getVariable(variableOfInterest.getName());
 					if (evidenceVariables.contains(variableOfInterestInProbnet)) {
 						variablesOfInterestBelongingToEvidence.add(variableOfInterestInProbnet);
+					} else if (sharedElimination != null && sharedElimination.contains(variableOfInterestInProbnet)) {
+						posteriorValues.put(variableOfInterest,
+								getSharedPosteriorProbability(sharedElimination, variableOfInterestInProbnet));
 					} else {
 						ProbNet preprocessedNetwork = pruneNetwork(probNet.copy(), variableOfInterest);
 						ProbNet markovNetwork = TaskUtilities
@@ -185,6 +204,30 @@ public class VEPropagation extends VariableElimination implements Propagation {
 
 	// Methods
 
+	/**
+	 * @return True if the posterior probabilities can be computed on a single elimination tree:
+	 * the network only has chance nodes and there are no conditioning variables
+	 */
+	private boolean isMultiQueryApplicable() {
+		for (Node node : probNet.getNodes()) {
+			if (node.getNodeType() != NodeType.CHANCE) {
+				return false;
+			}
+		}
+		return getConditioningVariables() == null || getConditioningVariables().isEmpty();
+	}
+
+	private TablePotential getSharedPosteriorProbability(MultiQueryVariableElimination sharedElimination,
+			Variable variableOfInterest) throws IncompatibleEvidenceException {
+		TablePotential posteriorValue = sharedElimination.getProbability(variableOfInterest);
+		try {
+			DiscretePotentialOperations.normalize(posteriorValue);
+		} catch (NormalizeNullVectorException e) {
+			throw new IncompatibleEvidenceException("Incompatible Evidence");
+		}
+		return posteriorValue;
+	}
+
 	private void InvokeVariableEliminationCore(ProbNet network, EvidenceCase evidence, Variable variableOfInterest)
 			throws IncompatibleEvidenceException {
 		// Build list of variables to eliminate
@@ -298,4 +341,16 @@ public class VEPropagation extends VariableElimination implements Propagation {
 	public void setVariablesOfInterest(List<Variable> variablesOfInterest) {
 		this.variablesOfInterest = variablesOfInterest;
 	}
+
+	public boolean isMultiQuery() {
+		return multiQuery;
+	}
+
+	/**
+	 * @param multiQuery whether the eliminations are shared by the variables of interest
+	 *                   when the network only has chance nodes
+	 */
+	public void setMultiQuery(boolean multiQuery) {
+		this.multiQuery = multiQuery;
+	}
 }
\ No newline at end of file
@@ -12,7 +12,6 @@ import org.openmarkov.core.exception.NodeNotFoundException;
 import org.openmarkov.core.exception.NormalizeNullVectorException;
 import org.openmarkov.core.exception.NotEvaluableNetworkException;
 import org.openmarkov.core.io.database.CaseDatabase;
-import org.openmarkov.core.model.network.EvidenceCase;
 import org.openmarkov.core.model.network.NodeType;
 import org.openmarkov.core.model.network.ProbNet;
 import org.openmarkov.core.model.network.Variable;
@@ -21,8 +20,6 @@ import org.openmarkov.core.model.network.potential.PotentialRole;
 import org.openmarkov.core.model.network.potential.TablePotential;
 import org.openmarkov.core.model.network.potential.UniformPotential;
 import org.openmarkov.core.model.network.potential.canonical.ICIPotential;
-import org.openmarkov.inference.huginPropagation.ClusterPropagation.StorageLevel;
-import org.openmarkov.inference.huginPropagation.HuginPropagation;
 import org.openmarkov.learning.core.algorithm.LearningAlgorithm;
 import org.openmarkov.learning.core.algorithm.LearningAlgorithmType;
 import org.openmarkov.learning.core.util.LearningEditMotivation;
@@ -33,7 +30,6 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Callable;
 
 /**
  * Implements Expectation Maximization parametric learning algorithm
@@ -46,11 +42,28 @@ import java.util.concurrent.Callable;
 
 	private static final double EPSILON = 0.00001;
 
+	/**
+	 * Number of threads that propagate the evidence of the cases
+	 */
+	private int numThreads = 1;
+
 	public EMAlgorithm(ProbNet probNet, CaseDatabase caseDatabase, Double alpha) {
 		super(probNet, caseDatabase, alpha);
 		// TODO do something with alpha parameter, e.g. initialize non-latent variables
 	}
 
+	/**
+	 * @param numThreads number of threads that propagate the evidence of the
+	 *                   cases in the E-step. Values lower than 1 are set to 1
+	 */
+	public void setNumThreads(int numThreads) {
+		this.numThreads = Math.max(1, numThreads);
+	}
+
+	public int getNumThreads() {
+		return numThreads;
+	}
+
 	@Override public void init(ModelNetUse modelNetUse) {
 		// Nothing here
 
@@ -65,9 +78,6 @@ import java.util.concurrent.Callable;
 	 * Parametric learning
 	 */
 	@Override public ProbNet parametricLearning() throws NormalizeNullVectorException {
-		int[][] cases = caseDatabase.getCases();
-		List<Variable> variables = caseDatabase.getVariables();
-
 		//Init sigma
 		List<TablePotential> potentials = new ArrayList<>();
 		Map<ICIPotential, List<TablePotential>> iciSubpotentials = new HashMap<>();
@@ -79,10 +89,10 @@ import java.util.concurrent.Callable;
 			expertKnowledge.put(potential, new TablePotential((TablePotential) potential));
 		}
 
-		HuginPropagation inferenceAlgorithm = null;
+		// The junction tree is compiled once and reused for every case
+		ExpectedCountsCalculator expectedCountsCalculator = null;
 		try {
-			inferenceAlgorithm = new HuginPropagation(expandedNet);
-			inferenceAlgorithm.setStorageLevel(StorageLevel.FULL);
+			expectedCountsCalculator = new ExpectedCountsCalculator(expandedNet, numThreads);
 		} catch (NotEvaluableNetworkException e1) {
 			e1.printStackTrace();
 		}
@@ -95,32 +105,11 @@ import java.util.concurrent.Callable;
 			HashMap<Potential, TablePotential> expectedCountsMap = new HashMap<Potential, TablePotential>();
 
 			//E-step
-			//For each case in the database
-			int notNull = 0;
-			// List<Double> accruedWeights = new ArrayList<> (cases.length);
-			for (int i = 0; i < cases.length; ++i) {
-				Map<Variable, TablePotential> jointProbabilities = null;
-				try {
-					jointProbabilities = new JointProbabilityCalculator(variables, cases[i], inferenceAlgorithm,
-							expandedNet).call();
-				} catch (Exception e) {
-					e.printStackTrace();
-				}
-				if (jointProbabilities != null) {
-					notNull++;
-					System.out.println(notNull + " from " + i);
-					for (Potential potential : potentials) {
-						TablePotential jointProbability = jointProbabilities.get(potential.getVariable(0));
-						if (expectedCountsMap.containsKey(potential)) {
-							sum(expectedCountsMap.get(potential), jointProbability);
-						} else {
-							expectedCountsMap.put(potential, jointProbability);
-						}
-					}
-				}
-				// accruedWeights.add (inferenceAlgorithm.getAccruedWeight ());
+			//Each distinct case in the database is propagated once
+			Map<Variable, TablePotential> countsByVariable = expectedCountsCalculator.calculate(caseDatabase);
+			for (Potential potential : potentials) {
+				expectedCountsMap.put(potential, countsByVariable.get(potential.getVariable(0)));
 			}
-			// System.out.println(accruedWeights.toString ());
 			//M-step
 			for (TablePotential potential : potentials) {
 				Variable childVariable = potential.getVariables().get(0);
@@ -167,15 +156,6 @@ import java.util.concurrent.Callable;
 		return probNet;
 	}
 
-	private void sum(TablePotential tablePotential, TablePotential jointProbability) {
-		double[] tablePotentialValues = tablePotential.values;
-		double[] jointProbabilityValues = jointProbability.values;
-
-		for (int i = 0; i < tablePotentialValues.length; ++i) {
-			tablePotentialValues[i] += jointProbabilityValues[i];
-		}
-	}
-
 	private ProbNet adaptNetwork(ProbNet probNet, List<TablePotential> potentials,
 			Map<ICIPotential, List<TablePotential>> iciSubpotentials) {
 		ProbNet expandedNet = probNet.copy();
@@ -233,53 +213,4 @@ import java.util.concurrent.Callable;
 		return null;
 	}
 
-	private class JointProbabilityCalculator implements Callable<Map<Variable, TablePotential>> {
-		private List<Variable> variables;
-		private int[] dataCase;
-		private HuginPropagation inferenceAlgorithm;
-		private ProbNet expandedNet;
-
-		/**
-		 * Constructor for JointProbabilityCalculator.
-		 *
-		 * @param variables
-		 * @param dataCase
-		 * @param inferenceAlgorithm
-		 * @param expandedNet
-		 */
-		public JointProbabilityCalculator(List<Variable> variables, int[] dataCase, HuginPropagation inferenceAlgorithm,
-				ProbNet expandedNet) {
-			this.variables = variables;
-			this.dataCase = dataCase;
-			this.inferenceAlgorithm = inferenceAlgorithm;
-			this.expandedNet = expandedNet;
-		}
-
-		@Override public Map<Variable, TablePotential> call() throws Exception {
-			Map<Variable, TablePotential> jointProbabilities = new HashMap<>();
-			EvidenceCase caseEvidence = new EvidenceCase();
-			for (int j = 0; j < dataCase.length; ++j) {
-				Variable variable = variables.get(j);
-				try {
-					String stateName = variable.getStateName(dataCase[j]);
-					if (!stateName.equals("?")) {
-						caseEvidence.addFinding(expandedNet, variable.getName(), stateName);
-					}
-				} catch (Exception e) {
-					e.printStackTrace();
-				}
-			}
-			inferenceAlgorithm.setPostResolutionEvidence(caseEvidence);
-			for (Potential potential : expandedNet.getPotentials()) {
-				if (potential.getPotentialRole() == PotentialRole.CONDITIONAL_PROBABILITY) {
-					Variable conditioningVariable = potential.getVariable(0);
-					jointProbabilities.put(conditioningVariable,
-							inferenceAlgorithm.getJointProbability(potential.getVariables()));
-				}
-			}
-			return jointProbabilities;
-		}
-
-	}
-
 }
@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) CISIAD, UNED, Spain,  2019. Licensed under the GPLv3 licence
+ * Unless required by applicable law or agreed to in writing,
+ * this code is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OF ANY KIND.
+ */
+
+package org.openmarkov.learning.algorithm.em;
+
+import org.openmarkov.core.exception.NotEvaluableNetworkException;
+import org.openmarkov.core.io.database.CaseDatabase;
+import org.openmarkov.core.model.network.EvidenceCase;
+import org.openmarkov.core.model.network.ProbNet;
+import org.openmarkov.core.model.network.Variable;
+import org.openmarkov.core.model.network.potential.Potential;
+import org.openmarkov.core.model.network.potential.PotentialRole;
+import org.openmarkov.core.model.network.potential.TablePotential;
+import org.openmarkov.inference.huginPropagation.ClusterPropagation.StorageLevel;
+import org.openmarkov.inference.huginPropagation.HuginPropagation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Computes the expected counts of the E-step of the EM algorithm: for each
+ * conditional probability potential of the network, the sum over the cases of
+ * the joint probability of its variables given the case.
+ * The junction trees are compiled once, when the calculator is created, and
+ * then only the evidence changes. Identical cases are grouped once, on the
+ * first call for a database, so each distinct evidence pattern is propagated
+ * only once per iteration and its joint probabilities are weighted by the
+ * number of cases that share it. The patterns are split in
+ * blocks of fixed size that are propagated in parallel, one junction tree per
+ * thread, and summed in order; the result does not depend on the number of threads.
+ */
+public class ExpectedCountsCalculator {
+
+	/**
+	 * Number of evidence patterns propagated by a task
+	 */
+	private static final int PATTERNS_PER_BLOCK = 64;
+
+	private final ProbNet expandedNet;
+
+	private final int numThreads;
+
+	/**
+	 * Conditional probability potentials of the network, whose joint probabilities are summed
+	 */
+	private final List<Potential> conditionalPotentials;
+
+	/**
+	 * Compiled junction trees, one per thread
+	 */
+	private final BlockingQueue<HuginPropagation> propagations;
+
+	/**
+	 * Database whose cases are grouped in {@link #patterns}
+	 */
+	private CaseDatabase groupedDatabase;
+
+	/**
+	 * Distinct evidence patterns of {@link #groupedDatabase}, in order of first appearance
+	 */
+	private List<EvidencePattern> patterns;
+
+	/**
+	 * @param expandedNet network whose parameters are learnt
+	 * @param numThreads  number of threads. Values lower than 1 are set to 1
+	 * @throws NotEvaluableNetworkException if the network can not be evaluated by Hugin propagation
+	 */
+	public ExpectedCountsCalculator(ProbNet expandedNet, int numThreads) throws NotEvaluableNetworkException {
+		this.expandedNet = expandedNet;
+		this.numThreads = Math.max(1, numThreads);
+		this.conditionalPotentials = new ArrayList<>();
+		for (Potential potential : expandedNet.getPotentials()) {
+			if (potential.getPotentialRole() == PotentialRole.CONDITIONAL_PROBABILITY) {
+				conditionalPotentials.add(potential);
+			}
+		}
+		this.propagations = new ArrayBlockingQueue<>(this.numThreads);
+		for (int i = 0; i < this.numThreads; i++) {
+			HuginPropagation propagation = new HuginPropagation(expandedNet);
+			propagation.setStorageLevel(StorageLevel.FULL);
+			propagation.compilePriorPotentials();
+			propagations.add(propagation);
+		}
+	}
+
+	/**
+	 * @param caseDatabase cases. The cases are grouped on the first call and the
+	 *                     groups are reused while the same database is passed,
+	 *                     so its cases must not be changed between calls
+	 * @return The expected counts of each conditional probability potential,
+	 * identified by its conditioned variable. The cases whose propagation fails
+	 * are skipped
+	 */
+	public Map<Variable, TablePotential> calculate(CaseDatabase caseDatabase) {
+		List<Variable> variables = caseDatabase.getVariables();
+		if (caseDatabase != groupedDatabase) {
+			patterns = groupCases(caseDatabase);
+			groupedDatabase = caseDatabase;
+		}
+
+		List<Callable<Map<Variable, TablePotential>>> blocks = new ArrayList<>();
+		for (int first = 0; first < patterns.size(); first += PATTERNS_PER_BLOCK) {
+			int last = Math.min(first + PATTERNS_PER_BLOCK, patterns.size());
+			List<EvidencePattern> blockPatterns = patterns.subList(first, last);
+			blocks.add(() -> {
+				HuginPropagation propagation = propagations.take();
+				try {
+					Map<Variable, TablePotential> blockCounts = new HashMap<>();
+					for (EvidencePattern pattern : blockPatterns) {
+						Map<Variable, TablePotential> jointProbabilities = null;
+						try {
+							jointProbabilities = getJointProbabilities(propagation, variables, pattern.dataCase);
+						} catch (Exception e) {
+							e.printStackTrace();
+						}
+						if (jointProbabilities != null) {
+							accumulate(blockCounts, jointProbabilities, pattern.count);
+						}
+					}
+					return blockCounts;
+				} finally {
+					propagations.put(propagation);
+				}
+			});
+		}
+
+		Map<Variable, TablePotential> expectedCounts = new HashMap<>();
+		for (Map<Variable, TablePotential> blockCounts : run(blocks)) {
+			accumulate(expectedCounts, blockCounts, 1);
+		}
+		return expectedCounts;
+	}
+
+	/**
+	 * Groups the cases by evidence pattern. The cases are read one by one, so a
+	 * columnar database is not unpacked
+	 *
+	 * @return The distinct patterns, in order of first appearance
+	 */
+	private static List<EvidencePattern> groupCases(CaseDatabase caseDatabase) {
+		Map<EvidencePattern, EvidencePattern> patterns = new LinkedHashMap<>();
+		int[] dataCase = new int[caseDatabase.getVariables().size()];
+		for (int i = 0; i < caseDatabase.getNumCases(); i++) {
+			EvidencePattern pattern = patterns.get(new EvidencePattern(caseDatabase.getCase(i, dataCase)));
+			if (pattern == null) {
+				pattern = new EvidencePattern(dataCase.clone());
+				patterns.put(pattern, pattern);
+			}
+			pattern.count++;
+		}
+		return new ArrayList<>(patterns.keySet());
+	}
+
+	/**
+	 * @return The results of the blocks, in order
+	 */
+	private List<Map<Variable, TablePotential>> run(List<Callable<Map<Variable, TablePotential>>> blocks) {
+		List<Map<Variable, TablePotential>> results = new ArrayList<>(blocks.size());
+		if (numThreads == 1 || blocks.size() < 2) {
+			for (Callable<Map<Variable, TablePotential>> block : blocks) {
+				try {
+					results.add(block.call());
+				} catch (Exception e) {
+					throw new IllegalStateException("Computation of expected counts failed", e);
+				}
+			}
+			return results;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(numThreads, blocks.size()));
+		try {
+			for (Future<Map<Variable, TablePotential>> future : executor.invokeAll(blocks)) {
+				results.add(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Computation of expected counts interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Computation of expected counts failed", e.getCause());
+		} finally {
+			executor.shutdown();
+		}
+		return results;
+	}
+
+	/**
+	 * Propagates the evidence of a case
+	 *
+	 * @return The joint probability of the variables of each conditional
+	 * probability potential, identified by its conditioned variable
+	 */
+	private Map<Variable, TablePotential> getJointProbabilities(HuginPropagation propagation,
+			List<Variable> variables, int[] dataCase) throws Exception {
+		Map<Variable, TablePotential> jointProbabilities = new HashMap<>();
+		EvidenceCase caseEvidence = new EvidenceCase();
+		for (int j = 0; j < dataCase.length; ++j) {
+			Variable variable = variables.get(j);
+			try {
+				String stateName = variable.getStateName(dataCase[j]);
+				if (!stateName.equals("?")) {
+					caseEvidence.addFinding(expandedNet, variable.getName(), stateName);
+				}
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+		propagation.setPostResolutionEvidence(caseEvidence);
+		for (Potential potential : conditionalPotentials) {
+			jointProbabilities.put(potential.getVariable(0), propagation.getJointProbability(potential.getVariables()));
+		}
+		return jointProbabilities;
+	}
+
+	/**
+	 * Adds {@code weight} times each potential of {@code terms} to the potential
+	 * of {@code sums} with the same key, which is created if it does not exist.
+	 */
+	private static void accumulate(Map<Variable, TablePotential> sums, Map<Variable, TablePotential> terms,
+			int weight) {
+		for (Map.Entry<Variable, TablePotential> term : terms.entrySet()) {
+			TablePotential sum = sums.get(term.getKey());
+			double[] termValues = term.getValue().values;
+			if (sum == null) {
+				sum = new TablePotential(term.getValue());
+				sum.values = new double[termValues.length];
+				sums.put(term.getKey(), sum);
+			}
+			double[] sumValues = sum.values;
+			for (int i = 0; i < sumValues.length; ++i) {
+				sumValues[i] += weight * termValues[i];
+			}
+		}
+	}
+
+	/**
+	 * The states of a case, compared by value
+	 */
+	private static class EvidencePattern {
+
+		private final int[] dataCase;
+
+		private final int hashCode;
+
+		/**
+		 * Number of cases with this pattern
+		 */
+		private int count;
+
+		EvidencePattern(int[] dataCase) {
+			this.dataCase = dataCase;
+			this.hashCode = Arrays.hashCode(dataCase);
+		}
+
+		@Override public boolean equals(Object object) {
+			return object instanceof EvidencePattern && Arrays.equals(dataCase, ((EvidencePattern) object).dataCase);
+		}
+
+		@Override public int hashCode() {
+			return hashCode;
+		}
+	}
+
+}
@@ -134,16 +134,32 @@ import java.util.List;
 	}
 
 	/**
-	 * Method to obtain the edit with the highest associated score.
+	 * Sets the number of threads used by the metric to score the candidate
+	 * edits. The edit chosen in each step does not depend on it.
+	 *
+	 * @param numThreads number of threads
+	 */
+	public void setNumThreads(int numThreads) {
+		metric.setNumThreads(numThreads);
+	}
+
+	public int getNumThreads() {
+		return metric.getNumThreads();
+	}
+
+	/**
+	 * Method to obtain the edit with the highest associated score. The
+	 * candidates are ranked by score, ties broken by their position in the
+	 * enumeration of the variables, and the first one that passes the filters
+	 * is chosen; so the constraints of the net are only checked until the
+	 * best allowed edit is found.
 	 *
 	 * @param learnedNet net to learn.
 	 * @return <code>PNEdit</code> edit with the highest associated score.
 	 */
 	private LearningEditProposal getOptimalEdit(ProbNet learnedNet, boolean onlyAllowedEdits,
 			boolean onlyPositiveEdits) {
-		double bestPartialScore = Double.NEGATIVE_INFINITY;
-		LearningEditProposal bestEditProposal = null;
-		BaseLinkEdit bestEdit = null;
+		List<BaseLinkEdit> candidates = new ArrayList<BaseLinkEdit>();
 		for (Variable head : learnedNet.getVariables()) {
 			for (Variable tail : learnedNet.getVariables()) {
 				if (!head.equals(tail)) {
@@ -151,56 +167,39 @@ import java.util.List;
 					Node tailNode = learnedNet.getNode(tail);
 
 					if (!headNode.isParent(tailNode)) {
-						AddLinkEdit addLinkEdit = new AddLinkEdit(learnedNet, tail, head, true);
-						double addScore = metric.getScore(addLinkEdit);
-						/*
-						 * Check whether the score is the best to the moment and
-						 * whether this edit has not been already considered
-						 */
-						if ((addScore > bestPartialScore) && !isEditAlreadyConsidered(addLinkEdit)) {
-							if ((!onlyAllowedEdits || isAllowed(addLinkEdit)) && (!onlyPositiveEdits || addScore > 0)
-									&& !isBlocked(addLinkEdit)) {
-								bestEdit = addLinkEdit;
-								bestPartialScore = addScore;
-							}
-						}
+						candidates.add(new AddLinkEdit(learnedNet, tail, head, true));
 					} else {
-						RemoveLinkEdit removeLinkEdit = new RemoveLinkEdit(learnedNet, tail, head, true);
-						double removeScore = metric.getScore(removeLinkEdit);
-						/*
-						 * Check whether the score is the best to the moment and
-						 * whether this edit has not been already considered
-						 */
-						if ((removeScore > bestPartialScore) && !isEditAlreadyConsidered(removeLinkEdit)) {
-							if ((!onlyAllowedEdits || isAllowed(removeLinkEdit)) && (
-									!onlyPositiveEdits || removeScore > 0
-							) && !isBlocked(removeLinkEdit)) {
-								bestEdit = removeLinkEdit;
-								bestPartialScore = removeScore;
-							}
-						}
-
-						InvertLinkEdit invertLinkEdit = new InvertLinkEdit(learnedNet, tail, head, true);
-						double invertScore = metric.getScore(invertLinkEdit);
-						/*
-						 * Check whether the score is the best to the moment and
-						 * whether this edit has not been already considered
-						 */
-						if ((invertScore > bestPartialScore) && !isEditAlreadyConsidered(invertLinkEdit)) {
-							if ((!onlyAllowedEdits || isAllowed(invertLinkEdit)) && (
-									!onlyPositiveEdits || invertScore > 0
-							) && !isBlocked(invertLinkEdit)) {
-								bestEdit = invertLinkEdit;
-								bestPartialScore = invertScore;
-							}
-						}
+						candidates.add(new RemoveLinkEdit(learnedNet, tail, head, true));
+						candidates.add(new InvertLinkEdit(learnedNet, tail, head, true));
 					}
 				}
 			}
 		}
-		if (bestEdit != null) {
-			bestEditProposal = new HillClimbingEditProposal(bestEdit, bestPartialScore);
-			markEditAsConsidered(bestEdit);
+		final double[] scores = new double[candidates.size()];
+		List<Integer> ranking = new ArrayList<Integer>(candidates.size());
+		for (int i = 0; i < scores.length; i++) {
+			scores[i] = metric.getScore(candidates.get(i));
+			ranking.add(i);
+		}
+		// Stable sort: candidates with the same score keep the enumeration order
+		ranking.sort((i, j) -> Double.compare(scores[j], scores[i]));
+
+		LearningEditProposal bestEditProposal = null;
+		for (int i : ranking) {
+			double score = scores[i];
+			if (!(score > Double.NEGATIVE_INFINITY)) {
+				continue;
+			}
+			/* Scores are sorted, so no later candidate can be chosen */
+			if (onlyPositiveEdits && score <= 0) {
+				break;
+			}
+			BaseLinkEdit edit = candidates.get(i);
+			if (!isEditAlreadyConsidered(edit) && !isBlocked(edit) && (!onlyAllowedEdits || isAllowed(edit))) {
+				bestEditProposal = new HillClimbingEditProposal(edit, score);
+				markEditAsConsidered(edit);
+				break;
+			}
 		}
 		return bestEditProposal;
 	}
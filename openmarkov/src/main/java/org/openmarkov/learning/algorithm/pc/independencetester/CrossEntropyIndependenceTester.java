@@ -128,33 +128,10 @@ public class CrossEntropyIndependenceTester implements IndependenceTester {
 	 * parents.
 	 */
 	private TablePotential absoluteFrequencies(CaseDatabase caseDatabase, List<Node> nodeList) {
-		int index = 0;
 		List<Variable> variables = new ArrayList<>();
-		int[] indexes = new int[nodeList.size()];
 		for (Node node : nodeList) {
 			variables.add(node.getVariable());
-			indexes[index] = caseDatabase.getVariables().indexOf(node.getVariable());
-			index++;
 		}
-
-		TablePotential absoluteFreqPotential = new TablePotential(new ArrayList<Variable>(variables),
-				PotentialRole.CONDITIONAL_PROBABILITY);
-		double[] absoluteFreqs = absoluteFreqPotential.getValues();
-		int[] offsets = absoluteFreqPotential.getOffsets();
-		// Initialise the table
-		for (int i = 0; i < absoluteFreqs.length; i++) {
-			absoluteFreqs[i] = 0;
-		}
-		// Compute the absolute frequencies
-		int numVariables = variables.size();
-		int[][] cases = caseDatabase.getCases();
-		for (int i = 0; i < cases.length; i++) {
-			int iCPT = 0;
-			for (int j = 0; j < numVariables; ++j) {
-				iCPT += offsets[j] * cases[i][indexes[j]];
-			}
-			absoluteFreqs[iCPT]++;
-		}
-		return absoluteFreqPotential;
+		return new TablePotential(variables, PotentialRole.CONDITIONAL_PROBABILITY, caseDatabase.getCounts(variables));
 	}
 }
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) CISIAD, UNED, Spain,  2019. Licensed under the GPLv3 licence
+ * Unless required by applicable law or agreed to in writing,
+ * this code is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OF ANY KIND.
+ */
+
+package org.openmarkov.learning.algorithm.scoreAndSearch.cache;
+
+import org.openmarkov.core.model.network.Variable;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class stores the scores of the families (a child variable and the set
+ * of its parents) evaluated during the learning process, so that the case
+ * database is not scanned again for a family already seen. The order of the
+ * parents does not change the score, so a family is identified by its child
+ * and the set of its parents. When the cache is full the least recently used
+ * family is discarded. The cache can be shared by the threads that score
+ * editions concurrently.
+ */
+public class FamilyScoreCache {
+
+	/**
+	 * Default maximum number of families stored
+	 */
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+
+	/**
+	 * Maximum number of families stored
+	 */
+	protected int capacity;
+
+	/**
+	 * Score of each family, in access order
+	 */
+	protected LinkedHashMap<Family, Double> scores;
+
+	protected long hits;
+
+	protected long misses;
+
+	public FamilyScoreCache() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity maximum number of families stored. Values lower than 1 are set to 1
+	 */
+	public FamilyScoreCache(int capacity) {
+		this.capacity = Math.max(1, capacity);
+		this.scores = new LinkedHashMap<Family, Double>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override protected boolean removeEldestEntry(Map.Entry<Family, Double> eldest) {
+				return size() > FamilyScoreCache.this.capacity;
+			}
+		};
+	}
+
+	/**
+	 * Obtain the score of a family.
+	 *
+	 * @param child   child variable
+	 * @param parents parents of the child, in any order
+	 * @return the score of the family, or null if it is not in the cache
+	 */
+	public synchronized Double getScore(Variable child, Collection<Variable> parents) {
+		Double score = scores.get(new Family(child, parents));
+		if (score == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return score;
+	}
+
+	/**
+	 * Set the score of a family.
+	 *
+	 * @param child   child variable
+	 * @param parents parents of the child, in any order
+	 * @param score   score of the family
+	 */
+	public synchronized void cacheScore(Variable child, Collection<Variable> parents, double score) {
+		scores.put(new Family(child, parents), score);
+	}
+
+	/**
+	 * Removes all the families
+	 */
+	public synchronized void flush() {
+		scores.clear();
+		hits = 0;
+		misses = 0;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public synchronized int size() {
+		return scores.size();
+	}
+
+	/**
+	 * @return number of requested families found in the cache since the last flush
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return number of requested families not found in the cache since the last flush
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Key of the cache: a child and the set of its parents
+	 */
+	protected static class Family {
+
+		private final Variable child;
+
+		private final Set<Variable> parents;
+
+		private final int hashCode;
+
+		Family(Variable child, Collection<Variable> parents) {
+			this.child = child;
+			this.parents = new HashSet<>(parents);
+			this.hashCode = 31 * child.hashCode() + this.parents.hashCode();
+		}
+
+		@Override public boolean equals(Object object) {
+			if (this == object) {
+				return true;
+			}
+			if (!(object instanceof Family)) {
+				return false;
+			}
+			Family family = (Family) object;
+			return hashCode == family.hashCode && child.equals(family.child) && parents.equals(family.parents);
+		}
+
+		@Override public int hashCode() {
+			return hashCode;
+		}
+	}
+
+}
@@ -19,11 +19,19 @@ import org.openmarkov.core.model.network.ProbNet;
 import org.openmarkov.core.model.network.Variable;
 import org.openmarkov.core.model.network.potential.TablePotential;
 import org.openmarkov.learning.algorithm.scoreAndSearch.cache.Cache;
+import org.openmarkov.learning.algorithm.scoreAndSearch.cache.FamilyScoreCache;
 import org.openmarkov.learning.core.util.Util;
 
 import javax.swing.event.UndoableEditEvent;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * This abstract class defines the basic elements of a metric.
@@ -66,6 +74,17 @@ public abstract class Metric implements PNUndoableEditListener {
 	 */
 	protected Map<String, Double> cachedNodeScores;
 
+	/**
+	 * Scores of the families (child and set of parents) already evaluated,
+	 * so that the case database is not scanned again for them
+	 */
+	protected FamilyScoreCache familyScoreCache = new FamilyScoreCache();
+
+	/**
+	 * Number of threads used to score the candidate editions
+	 */
+	protected int numThreads = 1;
+
 	// Constructor
 
 	/**
@@ -77,6 +96,7 @@ public abstract class Metric implements PNUndoableEditListener {
 	public void init(ProbNet probNet, CaseDatabase caseDatabase) {
 		this.probNet = probNet;
 		this.caseDatabase = caseDatabase;
+		familyScoreCache.flush();
 
 		probNet.getPNESupport().addUndoableEditListener(this);
 	}
@@ -90,6 +110,38 @@ public abstract class Metric implements PNUndoableEditListener {
 	 */
 	public abstract double score(TablePotential nodePotential);
 
+	/**
+	 * Sets the maximum number of family scores kept between iterations. The
+	 * scores stored so far are discarded.
+	 *
+	 * @param capacity maximum number of families in the cache
+	 */
+	public void setFamilyScoreCacheCapacity(int capacity) {
+		familyScoreCache = new FamilyScoreCache(capacity);
+	}
+
+	/**
+	 * Sets the number of threads that score the candidate editions when the
+	 * cache is filled or updated. The scores, and so the edition chosen, do not
+	 * depend on it.
+	 *
+	 * @param numThreads number of threads. Values lower than 1 are set to 1
+	 */
+	public void setNumThreads(int numThreads) {
+		this.numThreads = Math.max(1, numThreads);
+	}
+
+	public int getNumThreads() {
+		return numThreads;
+	}
+
+	/**
+	 * @return the cache of family scores
+	 */
+	public FamilyScoreCache getFamilyScoreCache() {
+		return familyScoreCache;
+	}
+
 	/**
 	 * Scores the associated network.
 	 */
@@ -128,6 +180,49 @@ public abstract class Metric implements PNUndoableEditListener {
 		return newScore;
 	}
 
+	/**
+	 * Scores the given editions, in parallel if more than one thread has been
+	 * configured. The editions must not be done while they are being scored.
+	 *
+	 * @param edits editions to score
+	 * @return the score of each edition
+	 */
+	protected double[] score(List<PNEdit> edits) {
+		double[] scores = new double[edits.size()];
+		int numTasks = Math.min(numThreads, edits.size());
+		if (numTasks <= 1) {
+			for (int i = 0; i < scores.length; i++) {
+				scores[i] = score(edits.get(i));
+			}
+			return scores;
+		}
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (int task = 0; task < numTasks; task++) {
+			final int firstEdit = task;
+			// Interleave the editions, since the cost of a family grows with its number of parents
+			tasks.add(() -> {
+				for (int i = firstEdit; i < scores.length; i += numTasks) {
+					scores[i] = score(edits.get(i));
+				}
+				return null;
+			});
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(numTasks);
+		try {
+			for (Future<Void> future : executor.invokeAll(tasks)) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Scoring of editions interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Scoring of editions failed", e.getCause());
+		} finally {
+			executor.shutdown();
+		}
+		return scores;
+	}
+
 	/**
 	 * Scores the associated network with the link given in the received
 	 * edition added. We only have to recalculate the score
@@ -148,9 +243,7 @@ public abstract class Metric implements PNUndoableEditListener {
 		double newNodeScore;
 
 		lastNodeScore = cachedNodeScores.get(destinationNode.getName());
-		TablePotential absFrequencies = Util
-				.getAbsoluteFreqExtraParent(probNet, caseDatabase, destinationNode, originNode);
-		newNodeScore = scoreNode(destinationNode, absFrequencies, false);
+		newNodeScore = scoreFamily(destinationNode, originNode, null);
 
 		/*If change is true it's because we have to update the probNet values
 		 * and store the node dimension and entropy to avoid repeating the
@@ -181,9 +274,7 @@ public abstract class Metric implements PNUndoableEditListener {
 		double newNodeScore;
 
 		lastNodeScore = cachedNodeScores.get(destinationNode.getName());
-		TablePotential absFrequencies = Util
-				.getAbsoluteFreqRemovingParent(probNet, caseDatabase, destinationNode, originNode);
-		newNodeScore = scoreNode(destinationNode, absFrequencies, false);
+		newNodeScore = scoreFamily(destinationNode, null, originNode);
 
 		/*If change is true it's because we have to update the probNet values
 		 * and store the node dimension and entropy to avoid repeating the
@@ -214,9 +305,7 @@ public abstract class Metric implements PNUndoableEditListener {
 		double newNodeScore;
 		double result;
 		lastNodeScore = cachedNodeScores.get(initialDestinationNode.getName());
-		TablePotential absFrequencies = Util
-				.getAbsoluteFreqRemovingParent(probNet, caseDatabase, initialDestinationNode, initialOriginNode);
-		newNodeScore = scoreNode(initialDestinationNode, absFrequencies, false);
+		newNodeScore = scoreFamily(initialDestinationNode, null, initialOriginNode);
 		/*
 		 * If change is true it's because we have to update the probNet values
 		 * and store the node dimension and entropy to avoid repeating the
@@ -227,9 +316,7 @@ public abstract class Metric implements PNUndoableEditListener {
 		}
 		result = newNodeScore - lastNodeScore;
 		lastNodeScore = cachedNodeScores.get(((Node) initialOriginNode).getName());
-		absFrequencies = Util
-				.getAbsoluteFreqExtraParent(probNet, caseDatabase, initialOriginNode, initialDestinationNode);
-		newNodeScore = scoreNode(initialOriginNode, absFrequencies, false);
+		newNodeScore = scoreFamily(initialOriginNode, initialDestinationNode, null);
 		/*
 		 * If change is true it's because we have to update the probNet values
 		 * and store the node dimension and entropy to avoid repeating the
@@ -243,22 +330,35 @@ public abstract class Metric implements PNUndoableEditListener {
 	}
 
 	/**
-	 * Scores the given node with the new parent given.
+	 * Scores the given node with its current parents plus an extra parent or
+	 * minus a removed parent. The score of each family is computed from the
+	 * case database only the first time it is requested; afterwards it is
+	 * taken from the family score cache.
 	 *
-	 * @param node           <code>Node</code>
-	 * @param absFrequencies
-	 * @param change         <code>boolean</code> indicates whether the edition is
-	 *                       definitive (UndoableEditHappend called this method) or not.
-	 * @return <code>double</code> score of the node with the given parent
+	 * @param node          <code>Node</code>
+	 * @param extraParent   parent added to the family, or null
+	 * @param removedParent parent removed from the family, or null
+	 * @return <code>double</code> score of the node with the resulting parents
 	 */
-	protected double scoreNode(Node node, TablePotential absFrequencies, boolean change) {
-		double nodeScore = score(absFrequencies);
-
-		/* Store the entropy of the node to avoid repeating the calculations */
-		if (change) {
-			cachedNodeScores.put(node.getName(), new Double(nodeScore));
+	protected double scoreFamily(Node node, Node extraParent, Node removedParent) {
+		List<Variable> parents = new ArrayList<Variable>();
+		for (Node parent : node.getParents()) {
+			if (parent != removedParent && parent != extraParent) {
+				parents.add(parent.getVariable());
+			}
 		}
-		return nodeScore;
+		if (extraParent != null) {
+			parents.add(extraParent.getVariable());
+		}
+		Double familyScore = familyScoreCache.getScore(node.getVariable(), parents);
+		if (familyScore == null) {
+			TablePotential absFrequencies = (removedParent == null) ?
+					Util.getAbsoluteFreqExtraParent(probNet, caseDatabase, node, extraParent) :
+					Util.getAbsoluteFreqRemovingParent(probNet, caseDatabase, node, removedParent);
+			familyScore = score(absFrequencies);
+			familyScoreCache.cacheScore(node.getVariable(), parents, familyScore);
+		}
+		return familyScore;
 	}
 
 	/**
@@ -311,20 +411,44 @@ public abstract class Metric implements PNUndoableEditListener {
 
 		cachedScore = 0;
 		for (Node node : probNet.getNodes()) {
-			cachedScore += scoreNode(node, Util.getAbsoluteFreqExtraParent(probNet, caseDatabase, node, null), true);
+			double nodeScore = scoreFamily(node, null, null);
+			cachedNodeScores.put(node.getName(), nodeScore);
+			cachedScore += nodeScore;
 		}
-		PNEdit edit;
+		List<PNEdit> edits = new ArrayList<PNEdit>();
 		for (Variable tail : probNet.getVariables()) {
 			for (Variable head : probNet.getVariables()) {
 				if ((!tail.equals(head)) && (!isFixedLink(probNet, tail, head))) {
-					if (!probNet.getNode(head).isParent(probNet.getNode(tail)))
-						edit = new AddLinkEdit(probNet, tail, head, true);
-					else
-						edit = new RemoveLinkEdit(probNet, tail, head, true);
-					cache.cacheScore(edit, score(edit));
+					edits.add(getLinkEdit(tail, head));
 				}
 			}
 		}
+		cacheScores(edits);
+	}
+
+	/**
+	 * @param tail origin variable
+	 * @param head destination variable
+	 * @return the edition that adds the link from tail to head, or removes it if it already exists
+	 */
+	private PNEdit getLinkEdit(Variable tail, Variable head) {
+		if (!probNet.getNode(head).isParent(probNet.getNode(tail))) {
+			return new AddLinkEdit(probNet, tail, head, true);
+		} else {
+			return new RemoveLinkEdit(probNet, tail, head, true);
+		}
+	}
+
+	/**
+	 * Scores the editions and stores their scores in the cache
+	 *
+	 * @param edits editions to score
+	 */
+	private void cacheScores(List<PNEdit> edits) {
+		double[] scores = score(edits);
+		for (int i = 0; i < scores.length; i++) {
+			cache.cacheScore(edits.get(i), scores[i]);
+		}
 	}
 
 	/**
@@ -349,7 +473,7 @@ public abstract class Metric implements PNUndoableEditListener {
 				e.printStackTrace();
 			}
 		}
-		PNEdit updatedEdit;
+		List<PNEdit> updatedEdits = new ArrayList<PNEdit>();
 		/* Obtain the destination node of the given edition */
 		Variable head = edit.getVariable2();
 		/*
@@ -358,12 +482,7 @@ public abstract class Metric implements PNUndoableEditListener {
 		 */
 		for (Variable tail : probNet.getVariables()) {
 			if ((!tail.equals(head)) && (!isFixedLink(probNet, tail, head))) {
-				if (!probNet.getNode(head).isParent(probNet.getNode(tail))) {
-					updatedEdit = new AddLinkEdit(probNet, tail, head, true);
-				} else {
-					updatedEdit = new RemoveLinkEdit(probNet, tail, head, true);
-				}
-				cache.cacheScore(updatedEdit, score(updatedEdit));
+				updatedEdits.add(getLinkEdit(tail, head));
 			}
 		}
 
@@ -375,15 +494,11 @@ public abstract class Metric implements PNUndoableEditListener {
 			Variable head2 = edit.getVariable1();
 			for (Variable tail : probNet.getVariables()) {
 				if ((!tail.equals(head2)) && (!isFixedLink(probNet, tail, head2))) {
-					if (!probNet.getNode(head2).isParent(probNet.getNode(tail))) {
-						updatedEdit = new AddLinkEdit(probNet, tail, head2, true);
-					} else {
-						updatedEdit = new RemoveLinkEdit(probNet, tail, head2, true);
-					}
-					cache.cacheScore(updatedEdit, score(updatedEdit));
+					updatedEdits.add(getLinkEdit(tail, head2));
 				}
 			}
 		}
+		cacheScores(updatedEdits);
 	}
 
 }
@@ -104,6 +104,8 @@ public class LearningManager {
 
 		this.addElviraProperties(learnedNet);
 		this.modelNetUse = modelNetUse;
+		// The algorithms only count cases, so they work on packed columns
+		this.caseDatabase = this.caseDatabase.toColumnar();
 	}
 
 	public static Set<String> getAlgorithmNames() {
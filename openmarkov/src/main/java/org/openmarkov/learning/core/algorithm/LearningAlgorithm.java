@@ -256,44 +256,11 @@ public abstract class LearningAlgorithm {
 	 * parents.
 	 */
 	private TablePotential getAbsoluteFrequencies(CaseDatabase caseDatabase, Node node) {
-		Variable variable = node.getVariable();
-		List<Node> parents = node.getParents();
-		int numParents = parents.size();
-		int[] indexesOfParents = new int[numParents];
-		int[] parentsStateNum = new int[numParents];
 		List<Variable> variables = new ArrayList<Variable>();
-		variables.add(variable);
-		if (!parents.isEmpty()) {
-			int indexOfParent = 0;
-			for (Node parent : parents) {
-				Variable parentVariable = parent.getVariable();
-				variables.add(parentVariable);
-				indexesOfParents[indexOfParent] = caseDatabase.getVariables().indexOf(parentVariable);
-				parentsStateNum[indexOfParent] = parentVariable.getNumStates();
-				indexOfParent++;
-			}
-		}
-
-		int numValues = variable.getNumStates();
-		TablePotential absoluteFreqPotential = new TablePotential(variables, PotentialRole.CONDITIONAL_PROBABILITY);
-		double[] absoluteFreqs = absoluteFreqPotential.getValues();
-		int iNode = caseDatabase.getVariables().indexOf(variable);
-
-		// Initialize the table
-		for (int i = 0; i < absoluteFreqs.length; i++) {
-			absoluteFreqs[i] = 0;
-		}
-
-		variables.remove(0);
-		// Compute the absolute frequencies
-		int[][] cases = caseDatabase.getCases();
-		for (int i = 0; i < cases.length; i++) {
-			int iCPT = 0;
-			for (int j = numParents - 1; j >= 0; --j) {
-				iCPT = iCPT * parentsStateNum[j] + cases[i][indexesOfParents[j]];
-			}
-			absoluteFreqs[numValues * iCPT + cases[i][iNode]]++;
+		variables.add(node.getVariable());
+		for (Node parent : node.getParents()) {
+			variables.add(parent.getVariable());
 		}
-		return absoluteFreqPotential;
+		return new TablePotential(variables, PotentialRole.CONDITIONAL_PROBABILITY, caseDatabase.getCounts(variables));
 	}
 }
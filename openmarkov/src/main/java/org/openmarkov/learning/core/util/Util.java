@@ -39,40 +39,7 @@ public class Util {
 	 */
 	private static TablePotential getAbsoluteFrequencies(ProbNet probNet, CaseDatabase caseDatabase, Node node,
 			List<Variable> variables) {
-		int parentsConfigurations = 1;
-		int numValues = node.getVariable().getNumStates();
-		// We miss the first one as it is the node itself, not one of its parents
-		int[] indexesOfParents = new int[variables.size() - 1];
-		for (int i = 0; i < indexesOfParents.length; ++i) {
-			indexesOfParents[i] = caseDatabase.getVariables().indexOf(variables.get(i + 1));
-			parentsConfigurations *= variables.get(i + 1).getNumStates();
-		}
-		TablePotential absoluteFreqPotential = new TablePotential(variables, PotentialRole.CONDITIONAL_PROBABILITY);
-		double[] absoluteFreqs = absoluteFreqPotential.getValues();
-		// Initialize the table
-		for (int i = 0; i < parentsConfigurations * numValues; i++) {
-			absoluteFreqs[i] = 0;
-		}
-		variables.remove(0);
-		// Compute the absolute frequencies
-		int iCPT;
-		int iParent, iNode = caseDatabase.getVariables().indexOf(node.getVariable());
-		if (iNode == -1)
-			System.out.println("fdx");
-		int[][] cases = caseDatabase.getCases();
-		List<Node> nodes = probNet.getNodes(variables);
-		for (int i = 0; i < cases.length; i++) {
-			iCPT = 0;
-			for (int j = 0; j < nodes.size(); ++j) {
-				iParent = indexesOfParents[j];
-				iCPT = iCPT * nodes.get(j).getVariable().getNumStates() + cases[i][iParent];
-			}
-			if (numValues * iCPT + cases[i][iNode] >= absoluteFreqs.length)
-				System.out.println("fdx");
-
-			absoluteFreqs[numValues * iCPT + cases[i][iNode]]++;
-		}
-		return absoluteFreqPotential;
+		return new TablePotential(variables, PotentialRole.CONDITIONAL_PROBABILITY, caseDatabase.getCounts(variables));
 	}
 
 	/**
@@ -56,7 +56,7 @@ import java.util.HashMap;
 	 * @return <code>double</code> score of the net
 	 */
 	public double score() {
-		return super.getScore() - (calculateDimension() / 2) * Math.log(caseDatabase.getCases().length);
+		return super.getScore() - (calculateDimension() / 2) * Math.log(caseDatabase.getNumCases());
 	}
 
 	/**
@@ -74,7 +74,7 @@ import java.util.HashMap;
 	protected double score(AddLinkEdit edit, boolean change) {
 
 		Node destinationNode = probNet.getNode(edit.getVariable2());
-		double coefficient = Math.log(caseDatabase.getCases().length) / 2;
+		double coefficient = Math.log(caseDatabase.getNumCases()) / 2;
 		/* Dimension of the node without adding the link */
 		double lastNodeDimension = nodesDimensions.get(((Node) destinationNode).getName());
 		/* To calculate the new dimension, we subtract the last dimension
@@ -105,7 +105,7 @@ import java.util.HashMap;
 	protected double score(RemoveLinkEdit edit, boolean change) {
 
 		Node destinationNode = probNet.getNode(edit.getVariable2());
-		double coefficient = Math.log(caseDatabase.getCases().length) / 2;
+		double coefficient = Math.log(caseDatabase.getNumCases()) / 2;
 
 		/* dimension of the node without adding the link */
 		double lastNodeDimension = nodesDimensions.get(destinationNode.getName());
@@ -136,7 +136,7 @@ import java.util.HashMap;
 
 		Node initialDestinationNode = probNet.getNode(edit.getVariable2());
 		Node initialOriginNode = probNet.getNode(edit.getVariable1());
-		double coefficient = Math.log(caseDatabase.getCases().length) / 2;
+		double coefficient = Math.log(caseDatabase.getNumCases()) / 2;
 
 		/* dimension of the node without adding the link */
 		double lastNodeDimension = nodesDimensions.get(initialDestinationNode.getName());
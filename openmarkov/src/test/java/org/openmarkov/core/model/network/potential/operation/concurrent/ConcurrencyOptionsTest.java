@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) CISIAD, UNED, Spain,  2019. Licensed under the GPLv3 licence
+ * Unless required by applicable law or agreed to in writing,
+ * this code is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OF ANY KIND.
+ */
+
+package org.openmarkov.core.model.network.potential.operation.concurrent;
+
+import junit.framework.TestCase;
+import org.openmarkov.core.inference.ConcurrencyOptions;
+import org.openmarkov.core.model.network.NodeType;
+import org.openmarkov.core.model.network.ProbNet;
+import org.openmarkov.core.model.network.Variable;
+import org.openmarkov.core.model.network.potential.PotentialRole;
+import org.openmarkov.core.model.network.potential.TablePotential;
+import org.openmarkov.inference.huginPropagation.HuginPropagation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Checks that the concurrency options of the network decide how the potential
+ * operations of an inference algorithm are computed.
+ */
+public class ConcurrencyOptionsTest extends TestCase {
+
+	public void testOptionsOfTheNetworkAreUsedByPropagation() throws Exception {
+		ProbNet probNet = createNetwork();
+
+		// Disabled: every operation falls back to the sequential version
+		probNet.getInferenceOptions().setConcurrencyOptions(new ConcurrencyOptions(false, 5, 1));
+		Map<Variable, TablePotential> sequential = propagate(probNet);
+		assertFalse(DiscretePotentialOperations.hasPool(5));
+
+		// Enabled with 3 threads and no minimum work: the operations run in a pool of 3 threads
+		probNet.getInferenceOptions().setConcurrencyOptions(new ConcurrencyOptions(true, 3, 1));
+		Map<Variable, TablePotential> parallel = propagate(probNet);
+		assertTrue(DiscretePotentialOperations.hasPool(3));
+		assertFalse(DiscretePotentialOperations.hasPool(5));
+
+		assertEquals(sequential.size(), parallel.size());
+		for (Map.Entry<Variable, TablePotential> entry : sequential.entrySet()) {
+			double[] expected = entry.getValue().values;
+			double[] actual = getPosterior(parallel, entry.getKey().getName()).values;
+			assertEquals(expected.length, actual.length);
+			for (int i = 0; i < expected.length; i++) {
+				assertEquals(expected[i], actual[i], 1e-12);
+			}
+		}
+	}
+
+	private Map<Variable, TablePotential> propagate(ProbNet probNet) throws Exception {
+		return new HuginPropagation(probNet).getPosteriorValues();
+	}
+
+	private TablePotential getPosterior(Map<Variable, TablePotential> posteriors, String name) {
+		for (Map.Entry<Variable, TablePotential> entry : posteriors.entrySet()) {
+			if (entry.getKey().getName().equals(name)) {
+				return entry.getValue();
+			}
+		}
+		fail("No posterior of " + name);
+		return null;
+	}
+
+	/**
+	 * @return A network A -&gt; B -&gt; C, B -&gt; D, C -&gt; D with three states per variable
+	 * and random conditional probabilities
+	 */
+	private ProbNet createNetwork() throws Exception {
+		Random random = new Random(3);
+		ProbNet probNet = new ProbNet();
+		Variable a = new Variable("A", "a0", "a1", "a2");
+		Variable b = new Variable("B", "b0", "b1", "b2");
+		Variable c = new Variable("C", "c0", "c1", "c2");
+		Variable d = new Variable("D", "d0", "d1", "d2");
+		for (Variable variable : Arrays.asList(a, b, c, d)) {
+			probNet.addNode(variable, NodeType.CHANCE);
+		}
+		probNet.addLink(a, b, true);
+		probNet.addLink(b, c, true);
+		probNet.addLink(b, d, true);
+		probNet.addLink(c, d, true);
+		addPotential(probNet, random, a);
+		addPotential(probNet, random, b, a);
+		addPotential(probNet, random, c, b);
+		addPotential(probNet, random, d, b, c);
+		return probNet;
+	}
+
+	private void addPotential(ProbNet probNet, Random random, Variable child, Variable... parents) {
+		List<Variable> variables = new ArrayList<>();
+		variables.add(child);
+		variables.addAll(Arrays.asList(parents));
+		TablePotential potential = new TablePotential(variables, PotentialRole.CONDITIONAL_PROBABILITY);
+		int numStates = child.getNumStates();
+		// the child is the first variable, so each configuration of the parents is a block of numStates cells
+		for (int block = 0; block < potential.values.length; block += numStates) {
+			double sum = 0;
+			for (int i = block; i < block + numStates; i++) {
+				potential.values[i] = 0.1 + random.nextDouble();
+				sum += potential.values[i];
+			}
+			for (int i = block; i < block + numStates; i++) {
+				potential.values[i] /= sum;
+			}
+		}
+		probNet.getNode(child).setPotential(potential);
+	}
+}